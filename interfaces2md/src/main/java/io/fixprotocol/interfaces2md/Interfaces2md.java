@@ -15,35 +15,61 @@
 package io.fixprotocol.interfaces2md;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.Objects;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.DefaultParser;
 import org.apache.commons.cli.HelpFormatter;
 import org.apache.commons.cli.Option;
+import org.apache.commons.cli.OptionGroup;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import io.fixprotocol.interfaces2md.util.FileStreams;
+import io.fixprotocol.interfaces2md.util.ReplacingOutputStream;
 
 public class Interfaces2md {
 
   public static class Builder {
 
 
+    private int bufferSize = FileStreams.DEFAULT_BUFFER_SIZE;
     private String eventFile;
     private String inputFile;
+    private boolean isSharded;
     private String outputFile;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private boolean shouldStream;
 
+    /**
+     * @return a new Interfaces2md
+     * @throws IllegalArgumentException if both sharded output and streaming input are requested
+     */
     public Interfaces2md build() {
+      if (isSharded && shouldStream) {
+        throw new IllegalArgumentException("Sharded output cannot be combined with streaming");
+      }
       return new Interfaces2md(this);
     }
 
+    /**
+     * Size of buffers for file input and output
+     *
+     * @param bufferSize buffer size in bytes
+     * @return this Builder
+     */
+    public Builder bufferSize(final int bufferSize) {
+      this.bufferSize = bufferSize;
+      return this;
+    }
+
     public Builder eventFile(final String eventFile) {
       this.eventFile = eventFile;
       return this;
@@ -58,6 +84,44 @@ public class Interfaces2md {
       this.outputFile = outputFile;
       return this;
     }
+
+    /**
+     * Maximum number of interfaces rendered concurrently when output is sharded
+     *
+     * @param parallelism number of threads, at least 1. Default is the number of available
+     *        processors.
+     * @return this Builder
+     */
+    public Builder parallelism(final int parallelism) {
+      this.parallelism = parallelism;
+      return this;
+    }
+
+    /**
+     * Write each interface to its own markdown file, and the output file as an index that links
+     * them. An interface document is only regenerated if the interface has changed since the
+     * previous run. Cannot be combined with {@link #streaming(boolean)}.
+     *
+     * @param isSharded {@code true} to write a document per interface
+     * @return this Builder
+     */
+    public Builder sharded(final boolean isSharded) {
+      this.isSharded = isSharded;
+      return this;
+    }
+
+    /**
+     * Read input one interface and one session at a time rather than as a whole document, so
+     * that memory use does not grow with the number of sessions. Cannot be combined with
+     * {@link #sharded(boolean)}.
+     *
+     * @param shouldStream {@code true} to stream input
+     * @return this Builder
+     */
+    public Builder streaming(final boolean shouldStream) {
+      this.shouldStream = shouldStream;
+      return this;
+    }
   }
 
   /**
@@ -66,8 +130,12 @@ public class Interfaces2md {
    * <pre>
    * usage: Interfaces2md [options] &lt;input-file&gt;
  -?,--help             display usage
+    --buffersize &lt;arg&gt; I/O buffer size in bytes
  -e,--eventlog lt;arg&gt;   path of JSON event file
  -o,--output lt;arg&gt;     path of markdown output file (required)
+    --parallelism &lt;arg&gt; number of interfaces rendered concurrently
+    --sharded          write a file per interface with output as index
+    --streaming        read one interface and session at a time
    * </pre>
    * @param args command line arguments
    */
@@ -84,6 +152,16 @@ public class Interfaces2md {
         .numberOfArgs(1).build());
     options.addOption(
         Option.builder("?").numberOfArgs(0).desc("display usage").longOpt("help").build());
+    options.addOption(Option.builder().desc("I/O buffer size in bytes").longOpt("buffersize")
+        .numberOfArgs(1).type(Number.class).build());
+    final OptionGroup outputGroup = new OptionGroup();
+    outputGroup.addOption(Option.builder().desc("read one interface and session at a time")
+        .longOpt("streaming").build());
+    outputGroup.addOption(Option.builder().desc("write a file per interface with output as index")
+        .longOpt("sharded").build());
+    options.addOptionGroup(outputGroup);
+    options.addOption(Option.builder().desc("number of interfaces rendered concurrently")
+        .longOpt("parallelism").numberOfArgs(1).type(Number.class).build());
 
     final DefaultParser parser = new DefaultParser();
     final CommandLine cmd;
@@ -105,6 +183,22 @@ public class Interfaces2md {
         builder.eventFile = cmd.getOptionValue("e");
       }
 
+      if (cmd.hasOption("buffersize")) {
+        builder.bufferSize = ((Number) cmd.getParsedOptionValue("buffersize")).intValue();
+      }
+
+      if (cmd.hasOption("streaming")) {
+        builder.shouldStream = true;
+      }
+
+      if (cmd.hasOption("sharded")) {
+        builder.isSharded = true;
+      }
+
+      if (cmd.hasOption("parallelism")) {
+        builder.parallelism = ((Number) cmd.getParsedOptionValue("parallelism")).intValue();
+      }
+
       return builder;
     } catch (final ParseException e) {
       showHelp(options);
@@ -117,58 +211,103 @@ public class Interfaces2md {
     formatter.printHelp("Interfaces2md [options] <input-file>", options);
   }
 
+  private final int bufferSize;
   private final String eventFilename;
   private final String inputFilename;
   private final Logger logger = LogManager.getLogger(getClass());
+  private final boolean isSharded;
   private final String outputFilename;
+  private ReplacingOutputStream.Outcome outputOutcome;
+  private final int parallelism;
+  private final boolean shouldStream;
 
   private Interfaces2md(final Builder builder) {
     this.inputFilename = builder.inputFile;
     this.outputFilename = builder.outputFile;
     this.eventFilename = builder.eventFile;
+    this.bufferSize = builder.bufferSize;
+    this.shouldStream = builder.shouldStream;
+    this.isSharded = builder.isSharded;
+    this.parallelism = builder.parallelism;
   }
 
   public void generate() {
     try {
-      String version = getClass().getPackage().getImplementationVersion();
-      if (version != null) {
-        logger.info("{} version {}", getClass().getCanonicalName(), version);
-      }
-      generate(inputFilename, outputFilename, eventFilename);
-      logger.info("Interfaces2md complete");
+      generateOrThrow();
     } catch (final Exception e) {
       logger.fatal("Interfaces2md failed", e);
     }
   }
 
+  /**
+   * @return effect of the last generation on the output file, or {@code null} if none completed.
+   *         The file is only replaced if its content changed. For sharded output, this is the
+   *         effect on the index document.
+   */
+  public ReplacingOutputStream.Outcome getOutputOutcome() {
+    return outputOutcome;
+  }
+
+  /**
+   * Generate markdown, throwing a failure to the caller rather than only logging it
+   *
+   * @throws Exception if the input cannot be read or parsed, or the output cannot be written
+   */
+  public void generateOrThrow() throws Exception {
+    String version = getClass().getPackage().getImplementationVersion();
+    if (version != null) {
+      logger.info("{} version {}", getClass().getCanonicalName(), version);
+    }
+    generate(inputFilename, outputFilename, eventFilename);
+    logger.info("Interfaces2md complete");
+  }
+
 
   void generate(final String inputFilename, final String outputFilename, final String eventFilename)
       throws Exception {
     Objects.requireNonNull(inputFilename, "Input file is missing");
     Objects.requireNonNull(outputFilename, "Output file is missing");
 
-    final File outputFile = new File(outputFilename);
-    final File outputDir = outputFile.getParentFile();
-    if (outputDir != null) {
-      outputDir.mkdirs();
+    outputOutcome = null;
+    try (final InputStream inputStream =
+        FileStreams.newInputStream(Path.of(inputFilename), bufferSize)) {
+      final OutputStream eventStream = openEventStream(eventFilename);
+      if (isSharded) {
+        final ShardedMarkdownGenerator generator =
+            new ShardedMarkdownGenerator(parallelism, bufferSize);
+        generator.generate(inputStream, Path.of(outputFilename), eventStream);
+        outputOutcome = generator.getIndexOutcome();
+      } else {
+        final ReplacingOutputStream outputStream =
+            FileStreams.newReplacingOutputStream(Path.of(outputFilename), bufferSize);
+        try {
+          try (final OutputStreamWriter outputWriter =
+              new OutputStreamWriter(outputStream, StandardCharsets.UTF_8)) {
+            final MarkdownGenerator generator = new MarkdownGenerator(shouldStream);
+            generator.generate(inputStream, outputWriter, eventStream);
+          }
+          outputOutcome = outputStream.commit();
+        } finally {
+          // a failed run leaves the previous output as it was
+          outputStream.discard();
+        }
+      }
     }
+    logger.info("Interfaces2md output {}; file={}", outputOutcome.name().toLowerCase(),
+        outputFilename);
+  }
 
-    try (final InputStream inputStream = new FileInputStream(inputFilename);
-         final OutputStreamWriter outputWriter =
-            new OutputStreamWriter(new FileOutputStream(outputFilename), StandardCharsets.UTF_8)) {
-
-      OutputStream eventStream = null;
-      if (eventFilename != null) {
-        final File eventFile = new File(eventFilename);
-        final File eventDir = eventFile.getParentFile();
-        if (eventDir != null) {
-          eventDir.mkdirs();
-        }
-        eventStream = new FileOutputStream(eventFile);
+  private OutputStream openEventStream(final String eventFilename) throws IOException {
+    OutputStream eventStream = null;
+    if (eventFilename != null) {
+      final File eventFile = new File(eventFilename);
+      final File eventDir = eventFile.getParentFile();
+      if (eventDir != null) {
+        eventDir.mkdirs();
       }
-      final MarkdownGenerator generator = new MarkdownGenerator();
-      generator.generate(inputStream, outputWriter, eventStream);
+      eventStream = new FileOutputStream(eventFile);
     }
+    return eventStream;
   }
 
 
@@ -1,290 +1,520 @@
-package io.fixprotocol.interfaces2md;
-
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.util.List;
-import java.util.Objects;
-import java.util.stream.Collectors;
-import javax.xml.bind.JAXBContext;
-import javax.xml.bind.JAXBElement;
-import javax.xml.bind.JAXBException;
-import javax.xml.bind.Unmarshaller;
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
-import org.purl.dc.elements._1.SimpleLiteral;
-import io.fixprotocol._2020.orchestra.interfaces.Annotation;
-import io.fixprotocol._2020.orchestra.interfaces.BaseInterfaceType;
-import io.fixprotocol._2020.orchestra.interfaces.EncodingType;
-import io.fixprotocol._2020.orchestra.interfaces.IdentifierType;
-import io.fixprotocol._2020.orchestra.interfaces.InterfaceType;
-import io.fixprotocol._2020.orchestra.interfaces.InterfaceType.Sessions;
-import io.fixprotocol._2020.orchestra.interfaces.Interfaces;
-import io.fixprotocol._2020.orchestra.interfaces.LayerT;
-import io.fixprotocol._2020.orchestra.interfaces.MessageCastT;
-import io.fixprotocol._2020.orchestra.interfaces.ProtocolType;
-import io.fixprotocol._2020.orchestra.interfaces.ReliabilityT;
-import io.fixprotocol._2020.orchestra.interfaces.ServiceType;
-import io.fixprotocol._2020.orchestra.interfaces.SessionProtocolType;
-import io.fixprotocol._2020.orchestra.interfaces.SessionType;
-import io.fixprotocol._2020.orchestra.interfaces.TransportProtocolType;
-import io.fixprotocol._2020.orchestra.interfaces.UserIntefaceType;
-import io.fixprotocol.md.event.ContextFactory;
-import io.fixprotocol.md.event.DocumentWriter;
-import io.fixprotocol.md.event.MarkdownUtil;
-import io.fixprotocol.md.event.MutableContext;
-import io.fixprotocol.md.event.MutableDetailProperties;
-import io.fixprotocol.md.event.MutableDetailTable;
-import io.fixprotocol.md.event.MutableDocumentation;
-import io.fixprotocol.orchestra.event.EventListener;
-import io.fixprotocol.orchestra.event.EventListenerFactory;
-import io.fixprotocol.orchestra.event.TeeEventListener;
-
-/**
- * Generates markdown from an Orchestra interfaces file
- *
- * @author Don Mendelson
- *
- */
-public class MarkdownGenerator {
-
-  private final ContextFactory contextFactory = new ContextFactory();
-  // User facing event notifications should be written to eventLogger
-  private EventListener eventLogger;
-  private final Logger logger = LogManager.getLogger(getClass());
-
-
-  public void generate(InputStream inputStream, OutputStreamWriter outputWriter,
-      EventListener eventLogger) throws Exception {
-    this.eventLogger = eventLogger;
-    try (eventLogger; final DocumentWriter documentWriter = new DocumentWriter(outputWriter)) {
-      final Interfaces interfaces = unmarshal(inputStream);
-      generateMetadata(interfaces, documentWriter);
-      final List<InterfaceType> interfaceList = interfaces.getInterface();
-      for (final InterfaceType interfaceInstance : interfaceList) {
-        generateInterface(interfaceInstance, documentWriter);
-      }
-
-    } catch (final JAXBException e) {
-      logger.fatal("Interfaces2md failed to parse XML", e);
-      throw new IOException(e);
-    } catch (final Exception e1) {
-      logger.fatal("Interfaces2md error", e1);
-      throw e1;
-    }
-  }
-
-  /**
-   * Generates markdown from an Orchestra interfaces file
-   *
-   * Warning or error events are written both to a log and a JSON event file.
-   *
-   * @param inputStream input as interfaces schema
-   * @param outputWriter output as markdown
-   * @param jsonOutputStream output stream for events
-   * @throws Exception if an IO or fatal parsing error occurs
-   */
-  public void generate(InputStream inputStream, OutputStreamWriter outputWriter,
-      OutputStream jsonOutputStream) throws Exception {
-    Objects.requireNonNull(inputStream, "Input stream is missing");
-    Objects.requireNonNull(outputWriter, "Output writer is missing");
-    final EventListenerFactory factory = new EventListenerFactory();
-
-    TeeEventListener eventLogger = new TeeEventListener();
-    final EventListener logEventLogger = factory.getInstance("LOG4J");
-    logEventLogger.setResource(logger);
-    eventLogger.addEventListener(logEventLogger);
-    if (jsonOutputStream != null) {
-      final EventListener jsonEventLogger = factory.getInstance("JSON");
-      jsonEventLogger.setResource(jsonOutputStream);
-      eventLogger.addEventListener(jsonEventLogger);
-    }
-
-    generate(inputStream, outputWriter, eventLogger);
-  }
-
-  private void generateInterface(InterfaceType interfaceInstance, DocumentWriter documentWriter)
-      throws IOException {
-    final MutableContext context = contextFactory.createContext(2);
-    context.addPair("Interface", interfaceInstance.getName());
-    documentWriter.write(context);
-    final MutableDocumentation documentation =
-        contextFactory.createDocumentation(getDocumentation(interfaceInstance.getAnnotation()));
-    documentWriter.write(documentation);
-
-    generateProtocolStack(interfaceInstance, documentWriter);
-
-    final Sessions sessions = interfaceInstance.getSessions();
-    if (sessions != null) {
-      final List<SessionType> sessionList = sessions.getSession();
-      for (final SessionType session : sessionList) {
-        generateSession(session, documentWriter);
-      }
-    }
-  }
-
-  private void generateMetadata(Interfaces interfaces, DocumentWriter documentWriter)
-      throws IOException {
-    final MutableContext context = contextFactory.createContext(1);
-    context.addKey("Interfaces");
-    documentWriter.write(context);
-    final MutableDetailTable table = contextFactory.createDetailTable();
-
-    final List<JAXBElement<SimpleLiteral>> elements = interfaces.getMetadata().getAny();
-    for (final JAXBElement<SimpleLiteral> element : elements) {
-      final MutableDetailProperties row = table.newRow();
-      final String name = element.getName().getLocalPart();
-      final String value = String.join(" ", element.getValue().getContent());
-      row.addProperty("term", name);
-      row.addProperty("value", value);
-    }
-
-    documentWriter.write(table);
-  }
-
-  private void generateProtocolStack(BaseInterfaceType interfaceInstance,
-      DocumentWriter documentWriter) throws IOException {
-    final List<ServiceType> services = interfaceInstance.getService();
-    final List<UserIntefaceType> uis = interfaceInstance.getUserInterface();
-    final List<EncodingType> encodings = interfaceInstance.getEncoding();
-    final List<SessionProtocolType> sessionProtocols = interfaceInstance.getSessionProtocol();
-    final List<TransportProtocolType> transports = interfaceInstance.getTransport();
-    final List<ProtocolType> protocols = interfaceInstance.getProtocol();
-    if (!(services.isEmpty() && uis.isEmpty() && encodings.isEmpty() && sessionProtocols.isEmpty()
-        && transports.isEmpty()) && protocols.isEmpty()) {
-
-      final MutableContext context = contextFactory.createContext(4);
-      context.addKey("Protocols");
-      documentWriter.write(context);
-
-      final MutableDetailTable table = contextFactory.createDetailTable();
-      for (final ServiceType service : services) {
-        final MutableDetailProperties row = table.newRow();
-        row.addProperty("layer", "Service");
-        populateProtocol(row, service);
-      }
-
-      for (final UserIntefaceType ui : uis) {
-        final MutableDetailProperties row = table.newRow();
-        row.addProperty("layer", "UI");
-        populateProtocol(row, ui);
-      }
-
-      for (final EncodingType encoding : encodings) {
-        final MutableDetailProperties row = table.newRow();
-        row.addProperty("layer", "Encoding");
-        populateProtocol(row, encoding);
-      }
-
-      for (final SessionProtocolType sessionProtocol : sessionProtocols) {
-        final MutableDetailProperties row = table.newRow();
-        row.addProperty("layer", "Session");
-        populateProtocol(row, sessionProtocol);
-      }
-
-      for (final TransportProtocolType transport : transports) {
-        final MutableDetailProperties row = table.newRow();
-        row.addProperty("layer", "Transport");
-        final String use = transport.getUse();
-        if (use != null) {
-          row.addProperty("use", use);
-        }
-        final String address = transport.getAddress();
-        if (address != null) {
-          row.addProperty("address", address);
-        }
-        final MessageCastT messageCast = transport.getMessageCast();
-        if (messageCast != null) {
-          row.addProperty("messageCast", messageCast.name());
-        }
-        populateProtocol(row, transport);
-      }
-
-      for (final ProtocolType protocol : protocols) {
-        final MutableDetailProperties row = table.newRow();
-        row.addProperty("layer", protocol.getLayer().name());
-        populateProtocol(row, protocol);
-      }
-      documentWriter.write(table);
-    }
-  }
-
-  private void generateSession(SessionType session, DocumentWriter documentWriter)
-      throws IOException {
-    final MutableContext context = contextFactory.createContext(3);
-    context.addKey("Session");
-    context.addKey(session.getName());
-    documentWriter.write(context);
-
-    generateSessionIdentifiers(session, documentWriter);
-    generateProtocolStack(session, documentWriter);
-  }
-
-  private void generateSessionIdentifiers(SessionType session, DocumentWriter documentWriter)
-      throws IOException {
-    final List<IdentifierType> ids = session.getIdentifier();
-    if (!ids.isEmpty()) {
-      final MutableContext context = contextFactory.createContext(4);
-      context.addKey("Identifiers");
-      documentWriter.write(context);
-
-      final MutableDetailTable table = contextFactory.createDetailTable();
-      for (final IdentifierType id : ids) {
-        final MutableDetailProperties row = table.newRow();
-        row.addProperty("name", id.getName());
-        row.addProperty("value", id.getContent());
-      }
-      documentWriter.write(table);
-    }
-  }
-
-  private String getDocumentation(Annotation annotation) {
-    if (annotation == null) {
-      return "";
-    } else {
-      final List<Object> objects = annotation.getDocumentationOrAppinfo();
-      return objects.stream()
-          .filter(o -> o instanceof io.fixprotocol._2020.orchestra.interfaces.Documentation)
-          .map(o -> (io.fixprotocol._2020.orchestra.interfaces.Documentation) o).map(d -> {
-            if (d.getContentType().contentEquals(MarkdownUtil.MARKDOWN_MEDIA_TYPE)) {
-              return d.getContent().stream().map(Object::toString).collect(Collectors.joining(" "));
-            } else
-              return d.getContent().stream()
-                  .map(c -> MarkdownUtil.plainTextToMarkdown(c.toString()))
-                  .collect(Collectors.joining(" "));
-          }).collect(Collectors.joining(" "));
-    }
-  }
-
-  private void populateProtocol(final MutableDetailProperties row, ProtocolType protocol) {
-    final LayerT layer = protocol.getLayer();
-    if (layer != null) {
-      row.addProperty("layer", layer.name());
-    }
-    final String name = protocol.getName();
-    if (name != null) {
-      row.addProperty("name", name);
-    }
-    final String version = protocol.getVersion();
-    if (version != null) {
-      row.addProperty("version", version);
-    }
-    final ReliabilityT reliability = protocol.getReliability();
-    if (reliability != null) {
-      row.addProperty("reliability", reliability.name());
-    }
-
-    final String orchestration = protocol.getOrchestration();
-    if (orchestration != null) {
-      row.addProperty("orchestration", orchestration);
-    }
-  }
-
-  private Interfaces unmarshal(InputStream is) throws JAXBException {
-    final JAXBContext jaxbContext = JAXBContext.newInstance(Interfaces.class);
-    final Unmarshaller jaxbUnmarshaller = jaxbContext.createUnmarshaller();
-    return (Interfaces) jaxbUnmarshaller.unmarshal(is);
-  }
-
-}
+package io.fixprotocol.interfaces2md;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.purl.dc.elements._1.SimpleLiteral;
+import org.purl.dc.terms.ElementOrRefinementContainer;
+import io.fixprotocol._2020.orchestra.interfaces.Annotation;
+import io.fixprotocol._2020.orchestra.interfaces.BaseInterfaceType;
+import io.fixprotocol._2020.orchestra.interfaces.EncodingType;
+import io.fixprotocol._2020.orchestra.interfaces.IdentifierType;
+import io.fixprotocol._2020.orchestra.interfaces.InterfaceType;
+import io.fixprotocol._2020.orchestra.interfaces.InterfaceType.Sessions;
+import io.fixprotocol._2020.orchestra.interfaces.Interfaces;
+import io.fixprotocol._2020.orchestra.interfaces.LayerT;
+import io.fixprotocol._2020.orchestra.interfaces.MessageCastT;
+import io.fixprotocol._2020.orchestra.interfaces.ProtocolType;
+import io.fixprotocol._2020.orchestra.interfaces.ReliabilityT;
+import io.fixprotocol._2020.orchestra.interfaces.ServiceType;
+import io.fixprotocol._2020.orchestra.interfaces.SessionProtocolType;
+import io.fixprotocol._2020.orchestra.interfaces.SessionType;
+import io.fixprotocol._2020.orchestra.interfaces.TransportProtocolType;
+import io.fixprotocol._2020.orchestra.interfaces.UserIntefaceType;
+import io.fixprotocol.md.event.ContextFactory;
+import io.fixprotocol.md.event.DocumentWriter;
+import io.fixprotocol.md.event.MarkdownUtil;
+import io.fixprotocol.md.event.MutableContext;
+import io.fixprotocol.md.event.MutableDetailProperties;
+import io.fixprotocol.md.event.MutableDetailTable;
+import io.fixprotocol.md.event.MutableDocumentation;
+import io.fixprotocol.orchestra.event.EventListener;
+import io.fixprotocol.orchestra.event.EventListenerFactory;
+import io.fixprotocol.orchestra.event.TeeEventListener;
+
+/**
+ * Generates markdown from an Orchestra interfaces file
+ *
+ * @author Don Mendelson
+ *
+ */
+public class MarkdownGenerator {
+
+  private final ContextFactory contextFactory = new ContextFactory();
+  // User facing event notifications should be written to eventLogger
+  private EventListener eventLogger;
+  private final Logger logger = LogManager.getLogger(getClass());
+  private final boolean shouldStream;
+
+  public MarkdownGenerator() {
+    this(false);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param shouldStream if {@code true}, read input with StAX and render one interface and then
+   *        one session at a time, rather than unmarshalling the whole document first. Memory use
+   *        does not grow with the number of sessions. Output is the same in either mode.
+   */
+  public MarkdownGenerator(boolean shouldStream) {
+    this.shouldStream = shouldStream;
+  }
+
+  public void generate(InputStream inputStream, OutputStreamWriter outputWriter,
+      EventListener eventLogger) throws Exception {
+    this.eventLogger = eventLogger;
+    try (eventLogger; final DocumentWriter documentWriter = new DocumentWriter(outputWriter)) {
+      if (shouldStream) {
+        generateStreaming(inputStream, documentWriter);
+      } else {
+        final Interfaces interfaces = unmarshal(inputStream);
+        generateMetadata(interfaces.getMetadata(), documentWriter);
+        final List<InterfaceType> interfaceList = interfaces.getInterface();
+        for (final InterfaceType interfaceInstance : interfaceList) {
+          generateInterface(interfaceInstance, documentWriter);
+        }
+      }
+
+    } catch (final JAXBException | XMLStreamException e) {
+      logger.fatal("Interfaces2md failed to parse XML", e);
+      throw new IOException(e);
+    } catch (final Exception e1) {
+      logger.fatal("Interfaces2md error", e1);
+      throw e1;
+    }
+  }
+
+  /**
+   * Generates markdown from an Orchestra interfaces file
+   *
+   * Warning or error events are written both to a log and a JSON event file.
+   *
+   * @param inputStream input as interfaces schema
+   * @param outputWriter output as markdown
+   * @param jsonOutputStream output stream for events
+   * @throws Exception if an IO or fatal parsing error occurs
+   */
+  public void generate(InputStream inputStream, OutputStreamWriter outputWriter,
+      OutputStream jsonOutputStream) throws Exception {
+    Objects.requireNonNull(inputStream, "Input stream is missing");
+    Objects.requireNonNull(outputWriter, "Output writer is missing");
+    generate(inputStream, outputWriter, createEventListener(logger, jsonOutputStream));
+  }
+
+  // thread safe and costly to create, so shared by all instances
+  private static volatile JAXBContext jaxbContext;
+
+  /**
+   * @return a JAXBContext for Orchestra interfaces, created on first use
+   * @throws JAXBException if the context cannot be created
+   */
+  static JAXBContext getJaxbContext() throws JAXBException {
+    JAXBContext context = jaxbContext;
+    if (context == null) {
+      synchronized (MarkdownGenerator.class) {
+        context = jaxbContext;
+        if (context == null) {
+          context = JAXBContext.newInstance(Interfaces.class);
+          jaxbContext = context;
+        }
+      }
+    }
+    return context;
+  }
+
+  static TeeEventListener createEventListener(Logger logger, OutputStream jsonOutputStream)
+      throws Exception {
+    final EventListenerFactory factory = new EventListenerFactory();
+    final TeeEventListener eventLogger = new TeeEventListener();
+    final EventListener logEventLogger = factory.getInstance("LOG4J");
+    logEventLogger.setResource(logger);
+    eventLogger.addEventListener(logEventLogger);
+    if (jsonOutputStream != null) {
+      final EventListener jsonEventLogger = factory.getInstance("JSON");
+      jsonEventLogger.setResource(jsonOutputStream);
+      eventLogger.addEventListener(jsonEventLogger);
+    }
+    return eventLogger;
+  }
+
+  /**
+   * Generates an index of interface documents, written separately by
+   * {@link #generateInterfaceDocument(InterfaceType, Writer)}
+   *
+   * @param metadata metadata of the interfaces file
+   * @param interfaceNames interface names in document order
+   * @param links relative paths of the interface documents, parallel to {@code interfaceNames}
+   * @param outputWriter output as markdown, closed when done
+   * @throws Exception if an IO error occurs
+   */
+  void generateIndex(ElementOrRefinementContainer metadata, List<String> interfaceNames,
+      List<String> links, Writer outputWriter) throws Exception {
+    try (final DocumentWriter documentWriter = new DocumentWriter(outputWriter)) {
+      generateMetadata(metadata, documentWriter);
+      final StringBuilder sb = new StringBuilder();
+      for (int i = 0; i < interfaceNames.size(); i++) {
+        if (i > 0) {
+          sb.append('\n');
+        }
+        sb.append("- [Interface ").append(interfaceNames.get(i)).append("](")
+            .append(links.get(i)).append(')');
+      }
+      documentWriter.write(contextFactory.createDocumentation(sb.toString()));
+    }
+  }
+
+  /**
+   * Generates a document for one interface and its sessions
+   *
+   * @param interfaceInstance interface to render
+   * @param outputWriter output as markdown, closed when done
+   * @throws Exception if an IO error occurs
+   */
+  void generateInterfaceDocument(InterfaceType interfaceInstance, Writer outputWriter)
+      throws Exception {
+    try (final DocumentWriter documentWriter = new DocumentWriter(outputWriter)) {
+      generateInterface(interfaceInstance, documentWriter);
+    }
+  }
+
+  private void generateInterface(InterfaceType interfaceInstance, DocumentWriter documentWriter)
+      throws IOException {
+    generateInterfaceHeading(interfaceInstance, documentWriter);
+
+    final Sessions sessions = interfaceInstance.getSessions();
+    if (sessions != null) {
+      final List<SessionType> sessionList = sessions.getSession();
+      for (final SessionType session : sessionList) {
+        generateSession(session, documentWriter);
+      }
+    }
+  }
+
+  private void generateInterfaceHeading(InterfaceType interfaceInstance,
+      DocumentWriter documentWriter) throws IOException {
+    final MutableContext context = contextFactory.createContext(2);
+    context.addPair("Interface", interfaceInstance.getName());
+    documentWriter.write(context);
+    final MutableDocumentation documentation =
+        contextFactory.createDocumentation(getDocumentation(interfaceInstance.getAnnotation()));
+    documentWriter.write(documentation);
+
+    generateProtocolStack(interfaceInstance, documentWriter);
+  }
+
+  private void generateMetadata(ElementOrRefinementContainer metadata,
+      DocumentWriter documentWriter) throws IOException {
+    final MutableContext context = contextFactory.createContext(1);
+    context.addKey("Interfaces");
+    documentWriter.write(context);
+    final MutableDetailTable table = contextFactory.createDetailTable();
+
+    final List<JAXBElement<SimpleLiteral>> elements = metadata.getAny();
+    for (final JAXBElement<SimpleLiteral> element : elements) {
+      final MutableDetailProperties row = table.newRow();
+      final String name = element.getName().getLocalPart();
+      final String value = String.join(" ", element.getValue().getContent());
+      row.addProperty("term", name);
+      row.addProperty("value", value);
+    }
+
+    documentWriter.write(table);
+  }
+
+  private void generateProtocolStack(BaseInterfaceType interfaceInstance,
+      DocumentWriter documentWriter) throws IOException {
+    final List<ServiceType> services = interfaceInstance.getService();
+    final List<UserIntefaceType> uis = interfaceInstance.getUserInterface();
+    final List<EncodingType> encodings = interfaceInstance.getEncoding();
+    final List<SessionProtocolType> sessionProtocols = interfaceInstance.getSessionProtocol();
+    final List<TransportProtocolType> transports = interfaceInstance.getTransport();
+    final List<ProtocolType> protocols = interfaceInstance.getProtocol();
+    if (!(services.isEmpty() && uis.isEmpty() && encodings.isEmpty() && sessionProtocols.isEmpty()
+        && transports.isEmpty()) && protocols.isEmpty()) {
+
+      final MutableContext context = contextFactory.createContext(4);
+      context.addKey("Protocols");
+      documentWriter.write(context);
+
+      final MutableDetailTable table = contextFactory.createDetailTable();
+      for (final ServiceType service : services) {
+        final MutableDetailProperties row = table.newRow();
+        row.addProperty("layer", "Service");
+        populateProtocol(row, service);
+      }
+
+      for (final UserIntefaceType ui : uis) {
+        final MutableDetailProperties row = table.newRow();
+        row.addProperty("layer", "UI");
+        populateProtocol(row, ui);
+      }
+
+      for (final EncodingType encoding : encodings) {
+        final MutableDetailProperties row = table.newRow();
+        row.addProperty("layer", "Encoding");
+        populateProtocol(row, encoding);
+      }
+
+      for (final SessionProtocolType sessionProtocol : sessionProtocols) {
+        final MutableDetailProperties row = table.newRow();
+        row.addProperty("layer", "Session");
+        populateProtocol(row, sessionProtocol);
+      }
+
+      for (final TransportProtocolType transport : transports) {
+        final MutableDetailProperties row = table.newRow();
+        row.addProperty("layer", "Transport");
+        final String use = transport.getUse();
+        if (use != null) {
+          row.addProperty("use", use);
+        }
+        final String address = transport.getAddress();
+        if (address != null) {
+          row.addProperty("address", address);
+        }
+        final MessageCastT messageCast = transport.getMessageCast();
+        if (messageCast != null) {
+          row.addProperty("messageCast", messageCast.name());
+        }
+        populateProtocol(row, transport);
+      }
+
+      for (final ProtocolType protocol : protocols) {
+        final MutableDetailProperties row = table.newRow();
+        row.addProperty("layer", protocol.getLayer().name());
+        populateProtocol(row, protocol);
+      }
+      documentWriter.write(table);
+    }
+  }
+
+  private void generateSession(SessionType session, DocumentWriter documentWriter)
+      throws IOException {
+    final MutableContext context = contextFactory.createContext(3);
+    context.addKey("Session");
+    context.addKey(session.getName());
+    documentWriter.write(context);
+
+    generateSessionIdentifiers(session, documentWriter);
+    generateProtocolStack(session, documentWriter);
+  }
+
+  private void generateSessionIdentifiers(SessionType session, DocumentWriter documentWriter)
+      throws IOException {
+    final List<IdentifierType> ids = session.getIdentifier();
+    if (!ids.isEmpty()) {
+      final MutableContext context = contextFactory.createContext(4);
+      context.addKey("Identifiers");
+      documentWriter.write(context);
+
+      final MutableDetailTable table = contextFactory.createDetailTable();
+      for (final IdentifierType id : ids) {
+        final MutableDetailProperties row = table.newRow();
+        row.addProperty("name", id.getName());
+        row.addProperty("value", id.getContent());
+      }
+      documentWriter.write(table);
+    }
+  }
+
+  /**
+   * Renders an interfaces document element by element
+   *
+   * Metadata, the protocol stack and annotation of an interface, and each session are unmarshalled
+   * individually, so only one session is held in memory at a time. The schema puts all other
+   * children of an interface before its sessions, so an interface heading is complete when its
+   * sessions are reached.
+   */
+  private void generateStreaming(InputStream inputStream, DocumentWriter documentWriter)
+      throws JAXBException, XMLStreamException, IOException {
+    final Unmarshaller unmarshaller = getJaxbContext().createUnmarshaller();
+    final XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+    inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    final XMLStreamReader reader = inputFactory.createXMLStreamReader(inputStream);
+    try {
+      if (currentTag(reader) != XMLStreamConstants.START_ELEMENT
+          || !"interfaces".equals(reader.getLocalName())) {
+        throw new XMLStreamException("Interfaces2md expected interfaces root element",
+            reader.getLocation());
+      }
+      reader.next();
+      while (currentTag(reader) == XMLStreamConstants.START_ELEMENT) {
+        switch (reader.getLocalName()) {
+          case "metadata":
+            generateMetadata(
+                unmarshaller.unmarshal(reader, ElementOrRefinementContainer.class).getValue(),
+                documentWriter);
+            break;
+          case "interface":
+            generateInterfaceStreaming(reader, unmarshaller, documentWriter);
+            break;
+          default:
+            skipElement(reader);
+        }
+      }
+    } finally {
+      reader.close();
+    }
+  }
+
+  private void generateInterfaceStreaming(XMLStreamReader reader, Unmarshaller unmarshaller,
+      DocumentWriter documentWriter) throws JAXBException, XMLStreamException, IOException {
+    // holds everything but sessions
+    final InterfaceType interfaceInstance = new InterfaceType();
+    interfaceInstance.setName(reader.getAttributeValue(null, "name"));
+    boolean isHeadingWritten = false;
+    reader.next();
+    while (currentTag(reader) == XMLStreamConstants.START_ELEMENT) {
+      switch (reader.getLocalName()) {
+        case "service":
+          interfaceInstance.getService()
+              .add(unmarshaller.unmarshal(reader, ServiceType.class).getValue());
+          break;
+        case "userInterface":
+          interfaceInstance.getUserInterface()
+              .add(unmarshaller.unmarshal(reader, UserIntefaceType.class).getValue());
+          break;
+        case "encoding":
+          interfaceInstance.getEncoding()
+              .add(unmarshaller.unmarshal(reader, EncodingType.class).getValue());
+          break;
+        case "sessionProtocol":
+          interfaceInstance.getSessionProtocol()
+              .add(unmarshaller.unmarshal(reader, SessionProtocolType.class).getValue());
+          break;
+        case "protocol":
+          interfaceInstance.getProtocol()
+              .add(unmarshaller.unmarshal(reader, ProtocolType.class).getValue());
+          break;
+        case "transport":
+          interfaceInstance.getTransport()
+              .add(unmarshaller.unmarshal(reader, TransportProtocolType.class).getValue());
+          break;
+        case "annotation":
+          interfaceInstance
+              .setAnnotation(unmarshaller.unmarshal(reader, Annotation.class).getValue());
+          break;
+        case "sessions":
+          if (!isHeadingWritten) {
+            generateInterfaceHeading(interfaceInstance, documentWriter);
+            isHeadingWritten = true;
+          }
+          reader.next();
+          while (currentTag(reader) == XMLStreamConstants.START_ELEMENT) {
+            if ("session".equals(reader.getLocalName())) {
+              generateSession(unmarshaller.unmarshal(reader, SessionType.class).getValue(),
+                  documentWriter);
+            } else {
+              skipElement(reader);
+            }
+          }
+          // past end of sessions
+          reader.next();
+          break;
+        default:
+          skipElement(reader);
+      }
+    }
+    // past end of interface
+    reader.next();
+    if (!isHeadingWritten) {
+      generateInterfaceHeading(interfaceInstance, documentWriter);
+    }
+  }
+
+  /**
+   * Moves to a start or end tag if not already on one
+   *
+   * @return event type of the current tag
+   */
+  private static int currentTag(XMLStreamReader reader) throws XMLStreamException {
+    int event = reader.getEventType();
+    while (event != XMLStreamConstants.START_ELEMENT && event != XMLStreamConstants.END_ELEMENT
+        && event != XMLStreamConstants.END_DOCUMENT) {
+      event = reader.next();
+    }
+    return event;
+  }
+
+  /**
+   * Skips an element and its children, leaving the reader past its end tag, the same as
+   * unmarshalling it
+   */
+  private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+    int depth = 1;
+    while (depth > 0) {
+      final int event = reader.next();
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        depth++;
+      } else if (event == XMLStreamConstants.END_ELEMENT) {
+        depth--;
+      }
+    }
+    reader.next();
+  }
+
+  private String getDocumentation(Annotation annotation) {
+    if (annotation == null) {
+      return "";
+    } else {
+      final List<Object> objects = annotation.getDocumentationOrAppinfo();
+      return objects.stream()
+          .filter(o -> o instanceof io.fixprotocol._2020.orchestra.interfaces.Documentation)
+          .map(o -> (io.fixprotocol._2020.orchestra.interfaces.Documentation) o).map(d -> {
+            if (d.getContentType().contentEquals(MarkdownUtil.MARKDOWN_MEDIA_TYPE)) {
+              return d.getContent().stream().map(Object::toString).collect(Collectors.joining(" "));
+            } else
+              return d.getContent().stream()
+                  .map(c -> MarkdownUtil.plainTextToMarkdown(c.toString()))
+                  .collect(Collectors.joining(" "));
+          }).collect(Collectors.joining(" "));
+    }
+  }
+
+  private void populateProtocol(final MutableDetailProperties row, ProtocolType protocol) {
+    final LayerT layer = protocol.getLayer();
+    if (layer != null) {
+      row.addProperty("layer", layer.name());
+    }
+    final String name = protocol.getName();
+    if (name != null) {
+      row.addProperty("name", name);
+    }
+    final String version = protocol.getVersion();
+    if (version != null) {
+      row.addProperty("version", version);
+    }
+    final ReliabilityT reliability = protocol.getReliability();
+    if (reliability != null) {
+      row.addProperty("reliability", reliability.name());
+    }
+
+    final String orchestration = protocol.getOrchestration();
+    if (orchestration != null) {
+      row.addProperty("orchestration", orchestration);
+    }
+  }
+
+  private Interfaces unmarshal(InputStream is) throws JAXBException {
+    final Unmarshaller jaxbUnmarshaller = getJaxbContext().createUnmarshaller();
+    return (Interfaces) jaxbUnmarshaller.unmarshal(is);
+  }
+
+}
@@ -0,0 +1,288 @@
+package io.fixprotocol.interfaces2md;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.Marshaller;
+import javax.xml.namespace.QName;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import io.fixprotocol._2020.orchestra.interfaces.InterfaceType;
+import io.fixprotocol._2020.orchestra.interfaces.Interfaces;
+import io.fixprotocol.interfaces2md.util.FileStreams;
+import io.fixprotocol.interfaces2md.util.ReplacingOutputStream;
+import io.fixprotocol.orchestra.event.TeeEventListener;
+
+/**
+ * Generates a markdown document per interface, concurrently, and an index document that links
+ * them
+ *
+ * Interface documents are written beside the index and named after it and the interface, e.g.
+ * {@code venues-Private.md} for index {@code venues.md}. A digest of each interface's XML is saved
+ * in a sidecar file, {@code venues.md.digests}. On the next run, an interface whose digest is
+ * unchanged is not rendered again if its document still exists. Documents of interfaces that have
+ * been removed are deleted. A rendered document, the index or the sidecar file is only replaced if
+ * its content changed.
+ */
+final class ShardedMarkdownGenerator {
+
+  static final String DIGESTS_SUFFIX = ".digests";
+
+  // change to invalidate all shards when rendering changes
+  private static final String FORMAT_VERSION = "1";
+  private static final QName INTERFACE_QNAME =
+      new QName("http://fixprotocol.io/2020/orchestra/interfaces", "interface");
+
+  static String shardSuffix(String indexFileName) {
+    if (indexFileName.endsWith(".md" + FileStreams.GZIP_SUFFIX)) {
+      return ".md" + FileStreams.GZIP_SUFFIX;
+    } else if (indexFileName.endsWith(".md")) {
+      return ".md";
+    } else {
+      return "";
+    }
+  }
+
+  private static String toFileNamePart(String name) {
+    final StringBuilder sb = new StringBuilder(name.length());
+    for (int i = 0; i < name.length(); i++) {
+      final char c = name.charAt(i);
+      sb.append(Character.isLetterOrDigit(c) || c == '-' || c == '_' || c == '.' ? c : '_');
+    }
+    return sb.toString();
+  }
+
+  private final int bufferSize;
+  private ReplacingOutputStream.Outcome indexOutcome;
+  private final Logger logger = LogManager.getLogger(getClass());
+  private final int parallelism;
+
+  /**
+   * Constructor
+   *
+   * @param parallelism maximum number of interfaces rendered concurrently, at least 1
+   * @param bufferSize size of file buffers in bytes
+   */
+  ShardedMarkdownGenerator(int parallelism, int bufferSize) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism must be at least 1");
+    }
+    this.parallelism = parallelism;
+    this.bufferSize = bufferSize;
+  }
+
+  /**
+   * Generates interface documents and their index
+   *
+   * @param inputStream input as interfaces schema
+   * @param indexPath path of index document. Interface documents are written to the same
+   *        directory.
+   * @param jsonOutputStream output stream for events. May be {@code null}.
+   * @return number of interface documents rendered. Others were unchanged.
+   * @throws Exception if an IO or fatal parsing error occurs
+   */
+  int generate(InputStream inputStream, Path indexPath, OutputStream jsonOutputStream)
+      throws Exception {
+    indexOutcome = null;
+    try (final TeeEventListener eventLogger =
+        MarkdownGenerator.createEventListener(logger, jsonOutputStream)) {
+      final JAXBContext jaxbContext = MarkdownGenerator.getJaxbContext();
+      final Interfaces interfaces =
+          (Interfaces) jaxbContext.createUnmarshaller().unmarshal(inputStream);
+      final List<InterfaceType> interfaceList = interfaces.getInterface();
+
+      final Path directory = indexPath.toAbsolutePath().getParent();
+      final String indexFileName = indexPath.getFileName().toString();
+      final String suffix = shardSuffix(indexFileName);
+      final String baseName = indexFileName.substring(0, indexFileName.length() - suffix.length());
+      final Path digestsPath = directory.resolve(indexFileName + DIGESTS_SUFFIX);
+      final Properties previousDigests = loadDigests(digestsPath);
+
+      final List<String> interfaceNames = new ArrayList<>(interfaceList.size());
+      final List<String> shardNames = new ArrayList<>(interfaceList.size());
+      final Set<String> uniqueNames = new HashSet<>();
+      for (final InterfaceType interfaceInstance : interfaceList) {
+        final String interfaceName = interfaceInstance.getName();
+        final String namePart = baseName + "-" + toFileNamePart(interfaceName);
+        String shardName = namePart + suffix;
+        for (int n = 2; !uniqueNames.add(shardName); n++) {
+          shardName = namePart + "-" + n + suffix;
+        }
+        interfaceNames.add(interfaceName);
+        shardNames.add(shardName);
+      }
+
+      final AtomicInteger written = new AtomicInteger();
+      final AtomicInteger replaced = new AtomicInteger();
+      final Properties digests = new Properties();
+      final ExecutorService executor =
+          Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, interfaceList.size())));
+      try {
+        final List<Future<String>> futures = new ArrayList<>(interfaceList.size());
+        for (int i = 0; i < interfaceList.size(); i++) {
+          final InterfaceType interfaceInstance = interfaceList.get(i);
+          final Path shardPath = directory.resolve(shardNames.get(i));
+          final String previousDigest = previousDigests.getProperty(shardNames.get(i));
+          futures.add(executor.submit(() -> {
+            final String digest = digest(jaxbContext, interfaceInstance);
+            if (!digest.equals(previousDigest) || !Files.exists(shardPath)) {
+              final ReplacingOutputStream.Outcome outcome =
+                  writeShard(interfaceInstance, shardPath);
+              if (outcome != ReplacingOutputStream.Outcome.UNCHANGED) {
+                replaced.incrementAndGet();
+              }
+              written.incrementAndGet();
+            }
+            return digest;
+          }));
+        }
+        for (int i = 0; i < futures.size(); i++) {
+          try {
+            digests.setProperty(shardNames.get(i), futures.get(i).get());
+          } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+              throw (Exception) cause;
+            }
+            throw e;
+          }
+        }
+      } finally {
+        executor.shutdownNow();
+      }
+
+      final ReplacingOutputStream indexStream =
+          FileStreams.newReplacingOutputStream(indexPath, bufferSize);
+      try {
+        try (final Writer indexWriter =
+            new OutputStreamWriter(indexStream, StandardCharsets.UTF_8)) {
+          new MarkdownGenerator().generateIndex(interfaces.getMetadata(), interfaceNames,
+              shardNames, indexWriter);
+        }
+        indexOutcome = indexStream.commit();
+      } finally {
+        indexStream.discard();
+      }
+
+      for (final String previousShard : previousDigests.stringPropertyNames()) {
+        if (!digests.containsKey(previousShard)) {
+          final Path stalePath = directory.resolve(previousShard).normalize();
+          if (directory.equals(stalePath.getParent())) {
+            Files.deleteIfExists(stalePath);
+          }
+        }
+      }
+      storeDigests(digests, digestsPath);
+
+      eventLogger.info("Interfaces2md rendered {0} of {1} interface documents and replaced {2};"
+          + " others unchanged", written.get(), interfaceList.size(), replaced.get());
+      return written.get();
+    }
+  }
+
+  private String digest(JAXBContext jaxbContext, InterfaceType interfaceInstance)
+      throws Exception {
+    final MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+    messageDigest.update(FORMAT_VERSION.getBytes(StandardCharsets.UTF_8));
+    try (final OutputStream digestStream =
+        new DigestOutputStream(OutputStream.nullOutputStream(), messageDigest)) {
+      final Marshaller marshaller = jaxbContext.createMarshaller();
+      marshaller.setProperty(Marshaller.JAXB_FRAGMENT, true);
+      marshaller.marshal(
+          new JAXBElement<>(INTERFACE_QNAME, InterfaceType.class, interfaceInstance),
+          digestStream);
+    }
+    return String.format("%064x", new BigInteger(1, messageDigest.digest()));
+  }
+
+  private Properties loadDigests(Path digestsPath) throws IOException {
+    final Properties digests = new Properties();
+    if (Files.isRegularFile(digestsPath)) {
+      try (final Reader reader =
+          Files.newBufferedReader(digestsPath, StandardCharsets.ISO_8859_1)) {
+        digests.load(reader);
+      }
+    }
+    return digests;
+  }
+
+  /**
+   * Writes digests in sorted order and without a timestamp, so that the sidecar file is only
+   * replaced if a digest changed
+   */
+  private void storeDigests(Properties digests, Path digestsPath) throws IOException {
+    // Properties.store escapes keys and values, but heads them with the current date
+    final ByteArrayOutputStream stored = new ByteArrayOutputStream();
+    digests.store(stored, null);
+    final List<String> entries = new ArrayList<>();
+    for (final String line : stored.toString(StandardCharsets.ISO_8859_1).split("\\R")) {
+      if (!line.isEmpty() && !line.startsWith("#")) {
+        entries.add(line);
+      }
+    }
+    Collections.sort(entries);
+    final ReplacingOutputStream digestsStream =
+        FileStreams.newReplacingOutputStream(digestsPath, bufferSize);
+    try {
+      try (final Writer writer =
+          new OutputStreamWriter(digestsStream, StandardCharsets.ISO_8859_1)) {
+        writer.write("#Interfaces2md digests of interface sources\n");
+        for (final String entry : entries) {
+          writer.write(entry);
+          writer.write('\n');
+        }
+      }
+      digestsStream.commit();
+    } finally {
+      digestsStream.discard();
+    }
+  }
+
+  /**
+   * @return effect of writing the last index document, or {@code null} if none was written
+   */
+  ReplacingOutputStream.Outcome getIndexOutcome() {
+    return indexOutcome;
+  }
+
+  private ReplacingOutputStream.Outcome writeShard(InterfaceType interfaceInstance,
+      Path shardPath) throws Exception {
+    logger.info("Interfaces2md writing interface {} to {}", interfaceInstance.getName(),
+        shardPath);
+    final ReplacingOutputStream shardStream =
+        FileStreams.newReplacingOutputStream(shardPath, bufferSize);
+    try {
+      try (final Writer shardWriter =
+          new OutputStreamWriter(shardStream, StandardCharsets.UTF_8)) {
+        new MarkdownGenerator().generateInterfaceDocument(interfaceInstance, shardWriter);
+      }
+      return shardStream.commit();
+    } finally {
+      // a failed shard leaves its previous document as it was
+      shardStream.discard();
+    }
+  }
+}
@@ -0,0 +1,240 @@
+package io.fixprotocol.interfaces2md.util;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes a file by way of a temporary file in the same directory, and replaces the file only if
+ * its content changed
+ *
+ * Content is hashed as it is written. The file is only touched by {@link #commit()}, which
+ * compares the temporary file to the existing file by size and hash. If they are the same, the
+ * temporary file is deleted and the existing file, including its modification time, is left as it
+ * was; otherwise the temporary file is moved over it atomically, so a reader never sees a partial
+ * file. Closing the stream only finishes the temporary file, so a writer that closes its stream
+ * does no harm. A file with suffix {@value FileStreams#GZIP_SUFFIX} is compressed, and compared in
+ * compressed form.
+ *
+ * If writing fails, {@link #discard()} deletes the temporary file and leaves the existing file as
+ * it was. Call it in a {@code finally} block; it has no effect after a commit.
+ *
+ * <pre>
+ * final ReplacingOutputStream out = FileStreams.newReplacingOutputStream(path, bufferSize);
+ * try {
+ *   write(out);
+ *   outcome = out.commit();
+ * } finally {
+ *   out.discard();
+ * }
+ * </pre>
+ */
+public final class ReplacingOutputStream extends OutputStream {
+
+  /**
+   * Effect of writing a file, known when the stream is closed
+   */
+  public enum Outcome {
+    /**
+     * The file did not exist
+     */
+    CREATED,
+    /**
+     * The file existed with other content
+     */
+    REPLACED,
+    /**
+     * The file existed with the same content and was not touched
+     */
+    UNCHANGED
+  }
+
+  private static MessageDigest newMessageDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (final NoSuchAlgorithmException e) {
+      // every Java platform supports SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private boolean isClosed;
+  private boolean isDiscarded;
+  private final MessageDigest messageDigest = newMessageDigest();
+  private Outcome outcome;
+  private final OutputStream out;
+  private final Path path;
+  private final Path tempPath;
+
+  ReplacingOutputStream(Path path, int bufferSize) throws IOException {
+    this.path = path;
+    final Path parent = path.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    FileChannel channel = null;
+    Path tempPath = null;
+    while (channel == null) {
+      // not Files.createTempFile, which would restrict the permissions of the replaced file
+      tempPath = path.resolveSibling(path.getFileName() + "."
+          + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+      try {
+        channel = FileChannel.open(tempPath, StandardOpenOption.WRITE,
+            StandardOpenOption.CREATE_NEW);
+      } catch (final FileAlreadyExistsException e) {
+        // try another name
+      }
+    }
+    this.tempPath = tempPath;
+    OutputStream out = new DigestOutputStream(Channels.newOutputStream(channel), messageDigest);
+    if (FileStreams.isCompressed(path)) {
+      try {
+        out = new GZIPOutputStream(out, bufferSize);
+      } catch (final IOException e) {
+        out.close();
+        Files.deleteIfExists(tempPath);
+        throw e;
+      }
+    }
+    this.out = new BufferedOutputStream(out, bufferSize);
+  }
+
+  /**
+   * Finishes the temporary file. The file is not replaced until {@link #commit()}. Closing again
+   * has no effect.
+   */
+  @Override
+  public void close() throws IOException {
+    if (!isClosed) {
+      isClosed = true;
+      out.close();
+    }
+  }
+
+  /**
+   * Closes the stream if it is open, and replaces the file if its content changed. Committing again
+   * returns the same outcome.
+   *
+   * @return effect of writing the file
+   * @throws IOException if the temporary file cannot be finished, compared or moved. The temporary
+   *         file is deleted and the existing file is left as it was.
+   * @throws IllegalStateException if the stream was discarded
+   */
+  public Outcome commit() throws IOException {
+    if (outcome != null) {
+      return outcome;
+    }
+    if (isDiscarded) {
+      throw new IllegalStateException("Output was discarded; file=" + path);
+    }
+    try {
+      close();
+      final Outcome outcome;
+      if (!Files.exists(path)) {
+        outcome = Outcome.CREATED;
+      } else if (Files.size(path) == Files.size(tempPath)
+          && Arrays.equals(messageDigest.digest(), digest(path))) {
+        outcome = Outcome.UNCHANGED;
+      } else {
+        outcome = Outcome.REPLACED;
+      }
+      if (outcome == Outcome.UNCHANGED) {
+        Files.delete(tempPath);
+      } else {
+        move();
+      }
+      this.outcome = outcome;
+      return outcome;
+    } catch (final IOException | RuntimeException e) {
+      discard();
+      throw e;
+    }
+  }
+
+  /**
+   * Abandons the output: closes the stream and deletes the temporary file, leaving the existing
+   * file as it was. Has no effect after a successful {@link #commit()}, so it may be called in a
+   * {@code finally} block. It does not throw, so as not to hide the failure that led to it.
+   */
+  public void discard() {
+    if (outcome != null || isDiscarded) {
+      return;
+    }
+    isDiscarded = true;
+    try {
+      close();
+    } catch (final IOException e) {
+      // the content is abandoned anyway
+    }
+    try {
+      Files.deleteIfExists(tempPath);
+    } catch (final IOException e) {
+      // a leftover temporary file does not affect the output
+    }
+  }
+
+  @Override
+  public void flush() throws IOException {
+    out.flush();
+  }
+
+  /**
+   * @return effect of writing the file, or {@code null} if it was not committed
+   */
+  public Outcome getOutcome() {
+    return outcome;
+  }
+
+  /**
+   * @return path of the file
+   */
+  public Path getPath() {
+    return path;
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    out.write(b, off, len);
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    out.write(b);
+  }
+
+  private byte[] digest(Path file) throws IOException {
+    final MessageDigest fileDigest = newMessageDigest();
+    try (InputStream in = Files.newInputStream(file)) {
+      final byte[] buffer = new byte[FileStreams.DEFAULT_BUFFER_SIZE];
+      int length;
+      while ((length = in.read(buffer)) > 0) {
+        fileDigest.update(buffer, 0, length);
+      }
+    }
+    return fileDigest.digest();
+  }
+
+  private void move() throws IOException {
+    try {
+      Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (final AtomicMoveNotSupportedException e) {
+      Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+}
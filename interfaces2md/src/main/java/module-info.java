@@ -1,7 +1,9 @@
 module interfaces2md {
   exports io.fixprotocol.interfaces2md;
+  exports io.fixprotocol.interfaces2md.util;
 
   requires md.grammar;
+  requires java.xml;
   requires java.xml.bind;
   requires orchestra.interfaces;
   requires commons.cli;
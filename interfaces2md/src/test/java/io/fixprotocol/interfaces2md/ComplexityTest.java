@@ -0,0 +1,52 @@
+package io.fixprotocol.interfaces2md;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import io.fixprotocol.tablature.synthetic.GrowthRate;
+import io.fixprotocol.tablature.synthetic.SyntheticInterfaces;
+
+/**
+ * Fails if markdown generation time or allocation grows faster than linearly with the number of
+ * sessions
+ *
+ * Both the unmarshalled and the streaming generator are measured. Allocation is nearly
+ * deterministic and has a tight limit. Time has a looser limit and is measured again before
+ * failing, so that a noisy machine does not fail the build.
+ */
+class ComplexityTest {
+
+  private static final int ATTEMPTS = 3;
+  private static final int IDENTIFIERS_PER_SESSION = 4;
+  private static final double MAX_ALLOCATION_EXPONENT = 1.25;
+  private static final double MAX_TIME_EXPONENT = 1.5;
+  private static final int REPETITIONS = 3;
+  private static final int SESSIONS_PER_INTERFACE = 10;
+  private static final int[] SIZES = {10, 20, 40, 80};
+
+  @TempDir
+  Path tempDir;
+
+  @ParameterizedTest
+  @ValueSource(booleans = {false, true})
+  void generate(boolean shouldStream) throws Exception {
+    final GrowthRate growthRate = GrowthRate.measure(size -> {
+      final Path input = tempDir.resolve("input" + size + ".xml");
+      Files.write(input,
+          SyntheticInterfaces.xml(size, SESSIONS_PER_INTERFACE, IDENTIFIERS_PER_SESSION));
+      final Interfaces2md interfaces2md =
+          new Interfaces2md.Builder().streaming(shouldStream).build();
+      final String outputFile = tempDir.resolve("output" + size + ".md").toString();
+      // unlike generate(), throws on failure
+      return () -> interfaces2md.generate(input.toString(), outputFile, null);
+    }, MAX_TIME_EXPONENT, ATTEMPTS, REPETITIONS, SIZES);
+
+    // NaN if allocation is not counted
+    assertFalse(growthRate.getAllocationExponent() > MAX_ALLOCATION_EXPONENT,
+        growthRate::toString);
+    assertFalse(growthRate.getTimeExponent() > MAX_TIME_EXPONENT, growthRate::toString);
+  }
+}
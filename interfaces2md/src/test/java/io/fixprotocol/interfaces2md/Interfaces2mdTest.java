@@ -14,12 +14,18 @@
  */
 package io.fixprotocol.interfaces2md;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.InputStream;
 import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import io.fixprotocol.orchestra.event.TeeEventListener;
 
 class Interfaces2mdTest {
   
@@ -36,4 +42,59 @@ class Interfaces2mdTest {
         new FileOutputStream("target/test/SampleInterfaces.json"));
   }
 
+  @Test
+  void shardedStreaming() {
+    assertThrows(IllegalArgumentException.class, () -> new Interfaces2md.Builder()
+        .inputFile("interfaces.xml").outputFile("interfaces.md").sharded(true).streaming(true)
+        .build());
+  }
+
+  @Test
+  void streamingSample() throws Exception {
+    final byte[] xml;
+    try (InputStream in = Thread.currentThread().getContextClassLoader()
+        .getResourceAsStream("SampleInterfaces.xml")) {
+      xml = in.readAllBytes();
+    }
+    assertEquals(generate(xml, false), generate(xml, true));
+  }
+
+  @Test
+  void streamingManySessions() throws Exception {
+    final StringBuilder sb = new StringBuilder();
+    sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+    sb.append("<fixi:interfaces xmlns:dcterms=\"http://purl.org/dc/terms/\" ");
+    sb.append("xmlns:fixi=\"http://fixprotocol.io/2020/orchestra/interfaces\">\n");
+    sb.append("<fixi:metadata><dcterms:subject>Synthetic</dcterms:subject></fixi:metadata>\n");
+    for (int i = 0; i < 3; i++) {
+      sb.append("<fixi:interface name=\"Venue").append(i).append("\">\n");
+      sb.append("<fixi:service name=\"orderEntry\"/>\n");
+      sb.append("<fixi:encoding name=\"TagValue\"/>\n");
+      sb.append("<fixi:transport name=\"TCP\"/>\n");
+      sb.append("<fixi:annotation><fixi:documentation>Venue ").append(i)
+          .append("</fixi:documentation></fixi:annotation>\n");
+      sb.append("<fixi:sessions>\n");
+      for (int s = 0; s < 2000; s++) {
+        sb.append("<fixi:session name=\"S").append(i).append('-').append(s).append("\">\n");
+        sb.append("<!-- a comment -->\n");
+        sb.append("<fixi:transport address=\"10.0.0.").append(s % 256)
+            .append(":5000\" use=\"primary\"/>\n");
+        sb.append("<fixi:identifier name=\"TargetCompID\">C").append(s)
+            .append("</fixi:identifier>\n");
+        sb.append("</fixi:session>\n");
+      }
+      sb.append("</fixi:sessions>\n</fixi:interface>\n");
+    }
+    sb.append("</fixi:interfaces>\n");
+    final byte[] xml = sb.toString().getBytes(StandardCharsets.UTF_8);
+    assertEquals(generate(xml, false), generate(xml, true));
+  }
+
+  private static String generate(byte[] xml, boolean shouldStream) throws Exception {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new MarkdownGenerator(shouldStream).generate(new ByteArrayInputStream(xml),
+        new OutputStreamWriter(out, StandardCharsets.UTF_8), new TeeEventListener());
+    return out.toString(StandardCharsets.UTF_8);
+  }
+
 }
@@ -0,0 +1,111 @@
+package io.fixprotocol.interfaces2md;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import org.junit.jupiter.api.Test;
+import io.fixprotocol.interfaces2md.util.ReplacingOutputStream;
+import io.fixprotocol.orchestra.event.TeeEventListener;
+
+class ShardedMarkdownGeneratorTest {
+
+  @Test
+  void sample() throws Exception {
+    final byte[] xml;
+    try (InputStream in = Thread.currentThread().getContextClassLoader()
+        .getResourceAsStream("SampleInterfaces.xml")) {
+      xml = in.readAllBytes();
+    }
+    final Path dir = Files.createDirectories(Path.of("target/test/sharded"));
+    final Path index = dir.resolve("SampleInterfaces.md");
+    Files.deleteIfExists(
+        dir.resolve("SampleInterfaces.md" + ShardedMarkdownGenerator.DIGESTS_SUFFIX));
+
+    final ShardedMarkdownGenerator generator = new ShardedMarkdownGenerator(2, 4096);
+    assertEquals(3, generator.generate(new ByteArrayInputStream(xml), index, null));
+
+    final StringBuilder shards = new StringBuilder();
+    for (final String name : new String[] {"Private", "Public", "OrderRouting"}) {
+      shards.append(Files.readString(dir.resolve("SampleInterfaces-" + name + ".md")));
+    }
+    final ByteArrayOutputStream whole = new ByteArrayOutputStream();
+    new MarkdownGenerator().generate(new ByteArrayInputStream(xml),
+        new OutputStreamWriter(whole, StandardCharsets.UTF_8), new TeeEventListener());
+    assertTrue(whole.toString(StandardCharsets.UTF_8).endsWith(shards.toString()));
+
+    final String indexText = Files.readString(index);
+    assertTrue(indexText.contains("[Interface Private](SampleInterfaces-Private.md)"));
+    assertTrue(indexText.contains("[Interface Public](SampleInterfaces-Public.md)"));
+
+    // unchanged
+    assertEquals(0, generator.generate(new ByteArrayInputStream(xml), index, null));
+  }
+
+  @Test
+  void changedInterfaces() throws Exception {
+    final Path dir = Files.createDirectories(Path.of("target/test/sharded-changes"));
+    final Path index = dir.resolve("venues.md");
+    Files.deleteIfExists(dir.resolve("venues.md" + ShardedMarkdownGenerator.DIGESTS_SUFFIX));
+    final ShardedMarkdownGenerator generator = new ShardedMarkdownGenerator(4, 4096);
+
+    assertEquals(3, generator.generate(syntheticInterfaces(3, "C"), index, null));
+    // nothing in the output directory is rewritten by a run without changes
+    final Path digests = dir.resolve("venues.md" + ShardedMarkdownGenerator.DIGESTS_SUFFIX);
+    final FileTime modified = FileTime.fromMillis(1000000000000L);
+    Files.setLastModifiedTime(digests, modified);
+    assertEquals(0, generator.generate(syntheticInterfaces(3, "C"), index, null));
+    assertEquals(ReplacingOutputStream.Outcome.UNCHANGED, generator.getIndexOutcome());
+    assertEquals(modified, Files.getLastModifiedTime(digests));
+
+    // a deleted document is regenerated even though its interface is unchanged
+    Files.delete(dir.resolve("venues-Venue1.md"));
+    assertEquals(1, generator.generate(syntheticInterfaces(3, "C"), index, null));
+    assertTrue(Files.exists(dir.resolve("venues-Venue1.md")));
+
+    // one interface changed
+    assertEquals(1, generator.generate(syntheticInterfaces(3, "C", "X"), index, null));
+    assertTrue(Files.readString(dir.resolve("venues-Venue0.md")).contains("X9"));
+
+    // every interface changed
+    assertEquals(3, generator.generate(syntheticInterfaces(3, "D"), index, null));
+
+    // removed interface
+    assertEquals(0, generator.generate(syntheticInterfaces(2, "D"), index, null));
+    assertFalse(Files.exists(dir.resolve("venues-Venue2.md")));
+    assertTrue(Files.exists(dir.resolve("venues-Venue1.md")));
+  }
+
+  private static InputStream syntheticInterfaces(int interfaceCount, String targetPrefix) {
+    return syntheticInterfaces(interfaceCount, targetPrefix, targetPrefix);
+  }
+
+  private static InputStream syntheticInterfaces(int interfaceCount, String targetPrefix,
+      String firstTargetPrefix) {
+    final StringBuilder sb = new StringBuilder();
+    sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+    sb.append("<fixi:interfaces xmlns:dcterms=\"http://purl.org/dc/terms/\" ");
+    sb.append("xmlns:fixi=\"http://fixprotocol.io/2020/orchestra/interfaces\">\n");
+    sb.append("<fixi:metadata><dcterms:subject>Synthetic</dcterms:subject></fixi:metadata>\n");
+    for (int i = 0; i < interfaceCount; i++) {
+      sb.append("<fixi:interface name=\"Venue").append(i).append("\">\n");
+      sb.append("<fixi:service name=\"orderEntry\"/>\n<fixi:sessions>\n");
+      for (int s = 0; s < 10; s++) {
+        sb.append("<fixi:session name=\"S").append(s).append("\">");
+        sb.append("<fixi:identifier name=\"TargetCompID\">")
+            .append(i == 0 ? firstTargetPrefix : targetPrefix).append(s)
+            .append("</fixi:identifier></fixi:session>\n");
+      }
+      sb.append("</fixi:sessions>\n</fixi:interface>\n");
+    }
+    sb.append("</fixi:interfaces>\n");
+    return new ByteArrayInputStream(sb.toString().getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -17,10 +17,14 @@ package io.fixprotocol.md2interfaces;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Consumer;
 import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
 import javax.xml.bind.JAXBElement;
 import javax.xml.bind.Marshaller;
 import javax.xml.namespace.QName;
@@ -76,7 +80,11 @@ public class InterfacesBuilder {
   private TeeEventListener eventLogger;
   private final EventListenerFactory factory = new EventListenerFactory();
   private final Interfaces interfaces = new Interfaces();
+  // indexes by name; first of duplicate names wins, as for a sequential search
+  private final Map<String, InterfaceType> interfacesByName = new HashMap<>();
   private final Logger logger = LogManager.getLogger(getClass());
+  // sessions by interface name, then session name
+  private final Map<String, Map<String, SessionType>> sessionsByInterface = new HashMap<>();
 
   private final Consumer<GraphContext> markdownConsumer = graphContext -> {
     final Context keyContext = getKeyContext(graphContext);
@@ -107,6 +115,41 @@ public class InterfacesBuilder {
       }
   };
 
+  // thread safe and costly to create, so shared by all instances
+  private static volatile JAXBContext jaxbContext;
+
+  /**
+   * @return a JAXBContext for Orchestra interfaces, created on first use
+   * @throws JAXBException if the context cannot be created
+   */
+  static JAXBContext getJaxbContext() throws JAXBException {
+    JAXBContext context = jaxbContext;
+    if (context == null) {
+      synchronized (InterfacesBuilder.class) {
+        context = jaxbContext;
+        if (context == null) {
+          context = JAXBContext.newInstance(Interfaces.class);
+          jaxbContext = context;
+        }
+      }
+    }
+    return context;
+  }
+
+  /**
+   * Parse markdown without appending it, for example to parse several files concurrently
+   *
+   * @param inputStream a Markdown file input
+   * @return parsed elements in document order, to pass to {@link #appendContexts(Iterable)}
+   * @throws IOException if an IO error occurs
+   */
+  static List<GraphContext> parse(final InputStream inputStream) throws IOException {
+    final List<GraphContext> graphContexts = new ArrayList<>();
+    final DocumentParser parser = new DocumentParser();
+    parser.parse(inputStream, graphContexts::add);
+    return graphContexts;
+  }
+
   public InterfacesBuilder(final OutputStream jsonOutputStream) throws Exception {
     createLogger(jsonOutputStream);
   }
@@ -122,9 +165,17 @@ public class InterfacesBuilder {
     parser.parse(inputStream, markdownConsumer);
   }
 
+  /**
+   * Append markdown elements that have already been parsed
+   *
+   * @param graphContexts elements in document order
+   */
+  void appendContexts(final Iterable<? extends GraphContext> graphContexts) {
+    graphContexts.forEach(markdownConsumer);
+  }
+
   public void write(final OutputStream os) throws Exception {
-    final JAXBContext jaxbContext = JAXBContext.newInstance(Interfaces.class);
-    final Marshaller jaxbMarshaller = jaxbContext.createMarshaller();
+    final Marshaller jaxbMarshaller = getJaxbContext().createMarshaller();
     jaxbMarshaller.setProperty("jaxb.formatted.output", true);
     jaxbMarshaller.marshal(interfaces, os);
     eventLogger.close();
@@ -190,6 +241,9 @@ public class InterfacesBuilder {
       interfaceInstance.setName(name);
 
       interfaces.getInterface().add(interfaceInstance);
+      if (name != null) {
+        interfacesByName.putIfAbsent(name, interfaceInstance);
+      }
     }
   }
 
@@ -351,6 +405,10 @@ public class InterfacesBuilder {
           }
           final List<SessionType> sessionList = sessions.getSession();
           sessionList.add(session);
+          if (name != null) {
+            sessionsByInterface.computeIfAbsent(interfaceName, i -> new HashMap<>())
+                .putIfAbsent(name, session);
+          }
         }
       } else {
         logger.error("InterfaceBuilder unknown parent interface for session {}", name);
@@ -408,26 +466,14 @@ public class InterfacesBuilder {
   }
 
   private InterfaceType findInterface(final String name) {
-    final List<InterfaceType> interfaceList = interfaces.getInterface();
-    for (final InterfaceType interfaceInstance : interfaceList) {
-      if (interfaceInstance.getName().equals(name)) {
-        return interfaceInstance;
-      }
-    }
-    return null;
+    return name != null ? interfacesByName.get(name) : null;
   }
 
   private SessionType findSession(final String name, final String interfaceName) {
-    final InterfaceType interfaceInstance = findInterface(interfaceName);
-    if (interfaceInstance != null) {
-      final Sessions sessions = interfaceInstance.getSessions();
+    if (interfaceName != null && name != null) {
+      final Map<String, SessionType> sessions = sessionsByInterface.get(interfaceName);
       if (sessions != null) {
-        final List<SessionType> sessionList = sessions.getSession();
-        for (final SessionType session : sessionList) {
-          if (session.getName().equals(name)) {
-            return session;
-          }
-        }
+        return sessions.get(name);
       }
     }
     return null;
@@ -14,15 +14,32 @@
  */
 package io.fixprotocol.md2interfaces;
 
-import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import javax.xml.bind.JAXBException;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.DefaultParser;
@@ -32,18 +49,34 @@ import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import io.fixprotocol.md.event.GraphContext;
+import io.fixprotocol.md2interfaces.util.FileStreams;
+import io.fixprotocol.md2interfaces.util.ReplacingOutputStream;
 
 public class Md2Interfaces {
 
   public static class Builder {
+    private int bufferSize = FileStreams.DEFAULT_BUFFER_SIZE;
     private List<String> inputFiles = new ArrayList<>();
     private String eventFile;
     private String outputFile;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
 
     public Md2Interfaces build() {
       return new Md2Interfaces(this);
     }
 
+    /**
+     * Size of buffers for file input and output
+     *
+     * @param bufferSize buffer size in bytes
+     * @return this Builder
+     */
+    public Builder bufferSize(final int bufferSize) {
+      this.bufferSize = bufferSize;
+      return this;
+    }
+
     public Builder eventFile(final String eventFile) {
       this.eventFile = eventFile;
       return this;
@@ -65,6 +98,20 @@ public class Md2Interfaces {
       return this;
     }
 
+    /**
+     * Maximum number of input files to parse concurrently. Parsed files are always applied in input
+     * order, so output does not depend on parallelism. At most this many parsed files are held in
+     * memory while waiting for an earlier file.
+     *
+     * @param parallelism number of parsing threads, at least 1. Default is the number of
+     *        available processors.
+     * @return this Builder
+     */
+    public Builder parallelism(final int parallelism) {
+      this.parallelism = parallelism;
+      return this;
+    }
+
   }
 
   public static Builder builder() {
@@ -77,10 +124,15 @@ public class Md2Interfaces {
    * <pre>
   usage: Md2Interfaces  [options] &lt;input-file&gt;...
   -?,--help             display usage
+     --buffersize &lt;arg&gt; I/O buffer size in bytes
   -e,--eventlog &lt;arg&gt;   path of JSON event file
   -o,--output &lt;arg&gt;     path of output interfaces file (required)
+     --parallelism &lt;arg&gt; number of input files parsed concurrently
    * </pre>
    *
+   * Each input file may be a file name or a glob pattern. Files matching a pattern are processed
+   * in name order.
+   *
    * @param args command line arguments
    *
    */
@@ -97,6 +149,10 @@ public class Md2Interfaces {
         .numberOfArgs(1).build());
     options.addOption(
         Option.builder("?").numberOfArgs(0).desc("display usage").longOpt("help").build());
+    options.addOption(Option.builder().desc("I/O buffer size in bytes").longOpt("buffersize")
+        .numberOfArgs(1).type(Number.class).build());
+    options.addOption(Option.builder().desc("number of input files parsed concurrently")
+        .longOpt("parallelism").numberOfArgs(1).type(Number.class).build());
 
     final DefaultParser parser = new DefaultParser();
     final CommandLine cmd;
@@ -118,6 +174,14 @@ public class Md2Interfaces {
         builder.eventFile = cmd.getOptionValue("e");
       }
 
+      if (cmd.hasOption("buffersize")) {
+        builder.bufferSize = ((Number) cmd.getParsedOptionValue("buffersize")).intValue();
+      }
+
+      if (cmd.hasOption("parallelism")) {
+        builder.parallelism = ((Number) cmd.getParsedOptionValue("parallelism")).intValue();
+      }
+
       return builder;
     } catch (final ParseException e) {
       showHelp(options);
@@ -130,26 +194,48 @@ public class Md2Interfaces {
     formatter.printHelp("Md2Interfaces  [options] <input-file>...", options);
   }
 
+  private final int bufferSize;
   private final List<String> inputFiles;
   private final String eventFile;
   private final Logger logger = LogManager.getLogger(getClass());
 
   private final String outputFile;
+  private ReplacingOutputStream.Outcome outputOutcome;
+  private final int parallelism;
 
   private Md2Interfaces(final Builder builder) {
     this.inputFiles = builder.inputFiles;
     this.outputFile = builder.outputFile;
     this.eventFile = builder.eventFile;
+    this.bufferSize = builder.bufferSize;
+    this.parallelism = builder.parallelism;
   }
 
   public void generate() {
     try {
-      generate(inputFiles, outputFile, eventFile);
+      generateOrThrow();
     } catch (final Exception e) {
       logger.fatal("Md2Interfaces failed", e);
     }
   }
 
+  /**
+   * @return effect of the last generation on the output file, or {@code null} if none completed.
+   *         The file is only replaced if its content changed.
+   */
+  public ReplacingOutputStream.Outcome getOutputOutcome() {
+    return outputOutcome;
+  }
+
+  /**
+   * Generate an interfaces file, throwing a failure to the caller rather than only logging it
+   *
+   * @throws Exception if an input cannot be read or parsed, or the output cannot be written
+   */
+  public void generateOrThrow() throws Exception {
+    generate(inputFiles, outputFile, eventFile);
+  }
+
   void generate(final List<String> inputFiles, final String outputFilename, final String eventFilename)
       throws Exception {
     Objects.requireNonNull(inputFiles, "Input File is missing");
@@ -159,37 +245,169 @@ public class Md2Interfaces {
       logger.info("{} version {}", getClass().getCanonicalName(), version);
     }
 
-    final File outputFile = new File(outputFilename);
-    final File outputDir = outputFile.getParentFile();
-    if (outputDir != null) {
-      outputDir.mkdirs();
-    }
-
     OutputStream jsonOutputStream = null;
     if (eventFilename != null) {
       jsonOutputStream = new FileOutputStream(eventFilename);
     }
 
     final InterfacesBuilder interfacesBuilder = new InterfacesBuilder(jsonOutputStream);
+    final List<Path> inputPaths = findFiles(inputFiles);
 
-    try (final OutputStream outputStream = new FileOutputStream(outputFile)) {
-
-      for (final String inputFile : inputFiles) {
-        appendInput(inputFile, interfacesBuilder);
-      }
+    outputOutcome = null;
+    final ReplacingOutputStream outputStream =
+        FileStreams.newReplacingOutputStream(Path.of(outputFilename), bufferSize);
+    try {
+      appendInputs(inputPaths, interfacesBuilder);
       interfacesBuilder.write(outputStream);
-      logger.info("Md2Interfaces completed");
+      outputOutcome = outputStream.commit();
     } catch (final JAXBException e) {
       logger.fatal("Md2Interfaces failed to process XML", e);
       throw new IOException(e);
+    } finally {
+      // a failed run leaves the previous output as it was
+      outputStream.discard();
+    }
+    logger.info("Md2Interfaces output {}; file={}", outputOutcome.name().toLowerCase(),
+        outputFilename);
+  }
+
+  /**
+   * Parses files concurrently and appends them to the builder in input order
+   *
+   * The next file is submitted only after the oldest is applied, so no more than parallelism
+   * parsed files are in memory however many files there are.
+   */
+  private void appendInputs(final List<Path> inputPaths,
+      final InterfacesBuilder interfacesBuilder) throws IOException, InterruptedException {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism must be at least 1");
+    }
+    final ExecutorService executor =
+        Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, inputPaths.size())));
+    try {
+      final Deque<Future<List<GraphContext>>> parsedFiles = new ArrayDeque<>();
+      int submitted = 0;
+      for (final Path inputPath : inputPaths) {
+        while (submitted < inputPaths.size() && parsedFiles.size() < parallelism) {
+          final Path nextPath = inputPaths.get(submitted++);
+          parsedFiles.add(executor.submit(() -> parse(nextPath)));
+        }
+        try {
+          // no reference to the oldest file is kept once it is applied
+          interfacesBuilder.appendContexts(parsedFiles.remove().get());
+        } catch (final ExecutionException e) {
+          final Throwable cause = e.getCause();
+          if (cause instanceof IOException) {
+            throw (IOException) cause;
+          }
+          throw new IOException("Md2Interfaces failed to parse " + inputPath, cause);
+        }
+      }
+    } finally {
+      executor.shutdownNow();
     }
   }
 
-  private void appendInput(final String filePath, final InterfacesBuilder interfacesBuilder)
-      throws IOException {
+  /**
+   * Resolves file names and glob patterns to files
+   *
+   * An existing file is used as named. Otherwise, the last element of a path is a glob pattern
+   * matched in its directory and subdirectories, as for Md2Orchestra. Matches of each pattern are
+   * sorted so that input order is deterministic.
+   */
+  private List<Path> findFiles(final List<String> inputFilePatterns) throws IOException {
+    final FileSystem fileSystem = FileSystems.getDefault();
+    final String separator = fileSystem.getSeparator();
+    final List<Path> inputPaths = new ArrayList<>();
+
+    for (final String inputFilePattern : inputFilePatterns) {
+      final Path literalPath = toPath(fileSystem, inputFilePattern);
+      if (literalPath != null && Files.isRegularFile(literalPath)) {
+        inputPaths.add(literalPath);
+        continue;
+      } else if (!isGlob(inputFilePattern)) {
+        throw new NoSuchFileException(inputFilePattern);
+      }
+
+      int lastSeparatorPos = inputFilePattern.lastIndexOf(separator);
+      // Handle Windows case for portability of '/' separator
+      if (lastSeparatorPos == -1 && !"/".equals(separator)) {
+        lastSeparatorPos = inputFilePattern.lastIndexOf("/");
+      }
+      final Path dirPath;
+      final String fileGlob;
+      if (lastSeparatorPos != -1) {
+        dirPath =
+            fileSystem.getPath(inputFilePattern.substring(0, lastSeparatorPos)).toAbsolutePath();
+        fileGlob = inputFilePattern.substring(lastSeparatorPos + 1);
+      } else {
+        // current working directory
+        dirPath = fileSystem.getPath("").toAbsolutePath();
+        fileGlob = inputFilePattern;
+      }
+      final String glob = "**" + (separator.equals("\\") ? "\\\\" : separator) + fileGlob;
+
+      logger.info("Md2Interfaces searching for input at path {} file name pattern {}", dirPath,
+          glob);
+
+      final PathMatcher matcher = fileSystem.getPathMatcher("glob:" + glob);
+      final List<Path> matches = new ArrayList<>();
+      if (Files.isDirectory(dirPath)) {
+        Files.walkFileTree(dirPath, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE,
+            new SimpleFileVisitor<Path>() {
+
+              @Override
+              public FileVisitResult visitFile(final Path filePath,
+                  final BasicFileAttributes attrs) {
+                if (matcher.matches(filePath)) {
+                  matches.add(filePath);
+                }
+                return FileVisitResult.CONTINUE;
+              }
+
+              @Override
+              public FileVisitResult visitFileFailed(final Path file, final IOException exc) {
+                logger.warn("Md2Interfaces failed to access file {}", file.toString());
+                return FileVisitResult.SKIP_SUBTREE;
+              }
+            });
+      }
+      logger.info("Md2Interfaces matched {} file(s)", matches.size());
+      Collections.sort(matches);
+      inputPaths.addAll(matches);
+    }
+    return inputPaths;
+  }
+
+  private static boolean isGlob(final String name) {
+    for (int i = 0; i < name.length(); i++) {
+      switch (name.charAt(i)) {
+        case '*':
+        case '?':
+        case '[':
+        case '{':
+          return true;
+        default:
+          break;
+      }
+    }
+    return false;
+  }
+
+  private List<GraphContext> parse(final Path filePath) throws IOException {
     logger.info("Md2Interfaces opening file {}", filePath);
-    final InputStream inputStream = new FileInputStream(filePath);
-    interfacesBuilder.appendInput(inputStream);
+    try (final InputStream inputStream = FileStreams.newInputStream(filePath, bufferSize)) {
+      return InterfacesBuilder.parse(inputStream);
+    }
+  }
+
+  private static Path toPath(final FileSystem fileSystem, final String name) {
+    try {
+      return fileSystem.getPath(name);
+    } catch (final InvalidPathException e) {
+      // a glob pattern that is not a valid path on this platform
+      return null;
+    }
   }
 
 }
@@ -1,5 +1,6 @@
 module md2interfaces {
   exports io.fixprotocol.md2interfaces;
+  exports io.fixprotocol.md2interfaces.util;
 
   requires md.grammar;
   requires java.xml.bind;
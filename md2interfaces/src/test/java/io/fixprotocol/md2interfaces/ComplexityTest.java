@@ -0,0 +1,108 @@
+package io.fixprotocol.md2interfaces;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import io.fixprotocol.md.event.Context;
+import io.fixprotocol.md.event.DocumentParser;
+import io.fixprotocol.md.event.GraphContext;
+import io.fixprotocol.tablature.synthetic.GrowthRate;
+import io.fixprotocol.tablature.synthetic.SyntheticInterfaces;
+
+/**
+ * Fails if translation time or allocation grows faster than linearly with the number of sessions
+ *
+ * Sessions grow both by adding interfaces and within a single interface, where a lookup among the
+ * sessions of an interface would be quadratic. Parsing costs far more per session than building,
+ * so {@code buildSessionsOfOneInterface} parses once before measurement, or it would hide such a
+ * lookup, and builds from the first sessions of the parsed document.
+ *
+ * Md2Interfaces parses on a worker thread, so only the builder's allocation is counted in
+ * {@code translate}; {@code build} parses on the measuring thread to count all of it. Allocation
+ * is nearly deterministic and has a tight limit. Time has a looser limit and is measured again
+ * before failing, so that a noisy machine does not fail the build.
+ */
+class ComplexityTest {
+
+  private static final int ATTEMPTS = 3;
+  private static final int IDENTIFIERS_PER_SESSION = 4;
+  private static final double MAX_ALLOCATION_EXPONENT = 1.25;
+  private static final double MAX_TIME_EXPONENT = 1.5;
+  private static final int REPETITIONS = 3;
+  private static final int[] SESSION_SIZES = {500, 1000, 2000, 4000};
+  private static final int SESSIONS_PER_INTERFACE = 10;
+  private static final int[] SIZES = {5, 10, 20, 40};
+
+  private static void assertLinear(GrowthRate.Workload workload, int... sizes) throws Exception {
+    final GrowthRate growthRate =
+        GrowthRate.measure(workload, MAX_TIME_EXPONENT, ATTEMPTS, REPETITIONS, sizes);
+    // NaN if allocation is not counted
+    assertFalse(growthRate.getAllocationExponent() > MAX_ALLOCATION_EXPONENT,
+        growthRate::toString);
+    assertFalse(growthRate.getTimeExponent() > MAX_TIME_EXPONENT, growthRate::toString);
+  }
+
+  private static List<GraphContext> firstSessions(List<GraphContext> contexts, int count) {
+    int sessions = 0;
+    for (int i = 0; i < contexts.size(); i++) {
+      final GraphContext graphContext = contexts.get(i);
+      if (graphContext instanceof Context
+          && "Session".equals(((Context) graphContext).getKey(0)) && ++sessions > count) {
+        return contexts.subList(0, i);
+      }
+    }
+    return contexts;
+  }
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void build() throws Exception {
+    assertLinear(size -> {
+      final byte[] markdown =
+          SyntheticInterfaces.markdown(size, SESSIONS_PER_INTERFACE, IDENTIFIERS_PER_SESSION);
+      return () -> {
+        final InterfacesBuilder builder = new InterfacesBuilder(null);
+        builder.appendInput(new ByteArrayInputStream(markdown));
+        builder.write(OutputStream.nullOutputStream());
+      };
+    }, SIZES);
+  }
+
+  @Test
+  void buildSessionsOfOneInterface() throws Exception {
+    final List<GraphContext> document = new ArrayList<>();
+    new DocumentParser().parse(new ByteArrayInputStream(SyntheticInterfaces.markdown(1,
+        SESSION_SIZES[SESSION_SIZES.length - 1], IDENTIFIERS_PER_SESSION)), document::add);
+    assertLinear(size -> {
+      final List<GraphContext> contexts = firstSessions(document, size);
+      return () -> {
+        final InterfacesBuilder builder = new InterfacesBuilder(null);
+        builder.appendContexts(contexts);
+        builder.write(OutputStream.nullOutputStream());
+      };
+    }, SESSION_SIZES);
+  }
+
+  @Test
+  void translate() throws Exception {
+    assertLinear(size -> {
+      final Path input = tempDir.resolve("input" + size + ".md");
+      Files.write(input,
+          SyntheticInterfaces.markdown(size, SESSIONS_PER_INTERFACE, IDENTIFIERS_PER_SESSION));
+      final List<String> inputFiles = List.of(input.toString());
+      final String outputFile = tempDir.resolve("output" + size + ".xml").toString();
+      final Md2Interfaces md2Interfaces =
+          Md2Interfaces.builder().inputFiles(inputFiles).outputFile(outputFile).build();
+      // unlike generate(), throws on failure
+      return () -> md2Interfaces.generate(inputFiles, outputFile, null);
+    }, SIZES);
+  }
+}
@@ -0,0 +1,90 @@
+package io.fixprotocol.md2interfaces;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.xml.bind.JAXBContext;
+import org.junit.jupiter.api.Test;
+import io.fixprotocol._2020.orchestra.interfaces.IdentifierType;
+import io.fixprotocol._2020.orchestra.interfaces.InterfaceType;
+import io.fixprotocol._2020.orchestra.interfaces.Interfaces;
+import io.fixprotocol._2020.orchestra.interfaces.SessionType;
+import io.fixprotocol.md.event.Context;
+import io.fixprotocol.md.event.DocumentParser;
+import io.fixprotocol.md.event.GraphContext;
+import io.fixprotocol.tablature.synthetic.GrowthRate;
+import io.fixprotocol.tablature.synthetic.SyntheticInterfaces;
+
+class InterfacesBuilderTest {
+
+  private static final int ATTEMPTS = 3;
+  private static final double MAX_TIME_EXPONENT = 1.5;
+  private static final int REPETITIONS = 3;
+  private static final int[] SESSION_SIZES = {1250, 2500, 5000, 10000};
+
+  @Test
+  void manySessions() throws Exception {
+    final int interfaceCount = 4;
+    final int sessionsPerInterface = 2500;
+    final InterfacesBuilder builder = new InterfacesBuilder(null);
+    builder.appendContexts(
+        parse(SyntheticInterfaces.markdown(interfaceCount, sessionsPerInterface, 2)));
+    final ByteArrayOutputStream xml = new ByteArrayOutputStream();
+    builder.write(xml);
+
+    final Interfaces interfaces = (Interfaces) JAXBContext.newInstance(Interfaces.class)
+        .createUnmarshaller().unmarshal(new ByteArrayInputStream(xml.toByteArray()));
+    final List<InterfaceType> interfaceList = interfaces.getInterface();
+    assertEquals(interfaceCount, interfaceList.size());
+    for (int i = 0; i < interfaceCount; i++) {
+      final InterfaceType interfaceInstance = interfaceList.get(i);
+      assertEquals("Venue" + i, interfaceInstance.getName());
+      final List<SessionType> sessions = interfaceInstance.getSessions().getSession();
+      assertEquals(sessionsPerInterface, sessions.size());
+      for (int s = 0; s < sessionsPerInterface; s += 499) {
+        final SessionType session = sessions.get(s);
+        assertEquals("V" + i + "-C" + s, session.getName());
+        final List<IdentifierType> identifiers = session.getIdentifier();
+        assertEquals(2, identifiers.size());
+        assertEquals("C" + s, identifiers.get(1).getContent());
+        assertEquals(1, session.getTransport().size());
+        assertEquals(1, session.getAnnotation().getDocumentationOrAppinfo().size());
+      }
+    }
+  }
+
+  @Test
+  void sessionScaling() throws Exception {
+    // all sessions in one interface is the worst case for a sequential search; parsing is linear
+    // and costs far more than building, so it is done once and only building is measured
+    final List<GraphContext> document =
+        parse(SyntheticInterfaces.markdown(1, SESSION_SIZES[SESSION_SIZES.length - 1], 2));
+    final GrowthRate growthRate = GrowthRate.measure(size -> {
+      final List<GraphContext> contexts = firstSessions(document, size);
+      return () -> new InterfacesBuilder(null).appendContexts(contexts);
+    }, MAX_TIME_EXPONENT, ATTEMPTS, REPETITIONS, SESSION_SIZES);
+    assertFalse(growthRate.getTimeExponent() > MAX_TIME_EXPONENT, growthRate::toString);
+  }
+
+  private static List<GraphContext> firstSessions(List<GraphContext> contexts, int count) {
+    int sessions = 0;
+    for (int i = 0; i < contexts.size(); i++) {
+      final GraphContext graphContext = contexts.get(i);
+      if (graphContext instanceof Context
+          && "Session".equals(((Context) graphContext).getKey(0)) && ++sessions > count) {
+        return contexts.subList(0, i);
+      }
+    }
+    return contexts;
+  }
+
+  private static List<GraphContext> parse(byte[] markdown) throws IOException {
+    final List<GraphContext> contexts = new ArrayList<>();
+    new DocumentParser().parse(new ByteArrayInputStream(markdown), contexts::add);
+    return contexts;
+  }
+}
@@ -14,10 +14,19 @@
  */
 package io.fixprotocol.md2interfaces;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import java.io.File;
-
+import java.io.FileInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import javax.xml.bind.JAXBContext;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import io.fixprotocol._2020.orchestra.interfaces.InterfaceType;
+import io.fixprotocol._2020.orchestra.interfaces.Interfaces;
 
 class Md2InterfacesTest {
 
@@ -34,4 +43,42 @@ class Md2InterfacesTest {
     md2Interfaces.generate();
   }
 
+  @Test
+  void globParallel() throws Exception {
+    final int fileCount = 120;
+    final Path dir = Path.of("target/test/counterparties");
+    Files.createDirectories(dir);
+    for (int i = 0; i < fileCount; i++) {
+      final String name = String.format("Counterparty%03d", i);
+      final StringBuilder sb = new StringBuilder();
+      sb.append("## Interface ").append(name).append("\n\n");
+      for (int s = 0; s < 3; s++) {
+        sb.append("### Session ").append(name).append('-').append(s).append("\n\n");
+        sb.append("#### Identifiers\n\n| Name | Value |\n|---|---|\n");
+        sb.append("| TargetCompID | ").append(name).append(" |\n\n");
+      }
+      Files.writeString(dir.resolve(name + ".md"), sb.toString(), StandardCharsets.UTF_8);
+    }
+
+    Md2Interfaces.builder().inputFile("target/test/counterparties/*.md")
+        .outputFile("target/test/counterparties-parallel.xml").parallelism(8).build().generate();
+    Md2Interfaces.builder().inputFile("target/test/counterparties/*.md")
+        .outputFile("target/test/counterparties-sequential.xml").parallelism(1).build()
+        .generate();
+
+    final byte[] parallel = Files.readAllBytes(Path.of("target/test/counterparties-parallel.xml"));
+    assertArrayEquals(Files.readAllBytes(Path.of("target/test/counterparties-sequential.xml")),
+        parallel);
+    try (FileInputStream in = new FileInputStream("target/test/counterparties-parallel.xml")) {
+      final Interfaces interfaces =
+          (Interfaces) JAXBContext.newInstance(Interfaces.class).createUnmarshaller().unmarshal(in);
+      final List<InterfaceType> interfaceList = interfaces.getInterface();
+      assertEquals(fileCount, interfaceList.size());
+      for (int i = 0; i < fileCount; i++) {
+        assertEquals(String.format("Counterparty%03d", i), interfaceList.get(i).getName());
+        assertEquals(3, interfaceList.get(i).getSessions().getSession().size());
+      }
+    }
+  }
+
 }
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2020 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.fixprotocol.md2orchestra;
+
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.namespace.QName;
+
+/**
+ * Content hash of a repository element, such as a field or message, over its XML form
+ *
+ * The hash covers everything that is written for the element, including its members, codes and
+ * documentation, so two elements have the same hash if they would be written alike, whichever
+ * file they were read from. An instance is not thread-safe; use one per thread.
+ */
+final class ElementDigest {
+
+  private static final QName ELEMENT_NAME = new QName("element");
+
+  private final Marshaller marshaller;
+  private final MessageDigest messageDigest = ParseCache.newMessageDigest();
+  private final OutputStream digestStream =
+      new DigestOutputStream(OutputStream.nullOutputStream(), messageDigest);
+
+  ElementDigest() throws JAXBException {
+    marshaller = RepositoryAdapter.getJaxbContext().createMarshaller();
+    marshaller.setProperty(Marshaller.JAXB_FRAGMENT, true);
+  }
+
+  /**
+   * @param element an element of a repository, e.g. a FieldType
+   * @return hex SHA-256 hash of the element
+   * @throws JAXBException if the element cannot be written as XML
+   */
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  String digest(final Object element) throws JAXBException {
+    messageDigest.reset();
+    marshaller.marshal(new JAXBElement(ELEMENT_NAME, element.getClass(), element), digestStream);
+    return ParseCache.toHex(messageDigest.digest());
+  }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2020 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.fixprotocol.md2orchestra;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import io.fixprotocol._2020.orchestra.repository.CodeSetType;
+import io.fixprotocol._2020.orchestra.repository.ComponentType;
+import io.fixprotocol._2020.orchestra.repository.Datatype;
+import io.fixprotocol._2020.orchestra.repository.FieldType;
+import io.fixprotocol._2020.orchestra.repository.GroupType;
+import io.fixprotocol._2020.orchestra.repository.MessageType;
+import io.fixprotocol._2020.orchestra.repository.Repository;
+
+/**
+ * Read-only view of several reference repositories in priority order
+ *
+ * Each lookup falls through the layers and returns the element from the first layer that has it,
+ * so a layer overrides elements of the same name or tag and scenario in the layers after it. The
+ * layers are shared rather than copied into one repository, and each keeps its own index. Only
+ * the lookups that a RepositoryBuilder makes in a reference are supported.
+ */
+final class LayeredRepositoryAdapter extends RepositoryAdapter {
+
+  private final List<RepositoryAdapter> layers;
+
+  /**
+   * @param layers reference repositories in priority order. A layered repository among them
+   *        contributes its own layers.
+   */
+  LayeredRepositoryAdapter(final List<RepositoryAdapter> layers) {
+    // lookups log no events
+    super(null);
+    final List<RepositoryAdapter> flattened = new ArrayList<>();
+    for (final RepositoryAdapter layer : layers) {
+      flattened.addAll(layer.getLayers());
+    }
+    if (flattened.isEmpty()) {
+      throw new IllegalArgumentException("No reference layers");
+    }
+    this.layers = Collections.unmodifiableList(flattened);
+  }
+
+  @Override
+  CodeSetType findCodesetByName(final String name, final String scenario) {
+    return first(layer -> layer.findCodesetByName(name, scenario));
+  }
+
+  @Override
+  ComponentType findComponentByName(final String name, final String scenario) {
+    return first(layer -> layer.findComponentByName(name, scenario));
+  }
+
+  @Override
+  ComponentType findComponentByTag(final BigInteger tag, final String scenario) {
+    return first(layer -> layer.findComponentByTag(tag, scenario));
+  }
+
+  @Override
+  Datatype findDatatypeByName(final String name) {
+    return first(layer -> layer.findDatatypeByName(name));
+  }
+
+  @Override
+  FieldType findFieldByName(final String name, final String scenario) {
+    return first(layer -> layer.findFieldByName(name, scenario));
+  }
+
+  @Override
+  FieldType findFieldByTag(final BigInteger tag, final String scenario) {
+    return first(layer -> layer.findFieldByTag(tag, scenario));
+  }
+
+  @Override
+  GroupType findGroupByName(final String name, final String scenario) {
+    return first(layer -> layer.findGroupByName(name, scenario));
+  }
+
+  @Override
+  GroupType findGroupByTag(final BigInteger tag, final String scenario) {
+    return first(layer -> layer.findGroupByTag(tag, scenario));
+  }
+
+  @Override
+  MessageType findMessageByName(final String name, final String scenario) {
+    return first(layer -> layer.findMessageByName(name, scenario));
+  }
+
+  @Override
+  List<RepositoryAdapter> getLayers() {
+    return layers;
+  }
+
+  /**
+   * @return repository of the first layer
+   */
+  @Override
+  public Repository getRepository() {
+    return layers.get(0).getRepository();
+  }
+
+  @Override
+  void index() {
+    // each layer is indexed when it is loaded
+  }
+
+  private <T> T first(final Function<RepositoryAdapter, T> lookup) {
+    for (final RepositoryAdapter layer : layers) {
+      final T element = lookup.apply(layer);
+      if (element != null) {
+        return element;
+      }
+    }
+    return null;
+  }
+}
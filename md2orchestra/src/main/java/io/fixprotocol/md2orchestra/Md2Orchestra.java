@@ -13,12 +13,12 @@
  */
 package io.fixprotocol.md2orchestra;
 
-import java.io.File;
-import java.io.FileInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.ClosedWatchServiceException;
 import java.nio.file.FileSystem;
 import java.nio.file.FileSystems;
 import java.nio.file.FileVisitOption;
@@ -28,11 +28,20 @@ import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import javax.xml.bind.JAXBException;
@@ -45,6 +54,10 @@ import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import io.fixprotocol.md.event.GraphContext;
+import io.fixprotocol.md2orchestra.util.FileStreams;
+import io.fixprotocol.md2orchestra.util.HeapFootprint;
+import io.fixprotocol.md2orchestra.util.ReplacingOutputStream;
 
 /**
  * Translates markdown to an Orchestra file
@@ -54,19 +67,55 @@ import org.apache.logging.log4j.Logger;
  */
 public class Md2Orchestra {
 
+  /**
+   * Milliseconds without file changes after which watch mode regenerates output
+   */
+  public static final long QUIET_MILLIS = 100L;
+
   public static class Builder {
     public int componentDepth = 1;
     public String eventFilename;
     public String paragraphDelimiter = RepositoryBuilder.DEFAULT_PARAGRAPH_DELIMITER;
+    private int bufferSize = FileStreams.DEFAULT_BUFFER_SIZE;
+    private String cacheDirectory;
     private String importPath;
     private List<String> inputFilePatterns = new ArrayList<>();
     private String outputFilename;
-    private String referenceFile;
+    private Reference reference;
+    private final List<String> referenceFiles = new ArrayList<>();
+    private boolean shouldReportStats;
+    private boolean shouldWatch;
 
     public Md2Orchestra build() {
       return new Md2Orchestra(this);
     }
 
+    /**
+     * Size of buffers for file input and output
+     *
+     * @param bufferSize buffer size in bytes
+     * @return this Builder
+     */
+    public Builder bufferSize(final int bufferSize) {
+      this.bufferSize = bufferSize;
+      return this;
+    }
+
+    /**
+     * Directory to cache parse events of input files
+     *
+     * An input file whose content is unchanged since a previous run is replayed from the cache
+     * rather than parsed. The cache is cleared when the reference file or options change.
+     *
+     * @param cacheDirectory path of a directory, created if needed. Default is {@code null} for
+     *        no cache.
+     * @return this Builder
+     */
+    public Builder cacheDirectory(final String cacheDirectory) {
+      this.cacheDirectory = cacheDirectory;
+      return this;
+    }
+
     public Builder componentDepth(final int componentDepth) {
       this.componentDepth = componentDepth;
       return this;
@@ -109,10 +158,75 @@ public class Md2Orchestra {
       return this;
     }
 
+    /**
+     * Reference that is already loaded, e.g. shared by several Md2Orchestra instances, rather than
+     * one loaded from the reference file on each run
+     *
+     * @param reference a loaded reference. If a reference file is also set, it is used only to
+     *        detect changes to the reference.
+     * @return this Builder
+     */
+    public Builder reference(final Reference reference) {
+      this.reference = reference;
+      return this;
+    }
+
     public Builder referenceFile(final String referenceFile) {
-      this.referenceFile = referenceFile;
+      this.referenceFiles.clear();
+      this.referenceFiles.add(referenceFile);
       return this;
     }
+
+    /**
+     * Reference files layered in priority order
+     *
+     * An element is taken from the first reference file that has an element of its name or tag and
+     * scenario, e.g. a counterparty overlay, then a venue extension, then the base standard. Each
+     * file is loaded and indexed once, and elements are not copied between layers.
+     *
+     * @param referenceFiles paths of Orchestra files, highest priority first
+     * @return this Builder
+     */
+    public Builder referenceFiles(final List<String> referenceFiles) {
+      this.referenceFiles.clear();
+      this.referenceFiles.addAll(referenceFiles);
+      return this;
+    }
+
+    /**
+     * Log statistics of a run, including the estimated heap retained by the reference and output
+     * repositories by element kind
+     *
+     * @param shouldReportStats {@code true} to log statistics. Default is {@code false}.
+     * @return this Builder
+     */
+    public Builder stats(final boolean shouldReportStats) {
+      this.shouldReportStats = shouldReportStats;
+      return this;
+    }
+
+    /**
+     * Keep running after generating output, and generate it again whenever an input file, the
+     * reference file or a file in the import directory changes
+     *
+     * @param shouldWatch {@code true} to watch files. Default is {@code false}.
+     * @return this Builder
+     * @see Md2Orchestra#watch()
+     */
+    public Builder watch(final boolean shouldWatch) {
+      this.shouldWatch = shouldWatch;
+      return this;
+    }
+  }
+
+  private static final class InputLocation {
+    final Path dirPath;
+    final PathMatcher matcher;
+
+    InputLocation(final Path dirPath, final PathMatcher matcher) {
+      this.dirPath = dirPath;
+      this.matcher = matcher;
+    }
   }
 
   public static Builder builder() {
@@ -129,13 +243,19 @@ public class Md2Orchestra {
    * <pre>
   usage: Md2Orchestra [options] &lt;input-file&gt;...
    -?,--help                display usage
+      --buffersize &lt;arg&gt;   I/O buffer size in bytes
+      --cache &lt;arg&gt;         directory for cached parse events of input files
    -d,--searchdepth &lt;arg&gt;   nested component search depth
    -e,--eventlog &lt;arg&gt;      path of JSON event file
    -f,--fullsearch          full nested component search
       --import &lt;arg&gt;        directory for file import
    -o,--output &lt;arg&gt;        path of output Orchestra file (required)
       --paragraph &lt;arg&gt;     paragraph delimiter for tables
-   -r,--reference &lt;arg&gt;     path of reference Orchestra file
+   -r,--reference &lt;arg&gt;     path of reference Orchestra file; repeat for
+                            layers in priority order
+      --stats               log statistics, including estimated heap by
+                            element kind
+      --watch               regenerate output when input files change
    * </pre>
    *
    * @param args command line arguments
@@ -144,7 +264,11 @@ public class Md2Orchestra {
     final Md2Orchestra md2Orchestra;
     try {
       md2Orchestra = Md2Orchestra.parseArgs(args).build();
-      md2Orchestra.generate();
+      if (md2Orchestra.shouldWatch) {
+        md2Orchestra.watch();
+      } else {
+        md2Orchestra.generate();
+      }
     } catch (final Exception e) {
       System.err.println(e.getMessage());
       System.exit(1);
@@ -155,7 +279,8 @@ public class Md2Orchestra {
     final Options options = new Options();
     options.addOption(Option.builder("o").desc("path of output Orchestra file (required)")
         .longOpt("output").numberOfArgs(1).required().build());
-    options.addOption(Option.builder("r").desc("path of reference Orchestra file")
+    options.addOption(Option.builder("r")
+        .desc("path of reference Orchestra file; repeat for layers in priority order")
         .longOpt("reference").numberOfArgs(1).build());
     options.addOption(Option.builder("e").desc("path of JSON event file").longOpt("eventlog")
         .numberOfArgs(1).build());
@@ -165,6 +290,15 @@ public class Md2Orchestra {
         Option.builder("?").numberOfArgs(0).desc("display usage").longOpt("help").build());
     options.addOption(Option.builder().desc("paragraph delimiter for tables").longOpt("paragraph")
         .numberOfArgs(1).build());
+    options.addOption(Option.builder().desc("I/O buffer size in bytes").longOpt("buffersize")
+        .numberOfArgs(1).type(Number.class).build());
+    options.addOption(Option.builder().desc("directory for cached parse events of input files")
+        .longOpt("cache").numberOfArgs(1).build());
+    options.addOption(Option.builder()
+        .desc("log statistics, including estimated heap by element kind").longOpt("stats")
+        .build());
+    options.addOption(Option.builder().desc("regenerate output when input files change")
+        .longOpt("watch").build());
     OptionGroup depthGroup = new OptionGroup();
     depthGroup.addOption(Option.builder("d").desc("nested component search depth")
         .longOpt("searchdepth").numberOfArgs(1).type(Number.class).build());
@@ -188,7 +322,7 @@ public class Md2Orchestra {
       builder.outputFilename = cmd.getOptionValue("o");
 
       if (cmd.hasOption("r")) {
-        builder.referenceFile = cmd.getOptionValue("r");
+        builder.referenceFiles(Arrays.asList(cmd.getOptionValues("r")));
       }
 
       if (cmd.hasOption("e")) {
@@ -205,6 +339,22 @@ public class Md2Orchestra {
         builder.paragraphDelimiter(cmd.getOptionValue("paragraph"));
       }
 
+      if (cmd.hasOption("buffersize")) {
+        builder.bufferSize(((Number) cmd.getParsedOptionValue("buffersize")).intValue());
+      }
+
+      if (cmd.hasOption("cache")) {
+        builder.cacheDirectory(cmd.getOptionValue("cache"));
+      }
+
+      if (cmd.hasOption("stats")) {
+        builder.stats(true);
+      }
+
+      if (cmd.hasOption("watch")) {
+        builder.watch(true);
+      }
+
       return builder;
     } catch (final ParseException e) {
       showHelp(options);
@@ -217,6 +367,8 @@ public class Md2Orchestra {
     formatter.printHelp("Md2Orchestra [options] <input-file>...", options);
   }
 
+  private final int bufferSize;
+  private final String cacheDirectory;
   private final int componentDepth;
   private final String eventFilename;
   private final Consumer<Path> fileConsumer = new Consumer<>() {
@@ -235,18 +387,32 @@ public class Md2Orchestra {
   private final List<String> inputFilePatterns;
   private final Logger logger = LogManager.getLogger(getClass());
   private final String outputFilename;
+  private ReplacingOutputStream.Outcome outputOutcome;
   private RepositoryBuilder outputRepositoryBuilder;
   private final String paragraphDelimiter;
-  private final String referenceFilename;
+  private ParseCache parseCache;
+  private final List<String> referenceFilenames;
+  private final boolean isReferenceShared;
+  private final boolean shouldReportStats;
+  private final boolean shouldWatch;
+  // reference shared by runs, e.g. while watching
+  private Reference loadedReference;
+  private String loadedReferenceDigest;
 
   private Md2Orchestra(final Builder builder) {
     this.inputFilePatterns = builder.inputFilePatterns;
     this.outputFilename = builder.outputFilename;
-    this.referenceFilename = builder.referenceFile;
+    this.referenceFilenames = List.copyOf(builder.referenceFiles);
     this.eventFilename = builder.eventFilename;
     this.paragraphDelimiter = builder.paragraphDelimiter;
     this.componentDepth = builder.componentDepth;
     this.importPath = builder.importPath;
+    this.bufferSize = builder.bufferSize;
+    this.cacheDirectory = builder.cacheDirectory;
+    this.shouldReportStats = builder.shouldReportStats;
+    this.shouldWatch = builder.shouldWatch;
+    this.loadedReference = builder.reference;
+    this.isReferenceShared = builder.reference != null;
   }
 
   /**
@@ -257,18 +423,149 @@ public class Md2Orchestra {
    */
   public void generate() throws Exception {
     try {
-      generate(inputFilePatterns, outputFilename, referenceFilename, eventFilename);
+      if (referenceFilenames.size() > 1 && !isReferenceShared) {
+        loadReferences(referencePaths());
+      }
+      generate(inputFilePatterns, outputFilename, firstReferenceFilename(), eventFilename);
     } catch (final Exception e) {
       logger.fatal("Md2Orchestra generate failed", e);
       throw e;
     }
   }
 
+  /**
+   * @return effect of the last generation on the output file, or {@code null} if none completed.
+   *         The file is only replaced if its content changed.
+   */
+  public ReplacingOutputStream.Outcome getOutputOutcome() {
+    return outputOutcome;
+  }
+
+  /**
+   * Generate an Orchestra repository file, then generate it again whenever an input file, the
+   * reference file or a file in the import directory changes, until the thread is interrupted
+   *
+   * The reference is loaded once and again only when it changes, and parse events of unchanged
+   * input files are replayed from memory unless a cache directory is set. A burst of saves, as
+   * made by some editors, is regenerated once after files are quiet for {@value #QUIET_MILLIS}
+   * milliseconds. A failed generation is logged, and watching continues.
+   *
+   * @throws Exception if files cannot be watched, e.g. if an input directory does not exist
+   */
+  public void watch() throws Exception {
+    Objects.requireNonNull(outputFilename, "Output file is missing");
+    final Path outputPath = Path.of(outputFilename).toAbsolutePath().normalize();
+    final Path eventPath =
+        eventFilename != null ? Path.of(eventFilename).toAbsolutePath().normalize() : null;
+    final List<Path> referencePaths = referencePaths();
+    final Path importDirectory =
+        importPath != null ? Path.of(importPath).toAbsolutePath().normalize() : null;
+    final FileSystem fileSystem = FileSystems.getDefault();
+    final List<PathMatcher> inputMatchers = new ArrayList<>();
+
+    try (final WatchService watchService = fileSystem.newWatchService()) {
+      final Map<WatchKey, Path> watchedDirectories = new HashMap<>();
+      for (final String inputFilePattern : inputFilePatterns) {
+        final InputLocation location = inputLocation(fileSystem, inputFilePattern);
+        inputMatchers.add(location.matcher);
+        registerTree(watchService, location.dirPath.toAbsolutePath().normalize(),
+            watchedDirectories);
+      }
+      if (importDirectory != null && Files.isDirectory(importDirectory)) {
+        registerTree(watchService, importDirectory, watchedDirectories);
+      }
+      for (final Path referencePath : referencePaths) {
+        registerDirectory(watchService, referencePath.getParent(), watchedDirectories);
+      }
+      if (cacheDirectory == null) {
+        parseCache = ParseCache.inMemory();
+      }
+
+      boolean referenceChanged = true;
+      while (!Thread.currentThread().isInterrupted()) {
+        final long startNanos = System.nanoTime();
+        try {
+          if (referenceChanged && !referencePaths.isEmpty()) {
+            loadReferences(referencePaths);
+          }
+          referenceChanged = false;
+          generate(inputFilePatterns, outputFilename, firstReferenceFilename(), eventFilename);
+          logger.info("Md2Orchestra generated output in {} ms",
+              TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        } catch (final Exception e) {
+          logger.error("Md2Orchestra generate failed; waiting for changes", e);
+        }
+
+        // wait for a relevant change, then until files are quiet
+        boolean changed = false;
+        WatchKey key = watchService.take();
+        while (key != null) {
+          final Path dir = watchedDirectories.get(key);
+          for (final WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+              changed = true;
+              referenceChanged = true;
+              continue;
+            }
+            final Path path = dir.resolve((Path) event.context()).normalize();
+            if (path.equals(outputPath) || path.equals(eventPath)) {
+              continue;
+            }
+            if (referencePaths.contains(path)) {
+              changed = true;
+              referenceChanged = true;
+            } else if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE
+                && Files.isDirectory(path)) {
+              registerTree(watchService, path, watchedDirectories);
+              changed = true;
+            } else if ((importDirectory != null && path.startsWith(importDirectory))
+                || inputMatchers.stream()
+                    .anyMatch(m -> m.matches(path) || m.matches(path.getFileName()))) {
+              changed = true;
+            }
+          }
+          if (!key.reset()) {
+            watchedDirectories.remove(key);
+          }
+          key = changed ? watchService.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS)
+              : watchService.take();
+        }
+      }
+    } catch (final InterruptedException | ClosedWatchServiceException e) {
+      Thread.currentThread().interrupt();
+      logger.info("Md2Orchestra stopped watching");
+    }
+  }
+
   void appendInput(final Path filePath, final RepositoryBuilder outputRepositoryBuilder)
       throws IOException {
     logger.info("Md2Orchestra opening file {}", filePath.normalize().toString());
-    final InputStream inputStream = new FileInputStream(filePath.toFile());
-    outputRepositoryBuilder.appendInput(inputStream);
+    try (final InputStream inputStream = FileStreams.newInputStream(filePath, bufferSize)) {
+      if (parseCache == null) {
+        outputRepositoryBuilder.appendInput(inputStream);
+      } else {
+        appendInput(inputStream.readAllBytes(), outputRepositoryBuilder);
+      }
+    }
+  }
+
+  private void appendInput(final byte[] content, final RepositoryBuilder outputRepositoryBuilder)
+      throws IOException {
+    if (ParseCache.hasImport(content)) {
+      outputRepositoryBuilder.appendInput(new ByteArrayInputStream(content));
+      return;
+    }
+    final List<GraphContext> cachedEvents = parseCache.get(content);
+    if (cachedEvents != null) {
+      logger.info("Md2Orchestra replaying cached parse events");
+      outputRepositoryBuilder.appendEvents(cachedEvents);
+    } else {
+      final List<GraphContext> events = new ArrayList<>();
+      // input with parse errors is not cached, so that its errors are reported on every run
+      if (outputRepositoryBuilder.appendInput(new ByteArrayInputStream(content), events::add)) {
+        parseCache.put(content, events);
+      }
+    }
   }
 
   /**
@@ -294,34 +591,57 @@ public class Md2Orchestra {
       logger.info("{} version {}", getClass().getCanonicalName(), version);
     }
 
-    final File outputFile = new File(outputFilename);
-    final File outputDir = outputFile.getParentFile();
-    if (outputDir != null) {
-      outputDir.mkdirs();
-    }
-
-    try (final OutputStream outputStream = new FileOutputStream(outputFile)) {
-
-      InputStream referenceStream = null;
-      if (referenceFilename != null) {
-        referenceStream = new FileInputStream(referenceFilename);
-      }
+    outputOutcome = null;
+    final ReplacingOutputStream outputStream =
+        FileStreams.newReplacingOutputStream(Path.of(outputFilename), bufferSize);
+    try {
 
       OutputStream jsonOutputStream = null;
       if (eventFilename != null) {
         jsonOutputStream = new FileOutputStream(eventFilename);
       }
-      outputRepositoryBuilder = RepositoryBuilder.instance(referenceStream, jsonOutputStream,
-          paragraphDelimiter, this.importPath != null ? Path.of(this.importPath) : null);
+      final Path importPath = this.importPath != null ? Path.of(this.importPath) : null;
+      if (loadedReference != null) {
+        outputRepositoryBuilder =
+            RepositoryBuilder.instance(null, jsonOutputStream, paragraphDelimiter, importPath);
+        outputRepositoryBuilder.setReference(loadedReference);
+      } else if (referenceFilename != null) {
+        try (final InputStream referenceStream =
+            FileStreams.newInputStream(Path.of(referenceFilename), bufferSize)) {
+          outputRepositoryBuilder = RepositoryBuilder.instance(referenceStream, jsonOutputStream,
+              paragraphDelimiter, importPath);
+        }
+      } else {
+        outputRepositoryBuilder =
+            RepositoryBuilder.instance(null, jsonOutputStream, paragraphDelimiter, importPath);
+      }
       outputRepositoryBuilder.setMaxComponentDepth(componentDepth);
+      if (cacheDirectory != null) {
+        parseCache = ParseCache.open(Path.of(cacheDirectory), cacheSettings(referenceFilename));
+      }
+      final int hits = parseCache != null ? parseCache.getHits() : 0;
+      final int misses = parseCache != null ? parseCache.getMisses() : 0;
       processFiles(inputFilePatterns, fileConsumer);
+      if (parseCache != null) {
+        logger.info("Md2Orchestra parse cache {} hits, {} misses", parseCache.getHits() - hits,
+            parseCache.getMisses() - misses);
+        parseCache.evictUnused();
+      }
 
       outputRepositoryBuilder.write(outputStream);
-      logger.info("Md2Orchestra output written");
+      outputOutcome = outputStream.commit();
+      if (shouldReportStats) {
+        reportFootprint(outputRepositoryBuilder);
+      }
     } catch (final JAXBException e) {
       logger.fatal("Md2Orchestra failed to process XML", e);
       throw new IOException(e);
+    } finally {
+      // a failed run leaves the previous output as it was
+      outputStream.discard();
     }
+    logger.info("Md2Orchestra output {}; file={}", outputOutcome.name().toLowerCase(),
+        outputFilename);
   }
 
   void generate(final String inputFilePattern, final String outputFilename,
@@ -329,33 +649,116 @@ public class Md2Orchestra {
     generate(List.of(inputFilePattern), outputFilename, referenceFilename, eventFilename);
   }
 
+  private String cacheSettings(final String referenceFilename) throws IOException {
+    String referenceDigest = loadedReferenceDigest;
+    if (referenceDigest == null && referenceFilename != null) {
+      try (final InputStream referenceStream =
+          FileStreams.newInputStream(Path.of(referenceFilename), bufferSize)) {
+        referenceDigest = ParseCache.digest(referenceStream);
+      }
+    }
+    return ParseCache.digest(referenceDigest, paragraphDelimiter, Integer.toString(componentDepth),
+        importPath);
+  }
+
+  private InputLocation inputLocation(final FileSystem fileSystem,
+      final String inputFilePattern) {
+    final String separator = fileSystem.getSeparator();
+    int lastSeparatorPos = inputFilePattern.lastIndexOf(separator);
+    // Handle Windows case for portability of '/' separator
+    if (lastSeparatorPos == -1 && !"/".equals(separator)) {
+      lastSeparatorPos = inputFilePattern.lastIndexOf("/");
+    }
+    final Path dirPath;
+    final String glob;
+    if (lastSeparatorPos != -1) {
+      dirPath =
+          fileSystem.getPath(inputFilePattern.substring(0, lastSeparatorPos)).toAbsolutePath();
+      glob = "**" + separator + inputFilePattern.substring(lastSeparatorPos + 1);
+    } else {
+      // current working directory
+      dirPath = fileSystem.getPath(".");
+      glob = inputFilePattern;
+    }
+
+    logger.info("Md2Orchestra searching for input at path {} file name pattern {}", dirPath, glob);
+    return new InputLocation(dirPath, fileSystem.getPathMatcher("glob:" + glob));
+  }
+
+  private String firstReferenceFilename() {
+    return referenceFilenames.isEmpty() ? null : referenceFilenames.get(0);
+  }
+
+  private void loadReferences(final List<Path> referencePaths) throws Exception {
+    final List<Reference> layers = new ArrayList<>(referencePaths.size());
+    final String[] digests = new String[referencePaths.size()];
+    for (int i = 0; i < referencePaths.size(); i++) {
+      final byte[] content = Files.readAllBytes(referencePaths.get(i));
+      layers.add(Reference.load(new ByteArrayInputStream(content)));
+      digests[i] = ParseCache.digest(new ByteArrayInputStream(content));
+      logger.info("Md2Orchestra loaded reference {}", referencePaths.get(i));
+    }
+    loadedReference = Reference.layered(layers);
+    // a single reference keeps the digest of its content, so its cached parse events stay valid
+    loadedReferenceDigest = digests.length == 1 ? digests[0] : ParseCache.digest(digests);
+  }
+
+  private List<Path> referencePaths() {
+    final List<Path> referencePaths = new ArrayList<>(referenceFilenames.size());
+    for (final String referenceFilename : referenceFilenames) {
+      referencePaths.add(Path.of(referenceFilename).toAbsolutePath().normalize());
+    }
+    return referencePaths;
+  }
+
+  private void registerDirectory(final WatchService watchService, final Path dir,
+      final Map<WatchKey, Path> watchedDirectories) throws IOException {
+    watchedDirectories.put(dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE), dir);
+  }
+
+  // a WatchService only reports changes to the immediate entries of a directory
+  private void registerTree(final WatchService watchService, final Path root,
+      final Map<WatchKey, Path> watchedDirectories) throws IOException {
+    Files.walkFileTree(root, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE,
+        new SimpleFileVisitor<Path>() {
+
+          @Override
+          public FileVisitResult preVisitDirectory(final Path dir,
+              final BasicFileAttributes attrs) throws IOException {
+            registerDirectory(watchService, dir, watchedDirectories);
+            return FileVisitResult.CONTINUE;
+          }
+
+          @Override
+          public FileVisitResult visitFileFailed(final Path file, final IOException exc) {
+            return FileVisitResult.SKIP_SUBTREE;
+          }
+        });
+  }
+
+  private void reportFootprint(final RepositoryBuilder repositoryBuilder) {
+    final HeapFootprint reference = new HeapFootprint(HeapFootprint::orchestraKind)
+        .add(repositoryBuilder.getReferenceRepositories(), HeapFootprint.OTHER);
+    // elements copied from the reference may share strings with it
+    final HeapFootprint output = new HeapFootprint(HeapFootprint::orchestraKind, reference)
+        .add(repositoryBuilder.getRepository(), HeapFootprint.OTHER);
+    if (reference.getTotalBytes() > 0) {
+      logger.info("Md2Orchestra reference repository estimated heap{}{}", System.lineSeparator(),
+          reference);
+    }
+    logger.info("Md2Orchestra output repository estimated heap{}{}", System.lineSeparator(),
+        output);
+  }
+
   private void processFiles(final List<String> inputFilePatterns,
       final Consumer<? super Path> fileConsumer) throws IOException {
     final FileSystem fileSystem = FileSystems.getDefault();
-    final String separator = fileSystem.getSeparator();
 
     for (final String inputFilePattern : inputFilePatterns) {
-      int lastSeparatorPos = inputFilePattern.lastIndexOf(separator);
-      // Handle Windows case for portability of '/' separator
-      if (lastSeparatorPos == -1 && !"/".equals(separator)) {
-        lastSeparatorPos = inputFilePattern.lastIndexOf("/");
-      }
-      final Path dirPath;
-      final String glob;
-      if (lastSeparatorPos != -1) {
-        dirPath =
-            fileSystem.getPath(inputFilePattern.substring(0, lastSeparatorPos)).toAbsolutePath();
-        glob = "**" + separator + inputFilePattern.substring(lastSeparatorPos + 1);
-      } else {
-        // current working directory
-        dirPath = fileSystem.getPath(".");
-        glob = inputFilePattern;
-      }
-
-      logger.info("Md2Orchestra searching for input at path {} file name pattern {}", dirPath,
-          glob);
-
-      final PathMatcher matcher = fileSystem.getPathMatcher("glob:" + glob);
+      final InputLocation location = inputLocation(fileSystem, inputFilePattern);
+      final Path dirPath = location.dirPath;
+      final PathMatcher matcher = location.matcher;
       final AtomicInteger filesMatched = new AtomicInteger();
       Files.walkFileTree(dirPath, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE,
           new FileVisitor<Path>() {
@@ -0,0 +1,478 @@
+/*
+ * Copyright 2020 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.fixprotocol.md2orchestra;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.fixprotocol._2020.orchestra.repository.Repository;
+import io.fixprotocol.orchestra.event.TeeEventListener;
+import io.fixprotocol.md2orchestra.util.FileStreams;
+
+/**
+ * Reports the differences between two versions of an Orchestra file
+ *
+ * Each top-level element, such as a field, codeset or message, is fingerprinted by a hash of its
+ * content, including its members, codes and documentation. Elements are matched by kind and key,
+ * as by {@link OrchestraMerge}, and are reported as added, removed or changed if their
+ * fingerprints differ. Elements of each kind are hashed concurrently, and matched through hash
+ * tables, so a diff takes time linear in the size of the files.
+ */
+public class OrchestraDiff {
+
+  public static class Builder {
+    private int bufferSize = FileStreams.DEFAULT_BUFFER_SIZE;
+    private Format format = Format.MARKDOWN;
+    private String newFilename;
+    private String oldFilename;
+    private String outputFilename;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    public OrchestraDiff build() {
+      return new OrchestraDiff(this);
+    }
+
+    /**
+     * Size of buffers for file input and output
+     *
+     * @param bufferSize buffer size in bytes
+     * @return this Builder
+     */
+    public Builder bufferSize(final int bufferSize) {
+      this.bufferSize = bufferSize;
+      return this;
+    }
+
+    /**
+     * @param format format of the report. Default is {@link Format#MARKDOWN}.
+     * @return this Builder
+     */
+    public Builder format(final Format format) {
+      this.format = format;
+      return this;
+    }
+
+    public Builder newFile(final String newFilename) {
+      this.newFilename = newFilename;
+      return this;
+    }
+
+    public Builder oldFile(final String oldFilename) {
+      this.oldFilename = oldFilename;
+      return this;
+    }
+
+    public Builder outputFile(final String outputFilename) {
+      this.outputFilename = outputFilename;
+      return this;
+    }
+
+    /**
+     * @param parallelism number of threads that hash elements, at least 1. Default is the number
+     *        of available processors.
+     * @return this Builder
+     */
+    public Builder parallelism(final int parallelism) {
+      this.parallelism = parallelism;
+      return this;
+    }
+  }
+
+  /**
+   * How an element differs between the old and new files
+   */
+  public enum Change {
+    ADDED, CHANGED, REMOVED
+  }
+
+  /**
+   * An element that differs between the old and new files
+   */
+  public static final class Difference {
+    private final Change change;
+    private final String key;
+    private final String kind;
+    private final String name;
+
+    Difference(final Change change, final String kind, final String key, final String name) {
+      this.change = change;
+      this.kind = kind;
+      this.key = key;
+      this.name = name;
+    }
+
+    public Change getChange() {
+      return change;
+    }
+
+    /**
+     * @return key that matches the element in both files, e.g. {@code id=35 scenario=base}
+     */
+    public String getKey() {
+      return key;
+    }
+
+    /**
+     * @return kind of element, e.g. {@code field}
+     */
+    public String getKind() {
+      return kind;
+    }
+
+    /**
+     * @return name of the element, or {@code null} if it has none
+     */
+    public String getName() {
+      return name;
+    }
+
+    @Override
+    public String toString() {
+      return change.name().toLowerCase(Locale.ROOT) + " " + kind + " " + key;
+    }
+  }
+
+  /**
+   * Format of a report
+   */
+  public enum Format {
+    JSON, MARKDOWN
+  }
+
+  // content hash of an element and its name
+  private static final class Fingerprint {
+    final String digest;
+    final String name;
+
+    Fingerprint(final String digest, final String name) {
+      this.digest = digest;
+      this.name = name;
+    }
+  }
+
+  private static final Map<String, String> HEADINGS = Map.of(RepositoryElements.ACTOR,
+      "Actors and flows", RepositoryElements.CATEGORY, "Categories", RepositoryElements.CODESET,
+      "Codesets", RepositoryElements.COMPONENT, "Components", RepositoryElements.CONCEPT,
+      "Concepts", RepositoryElements.DATATYPE, "Datatypes", RepositoryElements.FIELD, "Fields",
+      RepositoryElements.GROUP, "Groups", RepositoryElements.MESSAGE, "Messages",
+      RepositoryElements.SECTION, "Sections");
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Construct and run OrchestraDiff with command line arguments
+   *
+   * <pre>
+  usage: OrchestraDiff [options] &lt;old-file&gt; &lt;new-file&gt;
+   -?,--help                display usage
+      --buffersize &lt;arg&gt;    I/O buffer size in bytes
+      --format &lt;arg&gt;        format of report: markdown or json
+   -o,--output &lt;arg&gt;        path of report file (required)
+      --parallelism &lt;arg&gt;   number of threads that hash elements
+   * </pre>
+   *
+   * @param args command line arguments
+   */
+  public static void main(final String[] args) {
+    try {
+      OrchestraDiff.parseArgs(args).build().generate();
+    } catch (final Exception e) {
+      System.err.println(e.getMessage());
+      System.exit(1);
+    }
+  }
+
+  static Builder parseArgs(final String[] args) throws ParseException {
+    final Options options = new Options();
+    options.addOption(Option.builder("o").desc("path of report file (required)").longOpt("output")
+        .numberOfArgs(1).required().build());
+    options.addOption(Option.builder().desc("format of report: markdown or json")
+        .longOpt("format").numberOfArgs(1).build());
+    options.addOption(Option.builder().desc("number of threads that hash elements")
+        .longOpt("parallelism").numberOfArgs(1).type(Number.class).build());
+    options.addOption(Option.builder().desc("I/O buffer size in bytes").longOpt("buffersize")
+        .numberOfArgs(1).type(Number.class).build());
+    options.addOption(
+        Option.builder("?").numberOfArgs(0).desc("display usage").longOpt("help").build());
+
+    final DefaultParser parser = new DefaultParser();
+    final CommandLine cmd;
+    final Builder builder = new Builder();
+
+    try {
+      cmd = parser.parse(options, args);
+
+      if (cmd.hasOption("?")) {
+        showHelp(options);
+        System.exit(1);
+      }
+
+      final List<String> files = cmd.getArgList();
+      if (files.size() != 2) {
+        throw new ParseException("An old file and a new file are required");
+      }
+      builder.oldFile(files.get(0)).newFile(files.get(1));
+      builder.outputFile(cmd.getOptionValue("o"));
+
+      if (cmd.hasOption("format")) {
+        final String format = cmd.getOptionValue("format");
+        try {
+          builder.format(Format.valueOf(format.toUpperCase(Locale.ROOT)));
+        } catch (final IllegalArgumentException e) {
+          throw new ParseException("Unknown report format " + format);
+        }
+      }
+
+      if (cmd.hasOption("parallelism")) {
+        builder.parallelism(((Number) cmd.getParsedOptionValue("parallelism")).intValue());
+      }
+
+      if (cmd.hasOption("buffersize")) {
+        builder.bufferSize(((Number) cmd.getParsedOptionValue("buffersize")).intValue());
+      }
+
+      return builder;
+    } catch (final ParseException e) {
+      showHelp(options);
+      throw e;
+    }
+  }
+
+  private static void showHelp(final Options options) {
+    final HelpFormatter formatter = new HelpFormatter();
+    formatter.printHelp("OrchestraDiff [options] <old-file> <new-file>", options);
+  }
+
+  private final int bufferSize;
+  private final Format format;
+  private final Logger logger = LogManager.getLogger(getClass());
+  private final String newFilename;
+  private final String oldFilename;
+  private final String outputFilename;
+  private final int parallelism;
+
+  private OrchestraDiff(final Builder builder) {
+    this.bufferSize = builder.bufferSize;
+    this.format = builder.format;
+    this.newFilename = builder.newFilename;
+    this.oldFilename = builder.oldFilename;
+    this.outputFilename = builder.outputFilename;
+    this.parallelism = builder.parallelism;
+  }
+
+  /**
+   * Compares the old and new files
+   *
+   * @return differences by kind of element, in the order of elements in the new file, followed by
+   *         removed elements in the order of the old file
+   * @throws Exception if a file cannot be read or parsed
+   */
+  public List<Difference> diff() throws Exception {
+    Objects.requireNonNull(oldFilename, "Old file is missing");
+    Objects.requireNonNull(newFilename, "New file is missing");
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism must be at least 1");
+    }
+    final long startNanos = System.nanoTime();
+    final ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+    try {
+      final Future<Repository> oldRepository = executor.submit(() -> read(oldFilename));
+      final Future<Repository> newRepository = executor.submit(() -> read(newFilename));
+      final Map<String, Future<Map<String, Fingerprint>>> oldPrints =
+          fingerprint(executor, get(oldRepository, oldFilename));
+      final Map<String, Future<Map<String, Fingerprint>>> newPrints =
+          fingerprint(executor, get(newRepository, newFilename));
+
+      final Set<String> kinds = new LinkedHashSet<>(newPrints.keySet());
+      kinds.addAll(oldPrints.keySet());
+      final List<Difference> differences = new ArrayList<>();
+      for (final String kind : kinds) {
+        compare(kind, get(oldPrints.get(kind), oldFilename), get(newPrints.get(kind), newFilename),
+            differences);
+      }
+      logger.info("OrchestraDiff found {} differences in {} ms", differences.size(),
+          TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+      return differences;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Compares the old and new files and writes a report of their differences
+   *
+   * @throws Exception if a file cannot be read, parsed or written
+   */
+  public void generate() throws Exception {
+    try {
+      Objects.requireNonNull(outputFilename, "Output file is missing");
+      final List<Difference> differences = diff();
+      try (final Writer writer = new OutputStreamWriter(
+          FileStreams.newOutputStream(Path.of(outputFilename), bufferSize),
+          StandardCharsets.UTF_8)) {
+        if (format == Format.JSON) {
+          writeJson(differences, writer);
+        } else {
+          writeMarkdown(differences, writer);
+        }
+      }
+    } catch (final Exception e) {
+      logger.fatal("OrchestraDiff generate failed", e);
+      throw e;
+    }
+  }
+
+  private void compare(final String kind, final Map<String, Fingerprint> oldPrints,
+      final Map<String, Fingerprint> newPrints, final List<Difference> differences) {
+    for (final Map.Entry<String, Fingerprint> entry : newPrints.entrySet()) {
+      final Fingerprint oldPrint = oldPrints.get(entry.getKey());
+      if (oldPrint == null) {
+        differences.add(new Difference(Change.ADDED, kind, entry.getKey(), entry.getValue().name));
+      } else if (!oldPrint.digest.equals(entry.getValue().digest)) {
+        differences
+            .add(new Difference(Change.CHANGED, kind, entry.getKey(), entry.getValue().name));
+      }
+    }
+    for (final Map.Entry<String, Fingerprint> entry : oldPrints.entrySet()) {
+      if (!newPrints.containsKey(entry.getKey())) {
+        differences
+            .add(new Difference(Change.REMOVED, kind, entry.getKey(), entry.getValue().name));
+      }
+    }
+  }
+
+  // hashes the elements of each kind on its own thread
+  private Map<String, Future<Map<String, Fingerprint>>> fingerprint(final ExecutorService executor,
+      final Repository repository) {
+    final Map<String, Future<Map<String, Fingerprint>>> fingerprints = new LinkedHashMap<>();
+    for (final Map.Entry<String, List<?>> elements : RepositoryElements.byKind(repository)
+        .entrySet()) {
+      fingerprints.put(elements.getKey(), executor.submit(() -> {
+        final ElementDigest elementDigest = new ElementDigest();
+        final Map<String, Fingerprint> prints = new LinkedHashMap<>();
+        for (final Object element : elements.getValue()) {
+          // the first of duplicate keys wins, as in a lookup
+          prints.putIfAbsent(RepositoryElements.key(element),
+              new Fingerprint(elementDigest.digest(element), RepositoryElements.name(element)));
+        }
+        return prints;
+      }));
+    }
+    return fingerprints;
+  }
+
+  private <T> T get(final Future<T> future, final String filename)
+      throws IOException, InterruptedException {
+    if (future == null) {
+      @SuppressWarnings("unchecked")
+      final T empty = (T) Collections.emptyMap();
+      return empty;
+    }
+    try {
+      return future.get();
+    } catch (final ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      throw new IOException("OrchestraDiff failed to process " + filename, cause);
+    }
+  }
+
+  private Repository read(final String filename) throws Exception {
+    final RepositoryAdapter adapter;
+    try (final TeeEventListener eventLogger = RepositoryBuilder.createEventListener(logger, null);
+        final InputStream inputStream =
+            FileStreams.newInputStream(Path.of(filename), bufferSize)) {
+      adapter = new RepositoryAdapter(eventLogger);
+      adapter.unmarshal(inputStream);
+    }
+    if (adapter.getRepository() == null) {
+      throw new IOException("Not an Orchestra repository: " + filename);
+    }
+    return adapter.getRepository();
+  }
+
+  private void writeJson(final List<Difference> differences, final Writer writer)
+      throws IOException {
+    final Map<String, Object> report = new LinkedHashMap<>();
+    report.put("old", oldFilename);
+    report.put("new", newFilename);
+    for (final Change change : Change.values()) {
+      report.put(change.name().toLowerCase(Locale.ROOT),
+          differences.stream().filter(d -> d.getChange() == change).count());
+    }
+    final List<Map<String, Object>> items = new ArrayList<>(differences.size());
+    for (final Difference difference : differences) {
+      final Map<String, Object> item = new LinkedHashMap<>();
+      item.put("kind", difference.getKind());
+      item.put("change", difference.getChange().name().toLowerCase(Locale.ROOT));
+      item.put("key", difference.getKey());
+      item.put("name", difference.getName());
+      items.add(item);
+    }
+    report.put("differences", items);
+    new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(writer, report);
+  }
+
+  private void writeMarkdown(final List<Difference> differences, final Writer writer)
+      throws IOException {
+    writer.write("# Differences\n\n");
+    writer.write("Old: " + oldFilename + "  \nNew: " + newFilename + "\n\n");
+    if (differences.isEmpty()) {
+      writer.write("No differences\n");
+      return;
+    }
+    String kind = null;
+    for (final Difference difference : differences) {
+      if (!difference.getKind().equals(kind)) {
+        kind = difference.getKind();
+        writer.write("\n## " + HEADINGS.getOrDefault(kind, kind) + "\n\n");
+        writer.write("| Change | Key | Name |\n|---|---|---|\n");
+      }
+      writer.write("| " + difference.getChange().name().toLowerCase(Locale.ROOT) + " | "
+          + difference.getKey() + " | " + Objects.requireNonNullElse(difference.getName(), "")
+          + " |\n");
+    }
+  }
+}
@@ -0,0 +1,435 @@
+/*
+ * Copyright 2020 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.fixprotocol.md2orchestra;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import javax.xml.bind.JAXBException;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import io.fixprotocol._2020.orchestra.repository.Actors;
+import io.fixprotocol._2020.orchestra.repository.Categories;
+import io.fixprotocol._2020.orchestra.repository.CategoryType;
+import io.fixprotocol._2020.orchestra.repository.ConceptType;
+import io.fixprotocol._2020.orchestra.repository.Concepts;
+import io.fixprotocol._2020.orchestra.repository.Repository;
+import io.fixprotocol._2020.orchestra.repository.SectionType;
+import io.fixprotocol._2020.orchestra.repository.Sections;
+import io.fixprotocol.md2orchestra.util.FileStreams;
+import io.fixprotocol.orchestra.event.TeeEventListener;
+
+/**
+ * Merges Orchestra files into one
+ *
+ * Elements are joined by kind and key. Fields, codesets, components, groups and messages are keyed
+ * by ID, or by name if they have no ID, and scenario. Datatypes, categories, sections, actors,
+ * flows and concepts are keyed by name. Each input is read once and each element is joined through
+ * a hash table, so a merge takes time linear in the total size of its inputs. An element that is
+ * in several inputs with the same content, such as a field copied from a common reference, is
+ * written once. Elements with the same key but different content are resolved by a
+ * {@link ConflictPolicy}. Repository attributes and metadata are taken from the first input.
+ *
+ * Problems are written to a JSON event file, as by the other converters.
+ */
+public class OrchestraMerge {
+
+  public static class Builder {
+    private int bufferSize = FileStreams.DEFAULT_BUFFER_SIZE;
+    private ConflictPolicy conflictPolicy = ConflictPolicy.FIRST;
+    private String eventFilename;
+    private final List<String> inputFilenames = new ArrayList<>();
+    private String outputFilename;
+
+    public OrchestraMerge build() {
+      return new OrchestraMerge(this);
+    }
+
+    /**
+     * Size of buffers for file input and output
+     *
+     * @param bufferSize buffer size in bytes
+     * @return this Builder
+     */
+    public Builder bufferSize(final int bufferSize) {
+      this.bufferSize = bufferSize;
+      return this;
+    }
+
+    /**
+     * @param conflictPolicy how to resolve elements with the same key but different content.
+     *        Default is {@link ConflictPolicy#FIRST}.
+     * @return this Builder
+     */
+    public Builder conflictPolicy(final ConflictPolicy conflictPolicy) {
+      this.conflictPolicy = conflictPolicy;
+      return this;
+    }
+
+    public Builder eventFile(final String eventFilename) {
+      this.eventFilename = eventFilename;
+      return this;
+    }
+
+    /**
+     * @param inputFilenames Orchestra files to merge, in order of precedence for
+     *        {@link ConflictPolicy#FIRST}
+     * @return this Builder
+     */
+    public Builder inputFiles(final List<String> inputFilenames) {
+      this.inputFilenames.clear();
+      this.inputFilenames.addAll(inputFilenames);
+      return this;
+    }
+
+    public Builder outputFile(final String outputFilename) {
+      this.outputFilename = outputFilename;
+      return this;
+    }
+  }
+
+  /**
+   * Resolution of elements that have the same key but different content
+   */
+  public enum ConflictPolicy {
+    /**
+     * Keep the element of the earliest input, and warn
+     */
+    FIRST,
+    /**
+     * Keep the element of the latest input, in the position of the earliest, and warn
+     */
+    LAST,
+    /**
+     * Report each conflict as an error, and fail without writing output
+     */
+    FAIL
+  }
+
+  // an element kept for output, with the input that it came from
+  private static final class Entry {
+    String digest;
+    Object element;
+    String source;
+
+    Entry(final Object element, final String source) {
+      this.element = element;
+      this.source = source;
+    }
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Construct and run OrchestraMerge with command line arguments
+   *
+   * <pre>
+  usage: OrchestraMerge [options] &lt;input-file&gt;...
+   -?,--help               display usage
+      --buffersize &lt;arg&gt;   I/O buffer size in bytes
+      --conflict &lt;arg&gt;     policy for elements that differ: first, last or
+                           fail
+   -e,--eventlog &lt;arg&gt;     path of JSON event file
+   -o,--output &lt;arg&gt;       path of output Orchestra file (required)
+   * </pre>
+   *
+   * @param args command line arguments
+   */
+  public static void main(final String[] args) {
+    try {
+      OrchestraMerge.parseArgs(args).build().generate();
+    } catch (final Exception e) {
+      System.err.println(e.getMessage());
+      System.exit(1);
+    }
+  }
+
+  static Builder parseArgs(final String[] args) throws ParseException {
+    final Options options = new Options();
+    options.addOption(Option.builder("o").desc("path of output Orchestra file (required)")
+        .longOpt("output").numberOfArgs(1).required().build());
+    options.addOption(Option.builder("e").desc("path of JSON event file").longOpt("eventlog")
+        .numberOfArgs(1).build());
+    options.addOption(Option.builder().desc("policy for elements that differ: first, last or fail")
+        .longOpt("conflict").numberOfArgs(1).build());
+    options.addOption(Option.builder().desc("I/O buffer size in bytes").longOpt("buffersize")
+        .numberOfArgs(1).type(Number.class).build());
+    options.addOption(
+        Option.builder("?").numberOfArgs(0).desc("display usage").longOpt("help").build());
+
+    final DefaultParser parser = new DefaultParser();
+    final CommandLine cmd;
+    final Builder builder = new Builder();
+
+    try {
+      cmd = parser.parse(options, args);
+
+      if (cmd.hasOption("?")) {
+        showHelp(options);
+        System.exit(1);
+      }
+
+      builder.inputFiles(cmd.getArgList());
+      builder.outputFile(cmd.getOptionValue("o"));
+
+      if (cmd.hasOption("e")) {
+        builder.eventFile(cmd.getOptionValue("e"));
+      }
+
+      if (cmd.hasOption("conflict")) {
+        final String policy = cmd.getOptionValue("conflict");
+        try {
+          builder.conflictPolicy(ConflictPolicy.valueOf(policy.toUpperCase(Locale.ROOT)));
+        } catch (final IllegalArgumentException e) {
+          throw new ParseException("Unknown conflict policy " + policy);
+        }
+      }
+
+      if (cmd.hasOption("buffersize")) {
+        builder.bufferSize(((Number) cmd.getParsedOptionValue("buffersize")).intValue());
+      }
+
+      return builder;
+    } catch (final ParseException e) {
+      showHelp(options);
+      throw e;
+    }
+  }
+
+  private static void showHelp(final Options options) {
+    final HelpFormatter formatter = new HelpFormatter();
+    formatter.printHelp("OrchestraMerge [options] <input-file>...", options);
+  }
+
+  private final int bufferSize;
+  private final ConflictPolicy conflictPolicy;
+  private int conflicts;
+  private int duplicates;
+  private ElementDigest elementDigest;
+  // kept elements by kind, then by key, in order of first appearance
+  private final Map<String, Map<String, Entry>> elementsByKind = new LinkedHashMap<>();
+  private final String eventFilename;
+  private TeeEventListener eventLogger;
+  private final List<String> inputFilenames;
+  private final Logger logger = LogManager.getLogger(getClass());
+  private final String outputFilename;
+
+  private OrchestraMerge(final Builder builder) {
+    this.bufferSize = builder.bufferSize;
+    this.conflictPolicy = builder.conflictPolicy;
+    this.eventFilename = builder.eventFilename;
+    this.inputFilenames = List.copyOf(builder.inputFilenames);
+    this.outputFilename = builder.outputFilename;
+  }
+
+  /**
+   * Merge the input files and write the output file
+   *
+   * @throws Exception if a file cannot be read or written, or if there are conflicts under
+   *         {@link ConflictPolicy#FAIL}
+   */
+  public void generate() throws Exception {
+    try {
+      merge();
+    } catch (final Exception e) {
+      logger.fatal("OrchestraMerge merge failed", e);
+      throw e;
+    }
+  }
+
+  private void merge() throws Exception {
+    Objects.requireNonNull(outputFilename, "Output file is missing");
+    if (inputFilenames.isEmpty()) {
+      throw new IllegalArgumentException("No input file specified");
+    }
+    final long startNanos = System.nanoTime();
+    elementsByKind.clear();
+    conflicts = 0;
+    duplicates = 0;
+    elementDigest = new ElementDigest();
+
+    final OutputStream jsonOutputStream =
+        eventFilename != null ? new FileOutputStream(eventFilename) : null;
+    try (final TeeEventListener eventLogger =
+        RepositoryBuilder.createEventListener(logger, jsonOutputStream)) {
+      this.eventLogger = eventLogger;
+      final RepositoryAdapter output = new RepositoryAdapter(eventLogger);
+      output.createRepository();
+
+      boolean isFirst = true;
+      for (final String inputFilename : inputFilenames) {
+        final RepositoryAdapter input = new RepositoryAdapter(eventLogger);
+        try (final InputStream inputStream =
+            FileStreams.newInputStream(Path.of(inputFilename), bufferSize)) {
+          input.unmarshal(inputStream);
+        }
+        final Repository repository = input.getRepository();
+        if (repository == null) {
+          eventLogger.error("Not an Orchestra repository; file={0}", inputFilename);
+          continue;
+        }
+        if (isFirst) {
+          copyAttributes(repository, output.getRepository());
+          isFirst = false;
+        }
+        mergeRepository(repository, inputFilename);
+        logger.info("OrchestraMerge merged file {}", inputFilename);
+      }
+
+      if (conflictPolicy == ConflictPolicy.FAIL && conflicts > 0) {
+        eventLogger.fatal("Merge failed with {0} conflicts", conflicts);
+        throw new IllegalStateException("OrchestraMerge found " + conflicts + " conflicts");
+      }
+
+      writeElements(output.getRepository());
+      try (final OutputStream outputStream =
+          FileStreams.newOutputStream(Path.of(outputFilename), bufferSize)) {
+        output.marshal(outputStream);
+      }
+    } catch (final JAXBException e) {
+      logger.fatal("OrchestraMerge failed to process XML", e);
+      throw new IOException(e);
+    } finally {
+      this.eventLogger = null;
+      this.elementDigest = null;
+    }
+    logger.info(
+        "OrchestraMerge merged {} files with {} elements, {} duplicates and {} conflicts in {} ms",
+        inputFilenames.size(),
+        elementsByKind.values().stream().mapToInt(Map::size).sum(), duplicates, conflicts,
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+  }
+
+  private void copyAttributes(final Repository from, final Repository to) {
+    if (from.getMetadata() != null) {
+      to.setMetadata(from.getMetadata());
+    }
+    to.setAnnotation(from.getAnnotation());
+    to.setName(from.getName());
+    to.setVersion(from.getVersion());
+    to.setGuid(from.getGuid());
+    to.setSpecUrl(from.getSpecUrl());
+    to.setNamespace(from.getNamespace());
+    to.setApplVerId(from.getApplVerId());
+    to.setExpressionLanguage(from.getExpressionLanguage());
+    to.setLatestEP(from.getLatestEP());
+  }
+
+  private void merge(final String kind, final List<?> elements, final String source)
+      throws JAXBException {
+    final Map<String, Entry> merged =
+        elementsByKind.computeIfAbsent(kind, k -> new LinkedHashMap<>());
+    for (final Object element : elements) {
+      final String key = RepositoryElements.key(element);
+      final Entry entry = merged.get(key);
+      if (entry == null) {
+        merged.put(key, new Entry(element, source));
+        continue;
+      }
+      // content is only hashed for elements whose key was seen before
+      if (entry.digest == null) {
+        entry.digest = elementDigest.digest(entry.element);
+      }
+      final String digest = elementDigest.digest(element);
+      if (digest.equals(entry.digest)) {
+        duplicates++;
+        continue;
+      }
+      conflicts++;
+      switch (conflictPolicy) {
+        case FIRST:
+          eventLogger.warn("Conflicting {0}; {1} in {2} differs from {3}, which is kept", kind,
+              key, source, entry.source);
+          break;
+        case LAST:
+          eventLogger.warn("Conflicting {0}; {1} in {2} replaces {3}", kind, key, source,
+              entry.source);
+          entry.element = element;
+          entry.source = source;
+          entry.digest = digest;
+          break;
+        case FAIL:
+          eventLogger.error("Conflicting {0}; {1} in {2} differs from {3}", kind, key, source,
+              entry.source);
+          break;
+      }
+    }
+  }
+
+  private void mergeRepository(final Repository repository, final String source)
+      throws JAXBException {
+    for (final Map.Entry<String, List<?>> elements : RepositoryElements.byKind(repository)
+        .entrySet()) {
+      merge(elements.getKey(), elements.getValue(), source);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> List<T> values(final String kind) {
+    final List<T> values = new ArrayList<>();
+    final Map<String, Entry> merged = elementsByKind.get(kind);
+    if (merged != null) {
+      for (final Entry entry : merged.values()) {
+        values.add((T) entry.element);
+      }
+    }
+    return values;
+  }
+
+  private void writeElements(final Repository repository) {
+    repository.getDatatypes().getDatatype().addAll(values(RepositoryElements.DATATYPE));
+    repository.getCodeSets().getCodeSet().addAll(values(RepositoryElements.CODESET));
+    repository.getFields().getField().addAll(values(RepositoryElements.FIELD));
+    repository.getComponents().getComponent().addAll(values(RepositoryElements.COMPONENT));
+    repository.getGroups().getGroup().addAll(values(RepositoryElements.GROUP));
+    repository.getMessages().getMessage().addAll(values(RepositoryElements.MESSAGE));
+    final List<CategoryType> categories = values(RepositoryElements.CATEGORY);
+    if (!categories.isEmpty()) {
+      repository.setCategories(new Categories());
+      repository.getCategories().getCategory().addAll(categories);
+    }
+    final List<SectionType> sections = values(RepositoryElements.SECTION);
+    if (!sections.isEmpty()) {
+      repository.setSections(new Sections());
+      repository.getSections().getSection().addAll(sections);
+    }
+    final List<Object> actors = values(RepositoryElements.ACTOR);
+    if (!actors.isEmpty()) {
+      repository.setActors(new Actors());
+      repository.getActors().getActorOrFlow().addAll(actors);
+    }
+    final List<ConceptType> concepts = values(RepositoryElements.CONCEPT);
+    if (!concepts.isEmpty()) {
+      repository.setConcepts(new Concepts());
+      repository.getConcepts().getConcept().addAll(concepts);
+    }
+  }
+}
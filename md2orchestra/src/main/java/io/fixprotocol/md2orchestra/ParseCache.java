@@ -0,0 +1,490 @@
+package io.fixprotocol.md2orchestra;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Pattern;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import io.fixprotocol.md.event.Context;
+import io.fixprotocol.md.event.ContextFactory;
+import io.fixprotocol.md.event.Detail;
+import io.fixprotocol.md.event.DetailProperties;
+import io.fixprotocol.md.event.DetailTable;
+import io.fixprotocol.md.event.Documentation;
+import io.fixprotocol.md.event.DocumentContext;
+import io.fixprotocol.md.event.GraphContext;
+import io.fixprotocol.md.event.MutableContext;
+import io.fixprotocol.md.event.MutableDetail;
+import io.fixprotocol.md.event.MutableDetailProperties;
+import io.fixprotocol.md.event.MutableDetailTable;
+import io.fixprotocol.md.event.MutableDocumentContext;
+import io.fixprotocol.md.event.MutableDocumentation;
+
+/**
+ * Cache of markdown parse events in a local directory or in memory, keyed by a hash of file
+ * content
+ *
+ * An entry holds the events that {@link io.fixprotocol.md.event.DocumentParser} delivered for one
+ * input file: headings, tables, lists and documentation, with their positions and parent headings.
+ * Replaying an entry into a {@link RepositoryBuilder} has the same effect as parsing the file
+ * again.
+ *
+ * The directory holds a settings digest, e.g. of the reference file and translation options. When
+ * a cache is opened with different settings, all of its entries are deleted.
+ *
+ * Files that import other files into fenced code blocks are never cached, since a change to an
+ * imported file would not change the content hash.
+ */
+final class ParseCache {
+
+  private static final String ENTRY_SUFFIX = ".events";
+  // increment when the entry format changes
+  private static final int FORMAT_VERSION = 1;
+  private static final Pattern IMPORT_PATTERN =
+      Pattern.compile("^\\s*```.*\\bimport\\b", Pattern.MULTILINE);
+  private static final String SETTINGS_FILENAME = "settings";
+
+  private static final byte CONTEXT = 'C';
+  private static final byte DETAIL = 'D';
+  private static final byte DOCUMENTATION = 'M';
+  private static final byte PARENT = 'P';
+  private static final byte REPEAT = 'R';
+  private static final byte TABLE = 'T';
+
+  /**
+   * Digest of settings that affect the result of a translation
+   *
+   * @param settings strings, e.g. options or a digest of a reference file; may contain {@code null}
+   * @return hex SHA-256 of the settings
+   */
+  static String digest(String... settings) {
+    final MessageDigest messageDigest = newMessageDigest();
+    messageDigest.update(Integer.toString(FORMAT_VERSION).getBytes(StandardCharsets.UTF_8));
+    for (final String setting : settings) {
+      messageDigest.update((byte) 0);
+      messageDigest.update(String.valueOf(setting).getBytes(StandardCharsets.UTF_8));
+    }
+    return toHex(messageDigest.digest());
+  }
+
+  /**
+   * Digest of the content of a stream, e.g. a reference file
+   *
+   * @param in stream to read to its end; not closed
+   * @return hex SHA-256 of the content
+   * @throws IOException if the stream cannot be read
+   */
+  static String digest(InputStream in) throws IOException {
+    final MessageDigest messageDigest = newMessageDigest();
+    final byte[] buffer = new byte[8192];
+    int length;
+    while ((length = in.read(buffer)) > 0) {
+      messageDigest.update(buffer, 0, length);
+    }
+    return toHex(messageDigest.digest());
+  }
+
+  /**
+   * @param content markdown file content
+   * @return {@code true} if the content may import another file into a fenced code block
+   */
+  static boolean hasImport(byte[] content) {
+    return IMPORT_PATTERN.matcher(new String(content, StandardCharsets.UTF_8)).find();
+  }
+
+  /**
+   * Creates a cache that holds entries in memory for the life of a process, e.g. while watching
+   * input files
+   *
+   * @return an empty cache
+   */
+  static ParseCache inMemory() {
+    return new ParseCache(null);
+  }
+
+  /**
+   * Opens a cache, creating its directory if needed
+   *
+   * @param directory cache directory
+   * @param settingsDigest digest of settings, e.g. from {@link #digest(String...)}
+   * @return a cache
+   * @throws IOException if the directory cannot be created or cleared
+   */
+  static ParseCache open(Path directory, String settingsDigest) throws IOException {
+    Objects.requireNonNull(directory, "Cache directory is missing");
+    Files.createDirectories(directory);
+    final Path settingsPath = directory.resolve(SETTINGS_FILENAME);
+    final ParseCache cache = new ParseCache(directory);
+    String previous = null;
+    try {
+      previous = Files.readString(settingsPath, StandardCharsets.UTF_8);
+    } catch (final NoSuchFileException e) {
+      // new cache
+    }
+    if (!settingsDigest.equals(previous)) {
+      if (previous != null) {
+        cache.logger.info("ParseCache settings changed; clearing {}", directory);
+      }
+      try (DirectoryStream<Path> entries =
+          Files.newDirectoryStream(directory, "*" + ENTRY_SUFFIX)) {
+        for (final Path entry : entries) {
+          Files.deleteIfExists(entry);
+        }
+      }
+      Files.writeString(settingsPath, settingsDigest, StandardCharsets.UTF_8);
+    }
+    return cache;
+  }
+
+  static MessageDigest newMessageDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (final NoSuchAlgorithmException e) {
+      // every Java platform supports SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static void readPosition(DataInputStream in, MutableDocumentContext context)
+      throws IOException {
+    context.setLine(in.readInt());
+    context.setCharPositionInLine(in.readInt());
+    context.setStartOffset(in.readInt());
+    context.setEndOffset(in.readInt());
+  }
+
+  private static void readProperties(DataInputStream in, MutableDetailProperties properties)
+      throws IOException {
+    final int count = in.readInt();
+    for (int i = 0; i < count; i++) {
+      properties.addProperty(readString(in), readString(in));
+    }
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    final int length = in.readInt();
+    if (length < 0) {
+      return null;
+    }
+    final byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  static String toHex(byte[] bytes) {
+    final StringBuilder sb = new StringBuilder(bytes.length * 2);
+    for (final byte b : bytes) {
+      sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+    }
+    return sb.toString();
+  }
+
+  private static void writePosition(DataOutputStream out, DocumentContext context)
+      throws IOException {
+    out.writeInt(context.getLine());
+    out.writeInt(context.getCharPositionInLine());
+    out.writeInt(context.getStartOffset());
+    out.writeInt(context.getEndOffset());
+  }
+
+  private static void writeProperties(DataOutputStream out, DetailProperties properties)
+      throws IOException {
+    final List<Map.Entry<String, String>> entries = new ArrayList<>(properties.getProperties());
+    out.writeInt(entries.size());
+    for (final Map.Entry<String, String> entry : entries) {
+      writeString(out, entry.getKey());
+      writeString(out, entry.getValue());
+    }
+  }
+
+  private static void writeString(DataOutputStream out, String s) throws IOException {
+    if (s == null) {
+      out.writeInt(-1);
+    } else {
+      final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+  }
+
+  private final ContextFactory contextFactory = new ContextFactory();
+  private final Path directory;
+  private int hits;
+  private final Logger logger = LogManager.getLogger(getClass());
+  // entries of an in-memory cache by content hash, or null if entries are files
+  private final Map<String, byte[]> memory;
+  private int misses;
+  private final Set<String> used = new HashSet<>();
+
+  private ParseCache(Path directory) {
+    this.directory = directory;
+    this.memory = directory == null ? new HashMap<>() : null;
+  }
+
+  /**
+   * Removes entries of an in-memory cache that were not read or stored since the last call, e.g.
+   * the events of earlier versions of files that have since changed
+   */
+  void evictUnused() {
+    if (memory != null) {
+      memory.keySet().retainAll(used);
+    }
+    used.clear();
+  }
+
+  /**
+   * Returns the cached events of a file
+   *
+   * A damaged entry is logged and treated as missing.
+   *
+   * @param content markdown file content
+   * @return events in the order they were parsed, or {@code null} if not cached
+   */
+  List<GraphContext> get(byte[] content) {
+    final String key = key(content);
+    final byte[] entry = memory != null ? memory.get(key) : null;
+    final Path entryPath = memory == null ? directory.resolve(key + ENTRY_SUFFIX) : null;
+    if (entry != null || (entryPath != null && Files.exists(entryPath))) {
+      try (DataInputStream in = new DataInputStream(entry != null ? new ByteArrayInputStream(entry)
+          : new BufferedInputStream(Files.newInputStream(entryPath)))) {
+        final List<GraphContext> events = readEvents(in);
+        hits++;
+        used.add(key);
+        return events;
+      } catch (final IOException | RuntimeException e) {
+        logger.warn("ParseCache failed to read entry {}; parsing again", key, e);
+      }
+    }
+    misses++;
+    return null;
+  }
+
+  int getHits() {
+    return hits;
+  }
+
+  int getMisses() {
+    return misses;
+  }
+
+  /**
+   * Stores the events of a file
+   *
+   * The entry is written to a temporary file and then moved into place, so a concurrent or
+   * interrupted run never reads a partial entry. Failure to store is logged, not thrown.
+   *
+   * @param content markdown file content
+   * @param events events in the order they were parsed
+   */
+  void put(byte[] content, List<? extends GraphContext> events) {
+    final String key = key(content);
+    used.add(key);
+    if (memory != null) {
+      final ByteArrayOutputStream entry = new ByteArrayOutputStream();
+      try (DataOutputStream out = new DataOutputStream(entry)) {
+        writeEvents(out, events);
+        memory.put(key, entry.toByteArray());
+      } catch (final IOException | RuntimeException e) {
+        logger.warn("ParseCache failed to store entry {}", key, e);
+      }
+      return;
+    }
+    final Path entryPath = directory.resolve(key + ENTRY_SUFFIX);
+    Path tempPath = null;
+    try {
+      tempPath = Files.createTempFile(directory, "entry", ".tmp");
+      try (DataOutputStream out =
+          new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+        writeEvents(out, events);
+      }
+      Files.move(tempPath, entryPath, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (final IOException | RuntimeException e) {
+      logger.warn("ParseCache failed to write {}", entryPath, e);
+      if (tempPath != null) {
+        try {
+          Files.deleteIfExists(tempPath);
+        } catch (final IOException e1) {
+          // already logged
+        }
+      }
+    }
+  }
+
+  private String key(byte[] content) {
+    return toHex(newMessageDigest().digest(content));
+  }
+
+  private Context parent(List<Context> contexts, int id) {
+    return id >= 0 ? contexts.get(id) : null;
+  }
+
+  private List<GraphContext> readEvents(DataInputStream in) throws IOException {
+    if (in.readInt() != FORMAT_VERSION) {
+      throw new IOException("Unknown cache entry format");
+    }
+    final List<Context> contexts = new ArrayList<>();
+    final int count = in.readInt();
+    final List<GraphContext> events = new ArrayList<>(count);
+    while (events.size() < count) {
+      final byte type = in.readByte();
+      switch (type) {
+        case CONTEXT:
+        case PARENT: {
+          final Context parent = parent(contexts, in.readInt());
+          final int level = in.readInt();
+          final String[] keys = new String[in.readInt()];
+          for (int i = 0; i < keys.length; i++) {
+            keys[i] = readString(in);
+          }
+          final MutableContext context = contextFactory.createContext(keys, level);
+          context.setParent(parent);
+          readPosition(in, context);
+          contexts.add(context);
+          if (type == CONTEXT) {
+            events.add(context);
+          }
+          break;
+        }
+        case REPEAT:
+          events.add(contexts.get(in.readInt()));
+          break;
+        case DETAIL: {
+          final MutableDetail detail = contextFactory.createDetail();
+          detail.setParent(parent(contexts, in.readInt()));
+          readPosition(in, detail);
+          final int propertyCount = in.readInt();
+          for (int i = 0; i < propertyCount; i++) {
+            detail.addProperty(readString(in), readString(in));
+          }
+          events.add(detail);
+          break;
+        }
+        case DOCUMENTATION: {
+          final Context parent = parent(contexts, in.readInt());
+          final MutableDocumentation documentation =
+              contextFactory.createDocumentation(readString(in), readString(in));
+          documentation.setParent(parent);
+          readPosition(in, documentation);
+          events.add(documentation);
+          break;
+        }
+        case TABLE: {
+          final MutableDetailTable table = contextFactory.createDetailTable();
+          table.setParent(parent(contexts, in.readInt()));
+          readPosition(in, table);
+          final int rowCount = in.readInt();
+          for (int i = 0; i < rowCount; i++) {
+            final MutableDetailProperties row = table.newRow();
+            // a row of the parser's table implementation has a position
+            readPosition(in, (MutableDocumentContext) row);
+            readProperties(in, row);
+          }
+          events.add(table);
+          break;
+        }
+        default:
+          throw new IOException("Unknown cache entry record " + type);
+      }
+    }
+    return events;
+  }
+
+  private int writeContext(DataOutputStream out, Map<Context, Integer> ids, Context context,
+      byte type) throws IOException {
+    final int parentId = writeParent(out, ids, context.getParent());
+    out.writeByte(type);
+    out.writeInt(parentId);
+    out.writeInt(context.getLevel());
+    final String[] keys = context.getKeys();
+    out.writeInt(keys.length);
+    for (final String key : keys) {
+      writeString(out, key);
+    }
+    writePosition(out, context);
+    final int id = ids.size();
+    ids.put(context, id);
+    return id;
+  }
+
+  private void writeEvents(DataOutputStream out, List<? extends GraphContext> events)
+      throws IOException {
+    out.writeInt(FORMAT_VERSION);
+    out.writeInt(events.size());
+    // heading contexts by identity, so that parents are shared as they were when parsed
+    final Map<Context, Integer> ids = new IdentityHashMap<>();
+    for (final GraphContext event : events) {
+      if (event instanceof Context) {
+        final Integer id = ids.get(event);
+        if (id != null) {
+          // already written as a parent
+          out.writeByte(REPEAT);
+          out.writeInt(id);
+        } else {
+          writeContext(out, ids, (Context) event, CONTEXT);
+        }
+      } else if (event instanceof Detail) {
+        final Detail detail = (Detail) event;
+        final int parentId = writeParent(out, ids, detail.getParent());
+        out.writeByte(DETAIL);
+        out.writeInt(parentId);
+        writePosition(out, detail);
+        writeProperties(out, detail);
+      } else if (event instanceof Documentation) {
+        final Documentation documentation = (Documentation) event;
+        final int parentId = writeParent(out, ids, documentation.getParent());
+        out.writeByte(DOCUMENTATION);
+        out.writeInt(parentId);
+        writeString(out, documentation.getDocumentation());
+        writeString(out, documentation.getFormat());
+        writePosition(out, documentation);
+      } else if (event instanceof DetailTable) {
+        final DetailTable table = (DetailTable) event;
+        final int parentId = writeParent(out, ids, table.getParent());
+        final List<DetailTable.TableRow> rows = new ArrayList<>();
+        table.rows().forEach(rows::add);
+        out.writeByte(TABLE);
+        out.writeInt(parentId);
+        writePosition(out, table);
+        out.writeInt(rows.size());
+        for (final DetailTable.TableRow row : rows) {
+          writePosition(out, row);
+          writeProperties(out, row);
+        }
+      } else {
+        throw new IllegalArgumentException("Unknown event type " + event.getClass());
+      }
+    }
+  }
+
+  private int writeParent(DataOutputStream out, Map<Context, Integer> ids, Context parent)
+      throws IOException {
+    if (parent == null) {
+      return -1;
+    }
+    final Integer id = ids.get(parent);
+    return id != null ? id : writeContext(out, ids, parent, PARENT);
+  }
+}
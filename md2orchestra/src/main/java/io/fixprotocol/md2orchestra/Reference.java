@@ -0,0 +1,93 @@
+/*
+ * Copyright 2020 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.fixprotocol.md2orchestra;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import io.fixprotocol._2020.orchestra.repository.Repository;
+
+/**
+ * A reference Orchestra repository, loaded once for any number of RepositoryBuilders
+ *
+ * A RepositoryBuilder only reads its reference, copying the elements that it takes, so a Reference
+ * may be shared by builders on several threads. Problems found in the reference are logged rather
+ * than written to the JSON event file of a builder.
+ *
+ * @see RepositoryBuilder#setReference(Reference)
+ */
+public final class Reference {
+
+  private static final Logger logger = LogManager.getLogger(Reference.class);
+
+  /**
+   * Loads a reference repository
+   *
+   * @param referenceStream an Orchestra file
+   * @return a loaded reference
+   * @throws Exception if the stream cannot be read or parsed
+   */
+  public static Reference load(final InputStream referenceStream) throws Exception {
+    Objects.requireNonNull(referenceStream, "Reference stream is missing");
+    final RepositoryAdapter repositoryAdapter =
+        new RepositoryAdapter(RepositoryBuilder.createEventListener(logger, null));
+    repositoryAdapter.unmarshal(referenceStream);
+    repositoryAdapter.index();
+    return new Reference(repositoryAdapter);
+  }
+
+  /**
+   * Combines loaded references into layers, without copying them
+   *
+   * An element is taken from the first layer that has an element of its name or tag and scenario,
+   * so earlier layers override later ones, e.g. a counterparty overlay, then a venue extension,
+   * then the base standard. A layer may be shared with other references and builders.
+   *
+   * @param layers loaded references in priority order
+   * @return a layered reference
+   * @throws IllegalArgumentException if there are no layers
+   */
+  public static Reference layered(final List<Reference> layers) {
+    Objects.requireNonNull(layers, "Reference layers are missing");
+    if (layers.size() == 1) {
+      return layers.get(0);
+    }
+    final List<RepositoryAdapter> adapters = new ArrayList<>(layers.size());
+    for (final Reference layer : layers) {
+      adapters.add(layer.repositoryAdapter);
+    }
+    return new Reference(new LayeredRepositoryAdapter(adapters));
+  }
+
+  private final RepositoryAdapter repositoryAdapter;
+
+  private Reference(final RepositoryAdapter repositoryAdapter) {
+    this.repositoryAdapter = repositoryAdapter;
+  }
+
+  /**
+   * @return the reference repository, or the first layer of a layered reference, not to be
+   *         modified
+   */
+  public Repository getRepository() {
+    return repositoryAdapter.getRepository();
+  }
+
+  RepositoryAdapter getRepositoryAdapter() {
+    return repositoryAdapter;
+  }
+}
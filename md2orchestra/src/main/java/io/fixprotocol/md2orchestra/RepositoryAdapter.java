@@ -17,7 +17,10 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.math.BigInteger;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBElement;
 import javax.xml.bind.JAXBException;
@@ -93,6 +96,68 @@ class RepositoryAdapter {
     }
   }
 
+  /**
+   * Lookup tables of a repository that is no longer modified, such as a reference
+   *
+   * Keys are names or tags with scenarios, case-insensitive, and the first element with a key wins,
+   * as in a search of the element lists. The tables are only read after they are built, so they
+   * may be shared by threads.
+   */
+  private static final class Index {
+    final Map<String, CodeSetType> codesets = new HashMap<>();
+    final Map<String, ComponentType> componentsByName = new HashMap<>();
+    final Map<String, ComponentType> componentsByTag = new HashMap<>();
+    final Map<String, io.fixprotocol._2020.orchestra.repository.Datatype> datatypes =
+        new HashMap<>();
+    final Map<String, FieldType> fieldsByName = new HashMap<>();
+    final Map<String, FieldType> fieldsByTag = new HashMap<>();
+    final Map<String, GroupType> groupsByName = new HashMap<>();
+    final Map<String, GroupType> groupsByTag = new HashMap<>();
+    final Map<String, MessageType> messages = new HashMap<>();
+
+    Index(final Repository repository) {
+      if (repository.getCodeSets() != null) {
+        for (final CodeSetType codeset : repository.getCodeSets().getCodeSet()) {
+          final String scenario = scenarioOrDefault(codeset.getScenario());
+          codesets.putIfAbsent(key(codeset.getName(), scenario), codeset);
+        }
+      }
+      if (repository.getComponents() != null) {
+        for (final ComponentType component : repository.getComponents().getComponent()) {
+          final String scenario = scenarioOrDefault(component.getScenario());
+          componentsByName.putIfAbsent(key(component.getName(), scenario), component);
+          componentsByTag.putIfAbsent(key(component.getId(), scenario), component);
+        }
+      }
+      if (repository.getDatatypes() != null) {
+        for (final io.fixprotocol._2020.orchestra.repository.Datatype datatype : repository
+            .getDatatypes().getDatatype()) {
+          datatypes.putIfAbsent(key(datatype.getName(), DEFAULT_SCENARIO), datatype);
+        }
+      }
+      if (repository.getFields() != null) {
+        for (final FieldType field : repository.getFields().getField()) {
+          final String scenario = scenarioOrDefault(field.getScenario());
+          fieldsByName.putIfAbsent(key(field.getName(), scenario), field);
+          fieldsByTag.putIfAbsent(key(field.getId(), scenario), field);
+        }
+      }
+      if (repository.getGroups() != null) {
+        for (final GroupType group : repository.getGroups().getGroup()) {
+          final String scenario = scenarioOrDefault(group.getScenario());
+          groupsByName.putIfAbsent(key(group.getName(), scenario), group);
+          groupsByTag.putIfAbsent(key(group.getId(), scenario), group);
+        }
+      }
+      if (repository.getMessages() != null) {
+        for (final MessageType message : repository.getMessages().getMessage()) {
+          final String scenario = scenarioOrDefault(message.getScenario());
+          messages.putIfAbsent(key(message.getName(), scenario), message);
+        }
+      }
+    }
+  }
+
   static final String DEFAULT_SCENARIO = "base";
 
   // sorted array of valid Dublin Core Terms
@@ -106,6 +171,26 @@ class RepositoryAdapter {
       "publisher", "references", "relation", "replaces", "requires", "rights", "rightsHolder",
       "source", "spatial", "subject", "tableOfContents", "temporal", "title", "type", "valid"};
 
+  // thread safe and costly to create, so shared by all instances
+  private static volatile JAXBContext jaxbContext;
+
+  /**
+   * @return a JAXBContext for Orchestra repositories, created on first use
+   * @throws JAXBException if the context cannot be created
+   */
+  static JAXBContext getJaxbContext() throws JAXBException {
+    JAXBContext context = jaxbContext;
+    if (context == null) {
+      synchronized (RepositoryAdapter.class) {
+        context = jaxbContext;
+        if (context == null) {
+          context = JAXBContext.newInstance(Repository.class);
+          jaxbContext = context;
+        }
+      }
+    }
+    return context;
+  }
 
   static boolean isPresence(final String word) {
     if (word == null || word.isEmpty()) {
@@ -146,9 +231,24 @@ class RepositoryAdapter {
     return markdown.replace(token, replacement);
   }
 
+  private static String key(final BigInteger tag, final String scenario) {
+    return tag != null ? key(tag.toString(), scenario) : null;
+  }
+
+  private static String key(final String name, final String scenario) {
+    if (name == null) {
+      return null;
+    }
+    // a null scenario argument matches no element
+    return name.toLowerCase(Locale.ROOT) + '\u0000'
+        + (scenario != null ? scenario.toLowerCase(Locale.ROOT) : "\u0000");
+  }
+
 
   private final EventListener eventLogger;
 
+  private Index index;
+
   private Repository repository;
 
   RepositoryAdapter(final EventListener eventLogger) {
@@ -159,6 +259,23 @@ class RepositoryAdapter {
     return repository;
   }
 
+  /**
+   * @return repositories searched by the find methods, in priority order
+   */
+  List<RepositoryAdapter> getLayers() {
+    return List.of(this);
+  }
+
+  /**
+   * Builds lookup tables for the find methods by name or tag, so that they take constant time
+   *
+   * Only for a repository that is no longer modified, such as a reference, since the tables are not
+   * updated.
+   */
+  void index() {
+    index = new Index(repository);
+  }
+
   void addActor(final ActorType actor) {
     Actors actors = repository.getActors();
     if (actors == null) {
@@ -361,6 +478,9 @@ class RepositoryAdapter {
   }
 
   CodeSetType findCodesetByName(final String name, final String scenario) {
+    if (index != null) {
+      return index.codesets.get(key(name, scenario));
+    }
     final List<CodeSetType> codesets = repository.getCodeSets().getCodeSet();
     for (final CodeSetType codeset : codesets) {
       if (codeset.getName().equalsIgnoreCase(name)
@@ -372,6 +492,9 @@ class RepositoryAdapter {
   }
 
   ComponentType findComponentByName(final String name, final String scenario) {
+    if (index != null) {
+      return index.componentsByName.get(key(name, scenario));
+    }
     final List<ComponentType> components = repository.getComponents().getComponent();
     for (final ComponentType component : components) {
       if (component.getName().equalsIgnoreCase(name)
@@ -383,6 +506,9 @@ class RepositoryAdapter {
   }
 
   ComponentType findComponentByTag(final BigInteger tag, final String scenario) {
+    if (index != null) {
+      return index.componentsByTag.get(key(tag, scenario));
+    }
     final List<ComponentType> components = repository.getComponents().getComponent();
     for (final ComponentType component : components) {
       if (component.getId().equals(tag)
@@ -394,6 +520,9 @@ class RepositoryAdapter {
   }
 
   io.fixprotocol._2020.orchestra.repository.Datatype findDatatypeByName(final String name) {
+    if (index != null) {
+      return index.datatypes.get(key(name, DEFAULT_SCENARIO));
+    }
     final List<io.fixprotocol._2020.orchestra.repository.Datatype> datatypes =
         repository.getDatatypes().getDatatype();
     for (final io.fixprotocol._2020.orchestra.repository.Datatype datatype : datatypes) {
@@ -405,6 +534,9 @@ class RepositoryAdapter {
   }
 
   FieldType findFieldByName(final String name, final String scenario) {
+    if (index != null) {
+      return index.fieldsByName.get(key(name, scenario));
+    }
     final List<FieldType> fields = repository.getFields().getField();
     for (final FieldType field : fields) {
       if (field.getName().equalsIgnoreCase(name)
@@ -416,6 +548,9 @@ class RepositoryAdapter {
   }
 
   FieldType findFieldByTag(final BigInteger tag, final String scenario) {
+    if (index != null) {
+      return index.fieldsByTag.get(key(tag, scenario));
+    }
     final List<FieldType> fields = repository.getFields().getField();
     for (final FieldType field : fields) {
       if (field.getId().equals(tag)
@@ -443,6 +578,9 @@ class RepositoryAdapter {
   }
 
   GroupType findGroupByName(final String name, final String scenario) {
+    if (index != null) {
+      return index.groupsByName.get(key(name, scenario));
+    }
     final List<GroupType> components = repository.getGroups().getGroup();
     for (final GroupType component : components) {
       if (component.getName().equalsIgnoreCase(name)
@@ -454,6 +592,9 @@ class RepositoryAdapter {
   }
 
   GroupType findGroupByTag(final BigInteger tag, final String scenario) {
+    if (index != null) {
+      return index.groupsByTag.get(key(tag, scenario));
+    }
     final List<GroupType> components = repository.getGroups().getGroup();
     for (final GroupType component : components) {
       if (component.getId().equals(tag)
@@ -465,6 +606,9 @@ class RepositoryAdapter {
   }
 
   MessageType findMessageByName(final String name, final String scenario) {
+    if (index != null) {
+      return index.messages.get(key(name, scenario));
+    }
     final List<MessageType> messages = repository.getMessages().getMessage();
     for (final MessageType message : messages) {
       if (name.equalsIgnoreCase(message.getName())
@@ -489,8 +633,7 @@ class RepositoryAdapter {
   }
 
   void marshal(final OutputStream os) throws JAXBException {
-    final JAXBContext jaxbContext = JAXBContext.newInstance(Repository.class);
-    final Marshaller jaxbMarshaller = jaxbContext.createMarshaller();
+    final Marshaller jaxbMarshaller = getJaxbContext().createMarshaller();
     jaxbMarshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
     // warning: this is implementation specific !!!
     try {
@@ -528,8 +671,7 @@ class RepositoryAdapter {
   }
 
   void unmarshal(final InputStream is) throws JAXBException {
-    final JAXBContext jaxbContext = JAXBContext.newInstance(Repository.class);
-    final Unmarshaller jaxbUnmarshaller = jaxbContext.createUnmarshaller();
+    final Unmarshaller jaxbUnmarshaller = getJaxbContext().createUnmarshaller();
     // this.repository = (Repository) jaxbUnmarshaller.unmarshal(is);
     final Object obj = jaxbUnmarshaller.unmarshal(is);
     if (obj instanceof Repository) {
@@ -630,6 +630,18 @@ public class RepositoryBuilder {
 
   private static final int NAME_POSITION = 1;
 
+  // Column heading translations, shared by all instances. First element is lower case key, second
+  // is display format.
+  private static final AssociativeSet HEADINGS = new AssociativeSet();
+
+  static {
+    HEADINGS.addAll(
+        new String[][] {{"abbrname", "XMLName"}, {"basecategoryabbrname", "Category XMLName"},
+            {"basecategory", "Category"}, {"discriminatorid", "Discriminator"},
+            {"addedep", "Added EP"}, {"updatedep", "Updated EP"}, {"deprecatedep", "Deprecated EP"},
+            {"uniondatatype", "Union Type"}, {"msgtype", "MsgType"}});
+  }
+
   /**
    * Create an instance of RepositoryBuilder
    *
@@ -666,6 +678,7 @@ public class RepositoryBuilder {
       final RepositoryAdapter referenceRepository =
           new RepositoryAdapter(outputRepositoryBuilder.eventLogger);
       referenceRepository.unmarshal(referenceStream);
+      referenceRepository.index();
       outputRepositoryBuilder.setReference(referenceRepository);
     }
     return outputRepositoryBuilder;
@@ -714,7 +727,6 @@ public class RepositoryBuilder {
 
   private TeeEventListener eventLogger;
 
-  private final AssociativeSet headings = new AssociativeSet();
   private final IdGenerator idGenerator = new IdGenerator(5000, 39999);
   private final Logger logger = LogManager.getLogger(getClass());
   private final Consumer<GraphContext> markdownConsumer = graphContext -> {
@@ -795,14 +807,6 @@ public class RepositoryBuilder {
     this.repositoryAdapter = new RepositoryAdapter(this.eventLogger);
     this.repositoryAdapter.createRepository();
     this.importPath = Objects.requireNonNullElse(importPath, Path.of(".").toAbsolutePath().normalize());
-
-    // Populate column heading translations. First element is lower case key, second is display
-    // format.
-    this.headings.addAll(
-        new String[][] {{"abbrname", "XMLName"}, {"basecategoryabbrname", "Category XMLName"},
-            {"basecategory", "Category"}, {"discriminatorid", "Discriminator"},
-            {"addedep", "Added EP"}, {"updatedep", "Updated EP"}, {"deprecatedep", "Deprecated EP"},
-            {"uniondatatype", "Union Type"}, {"msgtype", "MsgType"}});
   }
 
   /**
@@ -818,6 +822,37 @@ public class RepositoryBuilder {
     parser.parse(inputStream, markdownConsumer, parserListener, this.importPath);
   }
 
+  /**
+   * Append previously parsed input to a repository
+   *
+   * @param events parse events of a Markdown file, in the order they were parsed
+   */
+  void appendEvents(final Iterable<? extends GraphContext> events) {
+    events.forEach(markdownConsumer);
+  }
+
+  /**
+   * Append input to a repository, passing each parse event to an observer as well
+   *
+   * @param inputStream a Markdown file input
+   * @param observer receives each parse event after it is appended
+   * @return {@code true} if the input was parsed without errors
+   * @throws IOException if an IO error occurs
+   */
+  boolean appendInput(final InputStream inputStream, final Consumer<? super GraphContext> observer)
+      throws IOException {
+    final DocumentParser parser = new DocumentParser();
+    final boolean[] hasErrors = new boolean[1];
+    ParserErrorListener parserListener = (line, charPositionInLine, msg) -> {
+      hasErrors[0] = true;
+      eventLogger.error("Input parse error: {0} at line {1} char {2}", msg, line,
+          charPositionInLine);
+    };
+    final boolean isValid = parser.parse(inputStream, markdownConsumer.andThen(observer),
+        parserListener, this.importPath);
+    return isValid && !hasErrors[0];
+  }
+
   /**
    * Controls the depth of a search in a reference file for nested components
    * 
@@ -849,6 +884,33 @@ public class RepositoryBuilder {
     eventLogger.close();
   }
 
+  /**
+   * @return reference repositories in priority order, empty if there is no reference
+   */
+  List<Repository> getReferenceRepositories() {
+    if (referenceRepositoryAdapter == null) {
+      return List.of();
+    }
+    return referenceRepositoryAdapter.getLayers().stream().map(RepositoryAdapter::getRepository)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * @return repository under construction
+   */
+  Repository getRepository() {
+    return repositoryAdapter.getRepository();
+  }
+
+  /**
+   * Use a reference that is already loaded, rather than parsing one for this builder
+   *
+   * @param reference a reference repository, may be shared with other builders
+   */
+  public void setReference(final Reference reference) {
+    setReference(reference.getRepositoryAdapter());
+  }
+
   void setReference(final RepositoryAdapter reference) {
     this.referenceRepositoryAdapter = reference;
   }
@@ -925,7 +987,7 @@ public class RepositoryBuilder {
               String sourceStateName = null;
               for (final Entry<String, String> p : r.getProperties()) {
                 final String key =
-                    headings.getSecondOrDefault(p.getKey(), p.getKey().toLowerCase());
+                    HEADINGS.getSecondOrDefault(p.getKey(), p.getKey().toLowerCase());
                 switch (key) {
                   case "state":
                     sourceStateName = p.getValue();
@@ -999,7 +1061,7 @@ public class RepositoryBuilder {
       final CategoryType category = new CategoryType();
       final Annotation annotation = new Annotation();
       for (final Entry<String, String> p : detail.getProperties()) {
-        final String key = headings.getSecondOrDefault(p.getKey(), p.getKey().toLowerCase());
+        final String key = HEADINGS.getSecondOrDefault(p.getKey(), p.getKey().toLowerCase());
         switch (key) {
           case "name":
             category.setName(p.getValue());
@@ -1059,7 +1121,7 @@ public class RepositoryBuilder {
 
     String name = "Unknown";
     for (final Entry<String, String> p : detail.getProperties()) {
-      final String key = headings.getSecondOrDefault(p.getKey(), p.getKey().toLowerCase());
+      final String key = HEADINGS.getSecondOrDefault(p.getKey(), p.getKey().toLowerCase());
 
       switch (key) {
         case "name":
@@ -1372,7 +1434,7 @@ public class RepositoryBuilder {
     mapping.setStandard(standard);
 
     for (final Entry<String, String> p : detail.getProperties()) {
-      final String key = headings.getSecondOrDefault(p.getKey(), p.getKey().toLowerCase());
+      final String key = HEADINGS.getSecondOrDefault(p.getKey(), p.getKey().toLowerCase());
       switch (key) {
         case "standard":
           mapping.setStandard(p.getValue());
@@ -1422,7 +1484,7 @@ public class RepositoryBuilder {
       final FieldType field = new FieldType();
       final Annotation annotation = new Annotation();
       for (final Entry<String, String> p : detail.getProperties()) {
-        final String key = headings.getSecondOrDefault(p.getKey(), p.getKey().toLowerCase());
+        final String key = HEADINGS.getSecondOrDefault(p.getKey(), p.getKey().toLowerCase());
         switch (key) {
           case "tag":
           case "id":
@@ -1869,7 +1931,7 @@ public class RepositoryBuilder {
       final SectionType section = new SectionType();
       final Annotation annotation = new Annotation();
       for (final Entry<String, String> p : detail.getProperties()) {
-        final String key = headings.getSecondOrDefault(p.getKey(), p.getKey().toLowerCase());
+        final String key = HEADINGS.getSecondOrDefault(p.getKey(), p.getKey().toLowerCase());
         switch (key) {
           case "name":
             section.setName(p.getValue());
@@ -1974,7 +2036,7 @@ public class RepositoryBuilder {
     repositoryAdapter.addCodeset(codeset);
   }
   
-  private void executeDefferedBuildSteps() {
+  void executeDefferedBuildSteps() {
     ElementBuilder<?> builder;
     while ((builder = buildSteps.poll()) != null) {
       builder.build();
@@ -2006,7 +2068,7 @@ public class RepositoryBuilder {
     String scenario = DEFAULT_SCENARIO;
     String presenceString = null;
     for (final Entry<String, String> p : detail.getProperties()) {
-      final String key = headings.getSecondOrDefault(p.getKey(), p.getKey().toLowerCase());
+      final String key = HEADINGS.getSecondOrDefault(p.getKey(), p.getKey().toLowerCase());
       switch (key) {
         case "name":
           name = p.getValue();
@@ -2133,7 +2195,7 @@ public class RepositoryBuilder {
     String valueString = null;
 
     for (final Entry<String, String> p : detail.getProperties()) {
-      final String key = headings.getSecondOrDefault(p.getKey(), p.getKey().toLowerCase());
+      final String key = HEADINGS.getSecondOrDefault(p.getKey(), p.getKey().toLowerCase());
       switch (key) {
         case "name":
           name = p.getValue();
@@ -2325,7 +2387,7 @@ public class RepositoryBuilder {
     String scenario = DEFAULT_SCENARIO;
     String presenceString = null;
     for (final Entry<String, String> p : detail.getProperties()) {
-      final String key = headings.getSecondOrDefault(p.getKey(), p.getKey().toLowerCase());
+      final String key = HEADINGS.getSecondOrDefault(p.getKey(), p.getKey().toLowerCase());
       switch (key) {
         case "name":
           name = p.getValue();
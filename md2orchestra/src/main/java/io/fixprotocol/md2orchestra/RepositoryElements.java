@@ -0,0 +1,159 @@
+/*
+ * Copyright 2020 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.fixprotocol.md2orchestra;
+
+import java.math.BigInteger;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import io.fixprotocol._2020.orchestra.repository.ActorType;
+import io.fixprotocol._2020.orchestra.repository.CategoryType;
+import io.fixprotocol._2020.orchestra.repository.CodeSetType;
+import io.fixprotocol._2020.orchestra.repository.ComponentType;
+import io.fixprotocol._2020.orchestra.repository.ConceptType;
+import io.fixprotocol._2020.orchestra.repository.Datatype;
+import io.fixprotocol._2020.orchestra.repository.FieldType;
+import io.fixprotocol._2020.orchestra.repository.FlowType;
+import io.fixprotocol._2020.orchestra.repository.GroupType;
+import io.fixprotocol._2020.orchestra.repository.MessageType;
+import io.fixprotocol._2020.orchestra.repository.Repository;
+import io.fixprotocol._2020.orchestra.repository.SectionType;
+
+/**
+ * Top-level elements of a repository by kind, and the keys that match them across repositories
+ *
+ * Fields, codesets, components, groups and messages are keyed by ID, or by name if they have no
+ * ID, and scenario. Datatypes, categories, sections, actors, flows and concepts are keyed by name.
+ */
+final class RepositoryElements {
+
+  static final String ACTOR = "actor";
+  static final String CATEGORY = "category";
+  static final String CODESET = "codeset";
+  static final String COMPONENT = "component";
+  static final String CONCEPT = "concept";
+  static final String DATATYPE = "datatype";
+  static final String FIELD = "field";
+  static final String GROUP = "group";
+  static final String MESSAGE = "message";
+  static final String SECTION = "section";
+
+  /**
+   * @param repository a repository
+   * @return lists of elements by kind, in the order that they are written, for the kinds that the
+   *         repository has
+   */
+  static Map<String, List<?>> byKind(final Repository repository) {
+    final Map<String, List<?>> elements = new LinkedHashMap<>();
+    if (repository.getDatatypes() != null) {
+      elements.put(DATATYPE, repository.getDatatypes().getDatatype());
+    }
+    if (repository.getCodeSets() != null) {
+      elements.put(CODESET, repository.getCodeSets().getCodeSet());
+    }
+    if (repository.getFields() != null) {
+      elements.put(FIELD, repository.getFields().getField());
+    }
+    if (repository.getComponents() != null) {
+      elements.put(COMPONENT, repository.getComponents().getComponent());
+    }
+    if (repository.getGroups() != null) {
+      elements.put(GROUP, repository.getGroups().getGroup());
+    }
+    if (repository.getMessages() != null) {
+      elements.put(MESSAGE, repository.getMessages().getMessage());
+    }
+    if (repository.getCategories() != null) {
+      elements.put(CATEGORY, repository.getCategories().getCategory());
+    }
+    if (repository.getSections() != null) {
+      elements.put(SECTION, repository.getSections().getSection());
+    }
+    if (repository.getActors() != null) {
+      elements.put(ACTOR, repository.getActors().getActorOrFlow());
+    }
+    if (repository.getConcepts() != null) {
+      elements.put(CONCEPT, repository.getConcepts().getConcept());
+    }
+    return elements;
+  }
+
+  /**
+   * @param element a top-level element of a repository
+   * @return key that is unique among elements of its kind, e.g. {@code id=35 scenario=base}
+   */
+  static String key(final Object element) {
+    if (element instanceof FieldType) {
+      final FieldType field = (FieldType) element;
+      return key(field.getId(), field.getName(), field.getScenario());
+    } else if (element instanceof CodeSetType) {
+      final CodeSetType codeset = (CodeSetType) element;
+      return key(codeset.getId(), codeset.getName(), codeset.getScenario());
+    } else if (element instanceof GroupType) {
+      final GroupType group = (GroupType) element;
+      return key(group.getId(), group.getName(), group.getScenario());
+    } else if (element instanceof ComponentType) {
+      final ComponentType component = (ComponentType) element;
+      return key(component.getId(), component.getName(), component.getScenario());
+    } else if (element instanceof MessageType) {
+      final MessageType message = (MessageType) element;
+      return key(message.getId(), message.getName(), message.getScenario());
+    } else if (element instanceof ActorType) {
+      return "actor name=" + ((ActorType) element).getName();
+    } else if (element instanceof FlowType) {
+      return "flow name=" + ((FlowType) element).getName();
+    } else {
+      return "name=" + name(element);
+    }
+  }
+
+  /**
+   * @param element a top-level element of a repository
+   * @return name of the element, or {@code null} if it has none
+   */
+  static String name(final Object element) {
+    if (element instanceof FieldType) {
+      return ((FieldType) element).getName();
+    } else if (element instanceof CodeSetType) {
+      return ((CodeSetType) element).getName();
+    } else if (element instanceof GroupType) {
+      return ((GroupType) element).getName();
+    } else if (element instanceof ComponentType) {
+      return ((ComponentType) element).getName();
+    } else if (element instanceof MessageType) {
+      return ((MessageType) element).getName();
+    } else if (element instanceof Datatype) {
+      return ((Datatype) element).getName();
+    } else if (element instanceof CategoryType) {
+      return ((CategoryType) element).getName();
+    } else if (element instanceof SectionType) {
+      return ((SectionType) element).getName();
+    } else if (element instanceof ActorType) {
+      return ((ActorType) element).getName();
+    } else if (element instanceof FlowType) {
+      return ((FlowType) element).getName();
+    } else if (element instanceof ConceptType) {
+      return ((ConceptType) element).getName();
+    } else {
+      return null;
+    }
+  }
+
+  private static String key(final BigInteger id, final String name, final String scenario) {
+    return (id != null ? "id=" + id : "name=" + name) + " scenario="
+        + RepositoryAdapter.scenarioOrDefault(scenario);
+  }
+
+  private RepositoryElements() {}
+}
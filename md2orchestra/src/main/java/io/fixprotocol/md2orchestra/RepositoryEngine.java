@@ -0,0 +1,138 @@
+/*
+ * Copyright 2020 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.fixprotocol.md2orchestra;
+
+import java.io.OutputStream;
+import java.nio.file.Path;
+import javax.xml.bind.JAXBException;
+
+/**
+ * Settings and loaded state shared by any number of builds of Orchestra repositories
+ *
+ * A RepositoryBuilder is a single-use build session: it owns its build steps, ID generator, output
+ * repository and event log, and {@link RepositoryBuilder#write(OutputStream)} closes the log. An
+ * engine holds what is expensive to set up and never modified by a build: the reference, with its
+ * lookup index, and the JAXB context. The column heading translations are shared by all builders.
+ * An engine is immutable, so sessions on any number of threads may be created from one engine and
+ * run concurrently.
+ *
+ * <pre>
+ * RepositoryEngine engine = RepositoryEngine.builder().reference(reference).build();
+ * // for each build, on any thread
+ * RepositoryBuilder session = engine.newBuilder(jsonOutputStream);
+ * session.appendInput(inputStream);
+ * session.write(outputStream);
+ * </pre>
+ */
+public final class RepositoryEngine {
+
+  public static final class Builder {
+    private Path importPath;
+    private int maxComponentDepth = 1;
+    private String paragraphDelimiter = RepositoryBuilder.DEFAULT_PARAGRAPH_DELIMITER;
+    private Reference reference;
+
+    private Builder() {}
+
+    /**
+     * Creates an engine, setting up the JAXB context if no engine has done so yet
+     *
+     * @return an engine
+     * @throws JAXBException if the JAXB context cannot be created
+     */
+    public RepositoryEngine build() throws JAXBException {
+      RepositoryAdapter.getJaxbContext();
+      return new RepositoryEngine(this);
+    }
+
+    /**
+     * @param importPath base directory for file imports to fenced code blocks. Default is
+     *        {@code null} for the current directory.
+     * @return this Builder
+     */
+    public Builder importPath(final Path importPath) {
+      this.importPath = importPath;
+      return this;
+    }
+
+    /**
+     * @param maxComponentDepth number of levels of nesting to search in the reference
+     * @return this Builder
+     * @see RepositoryBuilder#setMaxComponentDepth(int)
+     */
+    public Builder maxComponentDepth(final int maxComponentDepth) {
+      this.maxComponentDepth = maxComponentDepth;
+      return this;
+    }
+
+    /**
+     * @param paragraphDelimiter token to represent a paragraph break in Markdown tables
+     * @return this Builder
+     */
+    public Builder paragraphDelimiter(final String paragraphDelimiter) {
+      this.paragraphDelimiter = paragraphDelimiter;
+      return this;
+    }
+
+    /**
+     * @param reference a loaded reference. Default is {@code null} for no reference.
+     * @return this Builder
+     */
+    public Builder reference(final Reference reference) {
+      this.reference = reference;
+      return this;
+    }
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  private final Path importPath;
+  private final int maxComponentDepth;
+  private final String paragraphDelimiter;
+  private final Reference reference;
+
+  private RepositoryEngine(final Builder builder) {
+    this.importPath = builder.importPath;
+    this.maxComponentDepth = builder.maxComponentDepth;
+    this.paragraphDelimiter = builder.paragraphDelimiter;
+    this.reference = builder.reference;
+  }
+
+  /**
+   * @return the shared reference, or {@code null} if there is none
+   */
+  public Reference getReference() {
+    return reference;
+  }
+
+  /**
+   * Starts a build session
+   *
+   * @param jsonOutputStream output stream with JSON errors or warnings of this build. May be
+   *        {@code null}.
+   * @return a new RepositoryBuilder, to be used by one thread for one build
+   * @throws Exception if the event log cannot be created
+   */
+  public RepositoryBuilder newBuilder(final OutputStream jsonOutputStream) throws Exception {
+    final RepositoryBuilder repositoryBuilder =
+        new RepositoryBuilder(jsonOutputStream, paragraphDelimiter, importPath);
+    if (reference != null) {
+      repositoryBuilder.setReference(reference);
+    }
+    repositoryBuilder.setMaxComponentDepth(maxComponentDepth);
+    return repositoryBuilder;
+  }
+}
@@ -0,0 +1,70 @@
+package io.fixprotocol.md2orchestra;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import io.fixprotocol.tablature.synthetic.GrowthRate;
+import io.fixprotocol.tablature.synthetic.SyntheticOrchestra;
+
+/**
+ * Fails if translation time or allocation grows faster than linearly with the size of the input
+ *
+ * Inputs are generated with all element counts in proportion to the number of fields. Allocation
+ * is nearly deterministic and has a tight limit. Time has a looser limit and is measured again
+ * before failing, so that a noisy machine does not fail the build; quadratic growth exceeds the
+ * limit on every attempt.
+ */
+class ComplexityTest {
+
+  private static final int ATTEMPTS = 3;
+  private static final double MAX_ALLOCATION_EXPONENT = 1.25;
+  private static final double MAX_TIME_EXPONENT = 1.5;
+  private static final int REPETITIONS = 3;
+  private static final int[] SIZES = {50, 100, 200, 400};
+
+  private static void assertLinear(GrowthRate.Workload workload) throws Exception {
+    final GrowthRate growthRate =
+        GrowthRate.measure(workload, MAX_TIME_EXPONENT, ATTEMPTS, REPETITIONS, SIZES);
+    // NaN if allocation is not counted
+    assertFalse(growthRate.getAllocationExponent() > MAX_ALLOCATION_EXPONENT,
+        growthRate::toString);
+    assertFalse(growthRate.getTimeExponent() > MAX_TIME_EXPONENT, growthRate::toString);
+  }
+
+  private static SyntheticOrchestra orchestra(int fieldCount) {
+    return SyntheticOrchestra.builder().fieldCount(fieldCount).codesetCount(fieldCount / 20)
+        .componentCount(fieldCount / 10).groupCount(fieldCount / 20).messageCount(fieldCount / 10)
+        .nestingDepth(3).scenariosPerMessage(2).build();
+  }
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void translate() throws Exception {
+    assertLinear(size -> {
+      final Path input = tempDir.resolve("translate" + size + ".md");
+      Files.write(input, orchestra(size).markdown());
+      final Md2Orchestra md2Orchestra = Md2Orchestra.builder().inputFilePattern(input.toString())
+          .outputFile(tempDir.resolve("translate" + size + ".xml").toString()).build();
+      return md2Orchestra::generate;
+    });
+  }
+
+  @Test
+  void translateWithReference() throws Exception {
+    assertLinear(size -> {
+      final SyntheticOrchestra orchestra = orchestra(size);
+      final Path input = tempDir.resolve("reference" + size + ".md");
+      Files.write(input, orchestra.markdown());
+      final Path reference = tempDir.resolve("reference" + size + ".xml");
+      Files.write(reference, orchestra.xml());
+      final Md2Orchestra md2Orchestra = Md2Orchestra.builder().inputFilePattern(input.toString())
+          .referenceFile(reference.toString())
+          .outputFile(tempDir.resolve("output" + size + ".xml").toString()).build();
+      return md2Orchestra::generate;
+    });
+  }
+}
@@ -0,0 +1,88 @@
+package io.fixprotocol.md2orchestra;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.apache.logging.log4j.LogManager;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import io.fixprotocol.tablature.synthetic.SyntheticOrchestra;
+
+class LayeredReferenceTest {
+
+  private static final String INPUT = "# Test\n\n" + "## Message Order type D\n\n"
+      + "| Name | Tag | Presence |\n" + "|---|---|---|\n" + "| Field1003 | 1003 | required |\n"
+      + "| Field1004 | 1004 | required |\n" + "| VenueField | 5001 | optional |\n";
+
+  private static final String OVERLAY = "# Overlay\n\n" + "## Fields\n\n"
+      + "| Tag | Name | Type |\n" + "|---|---|---|\n" + "| 1003 | Field1003 | UTCTimestamp |\n"
+      + "| 5001 | VenueField | String |\n";
+
+  private static Reference base;
+  private static Reference overlay;
+
+  @BeforeAll
+  static void setUpOnce() throws Exception {
+    final SyntheticOrchestra orchestra = SyntheticOrchestra.builder().seed(1).fieldCount(20)
+        .codesetCount(2).componentCount(3).nestingDepth(2).groupCount(2).messageCount(2).build();
+    base = Reference.load(new ByteArrayInputStream(orchestra.xml()));
+    overlay = Reference.load(new ByteArrayInputStream(build(OVERLAY, null)));
+  }
+
+  private static byte[] build(String markdown, Reference reference) throws Exception {
+    final RepositoryBuilder builder = RepositoryEngine.builder().reference(reference).build()
+        .newBuilder(null);
+    builder.appendInput(new ByteArrayInputStream(markdown.getBytes(StandardCharsets.UTF_8)));
+    final ByteArrayOutputStream xmlStream = new ByteArrayOutputStream();
+    builder.write(xmlStream);
+    return xmlStream.toByteArray();
+  }
+
+  private static RepositoryAdapter unmarshal(byte[] xml) throws Exception {
+    final RepositoryAdapter adapter = new RepositoryAdapter(RepositoryBuilder
+        .createEventListener(LogManager.getLogger(LayeredReferenceTest.class), null));
+    adapter.unmarshal(new ByteArrayInputStream(xml));
+    return adapter;
+  }
+
+  private static String type(RepositoryAdapter adapter, int tag) {
+    return adapter.findFieldByTag(BigInteger.valueOf(tag), RepositoryAdapter.DEFAULT_SCENARIO)
+        .getType();
+  }
+
+  @Test
+  void firstLayerWins() throws Exception {
+    final RepositoryAdapter output =
+        unmarshal(build(INPUT, Reference.layered(List.of(overlay, base))));
+    assertEquals("UTCTimestamp", type(output, 1003));
+    assertEquals(type(base.getRepositoryAdapter(), 1004), type(output, 1004));
+    assertEquals("String", type(output, 5001));
+
+    final RepositoryAdapter reversed =
+        unmarshal(build(INPUT, Reference.layered(List.of(base, overlay))));
+    assertEquals(type(base.getRepositoryAdapter(), 1003), type(reversed, 1003));
+    assertEquals("String", type(reversed, 5001));
+  }
+
+  @Test
+  void layersAreShared() throws Exception {
+    final Reference layered = Reference.layered(List.of(overlay, Reference.layered(List.of(base))));
+    final List<RepositoryAdapter> layers = layered.getRepositoryAdapter().getLayers();
+    assertEquals(2, layers.size());
+    assertSame(overlay.getRepositoryAdapter(), layers.get(0));
+    assertSame(base.getRepositoryAdapter(), layers.get(1));
+    assertSame(overlay.getRepository(), layered.getRepository());
+
+    final Reference nested = Reference.layered(List.of(layered, base));
+    assertEquals(3, nested.getRepositoryAdapter().getLayers().size());
+    assertNotNull(nested.getRepositoryAdapter().findFieldByName("VenueField",
+        RepositoryAdapter.DEFAULT_SCENARIO));
+    assertThrows(IllegalArgumentException.class, () -> Reference.layered(List.of()));
+  }
+}
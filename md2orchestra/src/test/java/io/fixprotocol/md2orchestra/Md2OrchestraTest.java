@@ -15,11 +15,17 @@
 package io.fixprotocol.md2orchestra;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -32,6 +38,8 @@ import io.fixprotocol._2020.orchestra.repository.Datatype;
 import io.fixprotocol._2020.orchestra.repository.FieldType;
 import io.fixprotocol._2020.orchestra.repository.GroupType;
 import io.fixprotocol._2020.orchestra.repository.MessageType;
+import io.fixprotocol.md2orchestra.util.FileStreams;
+import io.fixprotocol.tablature.synthetic.SyntheticOrchestra;
 
 class Md2OrchestraTest {
 
@@ -88,6 +96,70 @@ class Md2OrchestraTest {
     md2Orchestra1.generate();
   }
 
+  @Test
+  void stats() throws Exception {
+    final SyntheticOrchestra orchestra = SyntheticOrchestra.builder().build();
+    final Path inputPath = Path.of("target/test/synthetic-stats.md");
+    Files.write(inputPath, orchestra.markdown());
+    final Path referencePath = Path.of("target/test/synthetic-stats-reference.xml");
+    Files.write(referencePath, orchestra.xml());
+    final String outputFilename = "target/test/synthetic-stats.xml";
+    Md2Orchestra md2Orchestra1 = Md2Orchestra.builder().inputFilePattern(inputPath.toString())
+        .referenceFile(referencePath.toString()).outputFile(outputFilename).stats(true).build();
+    md2Orchestra1.generate();
+    assertTrue(Files.size(Path.of(outputFilename)) > 0);
+  }
+
+  @Test
+  void watch() throws Exception {
+    final Path dir = Path.of("target/test/watch");
+    Files.createDirectories(dir);
+    final Path inputPath = dir.resolve("watch.md");
+    Files.write(inputPath, SyntheticOrchestra.builder().fieldCount(10).build().markdown());
+    final Path referencePath = dir.resolve("watch-reference.xml");
+    Files.write(referencePath, SyntheticOrchestra.builder().build().xml());
+    final Path outputPath = dir.resolve("watch.xml");
+    Files.deleteIfExists(outputPath);
+    final Md2Orchestra md2Orchestra = Md2Orchestra.builder()
+        .inputFilePattern(dir.resolve("*.md").toString()).referenceFile(referencePath.toString())
+        .outputFile(outputPath.toString()).eventFile(dir.resolve("watch.json").toString())
+        .watch(true).build();
+    final Thread watcher = new Thread(() -> {
+      try {
+        md2Orchestra.watch();
+      } catch (final Exception e) {
+        logger.error("watch failed", e);
+      }
+    });
+    watcher.start();
+    try {
+      final String first = awaitOutput(outputPath, null);
+      Files.write(inputPath, SyntheticOrchestra.builder().fieldCount(20).build().markdown());
+      final String second = awaitOutput(outputPath, first);
+      assertTrue(second.length() > first.length());
+    } finally {
+      watcher.interrupt();
+      watcher.join(10000);
+    }
+    assertFalse(watcher.isAlive());
+  }
+
+  private static String awaitOutput(final Path outputPath, final String previous)
+      throws Exception {
+    final long deadline = System.currentTimeMillis() + 10000;
+    while (System.currentTimeMillis() < deadline) {
+      if (Files.exists(outputPath)) {
+        final String output = Files.readString(outputPath);
+        // complete and changed
+        if (output.trim().endsWith("</fixr:repository>") && !output.equals(previous)) {
+          return output;
+        }
+      }
+      Thread.sleep(50);
+    }
+    throw new AssertionError("output not generated " + outputPath);
+  }
+
   @Test
   void twoInputs() throws Exception {
     // glob should match 2 files
@@ -161,6 +233,27 @@ class Md2OrchestraTest {
     assertNotNull(field6235);
   }
 
+  @Test
+  void compressed() throws Exception {
+    final Path inputPath = Path.of("target/test/md2orchestra-proto.md.gz");
+    try (OutputStream out = FileStreams.newOutputStream(inputPath, 512)) {
+      Files.copy(Path.of(getResourcePath("md2orchestra-proto.md")), out);
+    }
+    final String outputFilename = "target/test/md2orchestra-proto.xml.gz";
+    Md2Orchestra md2Orchestra1 = Md2Orchestra.builder().inputFilePattern(inputPath.toString())
+        .outputFile(outputFilename).bufferSize(512).build();
+    md2Orchestra1.generate();
+
+    RepositoryAdapter outfile = new RepositoryAdapter(RepositoryBuilder.createEventListener(logger, null));
+    try (InputStream in = FileStreams.newInputStream(Path.of(outputFilename), 512)) {
+      outfile.unmarshal(in);
+    }
+    MessageType message = outfile.findMessageByName("NewOrderSingle", "base");
+    assertNotNull(message);
+    CodeSetType codeset = outfile.findCodesetByName("SideCodeSet", "base");
+    assertEquals(4, codeset.getCode().size());
+  }
+
   @Test
   void withReference() throws Exception {
     String inputPath = getResourcePath("md2orchestra-proto.md");
@@ -0,0 +1,97 @@
+package io.fixprotocol.md2orchestra;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.fixprotocol.md2orchestra.OrchestraDiff.Difference;
+import io.fixprotocol.md2orchestra.OrchestraDiff.Format;
+
+class OrchestraDiffTest {
+
+  private static final String OLD = "# Rules\n\n" + "## Fields\n\n" + "| Tag | Name | Type |\n"
+      + "|---|---|---|\n" + "| 11 | ClOrdID | String |\n" + "| 44 | Price | Price |\n"
+      + "| 58 | Text | String |\n\n" + "## Message NewOrderSingle type D (14)\n\n"
+      + "| Name | Tag | Presence |\n" + "|---|---|---|\n" + "| ClOrdID | 11 | required |\n"
+      + "| Price | 44 | optional |\n";
+
+  private static final String NEW = "# Rules\n\n" + "## Fields\n\n" + "| Tag | Name | Type |\n"
+      + "|---|---|---|\n" + "| 11 | ClOrdID | String |\n" + "| 44 | LimitPrice | Price |\n"
+      + "| 55 | Symbol | String |\n\n" + "## Message NewOrderSingle type D (14)\n\n"
+      + "| Name | Tag | Presence |\n" + "|---|---|---|\n" + "| ClOrdID | 11 | required |\n"
+      + "| LimitPrice | 44 | optional |\n";
+
+  @TempDir
+  Path dir;
+
+  private Path newFile;
+  private Path oldFile;
+
+  private static void build(String markdown, Path path) throws Exception {
+    final RepositoryBuilder builder = RepositoryEngine.builder().build().newBuilder(null);
+    builder.appendInput(new ByteArrayInputStream(markdown.getBytes(StandardCharsets.UTF_8)));
+    try (OutputStream out = Files.newOutputStream(path)) {
+      builder.write(out);
+    }
+  }
+
+  @BeforeEach
+  void setUp() throws Exception {
+    oldFile = dir.resolve("old.xml");
+    newFile = dir.resolve("new.xml");
+    build(OLD, oldFile);
+    build(NEW, newFile);
+  }
+
+  @Test
+  void diff() throws Exception {
+    final List<Difference> differences = OrchestraDiff.builder().oldFile(oldFile.toString())
+        .newFile(newFile.toString()).parallelism(2).build().diff();
+    final List<String> actual =
+        differences.stream().map(Difference::toString).collect(Collectors.toList());
+    assertEquals(List.of("changed field id=44 scenario=base", "added field id=55 scenario=base",
+        "removed field id=58 scenario=base"), actual);
+    assertEquals("Symbol", differences.get(1).getName());
+  }
+
+  @Test
+  void same() throws Exception {
+    final Path output = dir.resolve("diff.md");
+    OrchestraDiff.builder().oldFile(oldFile.toString()).newFile(oldFile.toString())
+        .outputFile(output.toString()).build().generate();
+    assertTrue(Files.readString(output).contains("No differences"));
+  }
+
+  @Test
+  void json() throws Exception {
+    final Path output = dir.resolve("diff.json");
+    OrchestraDiff.builder().oldFile(oldFile.toString()).newFile(newFile.toString())
+        .outputFile(output.toString()).format(Format.JSON).build().generate();
+    final JsonNode report = new ObjectMapper().readTree(output.toFile());
+    assertEquals(1, report.get("added").asInt());
+    assertEquals(1, report.get("removed").asInt());
+    assertEquals(1, report.get("changed").asInt());
+    assertEquals("LimitPrice", report.get("differences").get(0).get("name").asText());
+  }
+
+  @Test
+  void parseArgs() throws Exception {
+    final Path output = dir.resolve("diff.md");
+    OrchestraDiff.parseArgs(
+        new String[] {"-o", output.toString(), oldFile.toString(), newFile.toString()}).build()
+        .generate();
+    final String markdown = Files.readString(output);
+    assertTrue(markdown.contains("## Fields"));
+    assertTrue(markdown.contains("| added | id=55 scenario=base | Symbol |"));
+  }
+}
@@ -0,0 +1,124 @@
+package io.fixprotocol.md2orchestra;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.apache.logging.log4j.LogManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import io.fixprotocol.md2orchestra.OrchestraMerge.ConflictPolicy;
+
+class OrchestraMergeTest {
+
+  private static final String RULES_A = "# RulesA\n\n" + "## Fields\n\n"
+      + "| Tag | Name | Type |\n" + "|---|---|---|\n" + "| 11 | ClOrdID | String |\n"
+      + "| 44 | Price | Price |\n\n" + "## Message NewOrderSingle type D (14)\n\n"
+      + "| Name | Tag | Presence |\n" + "|---|---|---|\n" + "| ClOrdID | 11 | required |\n"
+      + "| Price | 44 | optional |\n";
+
+  private static final String RULES_B = "# RulesB\n\n" + "## Fields\n\n"
+      + "| Tag | Name | Type |\n" + "|---|---|---|\n" + "| 11 | ClOrdID | String |\n"
+      + "| 44 | Price | Qty |\n" + "| 55 | Symbol | String |\n\n"
+      + "## Message OrderCancelRequest type F (15)\n\n" + "| Name | Tag | Presence |\n"
+      + "|---|---|---|\n" + "| ClOrdID | 11 | required |\n" + "| Symbol | 55 | required |\n";
+
+  @TempDir
+  Path dir;
+
+  private Path inputA;
+  private Path inputB;
+
+  private static void build(String markdown, Path path) throws Exception {
+    final RepositoryBuilder builder = RepositoryEngine.builder().build().newBuilder(null);
+    builder.appendInput(new ByteArrayInputStream(markdown.getBytes(StandardCharsets.UTF_8)));
+    try (OutputStream out = Files.newOutputStream(path)) {
+      builder.write(out);
+    }
+  }
+
+  private static RepositoryAdapter read(Path path) throws Exception {
+    final RepositoryAdapter adapter = new RepositoryAdapter(RepositoryBuilder
+        .createEventListener(LogManager.getLogger(OrchestraMergeTest.class), null));
+    try (InputStream in = Files.newInputStream(path)) {
+      adapter.unmarshal(in);
+    }
+    return adapter;
+  }
+
+  private static String type(RepositoryAdapter adapter, int tag) {
+    return adapter.findFieldByTag(BigInteger.valueOf(tag), RepositoryAdapter.DEFAULT_SCENARIO)
+        .getType();
+  }
+
+  private static int count(String text, String phrase) {
+    return text.split(phrase, -1).length - 1;
+  }
+
+  @BeforeEach
+  void setUp() throws Exception {
+    inputA = dir.resolve("a.xml");
+    inputB = dir.resolve("b.xml");
+    build(RULES_A, inputA);
+    build(RULES_B, inputB);
+  }
+
+  @Test
+  void first() throws Exception {
+    final Path output = dir.resolve("merged.xml");
+    final Path events = dir.resolve("merged.json");
+    OrchestraMerge.builder().inputFiles(List.of(inputA.toString(), inputB.toString()))
+        .outputFile(output.toString()).eventFile(events.toString()).build().generate();
+
+    final RepositoryAdapter merged = read(output);
+    assertEquals("RulesA", merged.getRepository().getName());
+    assertEquals(3, merged.getRepository().getFields().getField().size());
+    assertEquals(2, merged.getRepository().getMessages().getMessage().size());
+    assertEquals("Price", type(merged, 44));
+    assertEquals("String", type(merged, 55));
+    final String json = Files.readString(events);
+    assertEquals(1, count(json, "Conflicting field"));
+    assertEquals(0, count(json, "Conflicting datatype"));
+  }
+
+  @Test
+  void last() throws Exception {
+    final Path output = dir.resolve("merged.xml");
+    OrchestraMerge.builder().inputFiles(List.of(inputA.toString(), inputB.toString()))
+        .outputFile(output.toString()).conflictPolicy(ConflictPolicy.LAST).build().generate();
+
+    final RepositoryAdapter merged = read(output);
+    assertEquals("Qty", type(merged, 44));
+    // a replaced element keeps its position
+    assertEquals(BigInteger.valueOf(44),
+        merged.getRepository().getFields().getField().get(1).getId());
+  }
+
+  @Test
+  void fail() throws Exception {
+    final Path output = dir.resolve("merged.xml");
+    final Path events = dir.resolve("merged.json");
+    final OrchestraMerge merge = OrchestraMerge.builder()
+        .inputFiles(List.of(inputA.toString(), inputB.toString())).outputFile(output.toString())
+        .eventFile(events.toString()).conflictPolicy(ConflictPolicy.FAIL).build();
+    assertThrows(IllegalStateException.class, merge::generate);
+    assertFalse(Files.exists(output));
+    assertEquals(1, count(Files.readString(events), "Conflicting field"));
+  }
+
+  @Test
+  void parseArgs() throws Exception {
+    final Path output = dir.resolve("merged.xml");
+    OrchestraMerge.parseArgs(new String[] {"-o", output.toString(), "--conflict", "last",
+        inputA.toString(), inputB.toString()}).build().generate();
+    assertEquals("Qty", type(read(output), 44));
+  }
+}
@@ -0,0 +1,112 @@
+package io.fixprotocol.md2orchestra;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import io.fixprotocol.md.event.GraphContext;
+import io.fixprotocol.tablature.synthetic.SyntheticOrchestra;
+
+class ParseCacheTest {
+
+  @TempDir
+  Path cacheDir;
+
+  @Test
+  void corruptEntry() throws Exception {
+    final byte[] content = Files.readAllBytes(Path.of("src/test/resources/md2orchestra-proto.md"));
+    final ParseCache cache = ParseCache.open(cacheDir, "settings");
+    final List<GraphContext> events = new ArrayList<>();
+    new RepositoryBuilder(null).appendInput(new ByteArrayInputStream(content), events::add);
+    cache.put(content, events);
+    try (var entries = Files.newDirectoryStream(cacheDir, "*.events")) {
+      for (final Path entry : entries) {
+        Files.write(entry, new byte[] {1, 2, 3});
+      }
+    }
+
+    assertNull(cache.get(content));
+    assertEquals(1, cache.getMisses());
+  }
+
+  @Test
+  void hasImport() {
+    assertTrue(ParseCache.hasImport(
+        "Text\n\n```xml import ../spec/example.xml\n```\n".getBytes(StandardCharsets.UTF_8)));
+    assertFalse(ParseCache.hasImport(
+        "Text that mentions import\n\n```xml\n<a/>\n```\n".getBytes(StandardCharsets.UTF_8)));
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"itiviti.md", "md2orchestra-proto.md", "synthetic"})
+  void replay(String input) throws Exception {
+    final byte[] content = "synthetic".equals(input)
+        ? SyntheticOrchestra.builder().nestingDepth(3).scenariosPerMessage(2)
+            .documentationParagraphs(2).build().markdown()
+        : Files.readAllBytes(Path.of("src/test/resources", input));
+
+    final ByteArrayOutputStream parsedJson = new ByteArrayOutputStream();
+    final RepositoryBuilder parsed = new RepositoryBuilder(parsedJson);
+    final List<GraphContext> events = new ArrayList<>();
+    parsed.appendInput(new ByteArrayInputStream(content), events::add);
+    final ByteArrayOutputStream parsedXml = new ByteArrayOutputStream();
+    parsed.write(parsedXml);
+
+    ParseCache.open(cacheDir, "settings").put(content, events);
+    final ParseCache cache = ParseCache.open(cacheDir, "settings");
+    final List<GraphContext> cachedEvents = cache.get(content);
+    assertNotNull(cachedEvents);
+    assertEquals(1, cache.getHits());
+    final ByteArrayOutputStream replayedJson = new ByteArrayOutputStream();
+    final RepositoryBuilder replayed = new RepositoryBuilder(replayedJson);
+    replayed.appendEvents(cachedEvents);
+    final ByteArrayOutputStream replayedXml = new ByteArrayOutputStream();
+    replayed.write(replayedXml);
+
+    assertArrayEquals(parsedXml.toByteArray(), replayedXml.toByteArray());
+    assertEquals(parsedJson.toString(), replayedJson.toString());
+  }
+
+  @Test
+  void settingsChanged() throws Exception {
+    final byte[] content = Files.readAllBytes(Path.of("src/test/resources/md2orchestra-proto.md"));
+    final List<GraphContext> events = new ArrayList<>();
+    new RepositoryBuilder(null).appendInput(new ByteArrayInputStream(content), events::add);
+    ParseCache.open(cacheDir, ParseCache.digest("reference1", "||")).put(content, events);
+
+    assertNotNull(ParseCache.open(cacheDir, ParseCache.digest("reference1", "||")).get(content));
+    assertNull(ParseCache.open(cacheDir, ParseCache.digest("reference2", "||")).get(content));
+  }
+
+  @Test
+  void translate() throws Exception {
+    final Path inputPath = cacheDir.resolve("input.md");
+    Files.write(inputPath, SyntheticOrchestra.builder().build().markdown());
+    final Path outputPath1 = cacheDir.resolve("output1.xml");
+    final Path outputPath2 = cacheDir.resolve("output2.xml");
+    final String cacheDirectory = cacheDir.resolve("cache").toString();
+
+    Md2Orchestra.builder().inputFilePattern(inputPath.toString()).outputFile(outputPath1.toString())
+        .cacheDirectory(cacheDirectory).build().generate();
+    Md2Orchestra.builder().inputFilePattern(inputPath.toString()).outputFile(outputPath2.toString())
+        .cacheDirectory(cacheDirectory).build().generate();
+
+    assertArrayEquals(Files.readAllBytes(outputPath1), Files.readAllBytes(outputPath2));
+    try (var entries = Files.newDirectoryStream(Path.of(cacheDirectory), "*.events")) {
+      assertTrue(entries.iterator().hasNext());
+    }
+  }
+}
@@ -0,0 +1,141 @@
+package io.fixprotocol.md2orchestra;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.logging.log4j.LogManager;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import io.fixprotocol._2020.orchestra.repository.CodeSetType;
+import io.fixprotocol._2020.orchestra.repository.ComponentType;
+import io.fixprotocol._2020.orchestra.repository.FieldType;
+import io.fixprotocol._2020.orchestra.repository.GroupType;
+import io.fixprotocol._2020.orchestra.repository.MessageType;
+import io.fixprotocol._2020.orchestra.repository.Repository;
+import io.fixprotocol.tablature.synthetic.SyntheticOrchestra;
+
+class RepositoryEngineTest {
+
+  private static byte[] markdown;
+  private static SyntheticOrchestra orchestra;
+
+  @BeforeAll
+  static void setUpOnce() {
+    orchestra = SyntheticOrchestra.builder().seed(7).fieldCount(80).codesetCount(6)
+        .componentCount(9).nestingDepth(3).groupCount(4).messageCount(12).scenariosPerMessage(2)
+        .build();
+    // only the messages, so that their members are taken from the reference
+    final String all = new String(orchestra.markdown(), StandardCharsets.UTF_8);
+    markdown = all.substring(0, all.indexOf("\n## Groups")).getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static byte[] build(RepositoryBuilder builder) throws Exception {
+    builder.appendInput(new ByteArrayInputStream(markdown));
+    final ByteArrayOutputStream xmlStream = new ByteArrayOutputStream();
+    builder.write(xmlStream);
+    return xmlStream.toByteArray();
+  }
+
+  @Test
+  void concurrentBuilds() throws Exception {
+    final byte[] expected = build(RepositoryBuilder.instance(
+        new ByteArrayInputStream(orchestra.xml()), null,
+        RepositoryBuilder.DEFAULT_PARAGRAPH_DELIMITER, null));
+
+    final RepositoryEngine engine = RepositoryEngine.builder()
+        .reference(Reference.load(new ByteArrayInputStream(orchestra.xml()))).build();
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      final List<Future<byte[]>> results = new ArrayList<>();
+      for (int i = 0; i < 16; i++) {
+        results.add(executor.submit(() -> build(engine.newBuilder(null))));
+      }
+      for (final Future<byte[]> result : results) {
+        assertArrayEquals(expected, result.get());
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void indexMatchesSearch() throws Exception {
+    final RepositoryAdapter searched = new RepositoryAdapter(RepositoryBuilder
+        .createEventListener(LogManager.getLogger(RepositoryEngineTest.class), null));
+    searched.unmarshal(new ByteArrayInputStream(orchestra.xml()));
+    final RepositoryAdapter indexed =
+        Reference.load(new ByteArrayInputStream(orchestra.xml())).getRepositoryAdapter();
+    final Repository s = searched.getRepository();
+    final Repository i = indexed.getRepository();
+
+    for (final FieldType field : s.getFields().getField()) {
+      for (final String scenario : scenarios(field.getScenario())) {
+        assertEquals(
+            position(s.getFields().getField(), searched.findFieldByName(field.getName(), scenario)),
+            position(i.getFields().getField(), indexed.findFieldByName(field.getName(), scenario)));
+        assertEquals(
+            position(s.getFields().getField(), searched.findFieldByTag(field.getId(), scenario)),
+            position(i.getFields().getField(), indexed.findFieldByTag(field.getId(), scenario)));
+      }
+    }
+    for (final CodeSetType codeset : s.getCodeSets().getCodeSet()) {
+      for (final String scenario : scenarios(codeset.getScenario())) {
+        assertEquals(
+            position(s.getCodeSets().getCodeSet(),
+                searched.findCodesetByName(codeset.getName(), scenario)),
+            position(i.getCodeSets().getCodeSet(),
+                indexed.findCodesetByName(codeset.getName(), scenario)));
+      }
+    }
+    for (final ComponentType component : s.getComponents().getComponent()) {
+      for (final String scenario : scenarios(component.getScenario())) {
+        assertEquals(
+            position(s.getComponents().getComponent(),
+                searched.findComponentByName(component.getName(), scenario)),
+            position(i.getComponents().getComponent(),
+                indexed.findComponentByName(component.getName(), scenario)));
+      }
+    }
+    for (final GroupType group : s.getGroups().getGroup()) {
+      for (final String scenario : scenarios(group.getScenario())) {
+        assertEquals(
+            position(s.getGroups().getGroup(), searched.findGroupByName(group.getName(), scenario)),
+            position(i.getGroups().getGroup(), indexed.findGroupByName(group.getName(), scenario)));
+        assertEquals(
+            position(s.getGroups().getGroup(), searched.findGroupByTag(group.getId(), scenario)),
+            position(i.getGroups().getGroup(), indexed.findGroupByTag(group.getId(), scenario)));
+      }
+    }
+    int found = 0;
+    for (final MessageType message : s.getMessages().getMessage()) {
+      for (final String scenario : scenarios(message.getScenario())) {
+        final int position = position(s.getMessages().getMessage(),
+            searched.findMessageByName(message.getName(), scenario));
+        assertEquals(position, position(i.getMessages().getMessage(),
+            indexed.findMessageByName(message.getName(), scenario)));
+        if (position >= 0) {
+          found++;
+        }
+      }
+    }
+    // each message is found by its own scenario in either case and by the base scenario
+    assertEquals(s.getMessages().getMessage().size() * 3, found);
+  }
+
+  private static <T> int position(List<T> elements, T element) {
+    return element != null ? elements.indexOf(element) : -1;
+  }
+
+  // the scenario of an element in upper case, the default scenario and none
+  private static String[] scenarios(String scenario) {
+    return new String[] {RepositoryAdapter.scenarioOrDefault(scenario).toUpperCase(),
+        RepositoryAdapter.scenarioOrDefault(scenario), RepositoryAdapter.DEFAULT_SCENARIO, null};
+  }
+}
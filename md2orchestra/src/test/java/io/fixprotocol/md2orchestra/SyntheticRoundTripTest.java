@@ -0,0 +1,165 @@
+package io.fixprotocol.md2orchestra;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.apache.logging.log4j.LogManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import io.fixprotocol._2020.orchestra.repository.Annotation;
+import io.fixprotocol._2020.orchestra.repository.CodeSetType;
+import io.fixprotocol._2020.orchestra.repository.CodeType;
+import io.fixprotocol._2020.orchestra.repository.ComponentRefType;
+import io.fixprotocol._2020.orchestra.repository.ComponentType;
+import io.fixprotocol._2020.orchestra.repository.Datatype;
+import io.fixprotocol._2020.orchestra.repository.Documentation;
+import io.fixprotocol._2020.orchestra.repository.FieldRefType;
+import io.fixprotocol._2020.orchestra.repository.FieldType;
+import io.fixprotocol._2020.orchestra.repository.GroupRefType;
+import io.fixprotocol._2020.orchestra.repository.GroupType;
+import io.fixprotocol._2020.orchestra.repository.MessageType;
+import io.fixprotocol._2020.orchestra.repository.Repository;
+import io.fixprotocol.tablature.synthetic.SyntheticOrchestra;
+
+/**
+ * Translates generated markdown and compares the result to the XML generated from the same seed
+ */
+class SyntheticRoundTripTest {
+
+  private static String documentation(Annotation annotation) {
+    if (annotation == null) {
+      return "";
+    }
+    return annotation.getDocumentationOrAppinfo().stream()
+        .filter(o -> o instanceof Documentation)
+        .flatMap(o -> ((Documentation) o).getContent().stream()).map(Object::toString)
+        .collect(Collectors.joining(" ")).replaceAll("\\s+", " ").trim();
+  }
+
+  private static String members(List<Object> members) {
+    return members.stream().map(m -> {
+      if (m instanceof FieldRefType) {
+        return "field:" + ((FieldRefType) m).getId();
+      } else if (m instanceof ComponentRefType) {
+        return "component:" + ((ComponentRefType) m).getId();
+      } else if (m instanceof GroupRefType) {
+        return "group:" + ((GroupRefType) m).getId();
+      } else {
+        return m.getClass().getSimpleName();
+      }
+    }).collect(Collectors.joining(","));
+  }
+
+  private static List<String> summarize(Repository repository) {
+    final List<String> summary = new ArrayList<>();
+    for (final FieldType field : repository.getFields().getField()) {
+      summary.add(String.format("field %s %s %s %s %s %s %s", field.getId(), field.getName(),
+          field.getType(), field.getAbbrName(), field.getAdded(), field.getAddedEP(),
+          documentation(field.getAnnotation())));
+    }
+    for (final CodeSetType codeset : repository.getCodeSets().getCodeSet()) {
+      summary.add(String.format("codeset %s %s %s %s", codeset.getId(), codeset.getName(),
+          codeset.getType(), documentation(codeset.getAnnotation())));
+      for (final CodeType code : codeset.getCode()) {
+        summary.add(String.format("code %s %s %s %s", code.getId(), code.getName(),
+            code.getValue(), documentation(code.getAnnotation())));
+      }
+    }
+    for (final ComponentType component : repository.getComponents().getComponent()) {
+      summary.add(String.format("component %s %s %s %s", component.getId(), component.getName(),
+          members(component.getComponentRefOrGroupRefOrFieldRef()),
+          documentation(component.getAnnotation())));
+    }
+    for (final GroupType group : repository.getGroups().getGroup()) {
+      summary.add(String.format("group %s %s %s %s %s", group.getId(), group.getName(),
+          group.getNumInGroup().getId(), members(group.getComponentRefOrGroupRefOrFieldRef()),
+          documentation(group.getAnnotation())));
+    }
+    for (final MessageType message : repository.getMessages().getMessage()) {
+      summary.add(String.format("message %s %s %s %s %s %s", message.getId(), message.getName(),
+          message.getScenario(), message.getMsgType(),
+          members(message.getStructure().getComponentRefOrGroupRefOrFieldRef()),
+          documentation(message.getAnnotation())));
+    }
+    for (final Datatype datatype : repository.getDatatypes().getDatatype()) {
+      summary.add(String.format("datatype %s %s", datatype.getName(),
+          datatype.getMappedDatatype().stream().map(m -> m.getStandard() + ":" + m.getBase())
+              .collect(Collectors.joining(","))));
+    }
+    summary.sort(null);
+    return summary;
+  }
+
+  private static List<String> summarizeMessages(Repository repository) {
+    final List<String> summary = new ArrayList<>();
+    for (final MessageType message : repository.getMessages().getMessage()) {
+      summary.add(String.format("message %s %s %s %s %s", message.getId(), message.getName(),
+          message.getScenario(), message.getMsgType(),
+          members(message.getStructure().getComponentRefOrGroupRefOrFieldRef())));
+    }
+    summary.sort(null);
+    return summary;
+  }
+
+  private static Repository unmarshal(byte[] xml) throws Exception {
+    final RepositoryAdapter adapter = new RepositoryAdapter(
+        RepositoryBuilder.createEventListener(LogManager.getLogger(SyntheticRoundTripTest.class),
+            null));
+    adapter.unmarshal(new ByteArrayInputStream(xml));
+    return adapter.getRepository();
+  }
+
+  @Test
+  void resolveReferringMarkdown() throws Exception {
+    final SyntheticOrchestra orchestra = SyntheticOrchestra.builder().fieldCount(60)
+        .codesetCount(6).componentCount(9).nestingDepth(3).groupCount(4).messageCount(6)
+        .scenariosPerMessage(2).build();
+
+    final ByteArrayOutputStream jsonOutputStream = new ByteArrayOutputStream();
+    final RepositoryBuilder builder =
+        RepositoryBuilder.instance(new ByteArrayInputStream(orchestra.xml()), jsonOutputStream);
+    builder.appendInput(new ByteArrayInputStream(orchestra.referringMarkdown()));
+    final ByteArrayOutputStream xmlStream = new ByteArrayOutputStream();
+    builder.write(xmlStream);
+
+    assertEquals("{\"events\":[]}", jsonOutputStream.toString().replaceAll("\\s", ""));
+    assertEquals(summarizeMessages(unmarshal(orchestra.xml())),
+        summarizeMessages(unmarshal(xmlStream.toByteArray())));
+  }
+
+  @ParameterizedTest
+  @ValueSource(longs = {1, 2, 3})
+  void roundTrip(long seed) throws Exception {
+    assertRoundTrip(SyntheticOrchestra.builder().seed(seed).fieldCount(60).codesetCount(6)
+        .componentCount(9).nestingDepth(3).groupCount(4).messageCount(6).scenariosPerMessage(2)
+        .documentationParagraphs(2).build());
+  }
+
+  @Test
+  void roundTripWithOptions() throws Exception {
+    assertRoundTrip(SyntheticOrchestra.builder().fieldCount(60).codesetCount(6)
+        .componentCount(9).nestingDepth(3).groupCount(4).messageCount(6).fixmlNames(true)
+        .pedigree(true).datatypeMappings(true).build());
+  }
+
+  private static void assertRoundTrip(SyntheticOrchestra orchestra) throws Exception {
+    final ByteArrayOutputStream jsonOutputStream = new ByteArrayOutputStream();
+    final RepositoryBuilder builder = new RepositoryBuilder(jsonOutputStream);
+    builder.appendInput(new ByteArrayInputStream(orchestra.markdown()));
+    final ByteArrayOutputStream xmlStream = new ByteArrayOutputStream();
+    builder.write(xmlStream);
+
+    assertEquals("{\"events\":[]}", jsonOutputStream.toString().replaceAll("\\s", ""));
+    final List<String> expected = summarize(unmarshal(orchestra.xml()));
+    final long datatypeCount = expected.stream().filter(s -> s.startsWith("datatype ")).count();
+    // default of 8 codes per codeset
+    assertEquals(orchestra.getFieldCount() + orchestra.getCodesetCount() * 9
+        + orchestra.getComponentCount() + orchestra.getGroupCount()
+        + orchestra.getMessageCount() + datatypeCount, expected.size());
+    assertEquals(expected, summarize(unmarshal(xmlStream.toByteArray())));
+  }
+}
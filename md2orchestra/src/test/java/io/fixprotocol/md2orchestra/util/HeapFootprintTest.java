@@ -0,0 +1,73 @@
+package io.fixprotocol.md2orchestra.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import io.fixprotocol._2020.orchestra.repository.Annotation;
+import io.fixprotocol._2020.orchestra.repository.Documentation;
+import io.fixprotocol._2020.orchestra.repository.FieldType;
+import io.fixprotocol._2020.orchestra.repository.Fields;
+import io.fixprotocol._2020.orchestra.repository.Repository;
+
+class HeapFootprintTest {
+
+  @Test
+  void excluded() {
+    final String shared = "shared";
+    final List<String> first = new ArrayList<>(List.of(shared));
+    final List<String> second = new ArrayList<>(List.of(shared, "own"));
+    final HeapFootprint firstFootprint = new HeapFootprint(o -> null).add(first, "first");
+    final HeapFootprint secondFootprint =
+        new HeapFootprint(o -> null, firstFootprint).add(second, "second");
+    // the list and "own"
+    assertEquals(2, secondFootprint.getObjects("second"));
+  }
+
+  @Test
+  void orchestraKinds() {
+    final Repository repository = new Repository();
+    repository.setFields(new Fields());
+    final FieldType field = new FieldType();
+    field.setId(BigInteger.valueOf(44));
+    field.setName("Price");
+    field.setType("Price");
+    final Documentation documentation = new Documentation();
+    final String text = "Price per unit of quantity".repeat(100);
+    documentation.getContent().add(text);
+    final Annotation annotation = new Annotation();
+    annotation.getDocumentationOrAppinfo().add(documentation);
+    field.setAnnotation(annotation);
+    repository.getFields().getField().add(field);
+
+    final HeapFootprint footprint =
+        new HeapFootprint(HeapFootprint::orchestraKind).add(repository, HeapFootprint.OTHER);
+    // documentation, its content list and the text
+    assertEquals(3, footprint.getObjects("documentation"));
+    assertTrue(footprint.getBytes("documentation") > text.length());
+    assertTrue(footprint.getBytes("fields") > 0);
+    assertTrue(footprint.getBytes("fields") < text.length());
+    assertTrue(footprint.getBytes(HeapFootprint.OTHER) > 0);
+    assertEquals(footprint.getTotalBytes(),
+        footprint.getBytesByKind().values().stream().mapToLong(Long::longValue).sum());
+    assertTrue(footprint.toString().startsWith("documentation"));
+  }
+
+  @Test
+  void sharedOnce() {
+    final String s = "abc";
+    final HeapFootprint footprint = new HeapFootprint(o -> null).add(s, "strings").add(s, "other");
+    assertEquals(1, footprint.getObjects("strings"));
+    assertEquals(0, footprint.getObjects("other"));
+  }
+
+  @Test
+  void strings() {
+    // 24 byte String and a 16 byte array header with 3 bytes of Latin-1 text, aligned to 24
+    assertEquals(48, new HeapFootprint(o -> null).add("abc", "k").getBytes("k"));
+    // 5 UTF-16 chars, 10 bytes after the header, aligned to 32
+    assertEquals(56, new HeapFootprint(o -> null).add("€".repeat(5), "k").getBytes("k"));
+  }
+}
@@ -0,0 +1,86 @@
+package io.fixprotocol.md2orchestra.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ReplacingOutputStreamTest {
+
+  @TempDir
+  Path dir;
+
+  private static ReplacingOutputStream.Outcome write(Path path, String content)
+      throws IOException {
+    final ReplacingOutputStream out = FileStreams.newReplacingOutputStream(path, 64);
+    try {
+      // a writer that closes the stream does not commit it
+      try (Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+        writer.write(content);
+      }
+      assertNull(out.getOutcome());
+      return out.commit();
+    } finally {
+      out.discard();
+    }
+  }
+
+  private long fileCount(Path directory) throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.count();
+    }
+  }
+
+  @Test
+  void replaceOnlyChanged() throws IOException {
+    final Path path = dir.resolve("sub/output.xml");
+    assertEquals(ReplacingOutputStream.Outcome.CREATED, write(path, "first"));
+
+    final FileTime modified = FileTime.fromMillis(1000000000000L);
+    Files.setLastModifiedTime(path, modified);
+    assertEquals(ReplacingOutputStream.Outcome.UNCHANGED, write(path, "first"));
+    assertEquals(modified, Files.getLastModifiedTime(path));
+
+    // same size, other content
+    assertEquals(ReplacingOutputStream.Outcome.REPLACED, write(path, "other"));
+    assertEquals("other", Files.readString(path));
+    assertEquals(ReplacingOutputStream.Outcome.REPLACED, write(path, "shorter?"));
+    assertEquals("shorter?", Files.readString(path));
+
+    assertEquals(1, fileCount(path.getParent()));
+  }
+
+  @Test
+  void discarded() throws IOException {
+    final Path path = dir.resolve("output.xml");
+    write(path, "complete");
+
+    final ReplacingOutputStream out = FileStreams.newReplacingOutputStream(path, 64);
+    out.write("part".getBytes(StandardCharsets.UTF_8));
+    out.close();
+    out.discard();
+    assertNull(out.getOutcome());
+    assertEquals("complete", Files.readString(path));
+    assertEquals(1, fileCount(dir));
+  }
+
+  @Test
+  void compressed() throws IOException {
+    final Path path = dir.resolve("output.xml" + FileStreams.GZIP_SUFFIX);
+    assertEquals(ReplacingOutputStream.Outcome.CREATED, write(path, "content"));
+    assertEquals(ReplacingOutputStream.Outcome.UNCHANGED, write(path, "content"));
+    try (InputStream in = FileStreams.newInputStream(path, 64)) {
+      assertArrayEquals("content".getBytes(StandardCharsets.UTF_8), in.readAllBytes());
+    }
+  }
+}
@@ -0,0 +1,185 @@
+package io.fixprotocol.orchestra2md;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import io.fixprotocol.md.event.DetailProperties;
+import io.fixprotocol.md.event.DetailTable;
+import io.fixprotocol.md.event.MarkdownUtil;
+import io.fixprotocol.md.event.MutableDetailProperties;
+import io.fixprotocol.md.event.TableColumn;
+import io.fixprotocol.md.util.AssociativeSet;
+import io.fixprotocol.md.util.ListUtil;
+import io.fixprotocol.md.util.StringUtil;
+
+/**
+ * Writes markdown tables without column alignment
+ *
+ * Cells are not padded to a common width, so rows can be written as they are produced rather
+ * than held in a table until the widths of all rows are known. Columns and their order are the
+ * same as an aligned table written by {@code DocumentWriter}.
+ */
+final class CompactTableWriter {
+
+  /**
+   * A reusable table row
+   */
+  private static final class Row implements MutableDetailProperties {
+    private final Map<String, String> properties = new LinkedHashMap<>();
+
+    @Override
+    public void addIntProperty(String key, int value) {
+      addProperty(key, Integer.toString(value));
+    }
+
+    @Override
+    public void addProperty(String key, String value) {
+      if (value != null) {
+        final String trimmed = MarkdownUtil.stripCell(value);
+        if (!trimmed.isEmpty()) {
+          properties.put(Objects.requireNonNull(key, "Missing property key").toLowerCase(),
+              trimmed);
+        }
+      }
+    }
+
+    @Override
+    public Integer getIntProperty(String key) {
+      final String property = getProperty(key);
+      if (property != null) {
+        try {
+          return Integer.valueOf(property);
+        } catch (final NumberFormatException e) {
+          return null;
+        }
+      }
+      return null;
+    }
+
+    @Override
+    public Collection<Map.Entry<String, String>> getProperties() {
+      return Collections.unmodifiableSet(properties.entrySet());
+    }
+
+    @Override
+    public String getProperty(String key) {
+      return properties.get(key);
+    }
+
+    void clear() {
+      properties.clear();
+    }
+  }
+
+  private final AssociativeSet headings;
+  private final Writer writer;
+
+  /**
+   * Constructor
+   *
+   * @param writer markdown output
+   * @param headings translation of column keys to headings
+   */
+  CompactTableWriter(Writer writer, AssociativeSet headings) {
+    this.writer = writer;
+    this.headings = headings;
+  }
+
+  /**
+   * Collects table columns by building each row and discarding it
+   *
+   * @param <T> type of element represented by a row
+   * @param elements elements in row order
+   * @param rowBuilder populates a row for an element
+   * @return column keys in table order
+   */
+  <T> List<String> collectColumns(Iterable<T> elements,
+      BiConsumer<? super T, MutableDetailProperties> rowBuilder) {
+    List<String> columns = new ArrayList<>();
+    final Row row = new Row();
+    final List<String> rowColumns = new ArrayList<>();
+    for (final T element : elements) {
+      row.clear();
+      rowBuilder.accept(element, row);
+      rowColumns.clear();
+      rowColumns.addAll(row.properties.keySet());
+      if (!columns.equals(rowColumns)) {
+        columns = ListUtil.merge(columns, rowColumns);
+      }
+    }
+    return columns;
+  }
+
+  /**
+   * Writes a table that has already been populated
+   */
+  void write(DetailTable table) throws IOException {
+    final List<? extends TableColumn> tableColumns = table.getTableColumns();
+    final List<String> columns = new ArrayList<>(tableColumns.size());
+    for (final TableColumn tableColumn : tableColumns) {
+      columns.add(tableColumn.getKey());
+    }
+    writeHeadings(columns);
+    for (final DetailTable.TableRow row : table.rows()) {
+      writeRow(columns, row);
+    }
+    writer.write("\n");
+  }
+
+  /**
+   * Writes a table, streaming each row to output as it is built
+   *
+   * @param <T> type of element represented by a row
+   * @param columns column keys, typically from {@link #collectColumns(Iterable, BiConsumer)}
+   * @param elements elements in row order
+   * @param rowBuilder populates a row for an element
+   * @throws IOException if output fails
+   */
+  <T> void write(List<String> columns, Iterable<T> elements,
+      BiConsumer<? super T, MutableDetailProperties> rowBuilder) throws IOException {
+    writeHeadings(columns);
+    final Row row = new Row();
+    for (final T element : elements) {
+      row.clear();
+      rowBuilder.accept(element, row);
+      writeRow(columns, row);
+    }
+    writer.write("\n");
+  }
+
+  private void writeHeadings(List<String> columns) throws IOException {
+    for (final String key : columns) {
+      String heading = headings.get(key);
+      if (heading == null) {
+        heading = StringUtil.convertToTitleCase(key);
+      }
+      writer.write("| ");
+      writer.write(heading);
+      writer.write(' ');
+    }
+    writer.write("|\n");
+    for (int i = 0; i < columns.size(); i++) {
+      writer.write("|---");
+    }
+    writer.write("|\n");
+  }
+
+  private void writeRow(List<String> columns, DetailProperties row) throws IOException {
+    for (final String key : columns) {
+      writer.write("| ");
+      final String value = row.getProperty(key);
+      if (value != null) {
+        writer.write(value);
+        writer.write(' ');
+      }
+    }
+    writer.write("|\n");
+  }
+}
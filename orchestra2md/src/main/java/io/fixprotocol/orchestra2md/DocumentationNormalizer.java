@@ -0,0 +1,281 @@
+package io.fixprotocol.orchestra2md;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import io.fixprotocol._2020.orchestra.repository.Appinfo;
+import io.fixprotocol._2020.orchestra.repository.Documentation;
+import io.fixprotocol.md.event.MarkdownUtil;
+
+/**
+ * Normalizes Orchestra documentation for output as markdown
+ *
+ * Documentation content is scanned once, appending to a single buffer, rather than splitting it
+ * into intermediate arrays of paragraphs and lines. Output is the same as splitting markdown
+ * content on {@code "\n\\h*\n"} into paragraphs and joining the stripped lines of each paragraph
+ * with a space, or for other content types, converting each stripped line to markdown.
+ *
+ * An instance memoizes results by content since the same text is often repeated across
+ * elements. It is not thread-safe.
+ */
+final class DocumentationNormalizer {
+
+  static String appinfoToString(Appinfo appinfo, String paragraphDelimiter) {
+    final StringBuilder sb = new StringBuilder();
+    boolean first = true;
+    for (final Object content : appinfo.getContent()) {
+      if (!first) {
+        sb.append(paragraphDelimiter);
+      }
+      first = false;
+      appendTrimmed(sb, content.toString());
+    }
+    return sb.toString();
+  }
+
+  static String concatenateDocumentation(List<Documentation> documentations,
+      String paragraphDelimiter) {
+    final StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < documentations.size(); i++) {
+      if (i > 0) {
+        sb.append(paragraphDelimiter);
+      }
+      appendDocumentation(sb, documentations.get(i), paragraphDelimiter);
+    }
+    return sb.toString();
+  }
+
+  static String documentToString(Documentation documentation, String paragraphDelimiter) {
+    final StringBuilder sb = new StringBuilder();
+    appendDocumentation(sb, documentation, paragraphDelimiter);
+    return sb.toString();
+  }
+
+  private static void appendDocumentation(StringBuilder sb, Documentation documentation,
+      String paragraphDelimiter) {
+    final boolean isMarkdown =
+        documentation.getContentType().contentEquals(MarkdownUtil.MARKDOWN_MEDIA_TYPE);
+    boolean first = true;
+    for (final Object content : documentation.getContent()) {
+      if (isMarkdown) {
+        first = appendMarkdown(sb, content.toString(), paragraphDelimiter, first);
+      } else {
+        first = appendText(sb, content.toString(), paragraphDelimiter, first);
+      }
+    }
+  }
+
+  /**
+   * Appends paragraphs of markdown content. The paragraph delimiter in markdown is two newlines,
+   * but coming from xml, they may be separated by horizontal whitespace. Like
+   * {@link String#split(String)}, a leading empty paragraph is kept, trailing empty paragraphs are
+   * dropped, and content without a paragraph break is a single paragraph, even if empty.
+   *
+   * @return {@code true} if nothing has been appended yet
+   */
+  private static boolean appendMarkdown(StringBuilder sb, String content,
+      String paragraphDelimiter, boolean first) {
+    final int length = content.length();
+    int paragraphStart = 0;
+    int pendingEmpty = 0;
+    boolean hasBreak = false;
+    int i = 0;
+    while (i < length) {
+      if (content.charAt(i) == '\n') {
+        int j = i + 1;
+        while (j < length && isHorizontalWhitespace(content.charAt(j))) {
+          j++;
+        }
+        if (j < length && content.charAt(j) == '\n') {
+          hasBreak = true;
+          if (i == paragraphStart) {
+            pendingEmpty++;
+          } else {
+            for (; pendingEmpty > 0; pendingEmpty--) {
+              first = appendParagraphDelimiter(sb, paragraphDelimiter, first);
+            }
+            first = appendParagraphDelimiter(sb, paragraphDelimiter, first);
+            appendLines(sb, content, paragraphStart, i);
+          }
+          paragraphStart = j + 1;
+          i = j + 1;
+        } else {
+          i = j;
+        }
+      } else {
+        i++;
+      }
+    }
+
+    if (!hasBreak || paragraphStart < length) {
+      for (; pendingEmpty > 0; pendingEmpty--) {
+        first = appendParagraphDelimiter(sb, paragraphDelimiter, first);
+      }
+      first = appendParagraphDelimiter(sb, paragraphDelimiter, first);
+      appendLines(sb, content, paragraphStart, length);
+    }
+    return first;
+  }
+
+  private static boolean appendParagraphDelimiter(StringBuilder sb, String paragraphDelimiter,
+      boolean first) {
+    if (!first) {
+      sb.append(paragraphDelimiter);
+    }
+    return false;
+  }
+
+  /**
+   * Appends the non-blank, stripped lines of a paragraph separated by a space
+   */
+  private static void appendLines(StringBuilder sb, String content, int start, int end) {
+    boolean firstLine = true;
+    int lineStart = start;
+    while (lineStart <= end) {
+      int lineEnd = content.indexOf('\n', lineStart);
+      if (lineEnd < 0 || lineEnd > end) {
+        lineEnd = end;
+      }
+      final int stripStart = stripStart(content, lineStart, lineEnd);
+      final int stripEnd = stripEnd(content, stripStart, lineEnd);
+      if (stripStart < stripEnd) {
+        if (!firstLine) {
+          sb.append(' ');
+        }
+        firstLine = false;
+        sb.append(content, stripStart, stripEnd);
+      }
+      lineStart = lineEnd + 1;
+    }
+  }
+
+  /**
+   * Appends each non-blank line of plain text content as markdown
+   *
+   * @return {@code true} if nothing has been appended yet
+   */
+  private static boolean appendText(StringBuilder sb, String content, String paragraphDelimiter,
+      boolean first) {
+    final int length = content.length();
+    int lineStart = 0;
+    while (lineStart <= length) {
+      int lineEnd = content.indexOf('\n', lineStart);
+      if (lineEnd < 0) {
+        lineEnd = length;
+      }
+      final int stripStart = stripStart(content, lineStart, lineEnd);
+      final int stripEnd = stripEnd(content, stripStart, lineEnd);
+      if (stripStart < stripEnd) {
+        if (needsEscape(content, stripStart, stripEnd)) {
+          final String markdown = MarkdownUtil
+              .plainTextToMarkdown(content.substring(stripStart, stripEnd), paragraphDelimiter)
+              .strip();
+          if (!markdown.isEmpty()) {
+            first = appendParagraphDelimiter(sb, paragraphDelimiter, first);
+            sb.append(markdown);
+          }
+        } else {
+          first = appendParagraphDelimiter(sb, paragraphDelimiter, first);
+          sb.append(content, stripStart, stripEnd);
+        }
+      }
+      lineStart = lineEnd + 1;
+    }
+    return first;
+  }
+
+  private static void appendTrimmed(StringBuilder sb, String s) {
+    int start = 0;
+    int end = s.length();
+    while (start < end && s.charAt(start) <= ' ') {
+      start++;
+    }
+    while (start < end && s.charAt(end - 1) <= ' ') {
+      end--;
+    }
+    sb.append(s, start, end);
+  }
+
+  /**
+   * Matches regex class {@code \h}
+   */
+  private static boolean isHorizontalWhitespace(char c) {
+    return c == ' ' || c == '\t' || c == '\u00A0' || c == '\u1680' || c == '\u180E'
+        || (c >= '\u2000' && c <= '\u200A') || c == '\u202F' || c == '\u205F' || c == '\u3000';
+  }
+
+  private static boolean needsEscape(String content, int start, int end) {
+    for (int i = start; i < end; i++) {
+      final char c = content.charAt(i);
+      if (c == '|' || c == '\\') {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static int stripEnd(String s, int start, int end) {
+    while (end > start && Character.isWhitespace(s.charAt(end - 1))) {
+      end--;
+    }
+    return end;
+  }
+
+  private static int stripStart(String s, int start, int end) {
+    while (start < end && Character.isWhitespace(s.charAt(start))) {
+      start++;
+    }
+    return start;
+  }
+
+  // results by paragraph delimiter, then content, for documentation with a single text content
+  private final Map<String, Map<String, String>> markdownCache = new HashMap<>();
+  private final Map<String, Map<String, String>> textCache = new HashMap<>();
+
+  void clear() {
+    markdownCache.clear();
+    textCache.clear();
+  }
+
+  /**
+   * Concatenates documentation, reusing results for repeated content
+   *
+   * @param documentations documentation elements, typically of the same purpose
+   * @param paragraphDelimiter token to separate paragraphs
+   * @return normalized text
+   */
+  String concatenate(List<Documentation> documentations, String paragraphDelimiter) {
+    if (documentations.size() == 1) {
+      return normalize(documentations.get(0), paragraphDelimiter);
+    }
+    final StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < documentations.size(); i++) {
+      if (i > 0) {
+        sb.append(paragraphDelimiter);
+      }
+      sb.append(normalize(documentations.get(i), paragraphDelimiter));
+    }
+    return sb.toString();
+  }
+
+  String normalize(Documentation documentation, String paragraphDelimiter) {
+    final List<Object> contents = documentation.getContent();
+    if (contents.size() == 1 && contents.get(0) instanceof String) {
+      final Map<String, Map<String, String>> cache =
+          documentation.getContentType().contentEquals(MarkdownUtil.MARKDOWN_MEDIA_TYPE)
+              ? markdownCache
+              : textCache;
+      final Map<String, String> results =
+          cache.computeIfAbsent(paragraphDelimiter, k -> new HashMap<>());
+      final String content = (String) contents.get(0);
+      String text = results.get(content);
+      if (text == null) {
+        text = documentToString(documentation, paragraphDelimiter);
+        results.put(content, text);
+      }
+      return text;
+    } else {
+      return documentToString(documentation, paragraphDelimiter);
+    }
+  }
+}
@@ -0,0 +1,260 @@
+package io.fixprotocol.orchestra2md;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import io.fixprotocol.orchestra.event.Event;
+
+/**
+ * Markdown fragments rendered by an earlier run, keyed by a Merkle hash of the element that each
+ * fragment renders and of the elements that it references
+ *
+ * Each fragment keeps the events, e.g. warnings of unknown references, that were raised while it
+ * was rendered, so that they can be reported again when it is reused and the event log does not
+ * depend on the state of the cache.
+ *
+ * The cache is kept in a sidecar file. It holds a settings digest, e.g. of paragraph delimiter and
+ * output options; when it is loaded with different settings, all of its fragments are discarded.
+ * Saving the cache keeps only the fragments that were read or stored since it was loaded, so it
+ * does not grow with elements that were removed or changed.
+ */
+final class FragmentCache {
+
+  /**
+   * Rendered markdown of one element and the events raised while rendering it
+   */
+  static final class Fragment {
+    private final List<Event> events;
+    private final String markdown;
+
+    /**
+     * Constructor
+     *
+     * @param markdown rendered markdown
+     * @param events events in the order they were raised
+     */
+    Fragment(String markdown, List<Event> events) {
+      this.markdown = markdown;
+      this.events = Collections.unmodifiableList(new ArrayList<>(events));
+    }
+
+    List<Event> getEvents() {
+      return events;
+    }
+
+    String getMarkdown() {
+      return markdown;
+    }
+  }
+
+  // increment when the file format or rendering changes
+  private static final int FORMAT_VERSION = 2;
+
+  /**
+   * Digest of settings that affect rendering
+   *
+   * @param settings strings, e.g. options; may contain {@code null}
+   * @return hex SHA-256 of the settings
+   */
+  static String digest(String... settings) {
+    final MessageDigest messageDigest = newMessageDigest();
+    messageDigest.update(Integer.toString(FORMAT_VERSION).getBytes(StandardCharsets.UTF_8));
+    for (final String setting : settings) {
+      messageDigest.update((byte) 0);
+      messageDigest.update(String.valueOf(setting).getBytes(StandardCharsets.UTF_8));
+    }
+    return toHex(messageDigest.digest());
+  }
+
+  /**
+   * Loads a cache from its sidecar file
+   *
+   * A missing or damaged file, or one written with other settings, gives an empty cache.
+   *
+   * @param path sidecar file
+   * @param settingsDigest digest of settings, e.g. from {@link #digest(String...)}
+   * @return a cache
+   */
+  static FragmentCache load(Path path, String settingsDigest) {
+    Objects.requireNonNull(path, "Fragment file is missing");
+    final FragmentCache cache = new FragmentCache(path, settingsDigest);
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+      if (in.readInt() != FORMAT_VERSION || !settingsDigest.equals(readString(in))) {
+        cache.logger.info("FragmentCache settings changed; rendering all of {}", path);
+        return cache;
+      }
+      final int count = in.readInt();
+      for (int i = 0; i < count; i++) {
+        final String hash = readString(in);
+        final String markdown = readString(in);
+        final int eventCount = in.readInt();
+        final List<Event> events = new ArrayList<>(eventCount);
+        for (int j = 0; j < eventCount; j++) {
+          final Event.Severity severity = Event.Severity.valueOf(readString(in));
+          // the message is already formatted
+          events.add(new Event(severity, "{0}", readString(in)));
+        }
+        cache.previous.put(hash, new Fragment(markdown, events));
+      }
+      cache.isLoaded = true;
+    } catch (final NoSuchFileException e) {
+      // first run
+    } catch (final IOException | RuntimeException e) {
+      cache.logger.warn("FragmentCache failed to read {}; rendering all", path, e);
+      cache.previous.clear();
+    }
+    return cache;
+  }
+
+  static MessageDigest newMessageDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (final NoSuchAlgorithmException e) {
+      // every Java platform supports SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+
+  static String toHex(byte[] bytes) {
+    final StringBuilder sb = new StringBuilder(bytes.length * 2);
+    for (final byte b : bytes) {
+      sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+    }
+    return sb.toString();
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    final byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static void writeString(DataOutputStream out, String s) throws IOException {
+    final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  // fragments of this run in output order
+  private final Map<String, Fragment> current = new LinkedHashMap<>();
+  private int hits;
+  // true if the sidecar file was read and its settings match
+  private boolean isLoaded;
+  private final Logger logger = LogManager.getLogger(getClass());
+  private int misses;
+  private final Path path;
+  // fragments of the previous run
+  private final Map<String, Fragment> previous = new HashMap<>();
+  private final String settingsDigest;
+
+  private FragmentCache(Path path, String settingsDigest) {
+    this.path = path;
+    this.settingsDigest = settingsDigest;
+  }
+
+  /**
+   * Returns a fragment rendered earlier
+   *
+   * @param hash Merkle hash of the rendered element
+   * @return fragment, or {@code null} if the element must be rendered
+   */
+  Fragment get(String hash) {
+    Fragment fragment = current.get(hash);
+    if (fragment == null) {
+      fragment = previous.get(hash);
+      if (fragment != null) {
+        current.put(hash, fragment);
+      }
+    }
+    if (fragment != null) {
+      hits++;
+    } else {
+      misses++;
+    }
+    return fragment;
+  }
+
+  int getHits() {
+    return hits;
+  }
+
+  int getMisses() {
+    return misses;
+  }
+
+  /**
+   * Stores a rendered fragment
+   *
+   * @param hash Merkle hash of the rendered element
+   * @param fragment rendered fragment
+   */
+  void put(String hash, Fragment fragment) {
+    current.put(hash, fragment);
+  }
+
+  /**
+   * Writes the fragments of this run to the sidecar file
+   *
+   * The file is written to a temporary file and then moved into place, so an interrupted run
+   * never leaves a partial file. It is not written if this run used the same fragments as the
+   * previous one. Failure to save is logged, not thrown.
+   */
+  void save() {
+    // a fragment's hash determines its content, so the same hashes make the same file
+    if (isLoaded && current.keySet().equals(previous.keySet())) {
+      return;
+    }
+    Path tempPath = null;
+    try {
+      final Path directory = path.toAbsolutePath().getParent();
+      Files.createDirectories(directory);
+      tempPath = Files.createTempFile(directory, "fragments", ".tmp");
+      try (DataOutputStream out =
+          new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+        out.writeInt(FORMAT_VERSION);
+        writeString(out, settingsDigest);
+        out.writeInt(current.size());
+        for (final Map.Entry<String, Fragment> entry : current.entrySet()) {
+          final Fragment fragment = entry.getValue();
+          writeString(out, entry.getKey());
+          writeString(out, fragment.getMarkdown());
+          out.writeInt(fragment.getEvents().size());
+          for (final Event event : fragment.getEvents()) {
+            writeString(out, event.getSeverity().name());
+            writeString(out, event.getMessage());
+          }
+        }
+      }
+      Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (final IOException | RuntimeException e) {
+      logger.warn("FragmentCache failed to write {}", path, e);
+      if (tempPath != null) {
+        try {
+          Files.deleteIfExists(tempPath);
+        } catch (final IOException e1) {
+          // already logged
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,164 @@
+package io.fixprotocol.orchestra2md;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.namespace.QName;
+import io.fixprotocol._2020.orchestra.repository.CodeSetType;
+import io.fixprotocol._2020.orchestra.repository.ComponentRefType;
+import io.fixprotocol._2020.orchestra.repository.ComponentType;
+import io.fixprotocol._2020.orchestra.repository.FieldRefType;
+import io.fixprotocol._2020.orchestra.repository.FieldType;
+import io.fixprotocol._2020.orchestra.repository.GroupRefType;
+import io.fixprotocol._2020.orchestra.repository.GroupType;
+import io.fixprotocol._2020.orchestra.repository.MessageType;
+
+/**
+ * Merkle hashes of rendered elements
+ *
+ * The hash of an element covers its own content, taken from its XML form, and whatever is
+ * rendered from the elements it references: the content of a referenced field and, with inline
+ * codes, of the field's codeset; the name of a referenced component or group. A change to a
+ * codeset therefore changes the hash of every message, group or component that shows its codes
+ * inline, and of nothing else. The content hash of each element is computed once per run.
+ *
+ * An instance is not thread-safe.
+ */
+final class FragmentHasher {
+
+  private static final QName ELEMENT_NAME = new QName("element");
+  // stands for a reference that is not found
+  private static final String MISSING = "-";
+
+  private final Map<Object, String> contentHashes = new IdentityHashMap<>();
+  private final OutputStream digestStream;
+  private final Marshaller marshaller;
+  private final MessageDigest messageDigest = FragmentCache.newMessageDigest();
+  private final RepositoryAdaptor repositoryAdaptor;
+  private final boolean shouldHashInlineCodes;
+
+  /**
+   * Constructor
+   *
+   * @param repositoryAdaptor lookup of referenced elements
+   * @param shouldHashInlineCodes {@code true} if codes are rendered inline with fields
+   * @throws JAXBException if elements cannot be written as XML
+   */
+  FragmentHasher(RepositoryAdaptor repositoryAdaptor, boolean shouldHashInlineCodes)
+      throws JAXBException {
+    this.repositoryAdaptor = repositoryAdaptor;
+    this.shouldHashInlineCodes = shouldHashInlineCodes;
+    this.marshaller = XmlParser.getJaxbContext().createMarshaller();
+    this.marshaller.setProperty(Marshaller.JAXB_FRAGMENT, true);
+    this.digestStream = new DigestOutputStream(OutputStream.nullOutputStream(), messageDigest);
+  }
+
+  String hash(CodeSetType codeset) throws IOException {
+    return combine("codeset", contentHash(codeset));
+  }
+
+  String hash(ComponentType component) throws IOException {
+    return combine("component", contentHash(component),
+        memberHashes(component.getComponentRefOrGroupRefOrFieldRef()));
+  }
+
+  String hash(GroupType group) throws IOException {
+    final FieldRefType numInGroup = group.getNumInGroup();
+    return combine("group", contentHash(group),
+        numInGroup != null ? fieldRefHash(numInGroup) : MISSING,
+        memberHashes(group.getComponentRefOrGroupRefOrFieldRef()));
+  }
+
+  String hash(MessageType message) throws IOException {
+    final MessageType.Structure structure = message.getStructure();
+    return combine("message", contentHash(message),
+        structure != null ? memberHashes(structure.getComponentRefOrGroupRefOrFieldRef())
+            : MISSING);
+  }
+
+  /**
+   * @param fields fields in table order
+   * @return hash of the fields table
+   */
+  String hashFields(List<FieldType> fields) throws IOException {
+    final StringBuilder sb = new StringBuilder();
+    for (final FieldType field : fields) {
+      sb.append(contentHash(field));
+      if (shouldHashInlineCodes) {
+        sb.append(codesetHash(field.getType(), field.getScenario()));
+      }
+    }
+    return combine("fields", sb.toString());
+  }
+
+  private String codesetHash(String typeName, String scenario) throws IOException {
+    final CodeSetType codeset = repositoryAdaptor.findCodeset(typeName, scenario);
+    return codeset != null ? contentHash(codeset) : MISSING;
+  }
+
+  private String combine(String... parts) {
+    messageDigest.reset();
+    for (final String part : parts) {
+      messageDigest.update(part.getBytes(StandardCharsets.UTF_8));
+      messageDigest.update((byte) 0);
+    }
+    return FragmentCache.toHex(messageDigest.digest());
+  }
+
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  private String contentHash(Object element) throws IOException {
+    String hash = contentHashes.get(element);
+    if (hash == null) {
+      messageDigest.reset();
+      try {
+        marshaller.marshal(new JAXBElement(ELEMENT_NAME, element.getClass(), element),
+            digestStream);
+      } catch (final JAXBException e) {
+        throw new IOException(e);
+      }
+      hash = FragmentCache.toHex(messageDigest.digest());
+      contentHashes.put(element, hash);
+    }
+    return hash;
+  }
+
+  private String fieldRefHash(FieldRefType fieldRef) throws IOException {
+    final FieldType field = repositoryAdaptor.findField(fieldRef.getId(), fieldRef.getScenario());
+    if (field == null) {
+      return MISSING;
+    }
+    final String hash = contentHash(field);
+    // inline codes are looked up in the scenario of the reference
+    return shouldHashInlineCodes ? hash + codesetHash(field.getType(), fieldRef.getScenario())
+        : hash;
+  }
+
+  private String memberHashes(List<Object> members) throws IOException {
+    final StringBuilder sb = new StringBuilder();
+    for (final Object member : members) {
+      if (member instanceof FieldRefType) {
+        sb.append(fieldRefHash((FieldRefType) member));
+      } else if (member instanceof GroupRefType) {
+        final GroupRefType groupRef = (GroupRefType) member;
+        final GroupType group =
+            repositoryAdaptor.findGroup(groupRef.getId(), groupRef.getScenario());
+        sb.append(group != null ? group.getName() : MISSING);
+      } else if (member instanceof ComponentRefType) {
+        final ComponentRefType componentRef = (ComponentRefType) member;
+        final ComponentType component =
+            repositoryAdaptor.findComponent(componentRef.getId(), componentRef.getScenario());
+        sb.append(component != null ? component.getName() : MISSING);
+      }
+      sb.append('\u0000');
+    }
+    return sb.toString();
+  }
+}
@@ -4,10 +4,15 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -15,8 +20,9 @@ import java.util.Objects;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.function.BiConsumer;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 import javax.xml.bind.JAXBElement;
 import javax.xml.bind.JAXBException;
 import org.apache.logging.log4j.LogManager;
@@ -68,9 +74,11 @@ import io.fixprotocol.md.event.MutableDetailTable;
 import io.fixprotocol.md.event.MutableDocumentation;
 import io.fixprotocol.md.util.AssociativeSet;
 import io.fixprotocol.md.util.StringUtil;
+import io.fixprotocol.orchestra.event.Event;
 import io.fixprotocol.orchestra.event.EventListener;
 import io.fixprotocol.orchestra.event.EventListenerFactory;
 import io.fixprotocol.orchestra.event.TeeEventListener;
+import io.fixprotocol.orchestra2md.util.HeapFootprint;
 
 public class MarkdownGenerator {
 
@@ -85,57 +93,87 @@ public class MarkdownGenerator {
   // todo: integrate into markdown grammar
   public static final String WHEN_KEYWORD = "when";
   private static final String DEFAULT_SCENARIO = "base";
+  private static final Pattern WHITESPACE_PATTERN = Pattern.compile(".*\\s.*");
 
+  /**
+   * Renders one element as a markdown fragment
+   */
+  @FunctionalInterface
+  private interface FragmentRenderer {
+    void render(DocumentWriter documentWriter) throws IOException;
+  }
+
+  /**
+   * Code sort key, parsed once per code
+   *
+   * Orders by group, then by integer sort attribute; missing values sort first.
+   */
+  private static final class CodeSortKey implements Comparable<CodeSortKey> {
+    final CodeType code;
+    final String group;
+    final boolean hasSort;
+    final int sort;
+
+    CodeSortKey(CodeType code) {
+      this.code = code;
+      this.group = code.getGroup();
+      final String s = code.getSort();
+      this.hasSort = s != null;
+      // sort should be an integer attribute
+      this.sort = hasSort ? Integer.parseInt(s.strip()) : 0;
+    }
+
+    @Override
+    public int compareTo(CodeSortKey o) {
+      if (group == null) {
+        if (o.group != null) {
+          return -1;
+        }
+      } else if (o.group == null) {
+        return 1;
+      } else {
+        final int result = group.compareTo(o.group);
+        if (result != 0) {
+          return result;
+        }
+      }
+      if (!hasSort) {
+        return o.hasSort ? -1 : 0;
+      } else if (!o.hasSort) {
+        return 1;
+      } else {
+        return Integer.compare(sort, o.sort);
+      }
+    }
+  }
 
   static String appinfoToString(Object o, String paragraphDelimiter) {
-    final io.fixprotocol._2020.orchestra.repository.Appinfo a =
-        (io.fixprotocol._2020.orchestra.repository.Appinfo) o;
-    return a.getContent().stream().map(c -> c.toString().trim())
-       .collect(Collectors.joining(paragraphDelimiter));
+    return DocumentationNormalizer.appinfoToString((Appinfo) o, paragraphDelimiter);
   }
 
   static String codesToString(CodeSetType codeset, String paragraphDelimiter) {
-    final List<CodeType> codes = sortCodes(codeset.getCode());
-    return codes.stream().map(c -> c.getValue() + " = " + c.getName())
-        .collect(Collectors.joining(paragraphDelimiter));
+    return codesToString(sortCodes(codeset.getCode()), paragraphDelimiter);
+  }
+
+  static String codesToString(List<CodeType> sortedCodes, String paragraphDelimiter) {
+    final StringBuilder sb = new StringBuilder();
+    for (final CodeType code : sortedCodes) {
+      if (sb.length() > 0) {
+        sb.append(paragraphDelimiter);
+      }
+      sb.append(code.getValue()).append(" = ").append(code.getName());
+    }
+    return sb.toString();
   }
 
   static String concatenateDocumentation(List<Documentation> documentations,
       String paragraphDelimiter) {
-    return documentations.stream().map(d -> documentToString(d, paragraphDelimiter))
-        .collect(Collectors.joining(paragraphDelimiter));
+    return DocumentationNormalizer.concatenateDocumentation(documentations, paragraphDelimiter);
   }
 
   static String documentToString(io.fixprotocol._2020.orchestra.repository.Documentation d,
       String paragraphDelimiter) {
-    if (d.getContentType().contentEquals(MarkdownUtil.MARKDOWN_MEDIA_TYPE)) {
-      final List<String> contents =
-          d.getContent().stream().map(Object::toString).collect(Collectors.toList());
-      final List<String> paragraphs = new ArrayList<>();
-      for (final String c : contents) {
-        // paragraph delimiter in markdown is two newlines, but coming from xml, they may be
-        // separated by horizontal whitespace
-        paragraphs
-            .addAll(Stream.of(c.split("\n\\h*\n")).map(String::new).collect(Collectors.toList()));
-      }
-      final List<String> lines = new ArrayList<>();
-      for (final String p : paragraphs) {
-        lines.add(Stream.of(p.split("\n")).map(String::new).map(String::strip)
-            .filter(s -> !s.isEmpty()).collect(Collectors.joining(" ")));
-      }
-      return String.join(paragraphDelimiter, lines);
-    } else {
-      final List<String> contents =
-          d.getContent().stream().map(Object::toString).collect(Collectors.toList());
-      final List<String> paragraphs = new ArrayList<>();
-      for (final String c : contents) {
-        paragraphs.addAll(Stream.of(c.split("\n")).map(String::new)
-            .map(s -> MarkdownUtil.plainTextToMarkdown(s, paragraphDelimiter))
-            .collect(Collectors.toList()));
-      }
-      return paragraphs.stream().map(String::strip).filter(s -> !s.isEmpty())
-          .collect(Collectors.joining(paragraphDelimiter));
-    }
+    return DocumentationNormalizer.documentToString(d, paragraphDelimiter);
   }
 
   static SortedMap<String, List<Documentation>> groupDocumentationByPurpose(Annotation annotation) {
@@ -149,41 +187,26 @@ public class MarkdownGenerator {
     }
   }
 
+  /**
+   * Sort codes by group, then by sort attribute
+   *
+   * Sort keys are parsed once per code rather than on every comparison. The sort is stable, so
+   * codes without a group or sort attribute keep their document order.
+   *
+   * @param codes codes of a codeset in document order
+   * @return a new sorted list
+   */
   static List<CodeType> sortCodes(final List<CodeType> codes) {
-    final Comparator<CodeType> groupComparator = (o1, o2) -> {
-      final String g1 = o1.getGroup();
-      final String g2 = o2.getGroup();
-      if (g1 == null) {
-        if (g2 == null) {
-          return 0;
-        } else {
-          return -1;
-        }
-      } else if (g2 == null) {
-        return 1;
-      } else {
-        return g1.compareTo(g2);
-      }
-    };
-    final Comparator<CodeType> sortComparator = (o1, o2) -> {
-      final String s1 = o1.getSort();
-      final String s2 = o2.getSort();
-      if (s1 == null) {
-        if (s2 == null) {
-          return 0;
-        } else {
-          return -1;
-        }
-      } else if (s2 == null) {
-        return 1;
-      } else {
-        // sort should be an integer attribute
-        return Integer.parseInt(s1.strip()) - Integer.parseInt(s2.strip());
-      }
-    };
-    final Comparator<? super CodeType> codeComparator =
-        groupComparator.thenComparing(sortComparator);
-    return codes.stream().sorted(codeComparator).collect(Collectors.toList());
+    final CodeSortKey[] keys = new CodeSortKey[codes.size()];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = new CodeSortKey(codes.get(i));
+    }
+    Arrays.sort(keys);
+    final List<CodeType> sorted = new ArrayList<>(keys.length);
+    for (final CodeSortKey key : keys) {
+      sorted.add(key.code);
+    }
+    return sorted;
   }
 
   static SortedMap<String, List<Documentation>> sortDocumentationByPurpose(
@@ -221,15 +244,25 @@ public class MarkdownGenerator {
     return sorted;
   }
 
+  private CompactTableWriter compactTableWriter;
   private final ContextFactory contextFactory = new ContextFactory();
+  private final DocumentationNormalizer documentationNormalizer = new DocumentationNormalizer();
   private EventListener eventLogger;
+  private FragmentCache fragmentCache;
+  private FragmentHasher fragmentHasher;
   private final AssociativeSet headings = new AssociativeSet();
+  // inline codes by scenario, then codeset name; empty string if no codeset is found
+  private final Map<String, Map<String, String>> inlineCodesCache = new HashMap<>();
   private final Logger logger = LogManager.getLogger(getClass());
+  private Writer outputWriter;
   private final String paragraphDelimiterInTables;
+  private RepositoryAdaptor repositoryAdaptor;
   private final boolean shouldOutputDatatypes;
   private final boolean shouldOutputFixml;
   private final boolean shouldOutputInlineCodes;
   private final boolean shouldOutputPedigree;
+  private final boolean shouldWriteCompactTables;
+  private final Map<CodeSetType, List<CodeType>> sortedCodesCache = new IdentityHashMap<>();
 
   /**
    * Constructor
@@ -252,6 +285,26 @@ public class MarkdownGenerator {
    */
   public MarkdownGenerator(String paragraphDelimiterInTables, boolean shouldOutputPedigree,
       boolean shouldOutputFixml, boolean shouldOutputInlineCodes, boolean shouldOutputDatatypes) {
+    this(paragraphDelimiterInTables, shouldOutputPedigree, shouldOutputFixml,
+        shouldOutputInlineCodes, shouldOutputDatatypes, false);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param paragraphDelimiterInTables token to for a paragraph break in a Markdown table, not
+   *        natively supported
+   * @param shouldOutputPedigree output pedigree attributes -- when an element was added or changed
+   * @param shouldOutputFixml output FIXML attributes -- abbreviated name, etc.
+   * @param shouldOutputInlineCodes output a codeset inline with its field
+   * @param shouldOutputDatatypes output datatypes and their mappings
+   * @param shouldWriteCompactTables write tables without column alignment, streaming rows of
+   *        fields and codes tables rather than holding them in memory
+   */
+  public MarkdownGenerator(String paragraphDelimiterInTables, boolean shouldOutputPedigree,
+      boolean shouldOutputFixml, boolean shouldOutputInlineCodes, boolean shouldOutputDatatypes,
+      boolean shouldWriteCompactTables) {
+    this.shouldWriteCompactTables = shouldWriteCompactTables;
     this.paragraphDelimiterInTables = paragraphDelimiterInTables;
     this.shouldOutputPedigree = shouldOutputPedigree;
     this.shouldOutputFixml = shouldOutputFixml;
@@ -268,21 +321,9 @@ public class MarkdownGenerator {
 
   public void generate(InputStream inputStream, OutputStreamWriter outputWriter,
       EventListener eventLogger) throws Exception {
-    this.eventLogger = eventLogger;
-    try (eventLogger; final DocumentWriter documentWriter = new DocumentWriter(outputWriter)) {
+    try (eventLogger; outputWriter) {
       final Repository repository = XmlParser.unmarshal(inputStream, eventLogger);
-      generateRepositoryMetadata(repository, documentWriter);
-      generateActorsAndFlows(repository, documentWriter);
-      generateSections(repository, documentWriter);
-      generateCategories(repository, documentWriter);
-      generateMessages(repository, documentWriter);
-      generateGroups(repository, documentWriter);
-      generateComponents(repository, documentWriter);
-      generateFields(repository, documentWriter);
-      generateCodesets(repository, documentWriter);
-      if (shouldOutputDatatypes) {
-        generateDatatypes(repository, documentWriter);
-      }
+      generate(repository, outputWriter, eventLogger);
     } catch (final JAXBException e) {
       logger.fatal("Orchestra2md failed to parse XML", e);
       throw new IOException(e);
@@ -310,16 +351,165 @@ public class MarkdownGenerator {
     generate(inputStream, outputWriter, eventLogger);
   }
 
+  /**
+   * Writes markdown for an unmarshalled repository
+   *
+   * @param repository an Orchestra repository
+   * @param outputWriter markdown output, not closed by this method
+   * @param eventLogger event listener, not closed by this method
+   * @throws IOException if markdown cannot be written
+   */
+  void generate(Repository repository, Writer outputWriter, EventListener eventLogger)
+      throws IOException {
+    final DocumentWriter documentWriter = new DocumentWriter(outputWriter);
+    compactTableWriter =
+        shouldWriteCompactTables ? new CompactTableWriter(outputWriter, headings) : null;
+    this.eventLogger = eventLogger;
+    this.outputWriter = outputWriter;
+    inlineCodesCache.clear();
+    sortedCodesCache.clear();
+    documentationNormalizer.clear();
+    repositoryAdaptor = new RepositoryAdaptor(repository);
+    if (fragmentCache != null) {
+      try {
+        fragmentHasher = new FragmentHasher(repositoryAdaptor, shouldOutputInlineCodes);
+      } catch (final JAXBException e) {
+        throw new IOException(e);
+      }
+    } else {
+      fragmentHasher = null;
+    }
+    generateRepositoryMetadata(repository, documentWriter);
+    generateActorsAndFlows(repository, documentWriter);
+    generateSections(repository, documentWriter);
+    generateCategories(repository, documentWriter);
+    generateMessages(repository, documentWriter);
+    generateGroups(repository, documentWriter);
+    generateComponents(repository, documentWriter);
+    generateFields(repository, documentWriter);
+    generateCodesets(repository, documentWriter);
+    if (shouldOutputDatatypes) {
+      generateDatatypes(repository, documentWriter);
+    }
+  }
+
+  /**
+   * Estimates the heap retained by the model of the last generated repository
+   *
+   * @return footprint of the repository by element kind, and of the lookup indexes and caches
+   *         built while generating under kind "indexes"
+   */
+  HeapFootprint footprint() {
+    final String indexes = "indexes";
+    final HeapFootprint footprint = new HeapFootprint(HeapFootprint::orchestraKind);
+    if (repositoryAdaptor != null) {
+      footprint.add(repositoryAdaptor.getRepository(), HeapFootprint.OTHER);
+      footprint.add(repositoryAdaptor, indexes);
+    }
+    return footprint.add(inlineCodesCache, indexes).add(sortedCodesCache, indexes)
+        .add(documentationNormalizer, indexes);
+  }
+
+  /**
+   * Reuses fragments rendered by an earlier run for messages, groups, components, codesets and the
+   * fields table whose Merkle hashes are unchanged
+   *
+   * Events, such as warnings of unknown references, are only reported for elements that are
+   * rendered again.
+   *
+   * @param fragmentCache fragments of an earlier run, or {@code null} to render all elements
+   */
+  void setFragmentCache(FragmentCache fragmentCache) {
+    this.fragmentCache = fragmentCache;
+  }
+
   void generateNoneComment(DocumentWriter documentWriter) throws IOException {
     final MutableDocumentation documentation = contextFactory.createDocumentation("None");
     documentWriter.write(documentation);
   }
 
+  private void addCodeRow(CodeType code, String scenario, MutableDetailProperties row) {
+    final String codeName = code.getName();
+    row.addProperty("name", codeName);
+    row.addProperty("value", code.getValue());
+    final BigInteger codeId = code.getId();
+    if (codeId != null) {
+      row.addProperty("id", codeId.toString());
+    } else {
+      eventLogger.warn("Unknown code id; name={0} scenario={1}", codeName, scenario);
+    }
+    final String group = code.getGroup();
+    if (group != null) {
+      row.addProperty("group", group);
+    }
+    final String sort = code.getSort();
+    if (sort != null) {
+      row.addProperty("sort", sort);
+    }
+
+    final String added = code.getAdded();
+    if (shouldOutputPedigree && added != null) {
+      row.addProperty("added", added);
+    }
+
+    final BigInteger addedEp = code.getAddedEP();
+    if (shouldOutputPedigree && addedEp != null) {
+      row.addIntProperty("addedep", addedEp.intValue());
+    }
+
+    final String issue = code.getIssue();
+    if (shouldOutputPedigree && issue != null) {
+      row.addProperty("issue", issue);
+    }
+
+    final String lastModified = code.getLastModified();
+    if (shouldOutputPedigree && lastModified != null) {
+      row.addProperty("lastModified", lastModified);
+    }
+
+    final String replaced = code.getReplaced();
+    if (shouldOutputPedigree && replaced != null) {
+      row.addProperty("replaced", replaced);
+    }
+
+    final BigInteger replacedByField = code.getReplacedByField();
+    if (shouldOutputPedigree && replacedByField != null) {
+      row.addIntProperty("replacedByField", replacedByField.intValue());
+    }
+
+    final BigInteger replacedEp = code.getReplacedEP();
+    if (shouldOutputPedigree && replacedEp != null) {
+      row.addIntProperty("replacedep", replacedEp.intValue());
+    }
+
+    final String updated = code.getUpdated();
+    if (shouldOutputPedigree && updated != null) {
+      row.addProperty("updated", updated);
+    }
+
+    final BigInteger updatedEp = code.getUpdatedEP();
+    if (shouldOutputPedigree && updatedEp != null) {
+      row.addIntProperty("updatedep", updatedEp.intValue());
+    }
+
+    final String deprecated = code.getDeprecated();
+    if (shouldOutputPedigree && deprecated != null) {
+      row.addProperty("deprecated", deprecated);
+    }
+
+    final BigInteger deprecatedEp = code.getDeprecatedEP();
+    if (shouldOutputPedigree && deprecatedEp != null) {
+      row.addIntProperty("deprecatedep", deprecatedEp.intValue());
+    }
+
+    addDocumentationColumns(row, code.getAnnotation());
+  }
+
   private void addComponentRefRow(Repository repository, ComponentRefType componentRef,
       MutableDetailProperties row) {
     final BigInteger tag = componentRef.getId();
     final String scenario = componentRef.getScenario();
-    final ComponentType component = RepositoryAdaptor.findComponentByTag(repository, tag, scenario);
+    final ComponentType component = repositoryAdaptor.findComponent(tag, scenario);
     if (component != null) {
       row.addProperty("name", component.getName());
     } else {
@@ -331,7 +521,7 @@ public class MarkdownGenerator {
       row.addProperty("scenario", scenario);
     }
     final PresenceT presence = componentRef.getPresence();
-    row.addProperty("presence", presence.toString().toLowerCase());
+    row.addProperty("presence", presence.value());
 
     if (shouldOutputPedigree) {
       final String added = componentRef.getAdded();
@@ -392,29 +582,171 @@ public class MarkdownGenerator {
     addDocumentationColumns(row, componentRef.getAnnotation());
   }
 
+  private void addDocumentationColumn(MutableDetailProperties properties, String key,
+      String text) {
+    if (!text.isBlank()) {
+      properties.addProperty(key != null && !key.isEmpty() ? key : DOCUMENTATION_KEYWORD, text);
+    }
+  }
+
   private void addDocumentationColumns(MutableDetailProperties properties, Annotation annotation) {
     if (annotation != null) {
+      final List<Object> annotations = annotation.getDocumentationOrAppinfo();
+      if (annotations.size() == 1 && annotations.get(0) instanceof Documentation) {
+        // a single documentation element needs no grouping by purpose
+        final Documentation documentation = (Documentation) annotations.get(0);
+        addDocumentationColumn(properties, documentation.getPurpose(),
+            documentationNormalizer.normalize(documentation, getParagraphDelimiterInTables()));
+        return;
+      }
       final SortedMap<String, List<Documentation>> sorted = groupDocumentationByPurpose(annotation);
       final Set<Entry<String, List<Documentation>>> entries = sorted.entrySet();
       for (final Entry<String, List<Documentation>> e : entries) {
-        final String text = concatenateDocumentation(e.getValue(), getParagraphDelimiterInTables());
-        if (!text.isBlank()) {
-          final String key = e.getKey();
-          properties.addProperty(key != null && !key.isEmpty() ? key : DOCUMENTATION_KEYWORD, text);
+        addDocumentationColumn(properties, e.getKey(),
+            documentationNormalizer.concatenate(e.getValue(), getParagraphDelimiterInTables()));
+      }
+      for (final Object o : annotations) {
+        if (o instanceof Appinfo) {
+          final Appinfo appinfo = (Appinfo) o;
+          if (shouldOutputFixml || !"FIXML".equals(appinfo.getPurpose())) {
+            properties.addProperty(appinfo.getPurpose(),
+                appinfoToString(appinfo, getParagraphDelimiterInTables()));
+          }
         }
       }
-      final List<Object> annotations = annotation.getDocumentationOrAppinfo();
-      annotations.stream().filter(Appinfo.class::isInstance).map(Appinfo.class::cast)
-        .filter(a-> !("FIXML".equals(a.getPurpose()) && !shouldOutputFixml))
-        .forEach(a -> properties.addProperty(a.getPurpose(), appinfoToString(a, getParagraphDelimiterInTables())));
     }
   }
 
+  private void addFieldRow(Repository repository, FieldType field, MutableDetailProperties row) {
+    row.addIntProperty("tag", field.getId().intValue());
+    row.addProperty("name", field.getName());
+    final String scenario = field.getScenario();
+    if (!scenario.equals(DEFAULT_SCENARIO)) {
+      row.addProperty("scenario", scenario);
+    }
+    row.addProperty("type", field.getType());
+
+    if (shouldOutputInlineCodes) {
+      final String inlineCodes = getInlineCodes(repository, field.getType(), scenario);
+      if (!inlineCodes.isEmpty()) {
+        row.addProperty("values", inlineCodes);
+      }
+    }
+
+    final Short implMinLength = field.getImplMinLength();
+    if (implMinLength != null) {
+      row.addIntProperty("implMinLength", implMinLength);
+    }
+
+    final Short implMaxLength = field.getImplMaxLength();
+    if (implMaxLength != null) {
+      row.addIntProperty("implMaxLength", implMaxLength);
+    }
+
+    final Short implLength = field.getImplLength();
+    if (implLength != null) {
+      row.addIntProperty("implLength", implLength);
+    }
+
+    final String minInclusive = field.getMinInclusive();
+    if (minInclusive != null) {
+      row.addProperty("minInclusive", minInclusive);
+    }
+
+    final String maxInclusive = field.getMaxInclusive();
+    if (maxInclusive != null) {
+      row.addProperty("maxInclusive", maxInclusive);
+    }
+
+    final BigInteger dicriminatorId = field.getDiscriminatorId();
+    if (dicriminatorId != null) {
+      row.addIntProperty("discriminatorId", dicriminatorId.intValue());
+    }
+
+    final UnionDataTypeT unionDataType = field.getUnionDataType();
+    if (unionDataType != null) {
+      row.addProperty("unionDataType", unionDataType.value());
+    }
+
+    if (shouldOutputFixml) {
+      final String abbrName = field.getAbbrName();
+      if (abbrName != null) {
+        row.addProperty("abbrName", abbrName);
+      }
+      final String baseCategoryAbbrName = field.getBaseCategoryAbbrName();
+      if (baseCategoryAbbrName != null) {
+        row.addProperty("baseCategoryAbbrName", baseCategoryAbbrName);
+      }
+
+      final String baseCategory = field.getBaseCategory();
+      if (baseCategory != null) {
+        row.addProperty("baseCategory", baseCategory);
+      }
+    }
+
+    final String added = field.getAdded();
+    if (shouldOutputPedigree && added != null) {
+      row.addProperty("added", added);
+    }
+
+    final BigInteger addedEp = field.getAddedEP();
+    if (shouldOutputPedigree && addedEp != null) {
+      row.addIntProperty("addedep", addedEp.intValue());
+    }
+
+    final String issue = field.getIssue();
+    if (shouldOutputPedigree && issue != null) {
+      row.addProperty("issue", issue);
+    }
+
+    final String lastModified = field.getLastModified();
+    if (shouldOutputPedigree && lastModified != null) {
+      row.addProperty("lastModified", lastModified);
+    }
+
+    final String replaced = field.getReplaced();
+    if (shouldOutputPedigree && replaced != null) {
+      row.addProperty("replaced", replaced);
+    }
+
+    final BigInteger replacedByField = field.getReplacedByField();
+    if (shouldOutputPedigree && replacedByField != null) {
+      row.addIntProperty("replacedByField", replacedByField.intValue());
+    }
+
+    final BigInteger replacedEp = field.getReplacedEP();
+    if (shouldOutputPedigree && replacedEp != null) {
+      row.addIntProperty("replacedep", replacedEp.intValue());
+    }
+
+    final String updated = field.getUpdated();
+    if (shouldOutputPedigree && updated != null) {
+      row.addProperty("updated", updated);
+    }
+
+    final BigInteger updatedEp = field.getUpdatedEP();
+    if (shouldOutputPedigree && updatedEp != null) {
+      row.addIntProperty("updatedep", updatedEp.intValue());
+    }
+
+    final String deprecated = field.getDeprecated();
+    if (shouldOutputPedigree && deprecated != null) {
+      row.addProperty("deprecated", deprecated);
+    }
+
+    final BigInteger deprecatedEp = field.getDeprecatedEP();
+    if (shouldOutputPedigree && deprecatedEp != null) {
+      row.addIntProperty("deprecatedep", deprecatedEp.intValue());
+    }
+
+    addDocumentationColumns(row, field.getAnnotation());
+  }
+
   private void addFieldRefRow(Repository repository, FieldRefType fieldRef,
       MutableDetailProperties row) {
     final BigInteger tag = fieldRef.getId();
     final String scenario = fieldRef.getScenario();
-    final FieldType field = RepositoryAdaptor.findFieldByTag(repository, tag, scenario);
+    final FieldType field = repositoryAdaptor.findField(tag, scenario);
     if (field != null) {
       row.addProperty("name", field.getName());
     } else {
@@ -425,15 +757,15 @@ public class MarkdownGenerator {
       row.addProperty("scenario", scenario);
     }
     final PresenceT presence = fieldRef.getPresence();
-    final StringBuilder presenceString = new StringBuilder();
     final List<FieldRuleType> rules = fieldRef.getRule();
     if (rules.isEmpty()) {
-      presenceString.append(presence.toString().toLowerCase());
+      row.addProperty("presence", presence.value());
     } else {
+      final StringBuilder presenceString = new StringBuilder();
       for (final FieldRuleType rule : rules) {
         final PresenceT rulePresence = rule.getPresence();
         if (rulePresence != null) {
-          presenceString.append(rulePresence.toString().toLowerCase());
+          presenceString.append(rulePresence.value());
         }
         final String when = rule.getWhen();
         if (when != null) {
@@ -441,8 +773,8 @@ public class MarkdownGenerator {
               .append(MarkdownUtil.plainTextToMarkdownLiteral(when)).append(" ");
         }
       }
+      row.addProperty("presence", presenceString.toString());
     }
-    row.addProperty("presence", presenceString.toString());
     final String assign = fieldRef.getAssign();
     if (presence == PresenceT.CONSTANT) {
       final String value = fieldRef.getValue();
@@ -452,10 +784,9 @@ public class MarkdownGenerator {
     } else if (assign != null) {
       row.addProperty("values", ASSIGN_KEYWORD + " " + assign);
     } else if (shouldOutputInlineCodes && field != null) {
-      final CodeSetType codeset =
-          RepositoryAdaptor.findCodesetByName(repository, field.getType(), scenario);
-      if (codeset != null) {
-        row.addProperty("values", codesToString(codeset, getParagraphDelimiterInTables()));
+      final String inlineCodes = getInlineCodes(repository, field.getType(), scenario);
+      if (!inlineCodes.isEmpty()) {
+        row.addProperty("values", inlineCodes);
       }
     }
 
@@ -538,7 +869,7 @@ public class MarkdownGenerator {
       MutableDetailProperties row) {
     final BigInteger tag = groupRef.getId();
     final String scenario = groupRef.getScenario();
-    final GroupType group = RepositoryAdaptor.findGroupByTag(repository, tag, scenario);
+    final GroupType group = repositoryAdaptor.findGroup(tag, scenario);
     if (group != null) {
       row.addProperty("name", group.getName());
     } else {
@@ -549,7 +880,7 @@ public class MarkdownGenerator {
       row.addProperty("scenario", scenario);
     }
     final PresenceT presence = groupRef.getPresence();
-    row.addProperty("presence", presence.toString().toLowerCase());
+    row.addProperty("presence", presence.value());
 
     if (shouldOutputPedigree) {
       final String added = groupRef.getAdded();
@@ -648,7 +979,7 @@ public class MarkdownGenerator {
 
       final MutableDetailTable table = contextFactory.createDetailTable();
       addMemberRows(table, repository, members);
-      documentWriter.write(table, headings);
+      writeTable(documentWriter, table);
     }
 
     for (final Object state : elements) {
@@ -750,7 +1081,7 @@ public class MarkdownGenerator {
 
         addDocumentationColumns(row, category.getAnnotation());
       }
-      documentWriter.write(table, headings);
+      writeTable(documentWriter, table);
     }
   }
 
@@ -768,7 +1099,7 @@ public class MarkdownGenerator {
 
     final BigInteger id = codeset.getId();
     if (id != null) {
-      context.addKey(String.format("(%d)", id.intValue()));
+      context.addKey("(" + id.intValue() + ")");
     } else {
       eventLogger.warn("Unknown codeset id; name={0} scenario={1}", codeset.getName(), scenario);
     }
@@ -780,89 +1111,8 @@ public class MarkdownGenerator {
 
     final List<CodeType> codes = codeset.getCode();
     if (!codes.isEmpty()) {
-      final MutableDetailTable table = contextFactory.createDetailTable();
-
-      final List<CodeType> sortedCodes = sortCodes(codes);
-
-      for (final CodeType code : sortedCodes) {
-        final MutableDetailProperties row = table.newRow();
-        final String codeName = code.getName();
-        row.addProperty("name", codeName);
-        row.addProperty("value", code.getValue());
-        final BigInteger codeId = code.getId();
-        if (codeId != null) {
-          row.addProperty("id", codeId.toString());
-        } else {
-          eventLogger.warn("Unknown code id; name={0} scenario={1}", codeName, scenario);
-        }
-        final String group = code.getGroup();
-        if (group != null) {
-          row.addProperty("group", group);
-        }
-        final String sort = code.getSort();
-        if (sort != null) {
-          row.addProperty("sort", sort);
-        }
-
-        final String added = code.getAdded();
-        if (shouldOutputPedigree && added != null) {
-          row.addProperty("added", added);
-        }
-
-        final BigInteger addedEp = code.getAddedEP();
-        if (shouldOutputPedigree && addedEp != null) {
-          row.addIntProperty("addedep", addedEp.intValue());
-        }
-
-        final String issue = code.getIssue();
-        if (shouldOutputPedigree && issue != null) {
-          row.addProperty("issue", issue);
-        }
-
-        final String lastModified = code.getLastModified();
-        if (shouldOutputPedigree && lastModified != null) {
-          row.addProperty("lastModified", lastModified);
-        }
-
-        final String replaced = code.getReplaced();
-        if (shouldOutputPedigree && replaced != null) {
-          row.addProperty("replaced", replaced);
-        }
-
-        final BigInteger replacedByField = code.getReplacedByField();
-        if (shouldOutputPedigree && replacedByField != null) {
-          row.addIntProperty("replacedByField", replacedByField.intValue());
-        }
-
-        final BigInteger replacedEp = code.getReplacedEP();
-        if (shouldOutputPedigree && replacedEp != null) {
-          row.addIntProperty("replacedep", replacedEp.intValue());
-        }
-
-        final String updated = code.getUpdated();
-        if (shouldOutputPedigree && updated != null) {
-          row.addProperty("updated", updated);
-        }
-
-        final BigInteger updatedEp = code.getUpdatedEP();
-        if (shouldOutputPedigree && updatedEp != null) {
-          row.addIntProperty("updatedep", updatedEp.intValue());
-        }
-
-        final String deprecated = code.getDeprecated();
-        if (shouldOutputPedigree && deprecated != null) {
-          row.addProperty("deprecated", deprecated);
-        }
-
-        final BigInteger deprecatedEp = code.getDeprecatedEP();
-        if (shouldOutputPedigree && deprecatedEp != null) {
-          row.addIntProperty("deprecatedep", deprecatedEp.intValue());
-        }
-
-        addDocumentationColumns(row, code.getAnnotation());
-      }
-
-      documentWriter.write(table, headings);
+      final List<CodeType> sortedCodes = getSortedCodes(codeset);
+      writeTable(documentWriter, sortedCodes, (code, row) -> addCodeRow(code, scenario, row));
     } else {
       eventLogger.warn("Codeset has no codes; name={0} scenario={1}", codeset.getName(), scenario);
     }
@@ -879,7 +1129,8 @@ public class MarkdownGenerator {
         generateNoneComment(documentWriter);
       }
       for (final CodeSetType codeset : codesets) {
-        generateCodeset(documentWriter, codeset);
+        writeFragment(documentWriter, fragmentHasher != null ? fragmentHasher.hash(codeset) : null,
+            w -> generateCodeset(w, codeset));
       }
     } else {
       generateNoneComment(documentWriter);
@@ -907,7 +1158,7 @@ public class MarkdownGenerator {
       context.addPair("category", category);
     }
 
-    context.addKey(String.format("(%d)", component.getId().intValue()));
+    context.addKey("(" + component.getId().intValue() + ")");
     documentWriter.write(context);
 
     final Annotation annotation = component.getAnnotation();
@@ -918,7 +1169,7 @@ public class MarkdownGenerator {
     if (!members.isEmpty()) {
       final MutableDetailTable table = contextFactory.createDetailTable();
       addMemberRows(table, repository, members);
-      documentWriter.write(table, headings);
+      writeTable(documentWriter, table);
     } else {
       eventLogger.warn("Component has no members; name={0} scenario={1}", name, scenario);
     }
@@ -936,7 +1187,9 @@ public class MarkdownGenerator {
         generateNoneComment(documentWriter);
       }
       for (final ComponentType component : components) {
-        generateComponent(repository, documentWriter, component);
+        writeFragment(documentWriter,
+            fragmentHasher != null ? fragmentHasher.hash(component) : null,
+            w -> generateComponent(repository, w, component));
       }
     } else {
       generateNoneComment(documentWriter);
@@ -996,7 +1249,7 @@ public class MarkdownGenerator {
             addDocumentationColumns(row, mapping.getAnnotation());
           }
         }
-        documentWriter.write(table, headings);
+        writeTable(documentWriter, table);
       } else {
         logger.warn("No datatypes found");
       }
@@ -1011,7 +1264,8 @@ public class MarkdownGenerator {
       for (final Entry<String, List<Documentation>> e : entries) {
         final boolean hasMarkdown = e.getValue().stream()
             .anyMatch(d -> MarkdownUtil.MARKDOWN_MEDIA_TYPE.equals(d.getContentType()));
-        final String text = concatenateDocumentation(e.getValue(), hasMarkdown ? "\n\n" : "\n");
+        final String text =
+            documentationNormalizer.concatenate(e.getValue(), hasMarkdown ? "\n\n" : "\n");
         if (!text.isBlank()) {
           final String key = e.getKey();
           if (key != null && !key.isEmpty()) {
@@ -1032,139 +1286,12 @@ public class MarkdownGenerator {
     documentWriter.write(context);
     final Fields fieldParent = repository.getFields();
     if (fieldParent != null && !fieldParent.getField().isEmpty()) {
-      final MutableDetailTable table = contextFactory.createDetailTable();
-
       final List<FieldType> fields = fieldParent.getField().stream()
           .sorted(Comparator.comparing(FieldType::getId)).collect(Collectors.toList());
 
-      for (final FieldType field : fields) {
-        final MutableDetailProperties row = table.newRow();
-        row.addProperty("tag", field.getId().toString());
-        row.addProperty("name", field.getName());
-        final String scenario = field.getScenario();
-        if (!scenario.equals(DEFAULT_SCENARIO)) {
-          row.addProperty("scenario", scenario);
-        }
-        row.addProperty("type", field.getType());
-
-        if (shouldOutputInlineCodes) {
-          final CodeSetType codeset =
-              RepositoryAdaptor.findCodesetByName(repository, field.getType(), scenario);
-          if (codeset != null) {
-            row.addProperty("values", codesToString(codeset, getParagraphDelimiterInTables()));
-          }
-        }
-
-        final Short implMinLength = field.getImplMinLength();
-        if (implMinLength != null) {
-          row.addIntProperty("implMinLength", implMinLength);
-        }
-
-        final Short implMaxLength = field.getImplMaxLength();
-        if (implMaxLength != null) {
-          row.addIntProperty("implMaxLength", implMaxLength);
-        }
-
-        final Short implLength = field.getImplLength();
-        if (implLength != null) {
-          row.addIntProperty("implLength", implLength);
-        }
-
-        final String minInclusive = field.getMinInclusive();
-        if (minInclusive != null) {
-          row.addProperty("minInclusive", minInclusive);
-        }
-
-        final String maxInclusive = field.getMaxInclusive();
-        if (maxInclusive != null) {
-          row.addProperty("maxInclusive", maxInclusive);
-        }
-
-        final BigInteger dicriminatorId = field.getDiscriminatorId();
-        if (dicriminatorId != null) {
-          row.addIntProperty("discriminatorId", dicriminatorId.intValue());
-        }
-
-        final UnionDataTypeT unionDataType = field.getUnionDataType();
-        if (unionDataType != null) {
-          row.addProperty("unionDataType", unionDataType.value());
-        }
-
-        if (shouldOutputFixml) {
-          final String abbrName = field.getAbbrName();
-          if (abbrName != null) {
-            row.addProperty("abbrName", abbrName);
-          }
-          final String baseCategoryAbbrName = field.getBaseCategoryAbbrName();
-          if (baseCategoryAbbrName != null) {
-            row.addProperty("baseCategoryAbbrName", baseCategoryAbbrName);
-          }
-
-          final String baseCategory = field.getBaseCategory();
-          if (baseCategory != null) {
-            row.addProperty("baseCategory", baseCategory);
-          }
-        }
-
-        final String added = field.getAdded();
-        if (shouldOutputPedigree && added != null) {
-          row.addProperty("added", added);
-        }
-
-        final BigInteger addedEp = field.getAddedEP();
-        if (shouldOutputPedigree && addedEp != null) {
-          row.addIntProperty("addedep", addedEp.intValue());
-        }
-
-        final String issue = field.getIssue();
-        if (shouldOutputPedigree && issue != null) {
-          row.addProperty("issue", issue);
-        }
-
-        final String lastModified = field.getLastModified();
-        if (shouldOutputPedigree && lastModified != null) {
-          row.addProperty("lastModified", lastModified);
-        }
-
-        final String replaced = field.getReplaced();
-        if (shouldOutputPedigree && replaced != null) {
-          row.addProperty("replaced", replaced);
-        }
-
-        final BigInteger replacedByField = field.getReplacedByField();
-        if (shouldOutputPedigree && replacedByField != null) {
-          row.addIntProperty("replacedByField", replacedByField.intValue());
-        }
-
-        final BigInteger replacedEp = field.getReplacedEP();
-        if (shouldOutputPedigree && replacedEp != null) {
-          row.addIntProperty("replacedep", replacedEp.intValue());
-        }
-
-        final String updated = field.getUpdated();
-        if (shouldOutputPedigree && updated != null) {
-          row.addProperty("updated", updated);
-        }
-
-        final BigInteger updatedEp = field.getUpdatedEP();
-        if (shouldOutputPedigree && updatedEp != null) {
-          row.addIntProperty("updatedep", updatedEp.intValue());
-        }
-
-        final String deprecated = field.getDeprecated();
-        if (shouldOutputPedigree && deprecated != null) {
-          row.addProperty("deprecated", deprecated);
-        }
-
-        final BigInteger deprecatedEp = field.getDeprecatedEP();
-        if (shouldOutputPedigree && deprecatedEp != null) {
-          row.addIntProperty("deprecatedep", deprecatedEp.intValue());
-        }
-
-        addDocumentationColumns(row, field.getAnnotation());
-      }
-
-      documentWriter.write(table, headings);
+      writeFragment(documentWriter,
+          fragmentHasher != null ? fragmentHasher.hashFields(fields) : null,
+          w -> writeTable(w, fields, (field, row) -> addFieldRow(repository, field, row)));
     } else {
       generateNoneComment(documentWriter);
     }
@@ -1185,7 +1312,7 @@ public class MarkdownGenerator {
     final MutableDetailProperties row = table.newRow();
     row.addProperty("source", flow.getSource());
     row.addProperty("destination", flow.getDestination());
-    documentWriter.write(table, headings);
+    writeTable(documentWriter, table);
   }
 
   private void generateGroup(Repository repository, DocumentWriter documentWriter,
@@ -1210,7 +1337,7 @@ public class MarkdownGenerator {
       context.addPair("category", category);
     }
 
-    context.addKey(String.format("(%d)", group.getId().intValue()));
+    context.addKey("(" + group.getId().intValue() + ")");
     documentWriter.write(context);
 
     final Annotation annotation = group.getAnnotation();
@@ -1237,7 +1364,7 @@ public class MarkdownGenerator {
     }
 
     if (table != null) {
-      documentWriter.write(table, headings);
+      writeTable(documentWriter, table);
     }
   }
 
@@ -1253,7 +1380,8 @@ public class MarkdownGenerator {
         generateNoneComment(documentWriter);
       }
       for (final GroupType group : groups) {
-        generateGroup(repository, documentWriter, group);
+        writeFragment(documentWriter, fragmentHasher != null ? fragmentHasher.hash(group) : null,
+            w -> generateGroup(repository, w, group));
       }
     } else {
       generateNoneComment(documentWriter);
@@ -1292,7 +1420,7 @@ public class MarkdownGenerator {
           }
         }
       }
-      documentWriter.write(table, headings);
+      writeTable(documentWriter, table);
     }
   }
 
@@ -1308,8 +1436,11 @@ public class MarkdownGenerator {
         generateNoneComment(documentWriter);
       }
       for (final MessageType message : messages) {
-        generateMessageStructure(repository, documentWriter, message);
-        generateMessageResponses(documentWriter, message);
+        writeFragment(documentWriter, fragmentHasher != null ? fragmentHasher.hash(message) : null,
+            w -> {
+              generateMessageStructure(repository, w, message);
+              generateMessageResponses(w, message);
+            });
       }
     } else {
       generateNoneComment(documentWriter);
@@ -1345,7 +1476,7 @@ public class MarkdownGenerator {
       context.addPair("category", category);
     }
 
-    context.addKey(String.format("(%d)", message.getId().intValue()));
+    context.addKey("(" + message.getId().intValue() + ")");
 
     documentWriter.write(context);
 
@@ -1358,7 +1489,7 @@ public class MarkdownGenerator {
       if (!members.isEmpty()) {
         final MutableDetailTable table = contextFactory.createDetailTable();
         addMemberRows(table, repository, members);
-        documentWriter.write(table, headings);
+        writeTable(documentWriter, table);
       } else {
         eventLogger.warn("Message structure has no members; name={0} scenario={1}", name, scenario);
       }
@@ -1393,14 +1524,14 @@ public class MarkdownGenerator {
         row.addProperty("term", name);
         row.addProperty("value", value);
       }
-      documentWriter.write(table, headings);
+      writeTable(documentWriter, table);
     }
   }
 
   private String decorateName(String name) {
     if (name == null || name.isBlank()) {
       name = "New";
-    } else if (name.matches(".*\\s.*")) {
+    } else if (hasInternalWhitespace(name)) {
       // if name contains internal whitespace, surround it with quotes
       name = "\""+name+"\"";
     }
@@ -1475,7 +1606,7 @@ public class MarkdownGenerator {
 
         addDocumentationColumns(row, category.getAnnotation());
       }
-      documentWriter.write(table, headings);
+      writeTable(documentWriter, table);
     }
   }
 
@@ -1497,7 +1628,7 @@ public class MarkdownGenerator {
     for (final StateType state : states) {
       generationTransitions(table, state);
     }
-    documentWriter.write(table, headings);
+    writeTable(documentWriter, table);
   }
 
   private void generationTransitions(final MutableDetailTable table, StateType state) {
@@ -1512,8 +1643,141 @@ public class MarkdownGenerator {
     }
   }
 
+  /**
+   * Returns codes of a codeset formatted for a table cell, memoized per generation since the same
+   * codeset is typically referenced by many fields
+   *
+   * @return formatted codes or an empty string if the type is not a codeset
+   */
+  private String getInlineCodes(Repository repository, String typeName, String scenario) {
+    return inlineCodesCache.computeIfAbsent(scenario, s -> new HashMap<>())
+        .computeIfAbsent(typeName, t -> {
+          final CodeSetType codeset = repositoryAdaptor.findCodeset(t, scenario);
+          if (codeset != null) {
+            return codesToString(getSortedCodes(codeset), getParagraphDelimiterInTables());
+          } else {
+            return "";
+          }
+        });
+  }
+
+  /**
+   * Same result as {@code name.matches(".*\\s.*")} without compiling a pattern for names that
+   * contain no line terminator
+   */
+  private static boolean hasInternalWhitespace(String name) {
+    boolean hasWhitespace = false;
+    for (int i = 0; i < name.length(); i++) {
+      switch (name.charAt(i)) {
+        case ' ':
+        case '\t':
+        case '\u000B':
+        case '\f':
+          hasWhitespace = true;
+          break;
+        case '\n':
+        case '\r':
+        case '\u0085':
+        case '\u2028':
+        case '\u2029':
+          // not matched by '.'
+          return WHITESPACE_PATTERN.matcher(name).matches();
+        default:
+          break;
+      }
+    }
+    return hasWhitespace;
+  }
+
   private String getParagraphDelimiterInTables() {
     return paragraphDelimiterInTables;
   }
 
+  private List<CodeType> getSortedCodes(CodeSetType codeset) {
+    return sortedCodesCache.computeIfAbsent(codeset, c -> sortCodes(c.getCode()));
+  }
+
+  /**
+   * Writes a fragment from the cache if its hash is unchanged, or else renders and caches it
+   *
+   * The events raised while rendering are cached with the fragment and reported again when it is
+   * reused.
+   *
+   * @param documentWriter markdown output
+   * @param hash Merkle hash of the rendered element, or {@code null} if there is no cache
+   * @param renderer renders the element to a document writer
+   */
+  private void writeFragment(DocumentWriter documentWriter, String hash, FragmentRenderer renderer)
+      throws IOException {
+    if (hash == null) {
+      renderer.render(documentWriter);
+      return;
+    }
+    FragmentCache.Fragment fragment = fragmentCache.get(hash);
+    if (fragment == null) {
+      final StringWriter fragmentWriter = new StringWriter();
+      final List<Event> events = new ArrayList<>();
+      final CompactTableWriter compactTableWriter = this.compactTableWriter;
+      final EventListener eventLogger = this.eventLogger;
+      try {
+        this.compactTableWriter =
+            compactTableWriter != null ? new CompactTableWriter(fragmentWriter, headings) : null;
+        this.eventLogger = new EventListener() {
+          @Override
+          public void close() {
+            // the events are kept
+          }
+
+          @Override
+          public void event(Event event) {
+            events.add(event);
+            eventLogger.event(event);
+          }
+        };
+        renderer.render(new DocumentWriter(fragmentWriter));
+      } finally {
+        this.compactTableWriter = compactTableWriter;
+        this.eventLogger = eventLogger;
+      }
+      fragment = new FragmentCache.Fragment(fragmentWriter.toString(), events);
+      fragmentCache.put(hash, fragment);
+    } else {
+      for (final Event event : fragment.getEvents()) {
+        eventLogger.event(event);
+      }
+    }
+    outputWriter.write(fragment.getMarkdown());
+  }
+
+  private <T> void writeTable(DocumentWriter documentWriter, List<T> elements,
+      BiConsumer<T, MutableDetailProperties> rowBuilder) throws IOException {
+    if (compactTableWriter != null) {
+      // Rows are built twice, first to find the columns, then to stream them. Events are only
+      // reported on the second pass.
+      final EventListener eventLogger = this.eventLogger;
+      final List<String> columns;
+      try {
+        this.eventLogger = new TeeEventListener();
+        columns = compactTableWriter.collectColumns(elements, rowBuilder);
+      } finally {
+        this.eventLogger = eventLogger;
+      }
+      compactTableWriter.write(columns, elements, rowBuilder);
+    } else {
+      final MutableDetailTable table = contextFactory.createDetailTable();
+      for (final T element : elements) {
+        rowBuilder.accept(element, table.newRow());
+      }
+      documentWriter.write(table, headings);
+    }
+  }
+
+  private void writeTable(DocumentWriter documentWriter, MutableDetailTable table)
+      throws IOException {
+    if (compactTableWriter != null) {
+      compactTableWriter.write(table);
+    } else {
+      documentWriter.write(table, headings);
+    }
+  }
 }
@@ -15,12 +15,12 @@
 package io.fixprotocol.orchestra2md;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.Objects;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.DefaultParser;
@@ -30,23 +30,52 @@ import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import io.fixprotocol.orchestra2md.util.FileStreams;
+import io.fixprotocol.orchestra2md.util.ReplacingOutputStream;
 
 public class Orchestra2md {
 
   public static class Builder {
     public String eventFile;
     public String paragraphDelimiter = MarkdownGenerator.DEFAULT_PARAGRAPH_DELIMITER;
+    private int bufferSize = FileStreams.DEFAULT_BUFFER_SIZE;
+    private String fragmentFile;
     private String inputFile;
     private String outputFile;
     private boolean shouldOutputDatatypes;
     private boolean shouldOutputFixml;
     private boolean shouldOutputInlineCodes;
     private boolean shouldOutputPedigree;
+    private boolean shouldReportStats;
+    private boolean shouldWriteCompactTables;
 
     public Orchestra2md build() {
       return new Orchestra2md(this);
     }
 
+    /**
+     * Size of buffers for file input and output
+     *
+     * @param bufferSize buffer size in bytes
+     * @return this Builder
+     */
+    public Builder bufferSize(int bufferSize) {
+      this.bufferSize = bufferSize;
+      return this;
+    }
+
+    /**
+     * Write tables without column alignment. Rows of large tables are streamed to output rather
+     * than held in memory.
+     *
+     * @param shouldWriteCompactTables {@code true} to write compact tables
+     * @return this Builder
+     */
+    public Builder compactTables(boolean shouldWriteCompactTables) {
+      this.shouldWriteCompactTables = shouldWriteCompactTables;
+      return this;
+    }
+
     public Builder datatypes(boolean shouldOutputDatatypes) {
       this.shouldOutputDatatypes = shouldOutputDatatypes;
       return this;
@@ -62,6 +91,19 @@ public class Orchestra2md {
       return this;
     }
 
+    /**
+     * Sidecar file of fragments rendered by an earlier run. Messages, groups, components, codesets
+     * and the fields table are rendered again only if they, or the elements they reference,
+     * changed; the rest are copied from the file, which is then rewritten.
+     *
+     * @param fragmentFile path of fragment file, or {@code null} to render all elements
+     * @return this Builder
+     */
+    public Builder fragmentFile(String fragmentFile) {
+      this.fragmentFile = fragmentFile;
+      return this;
+    }
+
     public Builder inlineCodes(boolean shouldOutputInlineCodes) {
       this.shouldOutputInlineCodes = shouldOutputInlineCodes;
       return this;
@@ -92,6 +134,18 @@ public class Orchestra2md {
       this.shouldOutputPedigree = shouldOutputPedigree;
       return this;
     }
+
+    /**
+     * Log statistics of a run, including the estimated heap retained by the model of the input
+     * repository by element kind
+     *
+     * @param shouldReportStats {@code true} to log statistics. Default is {@code false}.
+     * @return this Builder
+     */
+    public Builder stats(boolean shouldReportStats) {
+      this.shouldReportStats = shouldReportStats;
+      return this;
+    }
   }
 
 
@@ -104,14 +158,19 @@ public class Orchestra2md {
    *
    * <pre>
   usage: Orchestra2md [options] &lt;input-file&gt;
- -?,--help              display usage
- -a,--all               output all elements
-    --datatypes         output datatypes
- -e,--eventlog &lt;arg&gt;    path of JSON event file
-    --fixml             output fixml attributes
- -o,--output &lt;arg&gt;      path of markdown output file (required)
-    --paragraph &lt;arg&gt;   paragraph delimiter for tables
-    --pedigree          output pedigree attributes
+ -?,--help               display usage
+ -a,--all                output all elements
+    --buffersize &lt;arg&gt;   I/O buffer size in bytes
+    --compact            write tables without column alignment
+    --datatypes          output datatypes
+ -e,--eventlog &lt;arg&gt;     path of JSON event file
+    --fixml              output fixml attributes
+    --fragments &lt;arg&gt;    path of fragment file for incremental output
+ -o,--output &lt;arg&gt;       path of markdown output file (required)
+    --paragraph &lt;arg&gt;    paragraph delimiter for tables
+    --pedigree           output pedigree attributes
+    --stats              log statistics, including estimated heap by
+                         element kind
    * </pre>
    *
    * @param args command line arguments
@@ -139,9 +198,18 @@ public class Orchestra2md {
     options
         .addOption(Option.builder().desc("output pedigree attributes").longOpt("pedigree").build());
     options.addOption(Option.builder().desc("output fixml attributes").longOpt("fixml").build());
+    options.addOption(Option.builder().desc("path of fragment file for incremental output")
+        .longOpt("fragments").numberOfArgs(1).build());
     options.addOption(Option.builder().desc("output datatypes").longOpt("datatypes").build());
     options.addOption(Option.builder("a").desc("output all elements").longOpt("all").build());
- 
+    options.addOption(Option.builder().desc("write tables without column alignment")
+        .longOpt("compact").build());
+    options.addOption(Option.builder().desc("I/O buffer size in bytes").longOpt("buffersize")
+        .numberOfArgs(1).type(Number.class).build());
+    options.addOption(Option.builder()
+        .desc("log statistics, including estimated heap by element kind").longOpt("stats")
+        .build());
+
     final DefaultParser parser = new DefaultParser();
     CommandLine cmd;
 
@@ -174,6 +242,22 @@ public class Orchestra2md {
         builder.datatypes(true);
       }
 
+      if (cmd.hasOption("fragments")) {
+        builder.fragmentFile(cmd.getOptionValue("fragments"));
+      }
+
+      if (cmd.hasOption("compact")) {
+        builder.compactTables(true);
+      }
+
+      if (cmd.hasOption("buffersize")) {
+        builder.bufferSize(((Number) cmd.getParsedOptionValue("buffersize")).intValue());
+      }
+
+      if (cmd.hasOption("stats")) {
+        builder.stats(true);
+      }
+
       return builder;
     } catch (final ParseException e) {
       showHelp(options);
@@ -186,37 +270,63 @@ public class Orchestra2md {
     formatter.printHelp("Orchestra2md [options] <input-file>", options);
   }
 
+  private final int bufferSize;
   private final String eventFilename;
+  private final String fragmentFilename;
   private final String inputFilename;
   private final Logger logger = LogManager.getLogger(getClass());
   private final String outputFilename;
+  private ReplacingOutputStream.Outcome outputOutcome;
   private final String paragraphDelimiter;
   private final boolean shouldOutputDatatypes;
   private final boolean shouldOutputFixml;
   private final boolean shouldOutputInlineCodes;
   private final boolean shouldOutputPedigree;
+  private final boolean shouldReportStats;
+  private final boolean shouldWriteCompactTables;
 
   private Orchestra2md(Builder builder) {
     this.inputFilename = builder.inputFile;
     this.outputFilename = builder.outputFile;
     this.eventFilename = builder.eventFile;
+    this.fragmentFilename = builder.fragmentFile;
     this.paragraphDelimiter = builder.paragraphDelimiter;
     this.shouldOutputPedigree = builder.shouldOutputPedigree;
     this.shouldOutputFixml = builder.shouldOutputFixml;
     this.shouldOutputInlineCodes = builder.shouldOutputInlineCodes;
     this.shouldOutputDatatypes = builder.shouldOutputDatatypes;
+    this.shouldWriteCompactTables = builder.shouldWriteCompactTables;
+    this.bufferSize = builder.bufferSize;
+    this.shouldReportStats = builder.shouldReportStats;
   }
 
   public void generate() {
     try {
-      generate(inputFilename, outputFilename, eventFilename, paragraphDelimiter,
-          shouldOutputPedigree, shouldOutputFixml, shouldOutputInlineCodes);
-      logger.info("Orchestra2md complete");
+      generateOrThrow();
     } catch (final Exception e) {
       logger.fatal("Orchestra2md failed", e);
     }
   }
 
+  /**
+   * @return effect of the last generation on the output file, or {@code null} if none completed.
+   *         The file is only replaced if its content changed.
+   */
+  public ReplacingOutputStream.Outcome getOutputOutcome() {
+    return outputOutcome;
+  }
+
+  /**
+   * Generate markdown, throwing a failure to the caller rather than only logging it
+   *
+   * @throws Exception if the input cannot be read or parsed, or the output cannot be written
+   */
+  public void generateOrThrow() throws Exception {
+    generate(inputFilename, outputFilename, eventFilename, paragraphDelimiter,
+        shouldOutputPedigree, shouldOutputFixml, shouldOutputInlineCodes);
+    logger.info("Orchestra2md complete");
+  }
+
   void generate(String inputFilename, String outputFilename, String eventFilename,
       String paragraphDelimiter, boolean shouldOutputPedigree, boolean shouldOutputFixml,
       boolean shouldOutputInlineCodes) throws Exception {
@@ -226,30 +336,53 @@ public class Orchestra2md {
     if (version != null) {
       logger.info("{} version {}", getClass().getCanonicalName(), version);
     }
-    final File outputFile = new File(outputFilename);
-    final File outputDir = outputFile.getParentFile();
-    if (outputDir != null) {
-      outputDir.mkdirs();
-    }
-
-    try (InputStream inputStream = new FileInputStream(inputFilename);
-        OutputStreamWriter outputWriter =
-            new OutputStreamWriter(new FileOutputStream(outputFilename), StandardCharsets.UTF_8)) {
+    outputOutcome = null;
+    final ReplacingOutputStream outputStream =
+        FileStreams.newReplacingOutputStream(Path.of(outputFilename), bufferSize);
+    try {
+      try (InputStream inputStream = FileStreams.newInputStream(Path.of(inputFilename), bufferSize);
+          OutputStreamWriter outputWriter =
+              new OutputStreamWriter(outputStream, StandardCharsets.UTF_8)) {
+
+        OutputStream eventStream = null;
+        if (eventFilename != null) {
+          final File eventFile = new File(eventFilename);
+          final File eventDir = eventFile.getParentFile();
+          if (eventDir != null) {
+            eventDir.mkdirs();
+          }
+          eventStream = new FileOutputStream(eventFile);
+        }
 
-      OutputStream eventStream = null;
-      if (eventFilename != null) {
-        final File eventFile = new File(eventFilename);
-        final File eventDir = eventFile.getParentFile();
-        if (eventDir != null) {
-          eventDir.mkdirs();
+        final MarkdownGenerator generator =
+            new MarkdownGenerator(paragraphDelimiter, shouldOutputPedigree, shouldOutputFixml,
+                shouldOutputInlineCodes, shouldOutputDatatypes, shouldWriteCompactTables);
+        FragmentCache fragmentCache = null;
+        if (fragmentFilename != null) {
+          fragmentCache = FragmentCache.load(Path.of(fragmentFilename),
+              FragmentCache.digest(paragraphDelimiter, Boolean.toString(shouldOutputPedigree),
+                  Boolean.toString(shouldOutputFixml), Boolean.toString(shouldOutputInlineCodes),
+                  Boolean.toString(shouldWriteCompactTables)));
+          generator.setFragmentCache(fragmentCache);
+        }
+        generator.generate(inputStream, outputWriter, eventStream);
+        if (fragmentCache != null) {
+          fragmentCache.save();
+          logger.info("Orchestra2md reused {} fragments and rendered {}", fragmentCache.getHits(),
+              fragmentCache.getMisses());
+        }
+        if (shouldReportStats) {
+          logger.info("Orchestra2md model estimated heap{}{}", System.lineSeparator(),
+              generator.footprint());
         }
-        eventStream = new FileOutputStream(eventFile);
       }
-
-      final MarkdownGenerator generator = new MarkdownGenerator(paragraphDelimiter,
-          shouldOutputPedigree, shouldOutputFixml, shouldOutputInlineCodes, shouldOutputDatatypes);
-      generator.generate(inputStream, outputWriter, eventStream);
+      outputOutcome = outputStream.commit();
+    } finally {
+      // a failed run leaves the previous output as it was
+      outputStream.discard();
     }
+    logger.info("Orchestra2md output {}; file={}", outputOutcome.name().toLowerCase(),
+        outputFilename);
   }
 
 }
@@ -1,13 +1,28 @@
 package io.fixprotocol.orchestra2md;
 
 import java.math.BigInteger;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 import io.fixprotocol._2020.orchestra.repository.CodeSetType;
+import io.fixprotocol._2020.orchestra.repository.CodeSets;
 import io.fixprotocol._2020.orchestra.repository.ComponentType;
+import io.fixprotocol._2020.orchestra.repository.Components;
 import io.fixprotocol._2020.orchestra.repository.FieldType;
+import io.fixprotocol._2020.orchestra.repository.Fields;
 import io.fixprotocol._2020.orchestra.repository.GroupType;
+import io.fixprotocol._2020.orchestra.repository.Groups;
 import io.fixprotocol._2020.orchestra.repository.Repository;
 
+/**
+ * Finds repository elements by key and scenario
+ *
+ * Static methods scan element lists. An instance indexes each kind of element on first use, so
+ * lookups while generating a large repository take constant time. As with a scan, the first of
+ * duplicate elements is found.
+ */
 final class RepositoryAdaptor {
 
   static CodeSetType findCodesetByName(Repository repository, String name, String scenario) {
@@ -50,4 +65,68 @@ final class RepositoryAdaptor {
     return null;
   }
 
+  private static <K, T> Map<String, Map<K, T>> index(List<T> elements, Function<T, K> key,
+      Function<T, String> scenario) {
+    final Map<String, Map<K, T>> index = new HashMap<>();
+    for (final T element : elements) {
+      index.computeIfAbsent(scenario.apply(element), s -> new HashMap<>())
+          .putIfAbsent(key.apply(element), element);
+    }
+    return index;
+  }
+
+  private static <K, T> T lookup(Map<String, Map<K, T>> index, K key, String scenario) {
+    final Map<K, T> elements = index.get(scenario);
+    return elements != null ? elements.get(key) : null;
+  }
+
+  private Map<String, Map<String, CodeSetType>> codesets;
+  private Map<String, Map<BigInteger, ComponentType>> components;
+  private Map<String, Map<BigInteger, FieldType>> fields;
+  private Map<String, Map<BigInteger, GroupType>> groups;
+  private final Repository repository;
+
+  RepositoryAdaptor(Repository repository) {
+    this.repository = repository;
+  }
+
+  CodeSetType findCodeset(String name, String scenario) {
+    if (codesets == null) {
+      final CodeSets parent = repository.getCodeSets();
+      codesets = index(parent != null ? parent.getCodeSet() : Collections.emptyList(),
+          CodeSetType::getName, CodeSetType::getScenario);
+    }
+    return lookup(codesets, name, scenario);
+  }
+
+  ComponentType findComponent(BigInteger tag, String scenario) {
+    if (components == null) {
+      final Components parent = repository.getComponents();
+      components = index(parent != null ? parent.getComponent() : Collections.emptyList(),
+          ComponentType::getId, ComponentType::getScenario);
+    }
+    return lookup(components, tag, scenario);
+  }
+
+  FieldType findField(BigInteger tag, String scenario) {
+    if (fields == null) {
+      final Fields parent = repository.getFields();
+      fields = index(parent != null ? parent.getField() : Collections.emptyList(),
+          FieldType::getId, FieldType::getScenario);
+    }
+    return lookup(fields, tag, scenario);
+  }
+
+  GroupType findGroup(BigInteger tag, String scenario) {
+    if (groups == null) {
+      final Groups parent = repository.getGroups();
+      groups = index(parent != null ? parent.getGroup() : Collections.emptyList(),
+          GroupType::getId, GroupType::getScenario);
+    }
+    return lookup(groups, tag, scenario);
+  }
+
+  Repository getRepository() {
+    return repository;
+  }
 }
@@ -9,10 +9,30 @@ import io.fixprotocol.orchestra.event.EventListener;
 
 final class XmlParser {
 
+  // thread safe and costly to create, so shared by all instances
+  private static volatile JAXBContext jaxbContext;
+
+  /**
+   * @return a JAXBContext for Orchestra repositories, created on first use
+   * @throws JAXBException if the context cannot be created
+   */
+  static JAXBContext getJaxbContext() throws JAXBException {
+    JAXBContext context = jaxbContext;
+    if (context == null) {
+      synchronized (XmlParser.class) {
+        context = jaxbContext;
+        if (context == null) {
+          context = JAXBContext.newInstance(Repository.class);
+          jaxbContext = context;
+        }
+      }
+    }
+    return context;
+  }
+
   public static Repository unmarshal(InputStream is, EventListener eventLogger)
       throws JAXBException {
-    final JAXBContext jaxbContext = JAXBContext.newInstance(Repository.class);
-    final Unmarshaller jaxbUnmarshaller = jaxbContext.createUnmarshaller();
+    final Unmarshaller jaxbUnmarshaller = getJaxbContext().createUnmarshaller();
     jaxbUnmarshaller.setEventHandler(event -> {
       switch (event.getSeverity()) {
         case 0: // warning
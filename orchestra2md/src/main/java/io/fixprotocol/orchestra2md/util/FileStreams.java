@@ -0,0 +1,111 @@
+package io.fixprotocol.orchestra2md.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Opens buffered file streams backed by a {@link FileChannel}
+ *
+ * A file with suffix {@value #GZIP_SUFFIX} is transparently decompressed when read and compressed
+ * when written.
+ */
+public final class FileStreams {
+
+  public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+  public static final String GZIP_SUFFIX = ".gz";
+
+  /**
+   * @param path a file path
+   * @return {@code true} if the file name has suffix {@value #GZIP_SUFFIX}
+   */
+  public static boolean isCompressed(Path path) {
+    final Path fileName = path.getFileName();
+    return fileName != null && fileName.toString().endsWith(GZIP_SUFFIX);
+  }
+
+  /**
+   * Opens a file to read
+   *
+   * @param path file to read
+   * @param bufferSize size of read buffer in bytes
+   * @return a buffered stream, decompressed if the file is compressed
+   * @throws IOException if the file cannot be opened
+   * @throws IllegalArgumentException if {@code bufferSize} is not positive
+   */
+  public static InputStream newInputStream(Path path, int bufferSize) throws IOException {
+    requirePositive(bufferSize);
+    InputStream in = Channels.newInputStream(FileChannel.open(path, StandardOpenOption.READ));
+    if (isCompressed(path)) {
+      try {
+        in = new GZIPInputStream(in, bufferSize);
+      } catch (final IOException e) {
+        in.close();
+        throw e;
+      }
+    }
+    return new BufferedInputStream(in, bufferSize);
+  }
+
+  /**
+   * Opens a file to write, creating parent directories if needed. An existing file is truncated.
+   *
+   * @param path file to write
+   * @param bufferSize size of write buffer in bytes
+   * @return a buffered stream, compressed if the file name has suffix {@value #GZIP_SUFFIX}
+   * @throws IOException if the file cannot be opened
+   * @throws IllegalArgumentException if {@code bufferSize} is not positive
+   */
+  public static OutputStream newOutputStream(Path path, int bufferSize) throws IOException {
+    requirePositive(bufferSize);
+    final Path parent = path.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    OutputStream out = Channels.newOutputStream(FileChannel.open(path, StandardOpenOption.WRITE,
+        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING));
+    if (isCompressed(path)) {
+      try {
+        out = new GZIPOutputStream(out, bufferSize);
+      } catch (final IOException e) {
+        out.close();
+        throw e;
+      }
+    }
+    return new BufferedOutputStream(out, bufferSize);
+  }
+
+  /**
+   * Opens a file to write that is replaced only if its content changes, creating parent
+   * directories if needed. The file is not touched until the stream is committed.
+   *
+   * @param path file to write
+   * @param bufferSize size of write buffer in bytes
+   * @return a buffered stream, compressed if the file name has suffix {@value #GZIP_SUFFIX}
+   * @throws IOException if a temporary file cannot be created
+   * @throws IllegalArgumentException if {@code bufferSize} is not positive
+   * @see ReplacingOutputStream
+   */
+  public static ReplacingOutputStream newReplacingOutputStream(Path path, int bufferSize)
+      throws IOException {
+    requirePositive(bufferSize);
+    return new ReplacingOutputStream(path, bufferSize);
+  }
+
+  private static void requirePositive(int bufferSize) {
+    if (bufferSize <= 0) {
+      throw new IllegalArgumentException("Buffer size must be positive");
+    }
+  }
+
+  private FileStreams() {}
+}
@@ -0,0 +1,316 @@
+package io.fixprotocol.orchestra2md.util;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import io.fixprotocol._2020.orchestra.repository.ActorType;
+import io.fixprotocol._2020.orchestra.repository.CodeSetType;
+import io.fixprotocol._2020.orchestra.repository.ComponentType;
+import io.fixprotocol._2020.orchestra.repository.Datatype;
+import io.fixprotocol._2020.orchestra.repository.Documentation;
+import io.fixprotocol._2020.orchestra.repository.FieldType;
+import io.fixprotocol._2020.orchestra.repository.FlowType;
+import io.fixprotocol._2020.orchestra.repository.GroupType;
+import io.fixprotocol._2020.orchestra.repository.MessageType;
+
+/**
+ * Estimates the heap retained by object graphs, by kind of object
+ *
+ * The estimate is made in process by walking the graph with reflection, so no agent is needed.
+ * Sizes follow the layout of a 64-bit HotSpot JVM with compressed references, the default for
+ * heaps under 32 GB: a 12 byte object header, 16 byte array header, 4 byte references and 8 byte
+ * alignment. Padding between fields is ignored. Each object is counted once, so objects shared
+ * by several roots are attributed to the first root added.
+ *
+ * JDK internals that are not open to reflection, such as the arrays behind strings and
+ * collections, are estimated from public state like lengths and sizes. Other inaccessible objects
+ * are counted by shallow size only.
+ *
+ * Each object has the kind returned by the classifier, or else the kind of the object that
+ * refers to it, so the members, codes and strings of an element are counted with the element.
+ */
+public final class HeapFootprint {
+
+  /**
+   * Kind of objects that no classified object refers to
+   */
+  public static final String OTHER = "other";
+
+  private static final int ALIGNMENT = 8;
+  private static final int ARRAY_HEADER = 16;
+  // estimated bytes of a hash map entry node, including key and value references
+  private static final int HASH_NODE = 32;
+  private static final int OBJECT_HEADER = 12;
+  private static final int REFERENCE = 4;
+
+  private static final class ClassLayout {
+    final List<Field> references = new ArrayList<>();
+    long shallowSize = OBJECT_HEADER;
+  }
+
+  private static final class Kind {
+    long bytes;
+    long objects;
+  }
+
+  /**
+   * Classifies Orchestra repository elements
+   *
+   * @param object an object in a repository graph
+   * @return one of "messages", "groups", "components", "fields", "codesets", "datatypes",
+   *         "actors" and "documentation", or {@code null} if the object is part of its parent's
+   *         kind
+   */
+  public static String orchestraKind(Object object) {
+    if (object instanceof Documentation) {
+      return "documentation";
+    } else if (object instanceof FieldType) {
+      return "fields";
+    } else if (object instanceof CodeSetType) {
+      return "codesets";
+    } else if (object instanceof ComponentType) {
+      return "components";
+    } else if (object instanceof GroupType) {
+      return "groups";
+    } else if (object instanceof MessageType) {
+      return "messages";
+    } else if (object instanceof Datatype) {
+      return "datatypes";
+    } else if (object instanceof ActorType || object instanceof FlowType) {
+      return "actors";
+    } else {
+      return null;
+    }
+  }
+
+  private static long align(long size) {
+    return (size + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+  }
+
+  private static long arraySize(long length, int elementSize) {
+    return align(ARRAY_HEADER + length * elementSize);
+  }
+
+  private static int primitiveSize(Class<?> type) {
+    if (type == long.class || type == double.class) {
+      return 8;
+    } else if (type == int.class || type == float.class) {
+      return 4;
+    } else if (type == short.class || type == char.class) {
+      return 2;
+    } else if (type == byte.class || type == boolean.class) {
+      return 1;
+    } else {
+      return REFERENCE;
+    }
+  }
+
+  private static int tableLength(int size) {
+    // power of two with default load factor 0.75
+    int length = 16;
+    while (length * 3 / 4 < size) {
+      length <<= 1;
+    }
+    return length;
+  }
+
+  private final Function<Object, String> classifier;
+  private final Set<Object> excluded;
+  private final Map<String, Kind> kinds = new LinkedHashMap<>();
+  private final Map<Class<?>, ClassLayout> layouts = new HashMap<>();
+  private final Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+
+  /**
+   * Creates an empty footprint
+   *
+   * @param classifier returns the kind of an object, or {@code null} to use the kind of the object
+   *        that refers to it
+   */
+  public HeapFootprint(Function<Object, String> classifier) {
+    this(classifier, null);
+  }
+
+  /**
+   * Creates an empty footprint that does not count objects already in another footprint
+   *
+   * @param classifier returns the kind of an object, or {@code null} to use the kind of the object
+   *        that refers to it
+   * @param excluded a footprint of objects not to count, e.g. a reference that a model shares, or
+   *        {@code null}
+   */
+  public HeapFootprint(Function<Object, String> classifier, HeapFootprint excluded) {
+    this.classifier = classifier;
+    this.excluded = excluded != null ? excluded.visited : Collections.emptySet();
+  }
+
+  /**
+   * Adds objects reachable from a root that have not been counted yet
+   *
+   * @param root root of an object graph, may be {@code null}
+   * @param kind kind of objects that the classifier does not classify
+   * @return this HeapFootprint
+   */
+  public HeapFootprint add(Object root, String kind) {
+    final Deque<Object[]> pending = new ArrayDeque<>();
+    push(pending, root, kind);
+    while (!pending.isEmpty()) {
+      final Object[] item = pending.pop();
+      visit(pending, item[0], (String) item[1]);
+    }
+    return this;
+  }
+
+  /**
+   * @param kind a kind of object
+   * @return estimated bytes of objects of the kind, or zero if none were counted
+   */
+  public long getBytes(String kind) {
+    final Kind k = kinds.get(kind);
+    return k != null ? k.bytes : 0L;
+  }
+
+  /**
+   * @return estimated bytes by kind, largest first
+   */
+  public Map<String, Long> getBytesByKind() {
+    final Map<String, Long> bytes = new LinkedHashMap<>();
+    kinds.entrySet().stream()
+        .sorted((a, b) -> Long.compare(b.getValue().bytes, a.getValue().bytes))
+        .forEach(e -> bytes.put(e.getKey(), e.getValue().bytes));
+    return bytes;
+  }
+
+  /**
+   * @param kind a kind of object
+   * @return number of objects of the kind
+   */
+  public long getObjects(String kind) {
+    final Kind k = kinds.get(kind);
+    return k != null ? k.objects : 0L;
+  }
+
+  /**
+   * @return estimated bytes of all counted objects
+   */
+  public long getTotalBytes() {
+    return kinds.values().stream().mapToLong(k -> k.bytes).sum();
+  }
+
+  /**
+   * @return a line per kind with its bytes and objects, largest first, then the total
+   */
+  @Override
+  public String toString() {
+    final StringBuilder sb = new StringBuilder();
+    for (final Map.Entry<String, Long> entry : getBytesByKind().entrySet()) {
+      sb.append(String.format("%-16s %,14d bytes %,12d objects%n", entry.getKey(),
+          entry.getValue(), getObjects(entry.getKey())));
+    }
+    sb.append(String.format("%-16s %,14d bytes", "total", getTotalBytes()));
+    return sb.toString();
+  }
+
+  private void count(String kind, long bytes) {
+    final Kind k = kinds.computeIfAbsent(kind, key -> new Kind());
+    k.bytes += bytes;
+    k.objects++;
+  }
+
+  private ClassLayout layout(Class<?> type) {
+    ClassLayout layout = layouts.get(type);
+    if (layout == null) {
+      layout = new ClassLayout();
+      long fieldBytes = 0;
+      for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+        for (final Field field : c.getDeclaredFields()) {
+          if (Modifier.isStatic(field.getModifiers())) {
+            continue;
+          }
+          fieldBytes += primitiveSize(field.getType());
+          if (!field.getType().isPrimitive() && field.trySetAccessible()) {
+            layout.references.add(field);
+          }
+        }
+      }
+      layout.shallowSize = align(OBJECT_HEADER + fieldBytes);
+      layouts.put(type, layout);
+    }
+    return layout;
+  }
+
+  private void push(Deque<Object[]> pending, Object object, String kind) {
+    if (object != null && !excluded.contains(object) && visited.add(object)) {
+      pending.push(new Object[] {object, kind});
+    }
+  }
+
+  private void visit(Deque<Object[]> pending, Object object, String parentKind) {
+    final Class<?> type = object.getClass();
+    if (type.isEnum() || object instanceof Class || object instanceof ClassLoader
+        || object instanceof Thread) {
+      // shared with the rest of the JVM
+      return;
+    }
+    final String classified = classifier.apply(object);
+    final String kind = classified != null ? classified : parentKind;
+
+    if (object instanceof String) {
+      final String s = (String) object;
+      final boolean latin1 = s.chars().allMatch(c -> c < 256);
+      count(kind, layout(type).shallowSize + arraySize(s.length(), latin1 ? 1 : 2));
+    } else if (object instanceof BigInteger) {
+      final int words = (((BigInteger) object).bitLength() + 31) / 32;
+      count(kind, layout(type).shallowSize + arraySize(words, 4));
+    } else if (type.isArray()) {
+      final int length = Array.getLength(object);
+      final Class<?> componentType = type.getComponentType();
+      count(kind, arraySize(length, primitiveSize(componentType)));
+      if (!componentType.isPrimitive()) {
+        for (int i = 0; i < length; i++) {
+          push(pending, Array.get(object, i), kind);
+        }
+      }
+    } else if (object instanceof Collection && !type.getModule().isOpen(type.getPackageName())) {
+      final Collection<?> collection = (Collection<?>) object;
+      final int size = collection.size();
+      final long backing = object instanceof Set
+          ? arraySize(tableLength(size), REFERENCE) + (long) size * HASH_NODE
+          : arraySize(size, REFERENCE);
+      count(kind, layout(type).shallowSize + backing);
+      for (final Object element : collection) {
+        push(pending, element, kind);
+      }
+    } else if (object instanceof Map && !type.getModule().isOpen(type.getPackageName())) {
+      final Map<?, ?> map = (Map<?, ?>) object;
+      count(kind, layout(type).shallowSize + arraySize(tableLength(map.size()), REFERENCE)
+          + (long) map.size() * HASH_NODE);
+      for (final Map.Entry<?, ?> entry : map.entrySet()) {
+        push(pending, entry.getKey(), kind);
+        push(pending, entry.getValue(), kind);
+      }
+    } else {
+      final ClassLayout layout = layout(type);
+      count(kind, layout.shallowSize);
+      for (final Field field : layout.references) {
+        try {
+          push(pending, field.get(object), kind);
+        } catch (final IllegalAccessException e) {
+          // counted by shallow size only
+        }
+      }
+    }
+  }
+}
@@ -1,5 +1,6 @@
 module orchestra2md {
   exports io.fixprotocol.orchestra2md;
+  exports io.fixprotocol.orchestra2md.util;
 
   opens io.fixprotocol.orchestra2md;
 
@@ -0,0 +1,53 @@
+package io.fixprotocol.orchestra2md;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import io.fixprotocol.tablature.synthetic.GrowthRate;
+import io.fixprotocol.tablature.synthetic.SyntheticOrchestra;
+
+/**
+ * Fails if markdown generation time or allocation grows faster than linearly with the size of the
+ * repository
+ *
+ * Repositories are generated with all element counts in proportion to the number of fields, and
+ * rendered with inline codes and datatypes so that per-row lookups are exercised. Allocation is
+ * nearly deterministic and has a tight limit. Time has a looser limit and is measured again before
+ * failing, so that a noisy machine does not fail the build.
+ */
+class ComplexityTest {
+
+  private static final int ATTEMPTS = 3;
+  private static final double MAX_ALLOCATION_EXPONENT = 1.25;
+  private static final double MAX_TIME_EXPONENT = 1.5;
+  private static final int REPETITIONS = 3;
+  private static final int[] SIZES = {250, 500, 1000, 2000};
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void generate() throws Exception {
+    final GrowthRate growthRate = GrowthRate.measure(size -> {
+      final Path input = tempDir.resolve("input" + size + ".xml");
+      Files.write(input,
+          SyntheticOrchestra.builder().fieldCount(size).codesetCount(size / 20)
+              .componentCount(size / 10).groupCount(size / 20).messageCount(size / 10)
+              .nestingDepth(3).scenariosPerMessage(2).build().xml());
+      final Orchestra2md orchestra2md = Orchestra2md.builder().inputFile(input.toString())
+          .outputFile(tempDir.resolve("output" + size + ".md").toString()).inlineCodes(true)
+          .datatypes(true).build();
+      return orchestra2md::generate;
+    }, MAX_TIME_EXPONENT, ATTEMPTS, REPETITIONS, SIZES);
+
+    // generate() logs rather than throws errors
+    assertTrue(Files.size(tempDir.resolve("output" + SIZES[SIZES.length - 1] + ".md")) > 0);
+    // NaN if allocation is not counted
+    assertFalse(growthRate.getAllocationExponent() > MAX_ALLOCATION_EXPONENT,
+        growthRate::toString);
+    assertFalse(growthRate.getTimeExponent() > MAX_TIME_EXPONENT, growthRate::toString);
+  }
+}
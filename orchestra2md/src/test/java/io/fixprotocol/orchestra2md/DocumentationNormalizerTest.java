@@ -0,0 +1,126 @@
+package io.fixprotocol.orchestra2md;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import io.fixprotocol._2020.orchestra.repository.Appinfo;
+import io.fixprotocol._2020.orchestra.repository.Documentation;
+import io.fixprotocol.md.event.MarkdownUtil;
+
+class DocumentationNormalizerTest {
+
+  private static final String[] SAMPLES = {"", " ", "\n", "\n\n", "\n \n", "a", " a ",
+      "\n\nFirst", "First\n\n", "First\n \t\nSecond", "Line 1\n  Line 2\n\n\n  Line 3\n",
+      "\n \n\n \n", "a\n \nb", "a\n \n\nb", "  \n  text  \n\n  \n", "x|y", "x\\|y",
+      "a\\b\\\\c\\", "| leading", "trailing \\", "\r\nCRLF\r\n\r\nlines\r\n"};
+
+  private static final char[] ALPHABET = {'a', 'b', ' ', '\t', '\n', '\n', '|', '\\', ' ',
+      ' ', '\r'};
+
+  @ParameterizedTest
+  @ValueSource(strings = {"text/markdown", "text/plain"})
+  void samples(String contentType) {
+    for (final String sample : SAMPLES) {
+      final Documentation d = documentation(contentType, sample);
+      assertEquals(legacyDocumentToString(d, "/P/"),
+          DocumentationNormalizer.documentToString(d, "/P/"), sample);
+    }
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"text/markdown", "text/plain"})
+  void random(String contentType) {
+    final Random random = new Random(27);
+    for (int n = 0; n < 5000; n++) {
+      final Documentation d = new Documentation();
+      d.setContentType(contentType);
+      final int contents = 1 + random.nextInt(2);
+      for (int c = 0; c < contents; c++) {
+        final char[] chars = new char[random.nextInt(16)];
+        for (int i = 0; i < chars.length; i++) {
+          chars[i] = ALPHABET[random.nextInt(ALPHABET.length)];
+        }
+        d.getContent().add(new String(chars));
+      }
+      assertEquals(legacyDocumentToString(d, "\n\n"),
+          DocumentationNormalizer.documentToString(d, "\n\n"));
+    }
+  }
+
+  @Test
+  void concatenate() {
+    final List<Documentation> documentations =
+        List.of(documentation("text/markdown", "First\n\n"), documentation("text/plain", ""),
+            documentation("text/plain", " x|y \n z "));
+    final String expected = documentations.stream().map(d -> legacyDocumentToString(d, "/P/"))
+        .collect(Collectors.joining("/P/"));
+    assertEquals(expected, DocumentationNormalizer.concatenateDocumentation(documentations, "/P/"));
+    assertEquals(expected, new DocumentationNormalizer().concatenate(documentations, "/P/"));
+  }
+
+  @Test
+  void appinfo() {
+    final Appinfo appinfo = new Appinfo();
+    appinfo.getContent().add("  one\n");
+    appinfo.getContent().add("");
+    appinfo.getContent().add("\ttwo");
+    assertEquals("one/P//P/two", DocumentationNormalizer.appinfoToString(appinfo, "/P/"));
+  }
+
+  @Test
+  void cached() {
+    final DocumentationNormalizer normalizer = new DocumentationNormalizer();
+    final String first =
+        normalizer.normalize(documentation("text/markdown", "Repeated\ntext"), "/P/");
+    final String second =
+        normalizer.normalize(documentation("text/markdown", "Repeated\ntext"), "/P/");
+    assertEquals("Repeated text", first);
+    assertSame(first, second);
+    assertEquals("Repeated/P/text",
+        normalizer.normalize(documentation("text/plain", "Repeated\ntext"), "/P/"));
+  }
+
+  private static Documentation documentation(String contentType, String text) {
+    final Documentation d = new Documentation();
+    d.setContentType(contentType);
+    d.getContent().add(text);
+    return d;
+  }
+
+  // Previous implementation, kept as a reference for output compatibility
+  private static String legacyDocumentToString(Documentation d, String paragraphDelimiter) {
+    if (d.getContentType().contentEquals(MarkdownUtil.MARKDOWN_MEDIA_TYPE)) {
+      final List<String> contents =
+          d.getContent().stream().map(Object::toString).collect(Collectors.toList());
+      final List<String> paragraphs = new ArrayList<>();
+      for (final String c : contents) {
+        paragraphs
+            .addAll(Stream.of(c.split("\n\\h*\n")).map(String::new).collect(Collectors.toList()));
+      }
+      final List<String> lines = new ArrayList<>();
+      for (final String p : paragraphs) {
+        lines.add(Stream.of(p.split("\n")).map(String::new).map(String::strip)
+            .filter(s -> !s.isEmpty()).collect(Collectors.joining(" ")));
+      }
+      return String.join(paragraphDelimiter, lines);
+    } else {
+      final List<String> contents =
+          d.getContent().stream().map(Object::toString).collect(Collectors.toList());
+      final List<String> paragraphs = new ArrayList<>();
+      for (final String c : contents) {
+        paragraphs.addAll(Stream.of(c.split("\n")).map(String::new)
+            .map(s -> MarkdownUtil.plainTextToMarkdown(s, paragraphDelimiter))
+            .collect(Collectors.toList()));
+      }
+      return paragraphs.stream().map(String::strip).filter(s -> !s.isEmpty())
+          .collect(Collectors.joining(paragraphDelimiter));
+    }
+  }
+}
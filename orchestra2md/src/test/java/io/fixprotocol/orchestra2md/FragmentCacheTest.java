@@ -0,0 +1,144 @@
+package io.fixprotocol.orchestra2md;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import io.fixprotocol.tablature.synthetic.SyntheticOrchestra;
+
+class FragmentCacheTest {
+
+  private static final String SETTINGS = FragmentCache.digest("inline");
+
+  @TempDir
+  Path dir;
+
+  private Path fragmentPath;
+  private byte[] xml;
+
+  private static MarkdownGenerator newGenerator() {
+    return new MarkdownGenerator(MarkdownGenerator.DEFAULT_PARAGRAPH_DELIMITER, false, false,
+        true, false);
+  }
+
+  private static String render(byte[] xml, FragmentCache cache) throws Exception {
+    return render(xml, cache, OutputStream.nullOutputStream());
+  }
+
+  private static String render(byte[] xml, FragmentCache cache, OutputStream jsonStream)
+      throws Exception {
+    final MarkdownGenerator generator = newGenerator();
+    generator.setFragmentCache(cache);
+    final ByteArrayOutputStream mdStream = new ByteArrayOutputStream();
+    try (OutputStreamWriter outputWriter =
+        new OutputStreamWriter(mdStream, StandardCharsets.UTF_8)) {
+      generator.generate(new ByteArrayInputStream(xml), outputWriter, jsonStream);
+    }
+    return mdStream.toString(StandardCharsets.UTF_8);
+  }
+
+  private static String renderEvents(byte[] xml, FragmentCache cache) throws Exception {
+    final ByteArrayOutputStream jsonStream = new ByteArrayOutputStream();
+    render(xml, cache, jsonStream);
+    return jsonStream.toString(StandardCharsets.UTF_8);
+  }
+
+  @BeforeEach
+  void setUp() {
+    fragmentPath = dir.resolve("message.md.fragments");
+    xml = SyntheticOrchestra.builder().seed(7).fieldCount(60).codesetCount(6).componentCount(9)
+        .nestingDepth(3).groupCount(4).messageCount(6).build().xml();
+  }
+
+  @Test
+  void unchanged() throws Exception {
+    final FragmentCache first = FragmentCache.load(fragmentPath, SETTINGS);
+    final String md = render(xml, first);
+    first.save();
+    assertEquals(0, first.getHits());
+    assertEquals(render(xml, null), md);
+
+    final FragmentCache second = FragmentCache.load(fragmentPath, SETTINGS);
+    assertEquals(md, render(xml, second));
+    assertEquals(first.getMisses(), second.getHits());
+    assertEquals(0, second.getMisses());
+
+    // the same fragments are not written again
+    final FileTime modified = FileTime.fromMillis(1000000000000L);
+    Files.setLastModifiedTime(fragmentPath, modified);
+    second.save();
+    assertEquals(modified, Files.getLastModifiedTime(fragmentPath));
+  }
+
+  @Test
+  void events() throws Exception {
+    // a reference to a missing field is reported while rendering
+    final byte[] broken = new String(xml, StandardCharsets.UTF_8)
+        .replaceFirst("fieldRef id=\"\\d+\"", "fieldRef id=\"9999\"")
+        .getBytes(StandardCharsets.UTF_8);
+    final FragmentCache first = FragmentCache.load(fragmentPath, SETTINGS);
+    final String events = renderEvents(broken, first);
+    first.save();
+    assertTrue(events.contains("Unknown field"), events);
+    assertEquals(renderEvents(broken, null), events);
+
+    final FragmentCache second = FragmentCache.load(fragmentPath, SETTINGS);
+    assertEquals(events, renderEvents(broken, second));
+    assertEquals(0, second.getMisses());
+  }
+
+  @Test
+  void changedCodeset() throws Exception {
+    final FragmentCache first = FragmentCache.load(fragmentPath, SETTINGS);
+    render(xml, first);
+    first.save();
+
+    // rename the first code of the first codeset
+    final String text = new String(xml, StandardCharsets.UTF_8);
+    final byte[] changed =
+        text.replaceFirst("name=\"Code0\"", "name=\"Renamed0\"").getBytes(StandardCharsets.UTF_8);
+    final FragmentCache second = FragmentCache.load(fragmentPath, SETTINGS);
+    final String md = render(changed, second);
+    assertEquals(render(changed, null), md);
+    assertTrue(md.contains("Renamed0"));
+    // the codeset and the fields table are rendered again, along with its users
+    assertTrue(second.getMisses() >= 2, () -> "misses " + second.getMisses());
+    assertTrue(second.getHits() > 0, () -> "hits " + second.getHits());
+  }
+
+  @Test
+  void changedSettings() throws Exception {
+    final FragmentCache first = FragmentCache.load(fragmentPath, SETTINGS);
+    render(xml, first);
+    first.save();
+
+    final FragmentCache second = FragmentCache.load(fragmentPath, FragmentCache.digest("other"));
+    render(xml, second);
+    assertEquals(0, second.getHits());
+    assertNotEquals(0, second.getMisses());
+  }
+
+  @Test
+  void orchestra2md() throws Exception {
+    final Path input = dir.resolve("input.xml");
+    Files.write(input, xml);
+    final Path output = dir.resolve("output.md");
+    final Orchestra2md orchestra2md = Orchestra2md.builder().inputFile(input.toString())
+        .outputFile(output.toString()).fragmentFile(fragmentPath.toString()).build();
+    orchestra2md.generateOrThrow();
+    final String md = Files.readString(output);
+    assertTrue(Files.size(fragmentPath) > 0);
+    orchestra2md.generateOrThrow();
+    assertEquals(md, Files.readString(output));
+  }
+}
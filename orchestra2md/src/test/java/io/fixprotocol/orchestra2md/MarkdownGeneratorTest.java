@@ -1,13 +1,22 @@
 package io.fixprotocol.orchestra2md;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import io.fixprotocol.md.event.Context;
+import io.fixprotocol.md.event.DetailTable;
+import io.fixprotocol.md.event.DocumentParser;
 
 class MarkdownGeneratorTest {
 
@@ -85,6 +94,40 @@ class MarkdownGeneratorTest {
     //System.out.println(errors);
   }
   
+  @Test
+  void compactTables() throws Exception {
+    final List<String> aligned =
+        parseTables(generate(new MarkdownGenerator("/P/", true, true, true, true, false)));
+    final String compact = generate(new MarkdownGenerator("/P/", true, true, true, true, true));
+    assertTrue(compact.contains("\n|---|---|"));
+    assertFalse(aligned.isEmpty());
+    assertEquals(aligned, parseTables(compact));
+  }
+
+  private static String generate(MarkdownGenerator generator) throws Exception {
+    ByteArrayOutputStream mdStream = new ByteArrayOutputStream(8096);
+    try (InputStream inputStream = new FileInputStream("src/test/resources/roundtrip.xml")) {
+      OutputStreamWriter outputWriter = new OutputStreamWriter(mdStream, StandardCharsets.UTF_8);
+      generator.generate(inputStream, outputWriter, new ByteArrayOutputStream());
+    }
+    return mdStream.toString(StandardCharsets.UTF_8);
+  }
+
+  private static List<String> parseTables(String md) throws IOException {
+    final List<String> contents = new ArrayList<>();
+    new DocumentParser().parse(new ByteArrayInputStream(md.getBytes(StandardCharsets.UTF_8)),
+        context -> {
+          if (context instanceof DetailTable) {
+            for (final DetailTable.TableRow row : ((DetailTable) context).rows()) {
+              contents.add(row.getProperties().toString());
+            }
+          } else if (context instanceof Context) {
+            contents.add(String.join(" ", ((Context) context).getKeys()));
+          }
+        });
+    return contents;
+  }
+
   @Test // ODOC-63
   void duplicateCodes() throws Exception {
     String text ="<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
@@ -173,6 +216,51 @@ class MarkdownGeneratorTest {
     assertTrue(errors.contains("Group has no members"));
   }
   
+  @Test
+  void inlineCodesSorted() throws Exception {
+    String text ="<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+        + "<fixr:repository xmlns:dc=\"http://purl.org/dc/elements/1.1/\" xmlns:dcterms=\"http://purl.org/dc/terms/\" xmlns:fixr=\"http://fixprotocol.io/2020/orchestra/repository\">\n"
+        + "    <fixr:metadata/>\n"
+        + "    <fixr:datatypes/>\n"
+        + "    <fixr:codeSets>\n"
+        + "        <fixr:codeSet type=\"char\" id=\"10001\" name=\"SideCodeSet\">\n"
+        + "            <fixr:code value=\"2\" id=\"10003\" name=\"Sell\" sort=\"10\"/>\n"
+        + "            <fixr:code value=\"1\" id=\"10002\" name=\"Buy\" sort=\" 9 \"/>\n"
+        + "            <fixr:code value=\"8\" id=\"10004\" name=\"Cross\" group=\"Other\" sort=\"1\"/>\n"
+        + "        </fixr:codeSet>\n"
+        + "    </fixr:codeSets>\n"
+        + "    <fixr:fields>\n"
+        + "        <fixr:field id=\"54\" name=\"Side\" type=\"SideCodeSet\"/>\n"
+        + "        <fixr:field id=\"624\" name=\"LegSide\" type=\"SideCodeSet\"/>\n"
+        + "    </fixr:fields>\n"
+        + "    <fixr:components/>\n"
+        + "    <fixr:groups/>\n"
+        + "    <fixr:messages> "
+        + "     <fixr:message msgType=\"D\" id=\"14\" name=\"NewOrderSingle\">\n"
+        + "       <fixr:structure>\n"
+        + "         <fixr:fieldRef id=\"54\" presence=\"required\"/>\n"
+        + "         <fixr:fieldRef id=\"624\"/>\n"
+        + "       </fixr:structure>\n"
+        + "     </fixr:message>\n"
+        + "    </fixr:messages> "
+        + "</fixr:repository>\n";
+
+    InputStream inputStream = new ByteArrayInputStream(text.getBytes());
+    ByteArrayOutputStream mdStream = new ByteArrayOutputStream(8096);
+    OutputStreamWriter outputWriter = new OutputStreamWriter(mdStream, StandardCharsets.UTF_8);
+    generator.generate(inputStream, outputWriter, jsonOutputStream);
+    outputWriter.close();
+    String md = mdStream.toString();
+    //System.out.println(md);
+    final String inlineCodes = "1 = Buy/P/2 = Sell/P/8 = Cross";
+    int count = 0;
+    for (int i = md.indexOf(inlineCodes); i >= 0; i = md.indexOf(inlineCodes, i + 1)) {
+      count++;
+    }
+    // two field refs in the message and two fields
+    assertEquals(4, count);
+  }
+
   @Test //ODOC-118
   void messageResponses() throws Exception {
     String text ="<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
@@ -14,13 +14,25 @@
  */
 package io.fixprotocol.orchestra2md;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
+import io.fixprotocol.orchestra2md.util.FileStreams;
 
 class Orchestra2mdTest {
 
@@ -35,6 +47,54 @@ class Orchestra2mdTest {
         "src/test/resources/md2orchestra-proto.xml", });
   }
   
+  @Test
+  void compressed() throws Exception {
+    final Path inputPath = Path.of("target/test/message.xml.gz");
+    try (OutputStream out = FileStreams.newOutputStream(inputPath, 512)) {
+      Files.copy(Path.of("src/test/resources/message.xml"), out);
+    }
+    Orchestra2md.main(new String[] {"-o", "target/test/message-compressed.md.gz", "--buffersize",
+        "512", inputPath.toString()});
+    Orchestra2md.main(new String[] {"-o", "target/test/message-uncompressed.md",
+        "src/test/resources/message.xml"});
+
+    try (InputStream in =
+        FileStreams.newInputStream(Path.of("target/test/message-compressed.md.gz"), 512)) {
+      assertArrayEquals(Files.readAllBytes(Path.of("target/test/message-uncompressed.md")),
+          in.readAllBytes());
+    }
+  }
+
+  @Test
+  void stats() throws Exception {
+    final String outputFilename = "target/test/message-stats.md";
+    Orchestra2md.main(new String[] {"-o", outputFilename, "--stats",
+        "src/test/resources/message.xml"});
+    assertTrue(Files.size(Path.of(outputFilename)) > 0);
+  }
+
+  @Test
+  void failedRunKeepsOutput() throws Exception {
+    final Path inputPath = Path.of("target/test/failed/message.xml");
+    final Path outputPath = Path.of("target/test/failed/message.md");
+    Files.createDirectories(inputPath.getParent());
+    Files.copy(Path.of("src/test/resources/message.xml"), inputPath,
+        StandardCopyOption.REPLACE_EXISTING);
+    final Orchestra2md orchestra2md = Orchestra2md.builder().inputFile(inputPath.toString())
+        .outputFile(outputPath.toString()).build();
+    orchestra2md.generateOrThrow();
+    final String md = Files.readString(outputPath);
+
+    // truncated input fails part-way
+    Files.writeString(inputPath, Files.readString(inputPath).substring(0, 400));
+    assertThrows(Exception.class, orchestra2md::generateOrThrow);
+    assertNull(orchestra2md.getOutputOutcome());
+    assertEquals(md, Files.readString(outputPath));
+    try (Stream<Path> files = Files.list(outputPath.getParent())) {
+      assertEquals(2, files.count());
+    }
+  }
+
   @Disabled
   @Test
   void badOrchestra() throws Exception {
@@ -0,0 +1,64 @@
+package io.fixprotocol.orchestra2md;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import io.fixprotocol.orchestra2md.util.HeapFootprint;
+import io.fixprotocol.tablature.synthetic.SyntheticOrchestra;
+
+/**
+ * Renders generated Orchestra XML and checks that every element has its heading
+ */
+class SyntheticMarkdownTest {
+
+  @Test
+  void footprint() throws Exception {
+    final SyntheticOrchestra orchestra = SyntheticOrchestra.builder().build();
+    final MarkdownGenerator generator =
+        new MarkdownGenerator(MarkdownGenerator.DEFAULT_PARAGRAPH_DELIMITER, false, false, true,
+            false);
+    try (OutputStreamWriter outputWriter =
+        new OutputStreamWriter(OutputStream.nullOutputStream(), StandardCharsets.UTF_8)) {
+      generator.generate(new ByteArrayInputStream(orchestra.xml()), outputWriter,
+          new ByteArrayOutputStream());
+    }
+
+    final HeapFootprint footprint = generator.footprint();
+    assertTrue(footprint.getObjects("fields") >= orchestra.getFieldCount(), footprint::toString);
+    for (final String kind : new String[] {"fields", "codesets", "components", "groups",
+        "messages", "documentation", "indexes"}) {
+      assertTrue(footprint.getBytes(kind) > 0, footprint::toString);
+    }
+  }
+
+  @ParameterizedTest
+  @ValueSource(longs = {1, 2, 3})
+  void generate(long seed) throws Exception {
+    final SyntheticOrchestra orchestra = SyntheticOrchestra.builder().seed(seed).fieldCount(60)
+        .codesetCount(6).componentCount(9).nestingDepth(3).groupCount(4).messageCount(6)
+        .scenariosPerMessage(2).documentationParagraphs(2).build();
+    final ByteArrayOutputStream jsonOutputStream = new ByteArrayOutputStream();
+    final ByteArrayOutputStream mdStream = new ByteArrayOutputStream();
+    try (OutputStreamWriter outputWriter =
+        new OutputStreamWriter(mdStream, StandardCharsets.UTF_8)) {
+      new MarkdownGenerator().generate(new ByteArrayInputStream(orchestra.xml()), outputWriter,
+          jsonOutputStream);
+    }
+
+    assertEquals("{\"events\":[]}", jsonOutputStream.toString().replaceAll("\\s", ""));
+    final String md = mdStream.toString(StandardCharsets.UTF_8);
+    assertEquals(orchestra.getMessageCount() + orchestra.getGroupCount()
+        + orchestra.getComponentCount() + orchestra.getCodesetCount(),
+        md.lines().filter(l -> l.startsWith("### ")).count());
+    assertTrue(md.contains("### Message Message5 scenario Scenario1 type M5 (400011)"));
+    assertEquals(orchestra.getFieldCount(),
+        md.lines().filter(l -> l.matches("\\| \\d+ +\\| (Field|No)\\w+ .*")).count());
+  }
+}
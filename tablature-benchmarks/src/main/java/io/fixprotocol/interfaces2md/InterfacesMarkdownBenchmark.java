@@ -0,0 +1,80 @@
+package io.fixprotocol.interfaces2md;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import io.fixprotocol.orchestra.event.TeeEventListener;
+import io.fixprotocol.tablature.synthetic.SyntheticInterfaces;
+
+/**
+ * interfaces2md rendering of synthetic interfaces documents, unmarshalled whole or streamed
+ *
+ * {@code shardedUnchanged} renders one document per interface into a temporary directory during
+ * setup, then measures a run in which every interface is unchanged, that is the cost of digests.
+ * Run with {@code -prof gc} to see allocation per operation in {@code gc.alloc.rate.norm}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InterfacesMarkdownBenchmark {
+
+  @Param({"10"})
+  public int interfaceCount;
+
+  @Param({"10", "100"})
+  public int sessionsPerInterface;
+
+  @Param({"4"})
+  public int identifiersPerSession;
+
+  private Path shardIndex;
+  private byte[] xml;
+
+  @Benchmark
+  public void generate() throws Exception {
+    generate(new MarkdownGenerator(false));
+  }
+
+  @Setup
+  public void setup() throws Exception {
+    xml = SyntheticInterfaces.xml(interfaceCount, sessionsPerInterface, identifiersPerSession);
+    shardIndex = Files.createTempDirectory("interfaces2md").resolve("interfaces.md");
+    new ShardedMarkdownGenerator(1, 8192).generate(new ByteArrayInputStream(xml), shardIndex,
+        null);
+  }
+
+  @Benchmark
+  public int shardedUnchanged() throws Exception {
+    return new ShardedMarkdownGenerator(Runtime.getRuntime().availableProcessors(), 8192)
+        .generate(new ByteArrayInputStream(xml), shardIndex, null);
+  }
+
+  @Benchmark
+  public void streaming() throws Exception {
+    generate(new MarkdownGenerator(true));
+  }
+
+  private void generate(MarkdownGenerator generator) throws Exception {
+    generator.generate(new ByteArrayInputStream(xml),
+        new OutputStreamWriter(OutputStream.nullOutputStream(), StandardCharsets.UTF_8),
+        new TeeEventListener());
+  }
+}
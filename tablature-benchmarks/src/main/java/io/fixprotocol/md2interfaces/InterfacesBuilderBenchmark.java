@@ -0,0 +1,76 @@
+package io.fixprotocol.md2interfaces;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import io.fixprotocol.md.event.GraphContext;
+import io.fixprotocol.tablature.synthetic.SyntheticInterfaces;
+
+/**
+ * md2interfaces translation of synthetic interfaces documents
+ *
+ * {@code appendInput} parses and builds, {@code appendParsed} builds from elements parsed in
+ * setup, and {@code write} marshals a built document. Run with {@code -prof gc} to see allocation
+ * per operation in {@code gc.alloc.rate.norm}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InterfacesBuilderBenchmark {
+
+  @Param({"10"})
+  public int interfaceCount;
+
+  @Param({"10", "100"})
+  public int sessionsPerInterface;
+
+  @Param({"4"})
+  public int identifiersPerSession;
+
+  private InterfacesBuilder builtBuilder;
+  private byte[] markdown;
+  private List<GraphContext> parsed;
+
+  @Benchmark
+  public InterfacesBuilder appendInput() throws Exception {
+    final InterfacesBuilder builder = new InterfacesBuilder(null);
+    builder.appendInput(new ByteArrayInputStream(markdown));
+    return builder;
+  }
+
+  @Benchmark
+  public InterfacesBuilder appendParsed() throws Exception {
+    final InterfacesBuilder builder = new InterfacesBuilder(null);
+    builder.appendContexts(parsed);
+    return builder;
+  }
+
+  @Setup
+  public void setup() throws Exception {
+    markdown =
+        SyntheticInterfaces.markdown(interfaceCount, sessionsPerInterface, identifiersPerSession);
+    parsed = InterfacesBuilder.parse(new ByteArrayInputStream(markdown));
+    builtBuilder = new InterfacesBuilder(null);
+    builtBuilder.appendContexts(parsed);
+  }
+
+  @Benchmark
+  public void write() throws Exception {
+    builtBuilder.write(OutputStream.nullOutputStream());
+  }
+}
@@ -0,0 +1,117 @@
+package io.fixprotocol.md2orchestra;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import io.fixprotocol.md2orchestra.util.HeapFootprint;
+import io.fixprotocol.tablature.synthetic.SyntheticOrchestra;
+
+/**
+ * Estimated heap of md2orchestra repositories by element kind, for generated Orchestra of
+ * {@code fieldCount} fields
+ *
+ * <ul>
+ * <li>{@code reference} loads the generated XML as a reference</li>
+ * <li>{@code output} translates the generated markdown against that reference; objects shared with
+ * the reference are not counted</li>
+ * </ul>
+ * The estimates are reported as secondary results in bytes, e.g.
+ * {@code FootprintBenchmark.output:fields}. They are deterministic, so a single shot of each is
+ * enough; its time includes the estimate.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class FootprintBenchmark {
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class Bytes {
+    public long actors;
+    public long codesets;
+    public long components;
+    public long datatypes;
+    public long documentation;
+    public long fields;
+    public long groups;
+    public long messages;
+    public long other;
+    public long total;
+
+    @Setup(Level.Iteration)
+    public void clear() {
+      actors = codesets = components = datatypes = documentation = fields = groups = messages =
+          other = total = 0;
+    }
+
+    void set(HeapFootprint footprint) {
+      actors = footprint.getBytes("actors");
+      codesets = footprint.getBytes("codesets");
+      components = footprint.getBytes("components");
+      datatypes = footprint.getBytes("datatypes");
+      documentation = footprint.getBytes("documentation");
+      fields = footprint.getBytes("fields");
+      groups = footprint.getBytes("groups");
+      messages = footprint.getBytes("messages");
+      other = footprint.getBytes(HeapFootprint.OTHER);
+      total = footprint.getTotalBytes();
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class Input {
+    @Param({"1000", "10000"})
+    public int fieldCount;
+
+    byte[] markdown;
+    byte[] xml;
+
+    @Setup
+    public void setup() throws Exception {
+      final SyntheticOrchestra orchestra = SyntheticOrchestra.builder().fieldCount(fieldCount)
+          .codesetCount(fieldCount / 20).componentCount(fieldCount / 10)
+          .groupCount(fieldCount / 20).messageCount(fieldCount / 10).nestingDepth(3)
+          .scenariosPerMessage(2).build();
+      markdown = orchestra.markdown();
+      xml = orchestra.xml();
+    }
+  }
+
+  @Benchmark
+  public HeapFootprint output(Input input, Bytes bytes) throws Exception {
+    final RepositoryBuilder builder =
+        RepositoryBuilder.instance(new ByteArrayInputStream(input.xml), null);
+    builder.appendInput(new ByteArrayInputStream(input.markdown));
+    builder.executeDefferedBuildSteps();
+    final HeapFootprint reference = new HeapFootprint(HeapFootprint::orchestraKind)
+        .add(builder.getReferenceRepositories(), HeapFootprint.OTHER);
+    final HeapFootprint output = new HeapFootprint(HeapFootprint::orchestraKind, reference)
+        .add(builder.getRepository(), HeapFootprint.OTHER);
+    bytes.set(output);
+    return output;
+  }
+
+  @Benchmark
+  public HeapFootprint reference(Input input, Bytes bytes) throws Exception {
+    final RepositoryBuilder builder =
+        RepositoryBuilder.instance(new ByteArrayInputStream(input.xml), null);
+    final HeapFootprint reference = new HeapFootprint(HeapFootprint::orchestraKind)
+        .add(builder.getReferenceRepositories(), HeapFootprint.OTHER);
+    bytes.set(reference);
+    return reference;
+  }
+}
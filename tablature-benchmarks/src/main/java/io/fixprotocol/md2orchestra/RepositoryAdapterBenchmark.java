@@ -0,0 +1,60 @@
+package io.fixprotocol.md2orchestra;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import org.apache.logging.log4j.LogManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import io.fixprotocol.orchestra.event.EventListener;
+import io.fixprotocol.tablature.synthetic.SyntheticOrchestra;
+
+/**
+ * md2orchestra XML binding of a synthetic repository of {@code fieldCount} fields
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class RepositoryAdapterBenchmark {
+
+  @Param({"1000", "10000"})
+  public int fieldCount;
+
+  private EventListener eventLogger;
+  private RepositoryAdapter repository;
+  private byte[] xml;
+
+  @Benchmark
+  public void marshal() throws Exception {
+    repository.marshal(OutputStream.nullOutputStream());
+  }
+
+  @Setup
+  public void setup() throws Exception {
+    xml = SyntheticOrchestra.builder().fieldCount(fieldCount).codesetCount(fieldCount / 20)
+        .componentCount(fieldCount / 10).groupCount(fieldCount / 20)
+        .messageCount(fieldCount / 10).nestingDepth(3).scenariosPerMessage(2).build().xml();
+    eventLogger = RepositoryBuilder.createEventListener(LogManager.getLogger(getClass()), null);
+    repository = new RepositoryAdapter(eventLogger);
+    repository.unmarshal(new ByteArrayInputStream(xml));
+  }
+
+  @Benchmark
+  public RepositoryAdapter unmarshal() throws Exception {
+    final RepositoryAdapter adapter = new RepositoryAdapter(eventLogger);
+    adapter.unmarshal(new ByteArrayInputStream(xml));
+    return adapter;
+  }
+}
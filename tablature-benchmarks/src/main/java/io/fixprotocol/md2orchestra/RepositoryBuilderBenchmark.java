@@ -0,0 +1,177 @@
+package io.fixprotocol.md2orchestra;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.apache.logging.log4j.LogManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import io.fixprotocol.md.event.GraphContext;
+import io.fixprotocol.tablature.synthetic.SyntheticOrchestra;
+
+/**
+ * md2orchestra translation of itiviti.md and of synthetic markdown against a large reference
+ *
+ * <ul>
+ * <li>{@code appendItiviti} parses and builds itiviti.md without a reference</li>
+ * <li>{@code loadReference} reads a reference of {@code fieldCount} fields into a builder</li>
+ * <li>{@code resolve} builds markdown whose members are all resolved from that reference,
+ * including deferred build steps</li>
+ * <li>{@code deferredBuildSteps} measures only the deferred build steps of the same input</li>
+ * <li>{@code appendStructured} builds generated markdown of messages, scenarios, nested
+ * components, groups and codesets without a reference, by {@code nestingDepth} and
+ * {@code scenariosPerMessage}</li>
+ * <li>{@code replayStructured} builds the same markdown from parse events read from a
+ * {@link ParseCache} entry, as an unchanged file is in a run with {@code --cache}</li>
+ * </ul>
+ *
+ * The heap is fixed so that runs with {@code -prof gc} are comparable.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class RepositoryBuilderBenchmark {
+
+  @State(Scope.Thread)
+  public static class Appended {
+    RepositoryBuilder builder;
+
+    @Setup(Level.Invocation)
+    public void setup(Reference reference) throws Exception {
+      builder = reference.appendInput();
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class Itiviti {
+    byte[] markdown;
+
+    @Setup
+    public void setup() throws Exception {
+      try (InputStream in = getClass().getClassLoader().getResourceAsStream("itiviti.md")) {
+        markdown = in.readAllBytes();
+      }
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class Structured {
+    @Param({"1", "4"})
+    public int nestingDepth;
+
+    @Param({"1", "4"})
+    public int scenariosPerMessage;
+
+    ParseCache cache;
+    Path cacheDirectory;
+    byte[] markdown;
+
+    @Setup
+    public void setup() throws Exception {
+      markdown = SyntheticOrchestra.builder().fieldCount(1000).codesetCount(50)
+          .componentCount(100).groupCount(50).messageCount(100).nestingDepth(nestingDepth)
+          .scenariosPerMessage(scenariosPerMessage).build().markdown();
+      cacheDirectory = Files.createTempDirectory("parsecache");
+      cache = ParseCache.open(cacheDirectory, ParseCache.digest());
+      final List<GraphContext> events = new ArrayList<>();
+      new RepositoryBuilder(null).appendInput(new ByteArrayInputStream(markdown), events::add);
+      cache.put(markdown, events);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+      try (Stream<Path> paths = Files.walk(cacheDirectory)) {
+        paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+      }
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class Reference {
+    @Param({"1000", "10000"})
+    public int fieldCount;
+
+    byte[] markdown;
+    RepositoryAdapter repository;
+    byte[] xml;
+
+    @Setup
+    public void setup() throws Exception {
+      final SyntheticOrchestra orchestra = SyntheticOrchestra.builder().fieldCount(fieldCount)
+          .codesetCount(fieldCount / 20).componentCount(fieldCount / 10)
+          .groupCount(fieldCount / 20).messageCount(fieldCount / 10).nestingDepth(3)
+          .scenariosPerMessage(2).build();
+      markdown = orchestra.referringMarkdown();
+      xml = orchestra.xml();
+      repository = new RepositoryAdapter(
+          RepositoryBuilder.createEventListener(LogManager.getLogger(getClass()), null));
+      repository.unmarshal(new ByteArrayInputStream(xml));
+    }
+
+    RepositoryBuilder appendInput() throws Exception {
+      final RepositoryBuilder builder = new RepositoryBuilder(null);
+      builder.setReference(repository);
+      builder.appendInput(new ByteArrayInputStream(markdown));
+      return builder;
+    }
+  }
+
+  @Benchmark
+  public RepositoryBuilder appendItiviti(Itiviti itiviti) throws Exception {
+    final RepositoryBuilder builder = new RepositoryBuilder(null);
+    builder.appendInput(new ByteArrayInputStream(itiviti.markdown));
+    return builder;
+  }
+
+  @Benchmark
+  public RepositoryBuilder appendStructured(Structured structured) throws Exception {
+    final RepositoryBuilder builder = new RepositoryBuilder(null);
+    builder.appendInput(new ByteArrayInputStream(structured.markdown));
+    builder.executeDefferedBuildSteps();
+    return builder;
+  }
+
+  @Benchmark
+  public void deferredBuildSteps(Appended appended) {
+    appended.builder.executeDefferedBuildSteps();
+  }
+
+  @Benchmark
+  public RepositoryBuilder loadReference(Reference reference) throws Exception {
+    return RepositoryBuilder.instance(new ByteArrayInputStream(reference.xml), null);
+  }
+
+  @Benchmark
+  public RepositoryBuilder replayStructured(Structured structured) throws Exception {
+    final RepositoryBuilder builder = new RepositoryBuilder(null);
+    builder.appendEvents(structured.cache.get(structured.markdown));
+    builder.executeDefferedBuildSteps();
+    return builder;
+  }
+
+  @Benchmark
+  public RepositoryBuilder resolve(Reference reference) throws Exception {
+    final RepositoryBuilder builder = reference.appendInput();
+    builder.executeDefferedBuildSteps();
+    return builder;
+  }
+}
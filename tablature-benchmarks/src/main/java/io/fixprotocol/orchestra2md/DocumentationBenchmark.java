@@ -0,0 +1,136 @@
+package io.fixprotocol.orchestra2md;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import io.fixprotocol._2020.orchestra.repository.Annotation;
+import io.fixprotocol._2020.orchestra.repository.CodeSetType;
+import io.fixprotocol._2020.orchestra.repository.ComponentType;
+import io.fixprotocol._2020.orchestra.repository.Documentation;
+import io.fixprotocol._2020.orchestra.repository.FieldType;
+import io.fixprotocol._2020.orchestra.repository.GroupType;
+import io.fixprotocol._2020.orchestra.repository.MessageType;
+import io.fixprotocol._2020.orchestra.repository.Repository;
+import io.fixprotocol.md.event.MarkdownUtil;
+import io.fixprotocol.orchestra.event.EventListenerFactory;
+
+/**
+ * Normalization of all documentation in roundtrip.xml, as table cells or as documentation blocks
+ *
+ * {@code legacy} is the previous split-based implementation for comparison. Run with
+ * {@code -prof gc} to compare allocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DocumentationBenchmark {
+
+  static List<Documentation> collectDocumentation(Repository repository) {
+    final List<Annotation> annotations = new ArrayList<>();
+    for (final CodeSetType codeset : repository.getCodeSets().getCodeSet()) {
+      annotations.add(codeset.getAnnotation());
+      codeset.getCode().forEach(c -> annotations.add(c.getAnnotation()));
+    }
+    for (final FieldType field : repository.getFields().getField()) {
+      annotations.add(field.getAnnotation());
+    }
+    for (final ComponentType component : repository.getComponents().getComponent()) {
+      annotations.add(component.getAnnotation());
+    }
+    for (final GroupType group : repository.getGroups().getGroup()) {
+      annotations.add(group.getAnnotation());
+    }
+    for (final MessageType message : repository.getMessages().getMessage()) {
+      annotations.add(message.getAnnotation());
+    }
+    return annotations.stream().filter(a -> a != null)
+        .flatMap(a -> a.getDocumentationOrAppinfo().stream())
+        .filter(Documentation.class::isInstance).map(Documentation.class::cast)
+        .collect(Collectors.toList());
+  }
+
+  // Previous implementation of MarkdownGenerator.documentToString
+  static String legacyDocumentToString(Documentation d, String paragraphDelimiter) {
+    if (d.getContentType().contentEquals(MarkdownUtil.MARKDOWN_MEDIA_TYPE)) {
+      final List<String> contents =
+          d.getContent().stream().map(Object::toString).collect(Collectors.toList());
+      final List<String> paragraphs = new ArrayList<>();
+      for (final String c : contents) {
+        paragraphs
+            .addAll(Stream.of(c.split("\n\\h*\n")).map(String::new).collect(Collectors.toList()));
+      }
+      final List<String> lines = new ArrayList<>();
+      for (final String p : paragraphs) {
+        lines.add(Stream.of(p.split("\n")).map(String::new).map(String::strip)
+            .filter(s -> !s.isEmpty()).collect(Collectors.joining(" ")));
+      }
+      return String.join(paragraphDelimiter, lines);
+    } else {
+      final List<String> contents =
+          d.getContent().stream().map(Object::toString).collect(Collectors.toList());
+      final List<String> paragraphs = new ArrayList<>();
+      for (final String c : contents) {
+        paragraphs.addAll(Stream.of(c.split("\n")).map(String::new)
+            .map(s -> MarkdownUtil.plainTextToMarkdown(s, paragraphDelimiter))
+            .collect(Collectors.toList()));
+      }
+      return paragraphs.stream().map(String::strip).filter(s -> !s.isEmpty())
+          .collect(Collectors.joining(paragraphDelimiter));
+    }
+  }
+
+  private List<Documentation> documentation;
+
+  @Param({"/P/", "\n\n"})
+  public String paragraphDelimiter;
+
+  @Benchmark
+  public void cached(Blackhole blackhole) {
+    // a normalizer lives for one generate() call
+    final DocumentationNormalizer normalizer = new DocumentationNormalizer();
+    for (final Documentation d : documentation) {
+      blackhole.consume(normalizer.normalize(d, paragraphDelimiter));
+    }
+  }
+
+  @Benchmark
+  public void legacy(Blackhole blackhole) {
+    for (final Documentation d : documentation) {
+      blackhole.consume(legacyDocumentToString(d, paragraphDelimiter));
+    }
+  }
+
+  @Benchmark
+  public void singlePass(Blackhole blackhole) {
+    for (final Documentation d : documentation) {
+      blackhole.consume(DocumentationNormalizer.documentToString(d, paragraphDelimiter));
+    }
+  }
+
+  @Setup
+  public void setup() throws Exception {
+    try (InputStream in = getClass().getClassLoader().getResourceAsStream("roundtrip.xml")) {
+      final Repository repository =
+          XmlParser.unmarshal(in, new EventListenerFactory().getInstance("LOG4J"));
+      documentation = collectDocumentation(repository);
+    }
+  }
+}
@@ -0,0 +1,102 @@
+package io.fixprotocol.orchestra2md;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import io.fixprotocol.orchestra.event.TeeEventListener;
+import io.fixprotocol.orchestra2md.util.HeapFootprint;
+import io.fixprotocol.tablature.synthetic.SyntheticOrchestra;
+
+/**
+ * Estimated heap of the orchestra2md model by element kind, for generated Orchestra of
+ * {@code fieldCount} fields
+ *
+ * {@code model} parses and renders the XML with {@code options} as in {@link GenerateBenchmark},
+ * then estimates the repository and the lookup indexes and caches built while rendering. The
+ * estimates are reported as secondary results in bytes, e.g.
+ * {@code FootprintBenchmark.model:indexes}. They are deterministic, so a single shot is enough;
+ * its time includes the estimate.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class FootprintBenchmark {
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class Bytes {
+    public long codesets;
+    public long components;
+    public long documentation;
+    public long fields;
+    public long groups;
+    public long indexes;
+    public long messages;
+    public long other;
+    public long total;
+
+    @Setup(Level.Iteration)
+    public void clear() {
+      codesets = components = documentation = fields = groups = indexes = messages = other =
+          total = 0;
+    }
+
+    void set(HeapFootprint footprint) {
+      codesets = footprint.getBytes("codesets");
+      components = footprint.getBytes("components");
+      documentation = footprint.getBytes("documentation");
+      fields = footprint.getBytes("fields");
+      groups = footprint.getBytes("groups");
+      indexes = footprint.getBytes("indexes");
+      messages = footprint.getBytes("messages");
+      other = footprint.getBytes(HeapFootprint.OTHER);
+      total = footprint.getTotalBytes();
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class Input {
+    @Param({"1000", "10000"})
+    public int fieldCount;
+
+    @Param({"none", "inlineCodes"})
+    public String options;
+
+    byte[] xml;
+
+    @Setup
+    public void setup() {
+      xml = SyntheticOrchestra.builder().fieldCount(fieldCount).codesetCount(fieldCount / 20)
+          .componentCount(fieldCount / 10).groupCount(fieldCount / 20)
+          .messageCount(fieldCount / 10).nestingDepth(3).scenariosPerMessage(2).build().xml();
+    }
+  }
+
+  @Benchmark
+  public HeapFootprint model(Input input, Bytes bytes) throws Exception {
+    final MarkdownGenerator generator = GenerateBenchmark.createGenerator(input.options);
+    generator.generate(new ByteArrayInputStream(input.xml),
+        new OutputStreamWriter(OutputStream.nullOutputStream(), StandardCharsets.UTF_8),
+        new TeeEventListener());
+    final HeapFootprint footprint = generator.footprint();
+    bytes.set(footprint);
+    return footprint;
+  }
+}
@@ -0,0 +1,121 @@
+package io.fixprotocol.orchestra2md;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import io.fixprotocol._2020.orchestra.repository.Repository;
+import io.fixprotocol.orchestra.event.EventListenerFactory;
+import io.fixprotocol.orchestra.event.TeeEventListener;
+import io.fixprotocol.tablature.synthetic.SyntheticOrchestra;
+
+/**
+ * Markdown generation for roundtrip.xml or a synthetic repository, with one output option at a
+ * time
+ *
+ * {@code input} is {@code roundtrip.xml}, {@code synthetic:<fieldCount>} for messages of fields
+ * alone, or {@code orchestra:<fieldCount>} for messages, components, groups and codesets in
+ * proportion to the number of fields. Synthetic fields have FIXML names and pedigree, and their
+ * datatypes XML mappings. {@code options}
+ * is {@code none}, one of {@code pedigree}, {@code fixml}, {@code inlineCodes} and
+ * {@code datatypes}, or {@code all}, so the cost of each feature is its difference from
+ * {@code none}. {@code generate} starts from an unmarshalled repository; {@code parseAndGenerate}
+ * includes XML parsing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GenerateBenchmark {
+
+  static final int CODES_PER_CODESET = 4;
+  static final int FIELDS_PER_MESSAGE = 100;
+
+  private static final String ORCHESTRA_PREFIX = "orchestra:";
+  private static final String SYNTHETIC_PREFIX = "synthetic:";
+
+  static MarkdownGenerator createGenerator(String options) {
+    final boolean all = "all".equals(options);
+    switch (options) {
+      case "none":
+      case "all":
+      case "pedigree":
+      case "fixml":
+      case "inlineCodes":
+      case "datatypes":
+        return new MarkdownGenerator(MarkdownGenerator.DEFAULT_PARAGRAPH_DELIMITER,
+            all || "pedigree".equals(options), all || "fixml".equals(options),
+            all || "inlineCodes".equals(options), all || "datatypes".equals(options));
+      default:
+        throw new IllegalArgumentException("Unknown options " + options);
+    }
+  }
+
+  /**
+   * @return a repository whose messages have {@value #FIELDS_PER_MESSAGE} fields each, one message
+   *         per {@value #FIELDS_PER_MESSAGE} fields, and every tenth field typed by a codeset of
+   *         {@value #CODES_PER_CODESET} codes
+   */
+  static SyntheticOrchestra flatRepository(int fieldCount) {
+    return SyntheticOrchestra.builder().fieldCount(fieldCount).codesetCount(fieldCount / 10)
+        .codesPerCodeset(CODES_PER_CODESET).componentCount(0).groupCount(0)
+        .messageCount(fieldCount / FIELDS_PER_MESSAGE).membersPerStructure(FIELDS_PER_MESSAGE)
+        .fixmlNames(true).pedigree(true).datatypeMappings(true).build();
+  }
+
+  @Param({"roundtrip.xml", "synthetic:1000", "synthetic:10000", "orchestra:1000"})
+  public String input;
+
+  @Param({"none", "pedigree", "fixml", "inlineCodes", "datatypes", "all"})
+  public String options;
+
+  private Repository repository;
+  private byte[] xml;
+
+  @Benchmark
+  public void generate() throws Exception {
+    createGenerator(options).generate(repository, Writer.nullWriter(), new TeeEventListener());
+  }
+
+  @Benchmark
+  public void parseAndGenerate() throws Exception {
+    createGenerator(options).generate(new ByteArrayInputStream(xml),
+        new OutputStreamWriter(OutputStream.nullOutputStream(), StandardCharsets.UTF_8),
+        new TeeEventListener());
+  }
+
+  @Setup
+  public void setup() throws Exception {
+    if (input.startsWith(SYNTHETIC_PREFIX)) {
+      xml = flatRepository(Integer.parseInt(input.substring(SYNTHETIC_PREFIX.length()))).xml();
+    } else if (input.startsWith(ORCHESTRA_PREFIX)) {
+      final int fieldCount = Integer.parseInt(input.substring(ORCHESTRA_PREFIX.length()));
+      xml = SyntheticOrchestra.builder().fieldCount(fieldCount).codesetCount(fieldCount / 20)
+          .componentCount(fieldCount / 10).groupCount(fieldCount / 20)
+          .messageCount(fieldCount / 10).nestingDepth(3).scenariosPerMessage(2).fixmlNames(true)
+          .pedigree(true).datatypeMappings(true).build().xml();
+    } else {
+      try (InputStream in = getClass().getClassLoader().getResourceAsStream(input)) {
+        xml = in.readAllBytes();
+      }
+    }
+    repository = XmlParser.unmarshal(new ByteArrayInputStream(xml),
+        new EventListenerFactory().getInstance("LOG4J"));
+  }
+}
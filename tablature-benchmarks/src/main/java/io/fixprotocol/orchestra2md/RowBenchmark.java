@@ -0,0 +1,72 @@
+package io.fixprotocol.orchestra2md;
+
+import java.io.ByteArrayInputStream;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import io.fixprotocol._2020.orchestra.repository.Repository;
+import io.fixprotocol.orchestra.event.EventListenerFactory;
+import io.fixprotocol.orchestra.event.TeeEventListener;
+
+/**
+ * Markdown generation for a synthetic repository of 10,000 fields, excluding XML parsing
+ *
+ * Results are normalized per table row. Run with {@code -prof gc} to see allocation per row in
+ * {@code gc.alloc.rate.norm}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RowBenchmark {
+
+  static final int FIELD_COUNT = 10000;
+  // rows of the fields table, of codesets and of message structures
+  static final int ROW_COUNT = FIELD_COUNT
+      + FIELD_COUNT / 10 * GenerateBenchmark.CODES_PER_CODESET + FIELD_COUNT;
+
+  private Repository repository;
+
+  @Benchmark
+  @OperationsPerInvocation(ROW_COUNT)
+  public void allOptions() throws Exception {
+    generate(new MarkdownGenerator(MarkdownGenerator.DEFAULT_PARAGRAPH_DELIMITER, true, true,
+        true, false));
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ROW_COUNT)
+  public void compactTables() throws Exception {
+    generate(new MarkdownGenerator(MarkdownGenerator.DEFAULT_PARAGRAPH_DELIMITER, false, false,
+        false, false, true));
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ROW_COUNT)
+  public void defaultOptions() throws Exception {
+    generate(new MarkdownGenerator());
+  }
+
+  @Setup
+  public void setup() throws Exception {
+    repository = XmlParser.unmarshal(
+        new ByteArrayInputStream(GenerateBenchmark.flatRepository(FIELD_COUNT).xml()),
+        new EventListenerFactory().getInstance("LOG4J"));
+  }
+
+  private void generate(MarkdownGenerator generator) throws Exception {
+    generator.generate(repository, Writer.nullWriter(), new TeeEventListener());
+  }
+}
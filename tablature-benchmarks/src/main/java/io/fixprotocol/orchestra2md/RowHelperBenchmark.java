@@ -0,0 +1,92 @@
+package io.fixprotocol.orchestra2md;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import io.fixprotocol._2020.orchestra.repository.CodeType;
+import io.fixprotocol._2020.orchestra.repository.Documentation;
+import io.fixprotocol.md.event.MarkdownUtil;
+
+/**
+ * Helpers of MarkdownGenerator that are called for each table row
+ *
+ * {@code codeCount} sizes the codeset passed to {@code sortCodes} and {@code codesToString}; codes
+ * are in a seeded random order with sort attributes. {@code documentToString} normalizes one
+ * markdown documentation element of a few wrapped paragraphs, as in a documentation column.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RowHelperBenchmark {
+
+  @State(Scope.Benchmark)
+  public static class Codes {
+    @Param({"4", "32", "256"})
+    public int codeCount;
+
+    List<CodeType> codes;
+    List<CodeType> sortedCodes;
+
+    @Setup
+    public void setup() {
+      final Random random = new Random(codeCount);
+      codes = new ArrayList<>(codeCount);
+      for (int i = 0; i < codeCount; i++) {
+        final CodeType code = new CodeType();
+        code.setName("Code" + i);
+        code.setValue(Integer.toString(i));
+        code.setId(BigInteger.valueOf(1000 + i));
+        code.setSort(Integer.toString(random.nextInt(codeCount)));
+        codes.add(code);
+      }
+      sortedCodes = MarkdownGenerator.sortCodes(codes);
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class Text {
+    Documentation documentation;
+
+    @Setup
+    public void setup() {
+      documentation = new Documentation();
+      documentation.setContentType(MarkdownUtil.MARKDOWN_MEDIA_TYPE);
+      documentation.getContent()
+          .add("Identifies the type of order,\n  as assigned by the firm.\n\n"
+              + "Valid values depend on the\n  counterparty and market.\n\n"
+              + "See *OrdType* for values.\n");
+    }
+  }
+
+  @Benchmark
+  public String codesToString(Codes codes) {
+    return MarkdownGenerator.codesToString(codes.sortedCodes,
+        MarkdownGenerator.DEFAULT_PARAGRAPH_DELIMITER);
+  }
+
+  @Benchmark
+  public String documentToString(Text text) {
+    return MarkdownGenerator.documentToString(text.documentation,
+        MarkdownGenerator.DEFAULT_PARAGRAPH_DELIMITER);
+  }
+
+  @Benchmark
+  public List<CodeType> sortCodes(Codes codes) {
+    return MarkdownGenerator.sortCodes(codes.codes);
+  }
+}
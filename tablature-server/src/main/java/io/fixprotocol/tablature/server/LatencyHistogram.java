@@ -0,0 +1,119 @@
+package io.fixprotocol.tablature.server;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of request latencies, safe to record from many threads without locking
+ *
+ * Bucket {@code i} counts latencies up to 2<sup>i</sup> microseconds, so percentiles are reported
+ * as the upper bound of their bucket, at most double the true value. Latencies over the last bound,
+ * about 67 seconds, are counted in the last bucket.
+ */
+public final class LatencyHistogram {
+
+  private static final int BUCKETS = 27;
+
+  private static int bucket(long micros) {
+    if (micros <= 1) {
+      return 0;
+    }
+    return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros - 1));
+  }
+
+  private static double millis(long micros) {
+    return micros / 1000.0;
+  }
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  private final AtomicLong maxMicros = new AtomicLong();
+  private final LongAdder totalMicros = new LongAdder();
+
+  /**
+   * @return number of latencies recorded
+   */
+  public long getCount() {
+    long count = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      count += counts.get(i);
+    }
+    return count;
+  }
+
+  /**
+   * @return largest latency recorded in milliseconds, or zero if none
+   */
+  public double getMaxMillis() {
+    return millis(maxMicros.get());
+  }
+
+  /**
+   * @return mean latency in milliseconds, or zero if none were recorded
+   */
+  public double getMeanMillis() {
+    final long count = getCount();
+    return count > 0 ? millis(totalMicros.sum()) / count : 0.0;
+  }
+
+  /**
+   * Estimates a percentile
+   *
+   * @param percentile in the range (0, 100]
+   * @return upper bound in milliseconds of the bucket that holds the percentile, or zero if no
+   *         latencies were recorded
+   */
+  public double getPercentileMillis(double percentile) {
+    final long count = getCount();
+    if (count == 0) {
+      return 0.0;
+    }
+    final long rank = Math.max(1, (long) Math.ceil(count * percentile / 100.0));
+    long cumulative = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      cumulative += counts.get(i);
+      if (cumulative >= rank) {
+        return Math.min(millis(1L << i), getMaxMillis());
+      }
+    }
+    return getMaxMillis();
+  }
+
+  /**
+   * Records a latency
+   *
+   * @param nanos elapsed time in nanoseconds
+   */
+  public void record(long nanos) {
+    final long micros = TimeUnit.NANOSECONDS.toMicros(Math.max(0, nanos));
+    counts.incrementAndGet(bucket(micros));
+    totalMicros.add(micros);
+    maxMicros.accumulateAndGet(micros, Math::max);
+  }
+
+  /**
+   * @return a summary with count, mean, max and 50th, 90th and 99th percentiles in milliseconds,
+   *         and the count of each non-empty bucket by its upper bound in milliseconds
+   */
+  public Map<String, Object> toMap() {
+    final Map<String, Object> map = new LinkedHashMap<>();
+    map.put("count", getCount());
+    map.put("meanMillis", getMeanMillis());
+    map.put("p50Millis", getPercentileMillis(50));
+    map.put("p90Millis", getPercentileMillis(90));
+    map.put("p99Millis", getPercentileMillis(99));
+    map.put("maxMillis", getMaxMillis());
+    final Map<String, Long> buckets = new LinkedHashMap<>();
+    for (int i = 0; i < BUCKETS; i++) {
+      final long count = counts.get(i);
+      if (count > 0) {
+        buckets.put(Double.toString(millis(1L << i)), count);
+      }
+    }
+    map.put("buckets", buckets);
+    return map;
+  }
+}
@@ -0,0 +1,113 @@
+package io.fixprotocol.tablature.server;
+
+import java.io.ByteArrayInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import io.fixprotocol.md2orchestra.Reference;
+
+/**
+ * Least recently used cache of loaded reference repositories, keyed by a SHA-256 hash of their
+ * content
+ *
+ * A reference is parsed outside the lock, so a slow load does not hold up conversions with other
+ * references. If the same content is loaded by two threads at once, the first to finish is kept.
+ */
+final class ReferenceCache {
+
+  private static final Logger logger = LogManager.getLogger(ReferenceCache.class);
+
+  static String hash(byte[] content) {
+    try {
+      final byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+      final StringBuilder sb = new StringBuilder(digest.length * 2);
+      for (final byte b : digest) {
+        sb.append(String.format("%02x", b));
+      }
+      return sb.toString();
+    } catch (final NoSuchAlgorithmException e) {
+      // every Java platform supports SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private final int capacity;
+  private long evictions;
+  private long hits;
+  private long misses;
+  private final Map<String, Reference> references;
+
+  /**
+   * @param capacity maximum number of references to keep loaded
+   */
+  ReferenceCache(int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Reference cache capacity must be positive");
+    }
+    this.capacity = capacity;
+    this.references = new LinkedHashMap<>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Reference> eldest) {
+        if (size() > ReferenceCache.this.capacity) {
+          evictions++;
+          logger.info("ReferenceCache evicted reference {}", eldest.getKey());
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * @param hash hash of reference content
+   * @return a loaded reference, or {@code null} if it is not in the cache
+   */
+  synchronized Reference get(String hash) {
+    final Reference reference = references.get(hash);
+    if (reference != null) {
+      hits++;
+    } else {
+      misses++;
+    }
+    return reference;
+  }
+
+  /**
+   * Loads a reference unless the same content is already loaded
+   *
+   * @param content an Orchestra file
+   * @return hash of the content, to pass to {@link #get(String)}
+   * @throws Exception if the content cannot be parsed
+   */
+  String load(byte[] content) throws Exception {
+    final String hash = hash(content);
+    synchronized (this) {
+      if (references.get(hash) != null) {
+        hits++;
+        return hash;
+      }
+      misses++;
+    }
+    final Reference reference = Reference.load(new ByteArrayInputStream(content));
+    synchronized (this) {
+      references.putIfAbsent(hash, reference);
+    }
+    logger.info("ReferenceCache loaded reference {}", hash);
+    return hash;
+  }
+
+  synchronized Map<String, Object> toMap() {
+    final Map<String, Object> map = new LinkedHashMap<>();
+    map.put("size", references.size());
+    map.put("capacity", capacity);
+    map.put("hits", hits);
+    map.put("misses", misses);
+    map.put("evictions", evictions);
+    return map;
+  }
+}
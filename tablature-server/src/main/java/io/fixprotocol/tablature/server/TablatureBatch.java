@@ -0,0 +1,504 @@
+/*
+ * Copyright 2020 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.fixprotocol.tablature.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.fixprotocol.interfaces2md.Interfaces2md;
+import io.fixprotocol.md2interfaces.Md2Interfaces;
+import io.fixprotocol.md2orchestra.Md2Orchestra;
+import io.fixprotocol.md2orchestra.Reference;
+import io.fixprotocol.orchestra2md.Orchestra2md;
+
+/**
+ * Runs the conversions listed in a manifest on a bounded thread pool in one JVM
+ *
+ * A manifest is a JSON object with an array of jobs. Each job has a {@code type} of
+ * {@code md2orchestra}, {@code orchestra2md}, {@code md2interfaces} or {@code interfaces2md},
+ * an optional {@code name}, and keys named like the command line options of its converter:
+ *
+ * <pre>
+ * {"threads": 4, "jobs": [
+ *   {"type": "md2orchestra", "inputs": ["docs/*.md"], "output": "out/rules.xml",
+ *    "reference": "OrchestraFIXLatest.xml", "eventlog": "out/rules.json"},
+ *   {"type": "orchestra2md", "input": "out/rules.xml", "output": "out/rules.md", "datatypes": true}
+ * ]}
+ * </pre>
+ *
+ * The {@code reference} of an md2orchestra job is a file name, or an array of file names layered
+ * in priority order. Jobs are independent, so they may run in any order. Each reference file is
+ * parsed once and shared read-only by all md2orchestra jobs that name it, alone or as a layer. A
+ * failed job does not stop the others. The converters run their own work on the job's thread, so
+ * the pool bounds the threads of the whole batch.
+ *
+ * The report lists the status and timing of each job in manifest order.
+ */
+public class TablatureBatch {
+
+  public static class Builder {
+    private String manifestFile;
+    private String reportFile;
+    private int threads;
+
+    public TablatureBatch build() {
+      return new TablatureBatch(this);
+    }
+
+    public Builder manifestFile(final String manifestFile) {
+      this.manifestFile = manifestFile;
+      return this;
+    }
+
+    /**
+     * @param reportFile path of a JSON report file, or {@code null} to only log results
+     * @return this Builder
+     */
+    public Builder reportFile(final String reportFile) {
+      this.reportFile = reportFile;
+      return this;
+    }
+
+    /**
+     * @param threads number of jobs to run concurrently. Default is the value of {@code threads}
+     *        in the manifest, or else the number of processors.
+     * @return this Builder
+     */
+    public Builder threads(final int threads) {
+      this.threads = threads;
+      return this;
+    }
+  }
+
+  /**
+   * Outcome of one job
+   */
+  public static final class JobResult {
+    private final long elapsedMillis;
+    private final String error;
+    private final String name;
+    private final String output;
+    private final long startMillis;
+    private final String type;
+
+    JobResult(final String name, final String type, final long startMillis,
+        final long elapsedMillis, final String output, final String error) {
+      this.name = name;
+      this.type = type;
+      this.startMillis = startMillis;
+      this.elapsedMillis = elapsedMillis;
+      this.output = output;
+      this.error = error;
+    }
+
+    /**
+     * @return milliseconds that the job ran
+     */
+    public long getElapsedMillis() {
+      return elapsedMillis;
+    }
+
+    /**
+     * @return message of the failure, or {@code null} if the job succeeded
+     */
+    public String getError() {
+      return error;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * @return effect on the output file: "created", "replaced" or "unchanged"; {@code null} if
+     *         the job failed
+     */
+    public String getOutput() {
+      return output;
+    }
+
+    /**
+     * @return milliseconds from the start of the batch to the start of the job
+     */
+    public long getStartMillis() {
+      return startMillis;
+    }
+
+    /**
+     * @return "ok" or "failed"
+     */
+    public String getStatus() {
+      return error == null ? "ok" : "failed";
+    }
+
+    public String getType() {
+      return type;
+    }
+  }
+
+  private static final Set<String> JOB_TYPES =
+      Set.of("md2orchestra", "orchestra2md", "md2interfaces", "interfaces2md");
+  private static final Logger logger = LogManager.getLogger(TablatureBatch.class);
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Run a batch of conversions and exit with status 1 if any failed
+   *
+   * <pre>
+  usage: TablatureBatch [options] &lt;manifest-file&gt;
+   -?,--help            display usage
+   -r,--report &lt;arg&gt;    path of JSON report file
+   -t,--threads &lt;arg&gt;   number of concurrent jobs
+   * </pre>
+   *
+   * @param args command line arguments
+   */
+  public static void main(final String[] args) {
+    try {
+      final List<JobResult> results = parseArgs(args).build().run();
+      if (results.stream().anyMatch(r -> r.getError() != null)) {
+        System.exit(1);
+      }
+    } catch (final Exception e) {
+      System.err.println(e.getMessage());
+      System.exit(1);
+    }
+  }
+
+  static Builder parseArgs(final String[] args) throws ParseException {
+    final Options options = new Options();
+    options.addOption(
+        Option.builder("?").numberOfArgs(0).desc("display usage").longOpt("help").build());
+    options.addOption(Option.builder("r").desc("path of JSON report file").longOpt("report")
+        .numberOfArgs(1).build());
+    options.addOption(Option.builder("t").desc("number of concurrent jobs").longOpt("threads")
+        .numberOfArgs(1).type(Number.class).build());
+
+    final DefaultParser parser = new DefaultParser();
+    CommandLine cmd;
+
+    final Builder builder = new Builder();
+
+    try {
+      cmd = parser.parse(options, args);
+
+      if (cmd.hasOption("?")) {
+        showHelp(options);
+        System.exit(0);
+      }
+
+      if (cmd.getArgList().isEmpty()) {
+        throw new ParseException("Manifest file is missing");
+      }
+      builder.manifestFile(cmd.getArgList().get(0));
+
+      if (cmd.hasOption("r")) {
+        builder.reportFile(cmd.getOptionValue("r"));
+      }
+
+      if (cmd.hasOption("t")) {
+        builder.threads(((Number) cmd.getParsedOptionValue("t")).intValue());
+      }
+
+      return builder;
+    } catch (final ParseException e) {
+      showHelp(options);
+      throw e;
+    }
+  }
+
+  private static boolean flag(final JsonNode job, final String key) {
+    return job.path(key).asBoolean(false);
+  }
+
+  private static List<String> inputs(final JsonNode job) {
+    final List<String> inputs = new ArrayList<>();
+    if (job.has("inputs")) {
+      job.get("inputs").forEach(input -> inputs.add(input.asText()));
+    }
+    if (job.has("input")) {
+      inputs.add(job.get("input").asText());
+    }
+    return inputs;
+  }
+
+  private static List<String> references(final JsonNode job) {
+    final List<String> references = new ArrayList<>();
+    final JsonNode value = job.get("reference");
+    if (value != null && value.isArray()) {
+      value.forEach(reference -> references.add(reference.asText()));
+    } else if (value != null && !value.isNull()) {
+      references.add(value.asText());
+    }
+    return references;
+  }
+
+  private static String text(final JsonNode job, final String key) {
+    final JsonNode value = job.get(key);
+    return value != null && !value.isNull() ? value.asText() : null;
+  }
+
+  private static void showHelp(final Options options) {
+    final HelpFormatter formatter = new HelpFormatter();
+    formatter.printHelp("TablatureBatch [options] <manifest-file>", options);
+  }
+
+  private final String manifestFile;
+  private final ObjectMapper mapper = new ObjectMapper();
+  private final AtomicInteger referencesLoaded = new AtomicInteger();
+  private final Map<Path, Future<Reference>> references = new ConcurrentHashMap<>();
+  private final String reportFile;
+  private final int threads;
+
+  private TablatureBatch(final Builder builder) {
+    this.manifestFile = builder.manifestFile;
+    this.reportFile = builder.reportFile;
+    this.threads = builder.threads;
+  }
+
+  /**
+   * Run all jobs of the manifest and write the report
+   *
+   * @return result of each job in manifest order
+   * @throws IOException if the manifest cannot be read or the report cannot be written
+   * @throws IllegalArgumentException if the manifest is invalid. No jobs are run.
+   * @throws InterruptedException if interrupted while waiting for jobs
+   */
+  public List<JobResult> run() throws IOException, InterruptedException {
+    Objects.requireNonNull(manifestFile, "Manifest file is missing");
+    final JsonNode manifest = mapper.readTree(Path.of(manifestFile).toFile());
+    final JsonNode jobs = manifest.path("jobs");
+    if (!jobs.isArray()) {
+      throw new IllegalArgumentException("Manifest has no jobs array; " + manifestFile);
+    }
+    final List<String> names = new ArrayList<>();
+    final List<Callable<String>> conversions = new ArrayList<>();
+    for (int i = 0; i < jobs.size(); i++) {
+      final JsonNode job = jobs.get(i);
+      final String type = text(job, "type");
+      if (type == null || !JOB_TYPES.contains(type)) {
+        throw new IllegalArgumentException(
+            "Job " + i + " has unknown type " + type + "; expected one of " + JOB_TYPES);
+      }
+      if (text(job, "output") == null || inputs(job).isEmpty()) {
+        throw new IllegalArgumentException("Job " + i + " needs input and output");
+      }
+      final String name = text(job, "name");
+      names.add(name != null ? name : text(job, "output"));
+      conversions.add(conversion(type, job));
+    }
+
+    int poolSize = threads;
+    if (poolSize < 1) {
+      poolSize = manifest.path("threads").asInt(Runtime.getRuntime().availableProcessors());
+    }
+    poolSize = Math.max(1, Math.min(poolSize, conversions.size()));
+    logger.info("TablatureBatch running {} jobs on {} threads", conversions.size(), poolSize);
+
+    final long batchStartNanos = System.nanoTime();
+    final ExecutorService executor = Executors.newFixedThreadPool(poolSize);
+    final List<Future<JobResult>> futures = new ArrayList<>(conversions.size());
+    try {
+      for (int i = 0; i < conversions.size(); i++) {
+        final String name = names.get(i);
+        final String type = text(jobs.get(i), "type");
+        final Callable<String> conversion = conversions.get(i);
+        futures.add(executor.submit(() -> runJob(name, type, conversion, batchStartNanos)));
+      }
+      final List<JobResult> results = new ArrayList<>(futures.size());
+      for (final Future<JobResult> future : futures) {
+        try {
+          results.add(future.get());
+        } catch (final ExecutionException e) {
+          // runJob catches job failures, so this is unexpected
+          throw new IllegalStateException(e.getCause());
+        }
+      }
+      final long elapsedMillis =
+          TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - batchStartNanos);
+      report(results, poolSize, elapsedMillis);
+      return results;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private Callable<String> conversion(final String type, final JsonNode job) {
+    final List<String> inputs = inputs(job);
+    final String output = text(job, "output");
+    final String eventlog = text(job, "eventlog");
+    switch (type) {
+      case "md2orchestra":
+        return () -> {
+          final Md2Orchestra.Builder builder = Md2Orchestra.builder().inputFilePatterns(inputs)
+              .outputFile(output).eventFile(eventlog).importPath(text(job, "import"))
+              .cacheDirectory(text(job, "cache"));
+          if (job.has("paragraph")) {
+            builder.paragraphDelimiter(text(job, "paragraph"));
+          }
+          if (job.has("searchdepth")) {
+            builder.componentDepth(job.get("searchdepth").asInt());
+          } else if (flag(job, "fullsearch")) {
+            builder.componentDepth(Integer.MAX_VALUE);
+          }
+          final List<String> referenceFiles = references(job);
+          if (!referenceFiles.isEmpty()) {
+            final List<Reference> layers = new ArrayList<>(referenceFiles.size());
+            for (final String referenceFile : referenceFiles) {
+              layers.add(reference(Path.of(referenceFile)));
+            }
+            builder.referenceFiles(referenceFiles).reference(Reference.layered(layers));
+          }
+          final Md2Orchestra md2Orchestra = builder.build();
+          md2Orchestra.generate();
+          return outcome(md2Orchestra.getOutputOutcome());
+        };
+      case "orchestra2md":
+        return () -> {
+          final boolean all = flag(job, "all");
+          final Orchestra2md.Builder builder = Orchestra2md.builder().inputFile(inputs.get(0))
+              .outputFile(output).eventFile(eventlog).pedigree(all || flag(job, "pedigree"))
+              .fixml(all || flag(job, "fixml")).datatypes(all || flag(job, "datatypes"))
+              .compactTables(flag(job, "compact"));
+          if (job.has("paragraph")) {
+            builder.paragraphDelimiter(text(job, "paragraph"));
+          }
+          final Orchestra2md orchestra2md = builder.build();
+          orchestra2md.generateOrThrow();
+          return outcome(orchestra2md.getOutputOutcome());
+        };
+      case "md2interfaces":
+        return () -> {
+          final Md2Interfaces md2Interfaces = Md2Interfaces.builder().inputFiles(inputs)
+              .outputFile(output).eventFile(eventlog).parallelism(1).build();
+          md2Interfaces.generateOrThrow();
+          return outcome(md2Interfaces.getOutputOutcome());
+        };
+      default:
+        return () -> {
+          final Interfaces2md interfaces2md = new Interfaces2md.Builder().inputFile(inputs.get(0))
+              .outputFile(output).eventFile(eventlog).sharded(flag(job, "sharded"))
+              .streaming(flag(job, "streaming")).parallelism(1).build();
+          interfaces2md.generateOrThrow();
+          return outcome(interfaces2md.getOutputOutcome());
+        };
+    }
+  }
+
+  private static String outcome(final Enum<?> outcome) {
+    return outcome != null ? outcome.name().toLowerCase() : null;
+  }
+
+  private Reference reference(final Path referencePath) throws Exception {
+    final Path key = referencePath.toAbsolutePath().normalize();
+    final FutureTask<Reference> task = new FutureTask<>(() -> {
+      try (InputStream in = Files.newInputStream(key)) {
+        final Reference reference = Reference.load(in);
+        referencesLoaded.incrementAndGet();
+        logger.info("TablatureBatch loaded reference {}", key);
+        return reference;
+      }
+    });
+    Future<Reference> future = references.putIfAbsent(key, task);
+    if (future == null) {
+      future = task;
+      task.run();
+    }
+    try {
+      return future.get();
+    } catch (final ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof Exception) {
+        throw (Exception) cause;
+      }
+      throw e;
+    }
+  }
+
+  private void report(final List<JobResult> results, final int poolSize,
+      final long elapsedMillis) throws IOException {
+    final long failed = results.stream().filter(r -> r.getError() != null).count();
+    for (final JobResult result : results) {
+      logger.info("TablatureBatch {} {} {} in {} ms{}", result.getType(), result.getName(),
+          result.getStatus(), result.getElapsedMillis(),
+          result.getError() != null ? "; " + result.getError() : "; output " + result.getOutput());
+    }
+    final long unchanged = results.stream().filter(r -> "unchanged".equals(r.getOutput())).count();
+    logger.info("TablatureBatch {} jobs, {} failed, {} unchanged, in {} ms", results.size(),
+        failed, unchanged, elapsedMillis);
+    if (reportFile != null) {
+      final Map<String, Object> report = new LinkedHashMap<>();
+      report.put("jobs", results.size());
+      report.put("failed", failed);
+      report.put("unchanged", unchanged);
+      report.put("threads", poolSize);
+      report.put("elapsedMillis", elapsedMillis);
+      report.put("jobMillis", results.stream().mapToLong(JobResult::getElapsedMillis).sum());
+      report.put("referencesLoaded", referencesLoaded.get());
+      report.put("results", results);
+      final Path reportPath = Path.of(reportFile);
+      final Path reportDir = reportPath.toAbsolutePath().getParent();
+      if (reportDir != null) {
+        Files.createDirectories(reportDir);
+      }
+      mapper.writer().with(SerializationFeature.INDENT_OUTPUT).writeValue(reportPath.toFile(),
+          report);
+    }
+  }
+
+  private JobResult runJob(final String name, final String type, final Callable<String> conversion,
+      final long batchStartNanos) {
+    final long startNanos = System.nanoTime();
+    String output = null;
+    String error = null;
+    try {
+      output = conversion.call();
+    } catch (final Exception e) {
+      logger.error("TablatureBatch job {} failed", name, e);
+      error = e.getMessage() != null ? e.getMessage() : e.getClass().getName();
+    }
+    return new JobResult(name, type, TimeUnit.NANOSECONDS.toMillis(startNanos - batchStartNanos),
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos), output, error);
+  }
+}
@@ -0,0 +1,465 @@
+/*
+ * Copyright 2020 FIX Protocol Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.fixprotocol.tablature.server;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.fixprotocol.md2orchestra.Reference;
+import io.fixprotocol.md2orchestra.RepositoryBuilder;
+import io.fixprotocol.md2orchestra.RepositoryEngine;
+import io.fixprotocol.orchestra2md.MarkdownGenerator;
+
+/**
+ * Local HTTP server for conversions between markdown and Orchestra
+ *
+ * A long-running server saves the JVM startup and reference loading that a command line
+ * conversion pays every time. Each request is converted on a thread of a fixed pool, with its own
+ * builder or generator, so requests run concurrently. Reference repositories are loaded once and
+ * shared read-only by all requests that name them.
+ *
+ * <ul>
+ * <li>{@code PUT /references} with an Orchestra file loads it as a reference, unless already
+ * loaded, and returns its hash as {@code {"reference":"<hash>"}}</li>
+ * <li>{@code POST /md2orchestra} with markdown returns an Orchestra file. Query parameters
+ * {@code reference=<hash>}, {@code paragraph}, {@code searchdepth} and {@code fullsearch} match the
+ * options of Md2Orchestra. Comma-separated hashes layer several references in priority order. If a
+ * reference has been evicted, the status is 404, and the client should put it again.</li>
+ * <li>{@code POST /orchestra2md} with an Orchestra file returns markdown. Query parameters
+ * {@code paragraph}, {@code pedigree}, {@code fixml}, {@code datatypes}, {@code all} and
+ * {@code compact} match the options of Orchestra2md.</li>
+ * <li>{@code GET /stats} returns latency histograms by path and reference cache counts.</li>
+ * </ul>
+ *
+ * Conversions respond with {@code {"output":"<converted text>","log":{"events":[...]}}}, where
+ * log is the JSON event log that the command line tools write with option {@code --eventlog}.
+ * Errors respond with {@code {"error":"<message>"}}. Markdown file import is not supported, since
+ * paths are local to the client.
+ */
+public class TablatureServer {
+
+  public static class Builder {
+    private String host = DEFAULT_HOST;
+    private int maxRequestBytes = DEFAULT_MAX_REQUEST_BYTES;
+    private int port = DEFAULT_PORT;
+    private int referenceCacheSize = DEFAULT_REFERENCE_CACHE_SIZE;
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    public TablatureServer build() {
+      return new TablatureServer(this);
+    }
+
+    /**
+     * @param host address to listen on. Default is the loopback address, so the server is not
+     *        reachable from other machines.
+     * @return this Builder
+     */
+    public Builder host(final String host) {
+      this.host = host;
+      return this;
+    }
+
+    /**
+     * @param maxRequestBytes largest request body accepted. Larger requests get status 413.
+     * @return this Builder
+     */
+    public Builder maxRequestBytes(final int maxRequestBytes) {
+      this.maxRequestBytes = maxRequestBytes;
+      return this;
+    }
+
+    /**
+     * @param port port to listen on, or 0 for any free port
+     * @return this Builder
+     * @see TablatureServer#getPort()
+     */
+    public Builder port(final int port) {
+      this.port = port;
+      return this;
+    }
+
+    /**
+     * @param referenceCacheSize number of reference repositories to keep loaded. The least
+     *        recently used is evicted first.
+     * @return this Builder
+     */
+    public Builder referenceCacheSize(final int referenceCacheSize) {
+      this.referenceCacheSize = referenceCacheSize;
+      return this;
+    }
+
+    /**
+     * @param threads number of requests to convert concurrently. Default is the number of
+     *        processors.
+     * @return this Builder
+     */
+    public Builder threads(final int threads) {
+      this.threads = threads;
+      return this;
+    }
+  }
+
+  public static final String DEFAULT_HOST = "127.0.0.1";
+  public static final int DEFAULT_MAX_REQUEST_BYTES = 64 * 1024 * 1024;
+  public static final int DEFAULT_PORT = 8086;
+  public static final int DEFAULT_REFERENCE_CACHE_SIZE = 8;
+
+  private static final Logger logger = LogManager.getLogger(TablatureServer.class);
+
+  /**
+   * Failure of a request with an HTTP status
+   */
+  private static final class RequestException extends Exception {
+    private static final long serialVersionUID = 1L;
+    final int status;
+
+    RequestException(final int status, final String message) {
+      super(message);
+      this.status = status;
+    }
+  }
+
+  @FunctionalInterface
+  private interface RequestHandler {
+    Map<String, Object> handle(byte[] body, Map<String, String> query) throws Exception;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Run a TablatureServer until the process is stopped
+   *
+   * <pre>
+  usage: TablatureServer [options]
+   -?,--help               display usage
+      --cachesize &lt;arg&gt;    number of reference repositories to keep loaded
+   -h,--host &lt;arg&gt;         address to listen on, default 127.0.0.1
+      --maxrequest &lt;arg&gt;   largest request body in bytes
+   -p,--port &lt;arg&gt;         port to listen on, default 8086
+   -t,--threads &lt;arg&gt;      number of concurrent conversions
+   * </pre>
+   *
+   * @param args command line arguments
+   */
+  public static void main(final String[] args) {
+    try {
+      final TablatureServer server = parseArgs(args).build();
+      server.start();
+      Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+    } catch (final Exception e) {
+      System.err.println(e.getMessage());
+      System.exit(1);
+    }
+  }
+
+  static Builder parseArgs(final String[] args) throws ParseException {
+    final Options options = new Options();
+    options.addOption(
+        Option.builder("?").numberOfArgs(0).desc("display usage").longOpt("help").build());
+    options.addOption(Option.builder("h").desc("address to listen on, default " + DEFAULT_HOST)
+        .longOpt("host").numberOfArgs(1).build());
+    options.addOption(Option.builder("p").desc("port to listen on, default " + DEFAULT_PORT)
+        .longOpt("port").numberOfArgs(1).type(Number.class).build());
+    options.addOption(Option.builder("t").desc("number of concurrent conversions")
+        .longOpt("threads").numberOfArgs(1).type(Number.class).build());
+    options.addOption(Option.builder().desc("number of reference repositories to keep loaded")
+        .longOpt("cachesize").numberOfArgs(1).type(Number.class).build());
+    options.addOption(Option.builder().desc("largest request body in bytes")
+        .longOpt("maxrequest").numberOfArgs(1).type(Number.class).build());
+
+    final DefaultParser parser = new DefaultParser();
+    CommandLine cmd;
+
+    final Builder builder = new Builder();
+
+    try {
+      cmd = parser.parse(options, args);
+
+      if (cmd.hasOption("?")) {
+        showHelp(options);
+        System.exit(0);
+      }
+
+      if (cmd.hasOption("host")) {
+        builder.host(cmd.getOptionValue("host"));
+      }
+
+      if (cmd.hasOption("port")) {
+        builder.port(((Number) cmd.getParsedOptionValue("port")).intValue());
+      }
+
+      if (cmd.hasOption("threads")) {
+        builder.threads(((Number) cmd.getParsedOptionValue("threads")).intValue());
+      }
+
+      if (cmd.hasOption("cachesize")) {
+        builder.referenceCacheSize(((Number) cmd.getParsedOptionValue("cachesize")).intValue());
+      }
+
+      if (cmd.hasOption("maxrequest")) {
+        builder.maxRequestBytes(((Number) cmd.getParsedOptionValue("maxrequest")).intValue());
+      }
+
+      return builder;
+    } catch (final ParseException e) {
+      showHelp(options);
+      throw e;
+    }
+  }
+
+  private static boolean flag(final Map<String, String> query, final String name) {
+    final String value = query.get(name);
+    return value != null && !"false".equalsIgnoreCase(value);
+  }
+
+  private static Map<String, String> parseQuery(final String rawQuery) {
+    final Map<String, String> query = new HashMap<>();
+    if (rawQuery != null) {
+      for (final String parameter : rawQuery.split("&")) {
+        if (parameter.isEmpty()) {
+          continue;
+        }
+        final int equalsPos = parameter.indexOf('=');
+        final String name = equalsPos != -1 ? parameter.substring(0, equalsPos) : parameter;
+        final String value = equalsPos != -1 ? parameter.substring(equalsPos + 1) : "";
+        query.put(URLDecoder.decode(name, StandardCharsets.UTF_8),
+            URLDecoder.decode(value, StandardCharsets.UTF_8));
+      }
+    }
+    return query;
+  }
+
+  private static void showHelp(final Options options) {
+    final HelpFormatter formatter = new HelpFormatter();
+    formatter.printHelp("TablatureServer [options]", options);
+  }
+
+  private ExecutorService executor;
+  private final String host;
+  private final Map<String, LatencyHistogram> latencies = new LinkedHashMap<>();
+  private final ObjectMapper mapper = new ObjectMapper();
+  private final int maxRequestBytes;
+  private final int port;
+  private final ReferenceCache referenceCache;
+  private HttpServer server;
+  private final int threads;
+
+  private TablatureServer(final Builder builder) {
+    this.host = builder.host;
+    this.port = builder.port;
+    this.threads = builder.threads;
+    this.maxRequestBytes = builder.maxRequestBytes;
+    this.referenceCache = new ReferenceCache(builder.referenceCacheSize);
+  }
+
+  /**
+   * @return the port that the server listens on, or -1 if it is not started
+   */
+  public int getPort() {
+    return server != null ? server.getAddress().getPort() : -1;
+  }
+
+  /**
+   * Start listening for requests
+   *
+   * @throws IOException if the server cannot listen on its address
+   */
+  public void start() throws IOException {
+    server = HttpServer.create(new InetSocketAddress(host, port), 0);
+    addContext("/references", "PUT", this::loadReference);
+    addContext("/md2orchestra", "POST", this::md2orchestra);
+    addContext("/orchestra2md", "POST", this::orchestra2md);
+    addContext("/stats", "GET", (body, query) -> stats());
+    executor = Executors.newFixedThreadPool(threads);
+    server.setExecutor(executor);
+    server.start();
+    logger.info("TablatureServer listening at {}:{} with {} threads", host, getPort(), threads);
+  }
+
+  /**
+   * Stop listening, and wait briefly for requests in progress to finish
+   */
+  public void stop() {
+    if (server != null) {
+      server.stop(1);
+      executor.shutdown();
+      try {
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      logger.info("TablatureServer stopped");
+    }
+  }
+
+  private void addContext(final String path, final String method, final RequestHandler handler) {
+    final LatencyHistogram latency = new LatencyHistogram();
+    latencies.put(path, latency);
+    server.createContext(path, exchange -> {
+      final long startNanos = System.nanoTime();
+      int status = 200;
+      Map<String, Object> response;
+      try {
+        if (!path.equals(exchange.getRequestURI().getPath())) {
+          throw new RequestException(404, "Unknown path " + exchange.getRequestURI().getPath());
+        }
+        if (!method.equals(exchange.getRequestMethod())) {
+          exchange.getResponseHeaders().add("Allow", method);
+          throw new RequestException(405, "Use " + method + " for " + path);
+        }
+        final byte[] body = readBody(exchange);
+        response = handler.handle(body, parseQuery(exchange.getRequestURI().getRawQuery()));
+      } catch (final RequestException e) {
+        status = e.status;
+        response = Map.of("error", e.getMessage());
+      } catch (final Exception e) {
+        logger.error("TablatureServer failed to handle {}", path, e);
+        status = 500;
+        response = Map.of("error", String.valueOf(e.getMessage()));
+      }
+      try (exchange) {
+        final byte[] bytes;
+        try {
+          bytes = mapper.writeValueAsBytes(response);
+        } finally {
+          // recorded before the response is sent, so a client that has its response sees it
+          latency.record(System.nanoTime() - startNanos);
+        }
+        exchange.getResponseHeaders().add("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+          out.write(bytes);
+        }
+      }
+    });
+  }
+
+  private Map<String, Object> conversion(final ByteArrayOutputStream output,
+      final ByteArrayOutputStream json) throws IOException {
+    final Map<String, Object> response = new LinkedHashMap<>();
+    response.put("output", output.toString(StandardCharsets.UTF_8));
+    response.put("log", mapper.readTree(json.toByteArray()));
+    return response;
+  }
+
+  private Map<String, Object> loadReference(final byte[] body, final Map<String, String> query)
+      throws Exception {
+    final String hash;
+    try {
+      hash = referenceCache.load(body);
+    } catch (final Exception e) {
+      throw new RequestException(400, "Invalid reference; " + e.getMessage());
+    }
+    return Map.of("reference", hash);
+  }
+
+  private Map<String, Object> md2orchestra(final byte[] body, final Map<String, String> query)
+      throws Exception {
+    Reference reference = null;
+    final String hashes = query.get("reference");
+    if (hashes != null) {
+      final List<Reference> layers = new ArrayList<>();
+      for (final String hash : hashes.split(",")) {
+        final Reference layer = referenceCache.get(hash);
+        if (layer == null) {
+          throw new RequestException(404, "Unknown reference " + hash + "; put it to /references");
+        }
+        layers.add(layer);
+      }
+      reference = Reference.layered(layers);
+    }
+    int componentDepth = 1;
+    try {
+      if (query.containsKey("searchdepth")) {
+        componentDepth = Integer.parseInt(query.get("searchdepth"));
+      }
+    } catch (final NumberFormatException e) {
+      throw new RequestException(400, "Invalid searchdepth " + query.get("searchdepth"));
+    }
+    if (flag(query, "fullsearch")) {
+      componentDepth = Integer.MAX_VALUE;
+    }
+
+    final ByteArrayOutputStream json = new ByteArrayOutputStream();
+    final RepositoryEngine engine = RepositoryEngine.builder().reference(reference)
+        .paragraphDelimiter(
+            query.getOrDefault("paragraph", RepositoryBuilder.DEFAULT_PARAGRAPH_DELIMITER))
+        .maxComponentDepth(componentDepth).build();
+    final RepositoryBuilder builder = engine.newBuilder(json);
+    builder.appendInput(new ByteArrayInputStream(body));
+    final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    builder.write(output);
+    return conversion(output, json);
+  }
+
+  private Map<String, Object> orchestra2md(final byte[] body, final Map<String, String> query)
+      throws Exception {
+    final boolean all = flag(query, "all");
+    final MarkdownGenerator generator = new MarkdownGenerator(
+        query.getOrDefault("paragraph", MarkdownGenerator.DEFAULT_PARAGRAPH_DELIMITER),
+        all || flag(query, "pedigree"), all || flag(query, "fixml"), false,
+        all || flag(query, "datatypes"), flag(query, "compact"));
+    final ByteArrayOutputStream json = new ByteArrayOutputStream();
+    final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    generator.generate(new ByteArrayInputStream(body),
+        new OutputStreamWriter(output, StandardCharsets.UTF_8), json);
+    return conversion(output, json);
+  }
+
+  private byte[] readBody(final HttpExchange exchange) throws IOException, RequestException {
+    try (InputStream in = exchange.getRequestBody()) {
+      final byte[] body = in.readNBytes(maxRequestBytes);
+      if (in.read() != -1) {
+        throw new RequestException(413, "Request larger than " + maxRequestBytes + " bytes");
+      }
+      return body;
+    }
+  }
+
+  private Map<String, Object> stats() {
+    final Map<String, Object> latencyMap = new LinkedHashMap<>();
+    latencies.forEach((path, latency) -> latencyMap.put(path, latency.toMap()));
+    final Map<String, Object> response = new LinkedHashMap<>();
+    response.put("latency", latencyMap);
+    response.put("references", referenceCache.toMap());
+    return response;
+  }
+}
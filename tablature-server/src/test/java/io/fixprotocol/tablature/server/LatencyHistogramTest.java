@@ -0,0 +1,35 @@
+package io.fixprotocol.tablature.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+
+  @Test
+  void empty() {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    assertEquals(0, histogram.getCount());
+    assertEquals(0.0, histogram.getPercentileMillis(99));
+    assertEquals(0.0, histogram.getMeanMillis());
+  }
+
+  @Test
+  void percentiles() {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 0; i < 90; i++) {
+      histogram.record(TimeUnit.MILLISECONDS.toNanos(1));
+    }
+    for (int i = 0; i < 10; i++) {
+      histogram.record(TimeUnit.MILLISECONDS.toNanos(100));
+    }
+    assertEquals(100, histogram.getCount());
+    // 1000 micros falls in the bucket up to 1024 micros
+    assertEquals(1.024, histogram.getPercentileMillis(50));
+    assertEquals(1.024, histogram.getPercentileMillis(90));
+    // bounded by the largest latency rather than the bucket bound of 131.072 ms
+    assertEquals(100.0, histogram.getPercentileMillis(99));
+    assertEquals(100.0, histogram.getMaxMillis());
+    assertEquals(10.9, histogram.getMeanMillis(), 0.001);
+  }
+}
@@ -0,0 +1,98 @@
+package io.fixprotocol.tablature.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.fixprotocol.tablature.synthetic.SyntheticInterfaces;
+import io.fixprotocol.tablature.synthetic.SyntheticOrchestra;
+
+class TablatureBatchTest {
+
+  @TempDir
+  Path dir;
+
+  @Test
+  void allConversions() throws Exception {
+    final SyntheticOrchestra orchestra = SyntheticOrchestra.builder().build();
+    Files.write(dir.resolve("rules.md"), orchestra.markdown());
+    Files.write(dir.resolve("reference.xml"), orchestra.xml());
+    Files.write(dir.resolve("interfaces.md"), SyntheticInterfaces.markdown(2, 2, 2));
+    Files.write(dir.resolve("interfaces.xml"), SyntheticInterfaces.xml(2, 2, 2));
+    final String manifest = "{\"threads\": 3, \"jobs\": ["
+        + job("md2orchestra", "rules.md", "rules1.xml", ", \"reference\": " + path("reference.xml"))
+        + "," + job("md2orchestra", "rules.md", "rules2.xml",
+            ", \"reference\": " + path("reference.xml") + ", \"eventlog\": " + path("rules2.json"))
+        + "," + job("orchestra2md", "reference.xml", "reference.md", ", \"datatypes\": true")
+        + "," + job("md2interfaces", "interfaces.md", "interfaces-out.xml", "")
+        + "," + job("interfaces2md", "interfaces.xml", "interfaces-out.md", "")
+        + "," + job("orchestra2md", "missing.xml", "missing.md", "") + "]}";
+    final Path manifestPath = dir.resolve("manifest.json");
+    Files.writeString(manifestPath, manifest);
+    final Path reportPath = dir.resolve("report.json");
+
+    final List<TablatureBatch.JobResult> results = TablatureBatch.builder()
+        .manifestFile(manifestPath.toString()).reportFile(reportPath.toString()).build().run();
+
+    assertEquals(6, results.size());
+    for (int i = 0; i < 5; i++) {
+      assertNull(results.get(i).getError(), results.get(i).getName());
+    }
+    assertNotNull(results.get(5).getError());
+    assertSameContent("rules1.xml", "rules2.xml");
+    assertTrue(Files.size(dir.resolve("reference.md")) > 0);
+    assertTrue(Files.size(dir.resolve("interfaces-out.xml")) > 0);
+    assertTrue(Files.size(dir.resolve("interfaces-out.md")) > 0);
+
+    final JsonNode report = new ObjectMapper().readTree(reportPath.toFile());
+    assertEquals(6, report.get("jobs").asInt());
+    assertEquals(1, report.get("failed").asInt());
+    assertEquals(3, report.get("threads").asInt());
+    // shared by both md2orchestra jobs
+    assertEquals(1, report.get("referencesLoaded").asInt());
+    assertEquals("failed", report.get("results").get(5).get("status").asText());
+    assertEquals("created", report.get("results").get(0).get("output").asText());
+
+    // a second run leaves every output untouched
+    final List<TablatureBatch.JobResult> rerun = TablatureBatch.builder()
+        .manifestFile(manifestPath.toString()).reportFile(reportPath.toString()).build().run();
+    for (int i = 0; i < 5; i++) {
+      assertEquals("unchanged", rerun.get(i).getOutput(), rerun.get(i).getName());
+    }
+    assertEquals(5, new ObjectMapper().readTree(reportPath.toFile()).get("unchanged").asInt());
+  }
+
+  @Test
+  void invalidManifest() throws Exception {
+    final Path manifestPath = dir.resolve("manifest.json");
+    Files.writeString(manifestPath,
+        "{\"jobs\": [" + job("md2html", "rules.md", "rules.html", "") + "]}");
+    assertThrows(IllegalArgumentException.class,
+        () -> TablatureBatch.builder().manifestFile(manifestPath.toString()).build().run());
+  }
+
+  private void assertSameContent(String first, String second) throws Exception {
+    assertEquals(Files.readString(dir.resolve(first)), Files.readString(dir.resolve(second)));
+  }
+
+  private String job(String type, String input, String output, String more) {
+    return "{\"type\": " + quote(type) + ", \"input\": " + path(input) + ", \"output\": "
+        + path(output) + more + "}";
+  }
+
+  private String path(String fileName) {
+    return quote(dir.resolve(fileName).toString());
+  }
+
+  private static String quote(String value) {
+    return "\"" + value.replace("\\", "\\\\") + "\"";
+  }
+}
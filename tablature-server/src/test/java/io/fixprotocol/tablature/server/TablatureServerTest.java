@@ -0,0 +1,135 @@
+package io.fixprotocol.tablature.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.fixprotocol.tablature.synthetic.SyntheticOrchestra;
+
+class TablatureServerTest {
+
+  private static final class Response {
+    final JsonNode body;
+    final int status;
+
+    Response(int status, JsonNode body) {
+      this.status = status;
+      this.body = body;
+    }
+  }
+
+  private final ObjectMapper mapper = new ObjectMapper();
+  private TablatureServer server;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    server = TablatureServer.builder().port(0).threads(4).referenceCacheSize(1).build();
+    server.start();
+  }
+
+  @AfterEach
+  void tearDown() {
+    server.stop();
+  }
+
+  @Test
+  void concurrentRequests() throws Exception {
+    final SyntheticOrchestra orchestra = SyntheticOrchestra.builder().build();
+    final String reference = request("PUT", "/references", orchestra.xml()).body
+        .get("reference").asText();
+    final String expected =
+        request("POST", "/md2orchestra?reference=" + reference, orchestra.markdown()).body
+            .get("output").asText();
+
+    final ExecutorService clients = Executors.newFixedThreadPool(8);
+    try {
+      final List<Future<Response>> futures = new ArrayList<>();
+      for (int i = 0; i < 16; i++) {
+        futures.add(clients.submit(() -> request("POST", "/md2orchestra?reference=" + reference,
+            orchestra.markdown())));
+      }
+      for (final Future<Response> future : futures) {
+        final Response response = future.get();
+        assertEquals(200, response.status);
+        assertEquals(expected, response.body.get("output").asText());
+      }
+    } finally {
+      clients.shutdown();
+    }
+
+    final JsonNode latency = request("GET", "/stats", null).body.get("latency");
+    assertEquals(17, latency.get("/md2orchestra").get("count").asLong());
+  }
+
+  @Test
+  void md2orchestra() throws Exception {
+    final SyntheticOrchestra orchestra = SyntheticOrchestra.builder().build();
+    final Response response = request("POST", "/md2orchestra", orchestra.markdown());
+    assertEquals(200, response.status);
+    assertTrue(response.body.get("output").asText().contains("<fixr:repository"));
+    assertTrue(response.body.get("log").get("events").isArray());
+  }
+
+  @Test
+  void orchestra2md() throws Exception {
+    final SyntheticOrchestra orchestra = SyntheticOrchestra.builder().build();
+    final Response response = request("POST", "/orchestra2md?datatypes", orchestra.xml());
+    assertEquals(200, response.status);
+    assertTrue(response.body.get("output").asText().contains("## Message "));
+    assertTrue(response.body.get("log").get("events").isArray());
+  }
+
+  @Test
+  void referenceEvicted() throws Exception {
+    final String first = request("PUT", "/references",
+        SyntheticOrchestra.builder().seed(1).build().xml()).body.get("reference").asText();
+    final String second = request("PUT", "/references",
+        SyntheticOrchestra.builder().seed(2).build().xml()).body.get("reference").asText();
+    final byte[] markdown = SyntheticOrchestra.builder().build().markdown();
+
+    assertEquals(404, request("POST", "/md2orchestra?reference=" + first, markdown).status);
+    assertEquals(200, request("POST", "/md2orchestra?reference=" + second, markdown).status);
+    final JsonNode references = request("GET", "/stats", null).body.get("references");
+    assertEquals(1, references.get("evictions").asLong());
+  }
+
+  @Test
+  void wrongMethod() throws Exception {
+    assertEquals(405, request("GET", "/md2orchestra", null).status);
+    assertEquals(404, request("GET", "/stats/other", null).status);
+  }
+
+  private Response request(String method, String path, byte[] body) throws IOException {
+    final HttpURLConnection connection = (HttpURLConnection) new URL(
+        "http://" + TablatureServer.DEFAULT_HOST + ":" + server.getPort() + path)
+            .openConnection();
+    connection.setRequestMethod(method);
+    if (body != null) {
+      connection.setDoOutput(true);
+      try (OutputStream out = connection.getOutputStream()) {
+        out.write(body);
+      }
+    }
+    final int status = connection.getResponseCode();
+    try (InputStream in =
+        status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+      final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      in.transferTo(bytes);
+      return new Response(status, mapper.readTree(bytes.toByteArray()));
+    }
+  }
+}
@@ -0,0 +1,208 @@
+package io.fixprotocol.tablature.synthetic;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Estimates how the time and allocation of a task grow with the size of its input
+ *
+ * A task is measured at several input sizes and the exponent {@code k} of {@code cost ~ size^k}
+ * is fitted by least squares over the logarithms. An exponent near 1 is linear growth, near 2
+ * quadratic. The fit is meant for regression tests, so measurement favors stability over
+ * precision:
+ *
+ * <ul>
+ * <li>Every task runs before measurement starts, to load classes and compile hot paths.</li>
+ * <li>Sizes are measured round-robin, so that a slow period of the machine affects all sizes
+ * rather than one.</li>
+ * <li>The minimum of the repetitions is used; noise only adds time.</li>
+ * <li>Allocation is counted in bytes allocated by the current thread, which hardly varies between
+ * runs, where the JVM supports it.</li>
+ * </ul>
+ *
+ * Fixed costs make small inputs relatively expensive and bias the exponent down, so sizes should be
+ * large enough that each run takes at least a few milliseconds.
+ */
+public final class GrowthRate {
+
+  /**
+   * A unit of work on an input that was prepared beforehand
+   */
+  @FunctionalInterface
+  public interface Task {
+    void run() throws Exception;
+  }
+
+  /**
+   * Prepares a task for an input of a given size, outside of measurement
+   */
+  @FunctionalInterface
+  public interface Workload {
+    Task prepare(int size) throws Exception;
+  }
+
+  /**
+   * Measures a workload
+   *
+   * @param workload prepares a task for each size
+   * @param repetitions number of measured runs at each size, at least one
+   * @param sizes input sizes, at least two distinct values in ascending order
+   * @return estimated growth rates
+   * @throws Exception if a task fails
+   * @throws IllegalArgumentException if there are fewer than two sizes or repetitions are not
+   *         positive
+   */
+  public static GrowthRate measure(Workload workload, int repetitions, int... sizes)
+      throws Exception {
+    if (sizes.length < 2 || sizes[0] <= 0 || repetitions < 1) {
+      throw new IllegalArgumentException("Requires two or more positive sizes and a repetition");
+    }
+    for (int i = 1; i < sizes.length; i++) {
+      if (sizes[i] <= sizes[i - 1]) {
+        throw new IllegalArgumentException("Sizes must be ascending");
+      }
+    }
+    final List<Task> tasks = new ArrayList<>(sizes.length);
+    for (final int size : sizes) {
+      tasks.add(workload.prepare(size));
+    }
+    for (final Task task : tasks) {
+      task.run();
+    }
+
+    final long[] nanos = new long[sizes.length];
+    final long[] bytes = new long[sizes.length];
+    Arrays.fill(nanos, Long.MAX_VALUE);
+    Arrays.fill(bytes, Long.MAX_VALUE);
+    final AllocationCounter counter = AllocationCounter.create();
+    for (int r = 0; r < repetitions; r++) {
+      for (int i = 0; i < sizes.length; i++) {
+        final long startBytes = counter.allocatedBytes();
+        final long startNanos = System.nanoTime();
+        tasks.get(i).run();
+        nanos[i] = Math.min(nanos[i], System.nanoTime() - startNanos);
+        bytes[i] = Math.min(bytes[i], counter.allocatedBytes() - startBytes);
+      }
+    }
+    return new GrowthRate(sizes, nanos, counter.isSupported() ? bytes : null);
+  }
+
+  /**
+   * Measures a workload again while its time grows faster than a limit
+   *
+   * Noise rarely makes several measurements in a row exceed the limit, but a real regression
+   * does, so a test may fail on the last measurement without failing on a noisy machine.
+   *
+   * @param workload prepares a task for each size
+   * @param maxTimeExponent limit of the time exponent
+   * @param attempts maximum number of measurements
+   * @param repetitions number of measured runs at each size, at least one
+   * @param sizes input sizes, at least two distinct values in ascending order
+   * @return the first measurement within the limit, or else the last measurement
+   * @throws Exception if a task fails
+   */
+  public static GrowthRate measure(Workload workload, double maxTimeExponent, int attempts,
+      int repetitions, int... sizes) throws Exception {
+    GrowthRate growthRate = measure(workload, repetitions, sizes);
+    for (int attempt = 1; attempt < attempts
+        && growthRate.getTimeExponent() > maxTimeExponent; attempt++) {
+      growthRate = measure(workload, repetitions, sizes);
+    }
+    return growthRate;
+  }
+
+  static double exponent(int[] sizes, long[] costs) {
+    final int n = sizes.length;
+    double sumX = 0.0;
+    double sumY = 0.0;
+    for (int i = 0; i < n; i++) {
+      sumX += Math.log(sizes[i]);
+      sumY += Math.log(Math.max(1L, costs[i]));
+    }
+    final double meanX = sumX / n;
+    final double meanY = sumY / n;
+    double covariance = 0.0;
+    double variance = 0.0;
+    for (int i = 0; i < n; i++) {
+      final double dx = Math.log(sizes[i]) - meanX;
+      covariance += dx * (Math.log(Math.max(1L, costs[i])) - meanY);
+      variance += dx * dx;
+    }
+    return covariance / variance;
+  }
+
+  private static final class AllocationCounter {
+    static AllocationCounter create() {
+      final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+      if (bean instanceof com.sun.management.ThreadMXBean) {
+        final com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        if (threadBean.isThreadAllocatedMemorySupported()
+            && threadBean.isThreadAllocatedMemoryEnabled()) {
+          return new AllocationCounter(threadBean);
+        }
+      }
+      return new AllocationCounter(null);
+    }
+
+    private final com.sun.management.ThreadMXBean threadBean;
+
+    private AllocationCounter(com.sun.management.ThreadMXBean threadBean) {
+      this.threadBean = threadBean;
+    }
+
+    long allocatedBytes() {
+      return threadBean != null
+          ? threadBean.getThreadAllocatedBytes(Thread.currentThread().getId())
+          : 0L;
+    }
+
+    boolean isSupported() {
+      return threadBean != null;
+    }
+  }
+
+  private final long[] bytes;
+  private final long[] nanos;
+  private final int[] sizes;
+
+  private GrowthRate(int[] sizes, long[] nanos, long[] bytes) {
+    this.sizes = sizes;
+    this.nanos = nanos;
+    this.bytes = bytes;
+  }
+
+  /**
+   * @return exponent of growth of bytes allocated by the measuring thread, or {@code NaN} if the
+   *         JVM does not count allocation
+   */
+  public double getAllocationExponent() {
+    return bytes != null ? exponent(sizes, bytes) : Double.NaN;
+  }
+
+  /**
+   * @return exponent of growth of elapsed time
+   */
+  public double getTimeExponent() {
+    return exponent(sizes, nanos);
+  }
+
+  /**
+   * @return measurements by size and fitted exponents, e.g. for an assertion message
+   */
+  @Override
+  public String toString() {
+    final StringBuilder sb = new StringBuilder();
+    sb.append(String.format("time exponent %.2f, allocation exponent %.2f%n", getTimeExponent(),
+        getAllocationExponent()));
+    for (int i = 0; i < sizes.length; i++) {
+      sb.append(String.format("size %d: %.3f ms", sizes[i], nanos[i] / 1e6));
+      if (bytes != null) {
+        sb.append(String.format(", %d bytes", bytes[i]));
+      }
+      sb.append(System.lineSeparator());
+    }
+    return sb.toString();
+  }
+}
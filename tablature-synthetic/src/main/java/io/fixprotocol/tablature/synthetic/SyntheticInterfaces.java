@@ -0,0 +1,181 @@
+package io.fixprotocol.tablature.synthetic;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Generates an Orchestra interfaces document and the equivalent tablature markdown
+ *
+ * Each interface has a protocol stack of service, encoding, session and transport layers. Each
+ * session has its own transport layer and identifiers. md2interfaces translates the markdown to
+ * the XML, element for element.
+ */
+public final class SyntheticInterfaces {
+
+  private static final String DC_NAMESPACE = "http://purl.org/dc/elements/1.1/";
+  private static final String INTERFACES_NAMESPACE =
+      "http://fixprotocol.io/2020/orchestra/interfaces";
+  private static final String SUBJECT = "Synthetic interfaces for benchmarks";
+
+  /**
+   * @param interfaceCount number of interfaces
+   * @param sessionsPerInterface number of sessions of each interface
+   * @param identifiersPerSession number of identifiers of each session, at least two
+   * @return markdown in the form read by md2interfaces
+   */
+  public static byte[] markdown(int interfaceCount, int sessionsPerInterface,
+      int identifiersPerSession) {
+    final StringBuilder sb = new StringBuilder();
+    sb.append("# Synthetic Interfaces\n\n");
+    sb.append("| Term | Value |\n|---|---|\n");
+    sb.append("| subject | ").append(SUBJECT).append(" |\n\n");
+    for (int i = 0; i < interfaceCount; i++) {
+      sb.append("## Interface Venue").append(i).append("\n\n");
+      sb.append("Order entry for venue ").append(i).append("\n\n");
+      sb.append("#### Protocols\n\n");
+      sb.append("| Layer | Name | Orchestration | Reliability |\n|---|---|---|---|\n");
+      sb.append("| Service | orderEntry | https://example.com/orchestra/orderEntry.xml | |\n");
+      sb.append("| Encoding | TagValue | | |\n");
+      sb.append("| Session | FIXT.1.1 | https://example.com/orchestra/session.xml | RECOVERABLE |\n");
+      sb.append("| Transport | TCP | | |\n\n");
+      for (int s = 0; s < sessionsPerInterface; s++) {
+        sb.append("### Session ").append(sessionName(i, s)).append("\n\n");
+        sb.append("Session of counterparty ").append(s).append("\n\n");
+        sb.append("#### Identifiers\n\n");
+        sb.append("| Name | Value |\n|---|---|\n");
+        sb.append("| SenderCompID | V").append(i).append(" |\n");
+        sb.append("| TargetCompID | C").append(s).append(" |\n");
+        for (int n = 2; n < identifiersPerSession; n++) {
+          sb.append("| Identifier").append(n).append(" | ").append(identifierValue(s, n))
+              .append(" |\n");
+        }
+        sb.append('\n');
+        sb.append("#### Protocols\n\n");
+        sb.append("| Layer | Use | Address | Messagecast |\n|---|---|---|---|\n");
+        sb.append("| Transport | primary | ").append(address(i, s)).append(" | UNICAST |\n\n");
+      }
+    }
+    return sb.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Writes an interfaces document equivalent to {@link #markdown(int, int, int)}
+   *
+   * @param outputStream destination of UTF-8 XML. Not closed.
+   * @throws IOException if the document cannot be written
+   */
+  public static void writeXml(OutputStream outputStream, int interfaceCount,
+      int sessionsPerInterface, int identifiersPerSession) throws IOException {
+    try {
+      final XMLStreamWriter writer = XMLOutputFactory.newInstance()
+          .createXMLStreamWriter(outputStream, StandardCharsets.UTF_8.name());
+      writer.writeStartDocument(StandardCharsets.UTF_8.name(), "1.0");
+      writer.setPrefix("fixi", INTERFACES_NAMESPACE);
+      writer.setPrefix("dc", DC_NAMESPACE);
+      writer.writeStartElement(INTERFACES_NAMESPACE, "interfaces");
+      writer.writeNamespace("fixi", INTERFACES_NAMESPACE);
+      writer.writeNamespace("dc", DC_NAMESPACE);
+      writer.writeStartElement(INTERFACES_NAMESPACE, "metadata");
+      writeText(writer, DC_NAMESPACE, "subject", SUBJECT);
+      writer.writeEndElement();
+      for (int i = 0; i < interfaceCount; i++) {
+        writer.writeStartElement(INTERFACES_NAMESPACE, "interface");
+        writer.writeAttribute("name", "Venue" + i);
+        writer.writeEmptyElement(INTERFACES_NAMESPACE, "service");
+        writer.writeAttribute("name", "orderEntry");
+        writer.writeAttribute("orchestration", "https://example.com/orchestra/orderEntry.xml");
+        writer.writeEmptyElement(INTERFACES_NAMESPACE, "encoding");
+        writer.writeAttribute("name", "TagValue");
+        writer.writeEmptyElement(INTERFACES_NAMESPACE, "sessionProtocol");
+        writer.writeAttribute("name", "FIXT.1.1");
+        writer.writeAttribute("reliability", "recoverable");
+        writer.writeAttribute("orchestration", "https://example.com/orchestra/session.xml");
+        writer.writeEmptyElement(INTERFACES_NAMESPACE, "transport");
+        writer.writeAttribute("name", "TCP");
+        writeAnnotation(writer, "Order entry for venue " + i);
+        writer.writeStartElement(INTERFACES_NAMESPACE, "sessions");
+        for (int s = 0; s < sessionsPerInterface; s++) {
+          writer.writeStartElement(INTERFACES_NAMESPACE, "session");
+          writer.writeAttribute("name", sessionName(i, s));
+          writer.writeEmptyElement(INTERFACES_NAMESPACE, "transport");
+          writer.writeAttribute("address", address(i, s));
+          writer.writeAttribute("messageCast", "unicast");
+          writer.writeAttribute("use", "primary");
+          writeAnnotation(writer, "Session of counterparty " + s);
+          writeIdentifier(writer, "SenderCompID", "V" + i);
+          writeIdentifier(writer, "TargetCompID", "C" + s);
+          for (int n = 2; n < identifiersPerSession; n++) {
+            writeIdentifier(writer, "Identifier" + n, identifierValue(s, n));
+          }
+          writer.writeEndElement();
+        }
+        writer.writeEndElement();
+        writer.writeEndElement();
+      }
+      writer.writeEndElement();
+      writer.writeEndDocument();
+      writer.flush();
+    } catch (final XMLStreamException e) {
+      throw new IOException(e);
+    }
+  }
+
+  /**
+   * @return an interfaces document equivalent to {@link #markdown(int, int, int)}
+   */
+  public static byte[] xml(int interfaceCount, int sessionsPerInterface,
+      int identifiersPerSession) {
+    final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    try {
+      writeXml(outputStream, interfaceCount, sessionsPerInterface, identifiersPerSession);
+    } catch (final IOException e) {
+      throw new IllegalStateException(e);
+    }
+    return outputStream.toByteArray();
+  }
+
+  private static String address(int interfaceIndex, int sessionIndex) {
+    return "10." + interfaceIndex % 256 + "." + sessionIndex / 256 % 256 + "." + sessionIndex % 256
+        + ":5000";
+  }
+
+  private static String identifierValue(int sessionIndex, int identifierIndex) {
+    return "ID" + sessionIndex + "-" + identifierIndex;
+  }
+
+  private static String sessionName(int interfaceIndex, int sessionIndex) {
+    return "V" + interfaceIndex + "-C" + sessionIndex;
+  }
+
+  private static void writeAnnotation(XMLStreamWriter writer, String text)
+      throws XMLStreamException {
+    writer.writeStartElement(INTERFACES_NAMESPACE, "annotation");
+    writer.writeStartElement(INTERFACES_NAMESPACE, "documentation");
+    writer.writeAttribute("contentType", "text/markdown");
+    writer.writeCharacters(text);
+    writer.writeEndElement();
+    writer.writeEndElement();
+  }
+
+  private static void writeIdentifier(XMLStreamWriter writer, String name, String value)
+      throws XMLStreamException {
+    writer.writeStartElement(INTERFACES_NAMESPACE, "identifier");
+    writer.writeAttribute("name", name);
+    writer.writeCharacters(value);
+    writer.writeEndElement();
+  }
+
+  private static void writeText(XMLStreamWriter writer, String namespace, String localName,
+      String text) throws XMLStreamException {
+    writer.writeStartElement(namespace, localName);
+    writer.writeCharacters(text);
+    writer.writeEndElement();
+  }
+
+  private SyntheticInterfaces() {}
+}
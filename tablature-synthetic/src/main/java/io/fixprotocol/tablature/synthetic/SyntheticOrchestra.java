@@ -0,0 +1,863 @@
+package io.fixprotocol.tablature.synthetic;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Generates an Orchestra repository and the equivalent tablature markdown
+ *
+ * Both forms are written from the same plan, so md2orchestra translates the markdown to the
+ * repository of the XML, element for element: the same names, ids, members, codes and
+ * documentation. The plan is determined by the seed and the sizes given to the {@link Builder}.
+ *
+ * <ul>
+ * <li>Fields have tags from {@value #FIRST_FIELD_ID}. The first fields are typed by codesets,
+ * others by a datatype.</li>
+ * <li>Components are nested in chains of the configured depth. A message refers to the first
+ * component of a chain.</li>
+ * <li>Each group has its own NumInGroup field, numbered after the other fields.</li>
+ * <li>A message has a base scenario and optionally more scenarios, each with a subset of the
+ * base scenario's members.</li>
+ * <li>Every element except datatypes has the configured number of paragraphs of
+ * documentation.</li>
+ * <li>Optionally, fields have FIXML names and pedigree, and datatypes have XML mappings.</li>
+ * </ul>
+ *
+ * {@link #referringMarkdown()} restates the messages by member names only, to be resolved against
+ * the XML as a reference.
+ */
+public final class SyntheticOrchestra {
+
+  public static final class Builder {
+    private int codesetCount = 10;
+    private int codesPerCodeset = 8;
+    private int componentCount = 10;
+    private boolean datatypeMappings = false;
+    private int documentationParagraphs = 1;
+    private int fieldCount = 100;
+    private boolean fixmlNames = false;
+    private int groupCount = 5;
+    private int membersPerStructure = 10;
+    private int messageCount = 10;
+    private int nestingDepth = 2;
+    private boolean pedigree = false;
+    private int scenariosPerMessage = 1;
+    private long seed = 1L;
+
+    public SyntheticOrchestra build() {
+      return new SyntheticOrchestra(this);
+    }
+
+    /**
+     * @param codesetCount number of codesets, each the type of one field. Default 10.
+     * @return this Builder
+     */
+    public Builder codesetCount(int codesetCount) {
+      this.codesetCount = codesetCount;
+      return this;
+    }
+
+    /**
+     * @param codesPerCodeset number of codes in each codeset. Default 8.
+     * @return this Builder
+     */
+    public Builder codesPerCodeset(int codesPerCodeset) {
+      this.codesPerCodeset = codesPerCodeset;
+      return this;
+    }
+
+    /**
+     * @param componentCount number of components. Default 10.
+     * @return this Builder
+     */
+    public Builder componentCount(int componentCount) {
+      this.componentCount = componentCount;
+      return this;
+    }
+
+    /**
+     * @param datatypeMappings whether each datatype has a mapping to an XML schema type. Default
+     *        false.
+     * @return this Builder
+     */
+    public Builder datatypeMappings(boolean datatypeMappings) {
+      this.datatypeMappings = datatypeMappings;
+      return this;
+    }
+
+    /**
+     * @param documentationParagraphs paragraphs of documentation of each element, zero for none.
+     *        Default 1.
+     * @return this Builder
+     */
+    public Builder documentationParagraphs(int documentationParagraphs) {
+      this.documentationParagraphs = documentationParagraphs;
+      return this;
+    }
+
+    /**
+     * @param fieldCount number of fields, not counting NumInGroup fields. Default 100.
+     * @return this Builder
+     */
+    public Builder fieldCount(int fieldCount) {
+      this.fieldCount = fieldCount;
+      return this;
+    }
+
+    /**
+     * @param fixmlNames whether each field has a FIXML name. Default false.
+     * @return this Builder
+     */
+    public Builder fixmlNames(boolean fixmlNames) {
+      this.fixmlNames = fixmlNames;
+      return this;
+    }
+
+    /**
+     * @param groupCount number of repeating groups. Default 5.
+     * @return this Builder
+     */
+    public Builder groupCount(int groupCount) {
+      this.groupCount = groupCount;
+      return this;
+    }
+
+    /**
+     * @param membersPerStructure number of fields in each component, group and message, at most
+     *        the number of fields. Default 10.
+     * @return this Builder
+     */
+    public Builder membersPerStructure(int membersPerStructure) {
+      this.membersPerStructure = membersPerStructure;
+      return this;
+    }
+
+    /**
+     * @param messageCount number of messages. Default 10.
+     * @return this Builder
+     */
+    public Builder messageCount(int messageCount) {
+      this.messageCount = messageCount;
+      return this;
+    }
+
+    /**
+     * @param nestingDepth levels of component nesting, at least 1. Default 2, that is a component
+     *        refers to one other component.
+     * @return this Builder
+     */
+    public Builder nestingDepth(int nestingDepth) {
+      this.nestingDepth = nestingDepth;
+      return this;
+    }
+
+    /**
+     * @param pedigree whether each field records the version in which it was added. Default false.
+     * @return this Builder
+     */
+    public Builder pedigree(boolean pedigree) {
+      this.pedigree = pedigree;
+      return this;
+    }
+
+    /**
+     * @param scenariosPerMessage number of scenarios of each message, including its base scenario.
+     *        Default 1.
+     * @return this Builder
+     */
+    public Builder scenariosPerMessage(int scenariosPerMessage) {
+      this.scenariosPerMessage = scenariosPerMessage;
+      return this;
+    }
+
+    /**
+     * @param seed seed of random choices. Default 1.
+     * @return this Builder
+     */
+    public Builder seed(long seed) {
+      this.seed = seed;
+      return this;
+    }
+  }
+
+  private static final class Code {
+    final String documentation;
+    final int id;
+    final String name;
+    final String value;
+
+    Code(int id, String name, String value, String documentation) {
+      this.id = id;
+      this.name = name;
+      this.value = value;
+      this.documentation = documentation;
+    }
+  }
+
+  private static final class Codeset {
+    final List<Code> codes = new ArrayList<>();
+    final String documentation;
+    final int id;
+    final String name;
+
+    Codeset(int id, String name, String documentation) {
+      this.id = id;
+      this.name = name;
+      this.documentation = documentation;
+    }
+  }
+
+  private static final class Field {
+    final String documentation;
+    final int id;
+    final String name;
+    final String type;
+
+    Field(int id, String name, String type, String documentation) {
+      this.id = id;
+      this.name = name;
+      this.type = type;
+      this.documentation = documentation;
+    }
+  }
+
+  private enum Kind {
+    COMPONENT, FIELD, GROUP
+  }
+
+  private static final class Member {
+    final int id;
+    final Kind kind;
+    final String name;
+    final String presence;
+
+    Member(Kind kind, int id, String name, String presence) {
+      this.kind = kind;
+      this.id = id;
+      this.name = name;
+      this.presence = presence;
+    }
+  }
+
+  private static final class Structure {
+    final String documentation;
+    final int id;
+    final List<Member> members = new ArrayList<>();
+    final String msgType;
+    final String name;
+    Member numInGroup;
+    final String scenario;
+
+    Structure(int id, String name, String scenario, String msgType, String documentation) {
+      this.id = id;
+      this.name = name;
+      this.scenario = scenario;
+      this.msgType = msgType;
+      this.documentation = documentation;
+    }
+  }
+
+  public static final int FIRST_FIELD_ID = 1000;
+
+  private static final String ADDED = "FIX.4.4";
+  private static final String ADDED_EP = "-1";
+  private static final String CODE_TYPE = "int";
+  private static final int FIRST_CODESET_ID = 100000;
+  private static final int FIRST_COMPONENT_ID = 200000;
+  private static final int FIRST_GROUP_ID = 300000;
+  private static final int FIRST_SCENARIO_MESSAGE_ID = 400000;
+  private static final String[] DATATYPES =
+      {"Boolean", "int", "Price", "Qty", "String", "UTCTimestamp"};
+  private static final String DCTERMS_NAMESPACE = "http://purl.org/dc/terms/";
+  private static final String NUM_IN_GROUP = "NumInGroup";
+  private static final String PARAGRAPH_DELIMITER = "/P/";
+  private static final String REPOSITORY_NAME = "Synthetic";
+  private static final String REPOSITORY_NAMESPACE =
+      "http://fixprotocol.io/2020/orchestra/repository";
+  private static final String REPOSITORY_VERSION = "1.0";
+  private static final String XML_STANDARD = "XML";
+  private static final String[] WORDS = {"account", "allocation", "amount", "broker", "cancel",
+      "clearing", "counterparty", "currency", "date", "execution", "firm", "identifier",
+      "instrument", "limit", "market", "order", "party", "price", "quantity", "quote", "reference",
+      "report", "request", "settlement", "side", "status", "time", "trade", "type", "venue"};
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  private final List<Codeset> codesets = new ArrayList<>();
+  private final List<Structure> components = new ArrayList<>();
+  private final boolean datatypeMappings;
+  private final int documentationParagraphs;
+  private final List<Field> fields = new ArrayList<>();
+  private final boolean fixmlNames;
+  private final List<Structure> groups = new ArrayList<>();
+  private final List<Structure> messages = new ArrayList<>();
+  private final boolean pedigree;
+  private final Random random;
+
+  private SyntheticOrchestra(Builder builder) {
+    if (builder.fieldCount < 1 || builder.codesetCount < 0
+        || builder.codesetCount > builder.fieldCount || builder.codesPerCodeset < 1
+        || builder.componentCount < 0 || builder.groupCount < 0 || builder.messageCount < 0
+        || builder.membersPerStructure < 1 || builder.membersPerStructure > builder.fieldCount
+        || builder.nestingDepth < 1 || builder.scenariosPerMessage < 1
+        || builder.documentationParagraphs < 0) {
+      throw new IllegalArgumentException("Invalid synthetic repository size");
+    }
+    this.random = new Random(builder.seed);
+    this.datatypeMappings = builder.datatypeMappings;
+    this.documentationParagraphs = builder.documentationParagraphs;
+    this.fixmlNames = builder.fixmlNames;
+    this.pedigree = builder.pedigree;
+    plan(builder);
+  }
+
+  /**
+   * @return number of codesets
+   */
+  public int getCodesetCount() {
+    return codesets.size();
+  }
+
+  /**
+   * @return number of components
+   */
+  public int getComponentCount() {
+    return components.size();
+  }
+
+  /**
+   * @return number of fields, including NumInGroup fields
+   */
+  public int getFieldCount() {
+    return fields.size();
+  }
+
+  /**
+   * @return number of groups
+   */
+  public int getGroupCount() {
+    return groups.size();
+  }
+
+  /**
+   * @return number of messages, counting each scenario of a message
+   */
+  public int getMessageCount() {
+    return messages.size();
+  }
+
+  /**
+   * @return tablature markdown as UTF-8
+   */
+  public byte[] markdown() {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+      writeMarkdown(writer);
+    } catch (final IOException e) {
+      throw new IllegalStateException(e);
+    }
+    return out.toByteArray();
+  }
+
+  /**
+   * Markdown of the messages alone, naming their members without tags
+   *
+   * Messages are named without type or id, and fields without tag, so md2orchestra resolves all of
+   * them from {@link #xml()} given as reference.
+   *
+   * @return tablature markdown as UTF-8
+   */
+  public byte[] referringMarkdown() {
+    final StringBuilder sb = new StringBuilder();
+    sb.append("# ").append(REPOSITORY_NAME).append(" version ").append(REPOSITORY_VERSION)
+        .append("\n\n## Messages\n");
+    for (final Structure message : messages) {
+      sb.append("\n### Message ").append(message.name);
+      if (message.scenario != null) {
+        sb.append(" scenario ").append(message.scenario);
+      }
+      sb.append("\n\n| Name | Tag | Presence |\n|---|---|---|\n");
+      for (final Member member : message.members) {
+        sb.append("| ").append(member.name).append(" | ").append(memberTag(member, ""))
+            .append(" | ").append(member.presence).append(" |\n");
+      }
+    }
+    return sb.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Writes tablature markdown
+   *
+   * @param writer markdown output, not closed by this method
+   * @throws IOException if markdown cannot be written
+   */
+  public void writeMarkdown(Writer writer) throws IOException {
+    writer.write("# " + REPOSITORY_NAME + " version " + REPOSITORY_VERSION + "\n\n");
+    writer.write("| Term | Value |\n|---|---|\n| title | " + REPOSITORY_NAME + " |\n");
+
+    writer.write("\n## Messages\n");
+    for (final Structure message : messages) {
+      writer.write("\n### Message " + message.name);
+      if (message.scenario != null) {
+        writer.write(" scenario " + message.scenario);
+      }
+      writer.write(" type " + message.msgType + " (" + message.id + ")\n");
+      writeMarkdownStructure(message, writer);
+    }
+
+    writer.write("\n## Groups\n");
+    for (final Structure group : groups) {
+      writer.write("\n### Group " + group.name + " (" + group.id + ")\n");
+      writeMarkdownStructure(group, writer);
+    }
+
+    writer.write("\n## Components\n");
+    for (final Structure component : components) {
+      writer.write("\n### Component " + component.name + " (" + component.id + ")\n");
+      writeMarkdownStructure(component, writer);
+    }
+
+    writer.write("\n## Fields\n\n| Tag | Name | Type |");
+    writer.write(fixmlNames ? " XMLName |" : "");
+    writer.write(pedigree ? " Added | Added EP |" : "");
+    writer.write(" Documentation |\n|---|---|---|");
+    writer.write(fixmlNames ? "---|" : "");
+    writer.write(pedigree ? "---|---|" : "");
+    writer.write("---|\n");
+    for (final Field field : fields) {
+      writer.write("| " + field.id + " | " + field.name + " | " + field.type + " |");
+      if (fixmlNames) {
+        writer.write(" " + abbrName(field) + " |");
+      }
+      if (pedigree) {
+        writer.write(" " + ADDED + " | " + ADDED_EP + " |");
+      }
+      writer.write(" " + toTableCell(field.documentation) + " |\n");
+    }
+
+    writer.write("\n## Codesets\n");
+    for (final Codeset codeset : codesets) {
+      writer.write("\n### Codeset " + codeset.name + " type " + CODE_TYPE + " (" + codeset.id
+          + ")\n");
+      writeMarkdownDocumentation(codeset.documentation, writer);
+      writer.write("\n| Name | Value | Id | Documentation |\n|---|---|---|---|\n");
+      for (final Code code : codeset.codes) {
+        writer.write("| " + code.name + " | " + code.value + " | " + code.id + " | "
+            + toTableCell(code.documentation) + " |\n");
+      }
+    }
+
+    if (datatypeMappings) {
+      writer.write("\n## Datatypes\n\n| Name | Standard | Base |\n|---|---|---|\n");
+      for (final String datatype : usedDatatypes()) {
+        writer.write("| " + datatype + " | " + XML_STANDARD + " | " + xmlBase(datatype) + " |\n");
+      }
+    } else {
+      writer.write("\n## Datatypes\n\n| Name |\n|---|\n");
+      for (final String datatype : usedDatatypes()) {
+        writer.write("| " + datatype + " |\n");
+      }
+    }
+    writer.flush();
+  }
+
+  /**
+   * Writes the Orchestra repository
+   *
+   * @param outputStream XML output as UTF-8, not closed by this method
+   * @throws IOException if XML cannot be written
+   */
+  public void writeXml(OutputStream outputStream) throws IOException {
+    try {
+      final XMLStreamWriter writer = XMLOutputFactory.newInstance()
+          .createXMLStreamWriter(outputStream, StandardCharsets.UTF_8.name());
+      writer.writeStartDocument(StandardCharsets.UTF_8.name(), "1.0");
+      writer.writeCharacters("\n");
+      writer.setPrefix("fixr", REPOSITORY_NAMESPACE);
+      writer.setPrefix("dcterms", DCTERMS_NAMESPACE);
+      writer.writeStartElement(REPOSITORY_NAMESPACE, "repository");
+      writer.writeNamespace("fixr", REPOSITORY_NAMESPACE);
+      writer.writeNamespace("dcterms", DCTERMS_NAMESPACE);
+      writer.writeAttribute("name", REPOSITORY_NAME);
+      writer.writeAttribute("version", REPOSITORY_VERSION);
+
+      startElement(writer, 1, "metadata");
+      indent(writer, 2);
+      writer.writeStartElement(DCTERMS_NAMESPACE, "title");
+      writer.writeCharacters(REPOSITORY_NAME);
+      writer.writeEndElement();
+      endElement(writer, 1);
+
+      startElement(writer, 1, "datatypes");
+      for (final String datatype : usedDatatypes()) {
+        if (datatypeMappings) {
+          startElement(writer, 2, "datatype");
+          writer.writeAttribute("name", datatype);
+          indent(writer, 3);
+          writer.writeEmptyElement(REPOSITORY_NAMESPACE, "mappedDatatype");
+          writer.writeAttribute("standard", XML_STANDARD);
+          writer.writeAttribute("base", xmlBase(datatype));
+          endElement(writer, 2);
+        } else {
+          indent(writer, 2);
+          writer.writeEmptyElement(REPOSITORY_NAMESPACE, "datatype");
+          writer.writeAttribute("name", datatype);
+        }
+      }
+      endElement(writer, 1);
+
+      startElement(writer, 1, "codeSets");
+      for (final Codeset codeset : codesets) {
+        startElement(writer, 2, "codeSet");
+        writer.writeAttribute("name", codeset.name);
+        writer.writeAttribute("id", Integer.toString(codeset.id));
+        writer.writeAttribute("type", CODE_TYPE);
+        for (final Code code : codeset.codes) {
+          startElement(writer, 3, "code");
+          writer.writeAttribute("name", code.name);
+          writer.writeAttribute("id", Integer.toString(code.id));
+          writer.writeAttribute("value", code.value);
+          writeXmlAnnotation(code.documentation, writer, 4);
+          endElement(writer, 3);
+        }
+        writeXmlAnnotation(codeset.documentation, writer, 3);
+        endElement(writer, 2);
+      }
+      endElement(writer, 1);
+
+      startElement(writer, 1, "fields");
+      for (final Field field : fields) {
+        startElement(writer, 2, "field");
+        writer.writeAttribute("id", Integer.toString(field.id));
+        writer.writeAttribute("name", field.name);
+        writer.writeAttribute("type", field.type);
+        if (fixmlNames) {
+          writer.writeAttribute("abbrName", abbrName(field));
+        }
+        if (pedigree) {
+          writer.writeAttribute("added", ADDED);
+          writer.writeAttribute("addedEP", ADDED_EP);
+        }
+        writeXmlAnnotation(field.documentation, writer, 3);
+        endElement(writer, 2);
+      }
+      endElement(writer, 1);
+
+      startElement(writer, 1, "components");
+      for (final Structure component : components) {
+        startElement(writer, 2, "component");
+        writer.writeAttribute("id", Integer.toString(component.id));
+        writer.writeAttribute("name", component.name);
+        writeXmlMembers(component.members, writer, 3);
+        writeXmlAnnotation(component.documentation, writer, 3);
+        endElement(writer, 2);
+      }
+      endElement(writer, 1);
+
+      startElement(writer, 1, "groups");
+      for (final Structure group : groups) {
+        startElement(writer, 2, "group");
+        writer.writeAttribute("id", Integer.toString(group.id));
+        writer.writeAttribute("name", group.name);
+        indent(writer, 3);
+        writer.writeEmptyElement(REPOSITORY_NAMESPACE, "numInGroup");
+        writer.writeAttribute("id", Integer.toString(group.numInGroup.id));
+        writeXmlMembers(group.members, writer, 3);
+        writeXmlAnnotation(group.documentation, writer, 3);
+        endElement(writer, 2);
+      }
+      endElement(writer, 1);
+
+      startElement(writer, 1, "messages");
+      for (final Structure message : messages) {
+        startElement(writer, 2, "message");
+        writer.writeAttribute("name", message.name);
+        writer.writeAttribute("id", Integer.toString(message.id));
+        writer.writeAttribute("msgType", message.msgType);
+        if (message.scenario != null) {
+          writer.writeAttribute("scenario", message.scenario);
+        }
+        startElement(writer, 3, "structure");
+        writeXmlMembers(message.members, writer, 4);
+        endElement(writer, 3);
+        writeXmlAnnotation(message.documentation, writer, 3);
+        endElement(writer, 2);
+      }
+      endElement(writer, 1);
+
+      endElement(writer, 0);
+      writer.writeEndDocument();
+      writer.flush();
+      writer.close();
+    } catch (final XMLStreamException e) {
+      throw new IOException(e);
+    }
+  }
+
+  /**
+   * @return Orchestra repository XML as UTF-8
+   */
+  public byte[] xml() {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try {
+      writeXml(out);
+    } catch (final IOException e) {
+      throw new IllegalStateException(e);
+    }
+    return out.toByteArray();
+  }
+
+  private String abbrName(Field field) {
+    return "F" + field.id;
+  }
+
+  private void addFieldMembers(Structure structure, int count) {
+    final List<Field> candidates = new ArrayList<>(fields);
+    Collections.shuffle(candidates, random);
+    for (final Field field : candidates.subList(0, count)) {
+      structure.members.add(new Member(Kind.FIELD, field.id, field.name, presence()));
+    }
+  }
+
+  private String documentation() {
+    if (documentationParagraphs == 0) {
+      return null;
+    }
+    final StringBuilder sb = new StringBuilder();
+    for (int p = 0; p < documentationParagraphs; p++) {
+      if (p > 0) {
+        sb.append("\n\n");
+      }
+      for (int s = 0; s < 2; s++) {
+        if (s > 0) {
+          sb.append(' ');
+        }
+        final int wordCount = 6 + random.nextInt(7);
+        for (int w = 0; w < wordCount; w++) {
+          final String word = WORDS[random.nextInt(WORDS.length)];
+          if (w == 0) {
+            sb.append(Character.toUpperCase(word.charAt(0))).append(word, 1, word.length());
+          } else {
+            sb.append(' ').append(word);
+          }
+        }
+        sb.append('.');
+      }
+    }
+    return sb.toString();
+  }
+
+  private void endElement(XMLStreamWriter writer, int depth) throws XMLStreamException {
+    indent(writer, depth);
+    writer.writeEndElement();
+  }
+
+  private void indent(XMLStreamWriter writer, int depth) throws XMLStreamException {
+    writer.writeCharacters("\n");
+    for (int i = 0; i < depth; i++) {
+      writer.writeCharacters("  ");
+    }
+  }
+
+  private String memberTag(Member member, String fieldTag) {
+    switch (member.kind) {
+      case COMPONENT:
+        return "component";
+      case GROUP:
+        return "group";
+      default:
+        return fieldTag;
+    }
+  }
+
+  private void plan(Builder builder) {
+    for (int i = 0; i < builder.fieldCount; i++) {
+      final int id = FIRST_FIELD_ID + i;
+      String type;
+      if (i < builder.codesetCount) {
+        final Codeset codeset =
+            new Codeset(FIRST_CODESET_ID + i, "Codeset" + i, documentation());
+        for (int c = 0; c < builder.codesPerCodeset; c++) {
+          codeset.codes.add(new Code(FIRST_CODESET_ID * 10 + i * builder.codesPerCodeset + c,
+              "Code" + c, Integer.toString(c + 1), documentation()));
+        }
+        codesets.add(codeset);
+        type = codeset.name;
+      } else {
+        type = DATATYPES[random.nextInt(DATATYPES.length)];
+      }
+      fields.add(new Field(id, "Field" + id, type, documentation()));
+    }
+
+    for (int c = 0; c < builder.componentCount; c++) {
+      final Structure component =
+          new Structure(FIRST_COMPONENT_ID + c, "Component" + c, null, null, documentation());
+      addFieldMembers(component, builder.membersPerStructure);
+      if (c % builder.nestingDepth < builder.nestingDepth - 1 && c + 1 < builder.componentCount) {
+        component.members.add(new Member(Kind.COMPONENT, FIRST_COMPONENT_ID + c + 1,
+            "Component" + (c + 1), presence()));
+      }
+      components.add(component);
+    }
+
+    for (int g = 0; g < builder.groupCount; g++) {
+      final Structure group =
+          new Structure(FIRST_GROUP_ID + g, "Group" + g, null, null, documentation());
+      addFieldMembers(group, builder.membersPerStructure);
+      groups.add(group);
+    }
+    // NumInGroup fields are not members of other structures
+    for (final Structure group : groups) {
+      final int id = FIRST_FIELD_ID + fields.size();
+      final Field numInGroup = new Field(id, "No" + group.name, NUM_IN_GROUP, documentation());
+      fields.add(numInGroup);
+      group.numInGroup = new Member(Kind.FIELD, id, numInGroup.name, null);
+    }
+
+    final int chainCount =
+        (builder.componentCount + builder.nestingDepth - 1) / builder.nestingDepth;
+    final List<Field> plainFields = fields.subList(0, builder.fieldCount);
+    for (int m = 0; m < builder.messageCount; m++) {
+      final Structure message =
+          new Structure(m + 1, "Message" + m, null, "M" + m, documentation());
+      final List<Field> candidates = new ArrayList<>(plainFields);
+      Collections.shuffle(candidates, random);
+      for (final Field field : candidates.subList(0, builder.membersPerStructure)) {
+        message.members.add(new Member(Kind.FIELD, field.id, field.name, presence()));
+      }
+      if (chainCount > 0) {
+        final int c = random.nextInt(chainCount) * builder.nestingDepth;
+        message.members.add(
+            new Member(Kind.COMPONENT, FIRST_COMPONENT_ID + c, "Component" + c, presence()));
+      }
+      if (!groups.isEmpty()) {
+        final Structure group = groups.get(random.nextInt(groups.size()));
+        message.members.add(new Member(Kind.GROUP, group.id, group.name, presence()));
+      }
+      messages.add(message);
+
+      for (int s = 1; s < builder.scenariosPerMessage; s++) {
+        final Structure scenario = new Structure(
+            FIRST_SCENARIO_MESSAGE_ID + m * builder.scenariosPerMessage + s, message.name,
+            "Scenario" + s, message.msgType, documentation());
+        for (final Member member : message.members) {
+          if (random.nextBoolean()) {
+            scenario.members.add(member);
+          }
+        }
+        if (scenario.members.isEmpty()) {
+          scenario.members.add(message.members.get(0));
+        }
+        messages.add(scenario);
+      }
+    }
+  }
+
+  private String presence() {
+    return random.nextInt(3) == 0 ? "required" : "optional";
+  }
+
+  private void startElement(XMLStreamWriter writer, int depth, String localName)
+      throws XMLStreamException {
+    indent(writer, depth);
+    writer.writeStartElement(REPOSITORY_NAMESPACE, localName);
+  }
+
+  private String toTableCell(String documentation) {
+    return documentation != null ? documentation.replace("\n\n", PARAGRAPH_DELIMITER) : "";
+  }
+
+  private List<String> usedDatatypes() {
+    final List<String> datatypes = new ArrayList<>();
+    for (final String datatype : DATATYPES) {
+      if (fields.stream().anyMatch(f -> f.type.equals(datatype))) {
+        datatypes.add(datatype);
+      }
+    }
+    if (!groups.isEmpty()) {
+      datatypes.add(NUM_IN_GROUP);
+    }
+    return datatypes;
+  }
+
+  private void writeMarkdownDocumentation(String documentation, Writer writer)
+      throws IOException {
+    if (documentation != null) {
+      writer.write("\n" + documentation + "\n");
+    }
+  }
+
+  private void writeMarkdownStructure(Structure structure, Writer writer) throws IOException {
+    writeMarkdownDocumentation(structure.documentation, writer);
+    writer.write("\n| Name | Tag | Presence |\n|---|---|---|\n");
+    if (structure.numInGroup != null) {
+      writer.write("| " + structure.numInGroup.name + " | " + structure.numInGroup.id + " | |\n");
+    }
+    for (final Member member : structure.members) {
+      writer.write("| " + member.name + " | " + memberTag(member, Integer.toString(member.id))
+          + " | " + member.presence + " |\n");
+    }
+  }
+
+  private String xmlBase(String datatype) {
+    switch (datatype) {
+      case "Boolean":
+        return "xs:boolean";
+      case "int":
+        return "xs:integer";
+      case "Price":
+      case "Qty":
+        return "xs:decimal";
+      case "UTCTimestamp":
+        return "xs:dateTime";
+      case NUM_IN_GROUP:
+        return "xs:positiveInteger";
+      default:
+        return "xs:string";
+    }
+  }
+
+  private void writeXmlAnnotation(String documentation, XMLStreamWriter writer, int depth)
+      throws XMLStreamException {
+    if (documentation != null) {
+      startElement(writer, depth, "annotation");
+      startElement(writer, depth + 1, "documentation");
+      writer.writeAttribute("contentType", "text/markdown");
+      writer.writeCharacters(documentation);
+      writer.writeEndElement();
+      endElement(writer, depth);
+    }
+  }
+
+  private void writeXmlMembers(List<Member> members, XMLStreamWriter writer, int depth)
+      throws XMLStreamException {
+    for (final Member member : members) {
+      indent(writer, depth);
+      switch (member.kind) {
+        case COMPONENT:
+          writer.writeEmptyElement(REPOSITORY_NAMESPACE, "componentRef");
+          break;
+        case GROUP:
+          writer.writeEmptyElement(REPOSITORY_NAMESPACE, "groupRef");
+          break;
+        default:
+          writer.writeEmptyElement(REPOSITORY_NAMESPACE, "fieldRef");
+      }
+      writer.writeAttribute("id", Integer.toString(member.id));
+      writer.writeAttribute("presence", member.presence);
+    }
+  }
+}
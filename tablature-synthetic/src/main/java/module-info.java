@@ -0,0 +1,7 @@
+module tablature.synthetic {
+  exports io.fixprotocol.tablature.synthetic;
+
+  requires java.management;
+  requires java.xml;
+  requires jdk.management;
+}
@@ -0,0 +1,43 @@
+package io.fixprotocol.tablature.synthetic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+class GrowthRateTest {
+
+  private static volatile Object sink;
+
+  @Test
+  void exponent() {
+    final int[] sizes = {10, 20, 40, 80};
+    assertEquals(1.0, GrowthRate.exponent(sizes, new long[] {30, 60, 120, 240}), 1e-9);
+    assertEquals(2.0, GrowthRate.exponent(sizes, new long[] {100, 400, 1600, 6400}), 1e-9);
+    assertEquals(0.0, GrowthRate.exponent(sizes, new long[] {7, 7, 7, 7}), 1e-9);
+  }
+
+  @Test
+  void invalidSizes() {
+    assertThrows(IllegalArgumentException.class,
+        () -> GrowthRate.measure(size -> () -> {}, 1, 10));
+    assertThrows(IllegalArgumentException.class,
+        () -> GrowthRate.measure(size -> () -> {}, 1, 20, 10));
+    assertThrows(IllegalArgumentException.class,
+        () -> GrowthRate.measure(size -> () -> {}, 0, 10, 20));
+  }
+
+  @Test
+  void linearAndQuadraticAllocation() throws Exception {
+    final int[] sizes = {100, 200, 400, 800};
+    final GrowthRate linear =
+        GrowthRate.measure(size -> () -> sink = new long[size * 100], 3, sizes);
+    final GrowthRate quadratic =
+        GrowthRate.measure(size -> () -> sink = new long[size * size], 3, sizes);
+    if (!Double.isNaN(linear.getAllocationExponent())) {
+      assertEquals(1.0, linear.getAllocationExponent(), 0.1, linear::toString);
+      assertEquals(2.0, quadratic.getAllocationExponent(), 0.1, quadratic::toString);
+    }
+    assertTrue(linear.toString().contains("size 800"));
+  }
+}
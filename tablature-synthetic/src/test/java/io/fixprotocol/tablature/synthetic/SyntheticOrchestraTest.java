@@ -0,0 +1,83 @@
+package io.fixprotocol.tablature.synthetic;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.ByteArrayInputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.SchemaFactory;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.ls.DOMImplementationLS;
+import org.w3c.dom.ls.LSInput;
+
+class SyntheticOrchestraTest {
+
+  @Test
+  void deterministic() {
+    final SyntheticOrchestra first = SyntheticOrchestra.builder().seed(7).build();
+    final SyntheticOrchestra second = SyntheticOrchestra.builder().seed(7).build();
+    assertArrayEquals(first.xml(), second.xml());
+    assertArrayEquals(first.markdown(), second.markdown());
+
+    final SyntheticOrchestra other = SyntheticOrchestra.builder().seed(8).build();
+    assertFalse(Arrays.equals(first.markdown(), other.markdown()));
+  }
+
+  @Test
+  void invalidSize() {
+    assertThrows(IllegalArgumentException.class,
+        () -> SyntheticOrchestra.builder().fieldCount(5).membersPerStructure(6).build());
+    assertThrows(IllegalArgumentException.class,
+        () -> SyntheticOrchestra.builder().nestingDepth(0).build());
+  }
+
+  @Test
+  void sizes() {
+    final SyntheticOrchestra orchestra = SyntheticOrchestra.builder().fieldCount(200)
+        .codesetCount(20).componentCount(12).nestingDepth(4).groupCount(3).messageCount(5)
+        .scenariosPerMessage(3).documentationParagraphs(2).build();
+    assertEquals(203, orchestra.getFieldCount());
+    assertEquals(20, orchestra.getCodesetCount());
+    assertEquals(12, orchestra.getComponentCount());
+    assertEquals(3, orchestra.getGroupCount());
+    assertEquals(15, orchestra.getMessageCount());
+
+    final String markdown = new String(orchestra.markdown(), StandardCharsets.UTF_8);
+    assertTrue(markdown.contains("### Message Message4 scenario Scenario2 type M4"));
+    // first component of a chain of 4
+    assertTrue(markdown.contains("| Component9 | component |"));
+    assertFalse(markdown.contains("| Component12 | component |"));
+  }
+
+  @Test
+  void validXml() throws Exception {
+    final URL schemaUrl =
+        Thread.currentThread().getContextClassLoader().getResource("xsd/repository.xsd");
+    final SyntheticOrchestra orchestra = SyntheticOrchestra.builder().scenariosPerMessage(2)
+        .documentationParagraphs(3).fixmlNames(true).pedigree(true).datatypeMappings(true)
+        .build();
+    final SchemaFactory schemaFactory =
+        SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+    // the schema imports xml.xsd from w3.org; use the copy beside it instead
+    final String xmlSchemaUrl = new URL(schemaUrl, "xml.xsd").toString();
+    final DOMImplementationLS ls = (DOMImplementationLS) DocumentBuilderFactory.newInstance()
+        .newDocumentBuilder().getDOMImplementation();
+    schemaFactory.setResourceResolver((type, namespaceURI, publicId, systemId, baseURI) -> {
+      if (XMLConstants.XML_NS_URI.equals(namespaceURI)) {
+        final LSInput input = ls.createLSInput();
+        input.setSystemId(xmlSchemaUrl);
+        return input;
+      }
+      return null;
+    });
+    schemaFactory.newSchema(schemaUrl).newValidator()
+        .validate(new StreamSource(new ByteArrayInputStream(orchestra.xml())));
+  }
+}